@@ -16,22 +16,18 @@
  */
 package com.netflix.priam.aws;
 
-import com.google.api.client.util.Lists;
 import com.google.common.base.Preconditions;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableSet;
 import com.netflix.priam.backup.AbstractBackupPath;
-import com.netflix.priam.compress.CompressionType;
+import com.netflix.priam.backup.RemoteKey;
 import com.netflix.priam.config.IConfiguration;
 import com.netflix.priam.identity.InstanceIdentity;
 import com.netflix.priam.utils.DateUtil;
+import java.io.File;
 import java.nio.file.Path;
 import java.nio.file.Paths;
-import java.time.Instant;
-import java.util.Arrays;
 import java.util.Date;
-import java.util.List;
-import java.util.Optional;
 import javax.inject.Inject;
 
 /**
@@ -45,6 +41,8 @@ public class RemoteBackupPath extends AbstractBackupPath {
                     BackupFileType.META_V2,
                     BackupFileType.SST_V2,
                     BackupFileType.SECONDARY_INDEX_V2);
+    // Lookup table of the file types parsed from V1 remote paths, in declaration order.
+    private static final BackupFileType[] FILE_TYPES = BackupFileType.values();
 
     @Inject
     public RemoteBackupPath(IConfiguration config, InstanceIdentity factory) {
@@ -98,34 +96,29 @@ public class RemoteBackupPath extends AbstractBackupPath {
         return toPath(parts.build()).toString();
     }
 
-    private void parseV2Location(Path remotePath) {
-        Preconditions.checkArgument(
-                remotePath.getNameCount() >= 8,
-                String.format("%s has fewer than %d parts", remotePath, 8));
-        int index = 0;
-        baseDir = remotePath.getName(index++).toString();
-        clusterName = removeHash(remotePath.getName(index++).toString());
-        token = remotePath.getName(index++).toString();
-        type = BackupFileType.valueOf(remotePath.getName(index++).toString());
-        String lastModified = remotePath.getName(index++).toString();
-        setLastModified(Instant.ofEpochMilli(Long.parseLong(lastModified)));
-        List<String> parts = Lists.newArrayListWithCapacity(4);
+    private void parseV2Location(String remotePath) {
+        RemoteKey key = RemoteKey.parse(remotePath);
+        baseDir = key.getBaseDir();
+        clusterName = key.getClusterName();
+        token = key.getToken();
+        type = key.getType();
+        setLastModified(key.getLastModified());
+        StringBuilder backupFilePath = new StringBuilder(config.getDataFileLocation());
         if (BackupFileType.isDataFile(type)) {
-            keyspace = remotePath.getName(index++).toString();
-            columnFamily = remotePath.getName(index++).toString();
-            parts.add(keyspace);
-            parts.add(columnFamily);
+            keyspace = key.getKeyspace();
+            columnFamily = key.getColumnFamily();
+            backupFilePath.append(PATH_SEP).append(keyspace).append(PATH_SEP).append(columnFamily);
         }
         if (type == BackupFileType.SECONDARY_INDEX_V2) {
-            indexDir = remotePath.getName(index++).toString();
-            parts.add(indexDir);
+            indexDir = key.getIndexDir();
+            backupFilePath.append(PATH_SEP).append(indexDir);
         }
-        setCompression(CompressionType.valueOf(remotePath.getName(index++).toString()));
-        setEncryption(remotePath.getName(index++).toString());
-        fileName = remotePath.getName(index).toString();
-        parts.add(fileName);
-        this.backupFile =
-                Paths.get(config.getDataFileLocation(), parts.toArray(new String[] {})).toFile();
+        setCompression(key.getCompression());
+        setEncryption(key.getEncryption());
+        fileName = key.getFileName();
+        backupFilePath.append(PATH_SEP).append(fileName);
+        // File drops redundant separators the same way Path does.
+        this.backupFile = new File(backupFilePath.toString());
     }
 
     private String getV1Location() {
@@ -143,28 +136,103 @@ public class RemoteBackupPath extends AbstractBackupPath {
         return Paths.get(parts.get(0), parts.subList(1, parts.size()).toArray(new String[0]));
     }
 
-    private void parseV1Location(Path remotePath) {
+    private void parseV1Location(String remotePath, int[] names) {
         Preconditions.checkArgument(
-                remotePath.getNameCount() >= 7,
-                String.format("%s has fewer than %d parts", remotePath, 7));
-        parseV1Prefix(remotePath);
-        time = DateUtil.getDate(remotePath.getName(4).toString());
-        type = BackupFileType.valueOf(remotePath.getName(5).toString());
+                getNameCount(names) >= 7, "%s has fewer than %s parts", remotePath, 7);
+        parseV1Prefix(remotePath, names);
+        time = DateUtil.getDate(getName(remotePath, names, 4));
+        type = valueOf(FILE_TYPES, remotePath, start(names, 5), end(names, 5));
         if (BackupFileType.isDataFile(type)) {
-            keyspace = remotePath.getName(6).toString();
-            columnFamily = remotePath.getName(7).toString();
+            keyspace = getName(remotePath, names, 6);
+            columnFamily = getName(remotePath, names, 7);
         }
-        fileName = remotePath.getName(remotePath.getNameCount() - 1).toString();
+        fileName = getName(remotePath, names, getNameCount(names) - 1);
     }
 
-    private void parseV1Prefix(Path remotePath) {
+    private void parseV1Prefix(String remotePath, int[] names) {
         Preconditions.checkArgument(
-                remotePath.getNameCount() >= 4,
-                String.format("%s needs %d parts to parse prefix", remotePath, 4));
-        baseDir = remotePath.getName(0).toString();
-        region = remotePath.getName(1).toString();
-        clusterName = remotePath.getName(2).toString();
-        token = remotePath.getName(3).toString();
+                getNameCount(names) >= 4, "%s needs %s parts to parse prefix", remotePath, 4);
+        baseDir = getName(remotePath, names, 0);
+        region = getName(remotePath, names, 1);
+        clusterName = getName(remotePath, names, 2);
+        token = getName(remotePath, names, 3);
+    }
+
+    /**
+     * Find the names of the remote path, as {@link Path#getName(int)} would without building a
+     * Path. Empty names, e.g. from repeated separators, are skipped.
+     *
+     * @return the no. of names, followed by the start and end index of each name.
+     */
+    private static int[] getNames(String remotePath) {
+        int separators = 0;
+        for (int i = 0; i < remotePath.length(); i++)
+            if (remotePath.charAt(i) == PATH_SEP) separators++;
+        int[] names = new int[2 * separators + 3];
+        int count = 0;
+        int start = 0;
+        for (int i = 0; i <= remotePath.length(); i++) {
+            if (i < remotePath.length() && remotePath.charAt(i) != PATH_SEP) continue;
+            if (i > start) {
+                names[1 + 2 * count] = start;
+                names[2 + 2 * count] = i;
+                count++;
+            }
+            start = i + 1;
+        }
+        names[0] = count;
+        return names;
+    }
+
+    private static int getNameCount(int[] names) {
+        return names[0];
+    }
+
+    private static int start(int[] names, int index) {
+        if (index >= names[0]) throw new IllegalArgumentException("No name at index: " + index);
+        return names[1 + 2 * index];
+    }
+
+    private static int end(int[] names, int index) {
+        if (index >= names[0]) throw new IllegalArgumentException("No name at index: " + index);
+        return names[2 + 2 * index];
+    }
+
+    private static String getName(String remotePath, int[] names, int index) {
+        return remotePath.substring(start(names, index), end(names, index));
+    }
+
+    /**
+     * Find the type of backup file in advance of parsing. This is the first type, in declaration
+     * order, which is a name of the path between two separators.
+     */
+    private static BackupFileType inferType(String remotePath, int[] names) {
+        for (BackupFileType fileType : FILE_TYPES) {
+            for (int index = 0; index < getNameCount(names); index++) {
+                int start = start(names, index);
+                int end = end(names, index);
+                if (start > 0
+                        && end < remotePath.length()
+                        && matches(fileType, remotePath, start, end)) return fileType;
+            }
+        }
+        return null;
+    }
+
+    private static <T extends Enum<T>> T valueOf(
+            T[] values, String remotePath, int start, int end) {
+        for (T value : values) if (matches(value, remotePath, start, end)) return value;
+        throw new IllegalArgumentException(
+                "No enum constant "
+                        + values.getClass().getComponentType().getCanonicalName()
+                        + "."
+                        + remotePath.substring(start, end));
+    }
+
+    private static boolean matches(Enum<?> value, String remotePath, int start, int end) {
+        String name = value.name();
+        return name.length() == end - start
+                && remotePath.regionMatches(start, name, 0, end - start);
     }
 
     /**
@@ -181,22 +249,20 @@ public class RemoteBackupPath extends AbstractBackupPath {
 
     @Override
     public void parseRemote(String remotePath) {
+        // The path is parsed by index as this runs for every object listed.
+        int[] names = getNames(remotePath);
         // Hack to determine type in advance of parsing. Will disappear once v1 is retired
-        Optional<BackupFileType> inferredType =
-                Arrays.stream(BackupFileType.values())
-                        .filter(bft -> remotePath.contains(PATH_SEP + bft.toString() + PATH_SEP))
-                        .findAny()
-                        .filter(V2_ONLY_FILE_TYPES::contains);
-        if (inferredType.isPresent()) {
-            parseV2Location(Paths.get(remotePath));
+        BackupFileType inferredType = inferType(remotePath, names);
+        if (inferredType != null && V2_ONLY_FILE_TYPES.contains(inferredType)) {
+            parseV2Location(remotePath);
         } else {
-            parseV1Location(Paths.get(remotePath));
+            parseV1Location(remotePath, names);
         }
     }
 
     @Override
     public void parsePartialPrefix(String remoteFilePath) {
-        parseV1Prefix(Paths.get(remoteFilePath));
+        parseV1Prefix(remoteFilePath, getNames(remoteFilePath));
     }
 
     @Override
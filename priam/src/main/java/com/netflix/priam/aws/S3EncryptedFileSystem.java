@@ -19,9 +19,12 @@ import com.amazonaws.services.s3.model.InitiateMultipartUploadRequest;
 import com.amazonaws.services.s3.model.InitiateMultipartUploadResult;
 import com.amazonaws.services.s3.model.PartETag;
 import com.netflix.priam.backup.AbstractBackupPath;
+import com.netflix.priam.backup.BackupFileReader;
 import com.netflix.priam.backup.BackupRestoreException;
+import com.netflix.priam.backup.DiskReadGovernor;
 import com.netflix.priam.backup.DynamicRateLimiter;
 import com.netflix.priam.backup.RangeReadInputStream;
+import com.netflix.priam.backupv2.BackupCatalog;
 import com.netflix.priam.compress.ChunkedStream;
 import com.netflix.priam.compress.ICompression;
 import com.netflix.priam.config.IConfiguration;
@@ -53,6 +56,7 @@ public class S3EncryptedFileSystem extends S3FileSystemBase {
     private static final Logger logger = LoggerFactory.getLogger(S3EncryptedFileSystem.class);
     private final IFileCryptography encryptor;
     private final DynamicRateLimiter dynamicRateLimiter;
+    private final DiskReadGovernor diskReadGovernor;
 
     @Inject
     public S3EncryptedFileSystem(
@@ -64,11 +68,14 @@ public class S3EncryptedFileSystem extends S3FileSystemBase {
             BackupMetrics backupMetrics,
             BackupNotificationMgr backupNotificationMgr,
             InstanceInfo instanceInfo,
-            DynamicRateLimiter dynamicRateLimiter) {
+            DynamicRateLimiter dynamicRateLimiter,
+            DiskReadGovernor diskReadGovernor,
+            BackupCatalog backupCatalog) {
 
-        super(pathProvider, compress, config, backupMetrics, backupNotificationMgr);
+        super(pathProvider, compress, config, backupMetrics, backupNotificationMgr, backupCatalog);
         this.encryptor = fileCryptography;
         this.dynamicRateLimiter = dynamicRateLimiter;
+        this.diskReadGovernor = diskReadGovernor;
         super.s3Client =
                 AmazonS3Client.builder()
                         .withCredentials(cred.getAwsCredentialProvider())
@@ -102,6 +109,11 @@ public class S3EncryptedFileSystem extends S3FileSystemBase {
         }
     }
 
+    @Override
+    protected void uploadSkipped(AbstractBackupPath path) {
+        dynamicRateLimiter.uploaded(path);
+    }
+
     @Override
     protected long uploadFileImpl(AbstractBackupPath path, Instant target)
             throws BackupRestoreException {
@@ -127,7 +139,10 @@ public class S3EncryptedFileSystem extends S3FileSystemBase {
                     compressedDstFile.getAbsolutePath(),
                     chunkSize);
 
-        try (InputStream in = new FileInputStream(localPath.toFile());
+        try (InputStream in =
+                        diskReadGovernor.pace(
+                                BackupFileReader.open(
+                                        localPath.toFile(), config.getBackupReadMode()));
                 BufferedOutputStream compressedBos =
                         new BufferedOutputStream(new FileOutputStream(compressedDstFile))) {
             Iterator<byte[]> compressedChunks =
@@ -155,8 +170,6 @@ public class S3EncryptedFileSystem extends S3FileSystemBase {
 
             while (chunks.hasNext()) {
                 byte[] chunk = chunks.next();
-                // throttle upload to endpoint
-                rateLimiter.acquire(chunk.length);
                 dynamicRateLimiter.acquire(path, target, chunk.length);
 
                 DataPart dp =
@@ -186,6 +199,7 @@ public class S3EncryptedFileSystem extends S3FileSystemBase {
             CompleteMultipartUploadResult resultS3MultiPartUploadComplete =
                     new S3PartUploader(s3Client, part, partETags).completeUpload();
             checkSuccessfulUpload(resultS3MultiPartUploadComplete, localPath);
+            dynamicRateLimiter.uploaded(path);
             return encryptedFileSize;
         } catch (Exception e) {
             new S3PartUploader(s3Client, part, partETags).abortUpload();
@@ -22,9 +22,12 @@ import com.amazonaws.services.s3.model.*;
 import com.google.common.base.Preconditions;
 import com.netflix.priam.aws.auth.IS3Credential;
 import com.netflix.priam.backup.AbstractBackupPath;
+import com.netflix.priam.backup.BackupFileReader;
 import com.netflix.priam.backup.BackupRestoreException;
+import com.netflix.priam.backup.DiskReadGovernor;
 import com.netflix.priam.backup.DynamicRateLimiter;
 import com.netflix.priam.backup.RangeReadInputStream;
+import com.netflix.priam.backupv2.BackupCatalog;
 import com.netflix.priam.compress.ChunkedStream;
 import com.netflix.priam.compress.CompressionType;
 import com.netflix.priam.compress.ICompression;
@@ -57,6 +60,7 @@ public class S3FileSystem extends S3FileSystemBase {
     private static final Logger logger = LoggerFactory.getLogger(S3FileSystem.class);
     private static final long MAX_BUFFER_SIZE = 5L * 1024L * 1024L;
     private final DynamicRateLimiter dynamicRateLimiter;
+    private final DiskReadGovernor diskReadGovernor;
 
     @Inject
     public S3FileSystem(
@@ -67,14 +71,17 @@ public class S3FileSystem extends S3FileSystemBase {
             BackupMetrics backupMetrics,
             BackupNotificationMgr backupNotificationMgr,
             InstanceInfo instanceInfo,
-            DynamicRateLimiter dynamicRateLimiter) {
-        super(pathProvider, compress, config, backupMetrics, backupNotificationMgr);
+            DynamicRateLimiter dynamicRateLimiter,
+            DiskReadGovernor diskReadGovernor,
+            BackupCatalog backupCatalog) {
+        super(pathProvider, compress, config, backupMetrics, backupNotificationMgr, backupCatalog);
         s3Client =
                 AmazonS3Client.builder()
                         .withCredentials(cred.getAwsCredentialProvider())
                         .withRegion(instanceInfo.getRegion())
                         .build();
         this.dynamicRateLimiter = dynamicRateLimiter;
+        this.diskReadGovernor = diskReadGovernor;
     }
 
     @Override
@@ -135,7 +142,9 @@ public class S3FileSystem extends S3FileSystemBase {
         DataPart part = new DataPart(prefix, remotePath, uploadId);
         List<PartETag> partETags = Collections.synchronizedList(new ArrayList<>());
 
-        try (InputStream in = new FileInputStream(localFile)) {
+        try (InputStream in =
+                diskReadGovernor.pace(
+                        BackupFileReader.open(localFile, config.getBackupReadMode()))) {
             Iterator<byte[]> chunks = new ChunkedStream(in, chunkSize, path.getCompression());
             int partNum = 0;
             AtomicInteger partsPut = new AtomicInteger(0);
@@ -143,7 +152,6 @@ public class S3FileSystem extends S3FileSystemBase {
 
             while (chunks.hasNext()) {
                 byte[] chunk = chunks.next();
-                rateLimiter.acquire(chunk.length);
                 dynamicRateLimiter.acquire(path, target, chunk.length);
                 DataPart dp = new DataPart(++partNum, chunk, prefix, remotePath, uploadId);
                 S3PartUploader partUploader = new S3PartUploader(s3Client, dp, partETags, partsPut);
@@ -171,14 +179,22 @@ public class S3FileSystem extends S3FileSystemBase {
         }
     }
 
+    @Override
+    protected void uploadSkipped(AbstractBackupPath path) {
+        dynamicRateLimiter.uploaded(path);
+    }
+
     protected long uploadFileImpl(AbstractBackupPath path, Instant target)
             throws BackupRestoreException {
         File localFile = Paths.get(path.getBackupFile().getAbsolutePath()).toFile();
-        if (localFile.length() >= config.getBackupChunkSize()) return uploadMultipart(path, target);
+        if (localFile.length() >= config.getBackupChunkSize()) {
+            long compressedFileSize = uploadMultipart(path, target);
+            dynamicRateLimiter.uploaded(path);
+            return compressedFileSize;
+        }
         byte[] chunk = getFileContents(path);
         // C* snapshots may have empty files. That is probably unintentional.
         if (chunk.length > 0) {
-            rateLimiter.acquire(chunk.length);
             dynamicRateLimiter.acquire(path, target, chunk.length);
         }
         try {
@@ -191,6 +207,7 @@ public class S3FileSystem extends S3FileSystemBase {
         } catch (Exception e) {
             throw new BackupRestoreException("Error uploading file: " + localFile.getName(), e);
         }
+        dynamicRateLimiter.uploaded(path);
         return chunk.length;
     }
 
@@ -213,7 +230,11 @@ public class S3FileSystem extends S3FileSystemBase {
     private byte[] getFileContents(AbstractBackupPath path) throws BackupRestoreException {
         File localFile = Paths.get(path.getBackupFile().getAbsolutePath()).toFile();
         try (ByteArrayOutputStream byteArrayOutputStream = new ByteArrayOutputStream();
-                InputStream in = new BufferedInputStream(new FileInputStream(localFile))) {
+                InputStream in =
+                        new BufferedInputStream(
+                                diskReadGovernor.pace(
+                                        BackupFileReader.open(
+                                                localFile, config.getBackupReadMode())))) {
             Iterator<byte[]> chunks =
                     new ChunkedStream(in, config.getBackupChunkSize(), path.getCompression());
             while (chunks.hasNext()) {
@@ -22,18 +22,24 @@ import com.amazonaws.services.s3.model.DeleteObjectsRequest;
 import com.amazonaws.services.s3.model.lifecycle.*;
 import com.google.common.collect.Lists;
 import com.google.common.util.concurrent.RateLimiter;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import com.netflix.priam.backup.AbstractBackupPath;
 import com.netflix.priam.backup.AbstractFileSystem;
 import com.netflix.priam.backup.BackupRestoreException;
+import com.netflix.priam.backup.RangeReadInputStream;
+import com.netflix.priam.backupv2.BackupCatalog;
 import com.netflix.priam.compress.ICompression;
 import com.netflix.priam.config.IConfiguration;
 import com.netflix.priam.merics.BackupMetrics;
 import com.netflix.priam.notification.BackupNotificationMgr;
 import com.netflix.priam.scheduler.BlockingSubmitThreadPoolExecutor;
+import java.io.InputStream;
 import java.nio.file.Path;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.concurrent.LinkedBlockingQueue;
 import java.util.stream.Collectors;
 import javax.inject.Provider;
@@ -47,7 +53,10 @@ public abstract class S3FileSystemBase extends AbstractFileSystem {
     final IConfiguration config;
     final ICompression compress;
     final BlockingSubmitThreadPoolExecutor executor;
-    final RateLimiter rateLimiter;
+    // Fetches the next page of listings. Each listing has at most one request in flight.
+    private final ExecutorService listExecutor =
+            Executors.newCachedThreadPool(
+                    new ThreadFactoryBuilder().setDaemon(true).setNameFormat("S3List-%d").build());
     private final RateLimiter objectExistLimiter;
 
     S3FileSystemBase(
@@ -55,8 +64,9 @@ public abstract class S3FileSystemBase extends AbstractFileSystem {
             ICompression compress,
             final IConfiguration config,
             BackupMetrics backupMetrics,
-            BackupNotificationMgr backupNotificationMgr) {
-        super(config, backupMetrics, backupNotificationMgr, pathProvider);
+            BackupNotificationMgr backupNotificationMgr,
+            BackupCatalog backupCatalog) {
+        super(config, backupMetrics, backupNotificationMgr, pathProvider, backupCatalog);
         this.compress = compress;
         this.config = config;
 
@@ -65,8 +75,6 @@ public abstract class S3FileSystemBase extends AbstractFileSystem {
         this.executor =
                 new BlockingSubmitThreadPoolExecutor(threads, queue, config.getUploadTimeout());
 
-        // a throttling mechanism, we can limit the amount of bytes uploaded to endpoint per second.
-        this.rateLimiter = RateLimiter.create(1);
         // a throttling mechanism, we can limit the amount of S3 API calls endpoint per second.
         this.objectExistLimiter = RateLimiter.create(1);
         configChangeListener();
@@ -79,13 +87,8 @@ public abstract class S3FileSystemBase extends AbstractFileSystem {
         int objectExistLimit = config.getRemoteFileSystemObjectExistsThrottle();
         objectExistLimiter.setRate(objectExistLimit < 1 ? Double.MAX_VALUE : objectExistLimit);
 
-        double throttleLimit = config.getUploadThrottle();
-        rateLimiter.setRate(throttleLimit < 1 ? Double.MAX_VALUE : throttleLimit);
-
-        logger.info(
-                "Updating rateLimiters: s3UploadThrottle: {}, objectExistLimiter: {}",
-                rateLimiter.getRate(),
-                objectExistLimiter.getRate());
+        // The upload throttle is applied by the DynamicRateLimiter, which reads it on every chunk.
+        logger.info("Updating rateLimiters: objectExistLimiter: {}", objectExistLimiter.getRate());
     }
 
     private AmazonS3 getS3Client() {
@@ -228,6 +231,12 @@ public abstract class S3FileSystemBase extends AbstractFileSystem {
         }
     }
 
+    @Override
+    public InputStream openFile(AbstractBackupPath path) throws BackupRestoreException {
+        String remotePath = path.getRemotePath();
+        return new RangeReadInputStream(s3Client, getShard(), getFileSize(remotePath), remotePath);
+    }
+
     @Override
     public long getFileSize(String remotePath) throws BackupRestoreException {
         return s3Client.getObjectMetadata(getShard(), remotePath).getContentLength();
@@ -253,11 +262,12 @@ public abstract class S3FileSystemBase extends AbstractFileSystem {
     @Override
     public void shutdown() {
         if (executor != null) executor.shutdown();
+        listExecutor.shutdown();
     }
 
     @Override
     public Iterator<String> listFileSystem(String prefix, String delimiter, String marker) {
-        return new S3Iterator(s3Client, getShard(), prefix, delimiter, marker);
+        return new S3Iterator(s3Client, getShard(), prefix, delimiter, marker, listExecutor);
     }
 
     @Override
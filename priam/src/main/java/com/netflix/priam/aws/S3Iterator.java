@@ -18,70 +18,113 @@
 package com.netflix.priam.aws;
 
 import com.amazonaws.services.s3.AmazonS3;
-import com.amazonaws.services.s3.model.ListObjectsRequest;
-import com.amazonaws.services.s3.model.ObjectListing;
+import com.amazonaws.services.s3.model.ListObjectsV2Request;
+import com.amazonaws.services.s3.model.ListObjectsV2Result;
 import com.amazonaws.services.s3.model.S3ObjectSummary;
+import com.google.common.base.Throwables;
 import com.google.common.collect.Lists;
+import com.google.common.util.concurrent.MoreExecutors;
+import java.util.Collections;
 import java.util.Iterator;
 import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
 import org.apache.commons.lang3.StringUtils;
 
 /**
  * Iterate over the s3 file system. This is really required to find the manifest file for restore
  * and downloading incrementals. Created by aagrawal on 11/30/18.
+ *
+ * <p>Objects are listed with ListObjectsV2. When a page is handed out, the next page is requested
+ * on the given executor, so the caller does not wait on s3 at every page boundary.
  */
 public class S3Iterator implements Iterator<String> {
-    private Iterator<String> iterator;
-    private ObjectListing objectListing;
     private final AmazonS3 s3Client;
     private final String bucket;
     private final String prefix;
     private final String delimiter;
-    private final String marker;
+    private final Executor executor;
+    private Iterator<String> iterator = Collections.emptyIterator();
+    // Null once the last page is handed out.
+    private CompletableFuture<Page> nextPage;
 
     public S3Iterator(
             AmazonS3 s3Client, String bucket, String prefix, String delimiter, String marker) {
+        this(s3Client, bucket, prefix, delimiter, marker, MoreExecutors.directExecutor());
+    }
+
+    public S3Iterator(
+            AmazonS3 s3Client,
+            String bucket,
+            String prefix,
+            String delimiter,
+            String marker,
+            Executor executor) {
         this.s3Client = s3Client;
         this.bucket = bucket;
         this.prefix = prefix;
         this.delimiter = delimiter;
-        this.marker = marker;
-        iterator = createIterator();
+        this.executor = executor;
+        ListObjectsV2Request listReq = createRequest();
+        if (StringUtils.isNotBlank(marker)) listReq.setStartAfter(marker);
+        nextPage = fetch(listReq);
     }
 
-    private void initListing() {
-        ListObjectsRequest listReq = new ListObjectsRequest();
+    private ListObjectsV2Request createRequest() {
+        ListObjectsV2Request listReq = new ListObjectsV2Request();
         listReq.setBucketName(bucket);
         listReq.setPrefix(prefix);
         if (StringUtils.isNotBlank(delimiter)) listReq.setDelimiter(delimiter);
-        if (StringUtils.isNotBlank(marker)) listReq.setMarker(marker);
-        objectListing = s3Client.listObjects(listReq);
+        return listReq;
+    }
+
+    private CompletableFuture<Page> fetch(ListObjectsV2Request listReq) {
+        return CompletableFuture.supplyAsync(
+                () -> new Page(s3Client.listObjectsV2(listReq)), executor);
     }
 
-    private Iterator<String> createIterator() {
-        if (objectListing == null) initListing();
-        List<String> temp = Lists.newArrayList();
-        for (S3ObjectSummary summary : objectListing.getObjectSummaries()) {
-            temp.add(summary.getKey());
+    private Page getNextPage() {
+        try {
+            return nextPage.join();
+        } catch (CompletionException e) {
+            Throwables.throwIfUnchecked(e.getCause());
+            throw e;
         }
-        return temp.iterator();
     }
 
     @Override
     public boolean hasNext() {
-        if (iterator.hasNext()) {
-            return true;
-        } else {
-            while (objectListing.isTruncated() && !iterator.hasNext()) {
-                objectListing = s3Client.listNextBatchOfObjects(objectListing);
-                iterator = createIterator();
+        while (!iterator.hasNext() && nextPage != null) {
+            Page page = getNextPage();
+            if (page.nextContinuationToken == null) {
+                nextPage = null;
+            } else {
+                ListObjectsV2Request listReq = createRequest();
+                listReq.setContinuationToken(page.nextContinuationToken);
+                nextPage = fetch(listReq);
             }
+            iterator = page.keys.iterator();
         }
         return iterator.hasNext();
     }
 
     @Override
     public String next() {
+        if (!hasNext()) throw new NoSuchElementException();
         return iterator.next();
     }
+
+    private static final class Page {
+        private final List<String> keys;
+        private final String nextContinuationToken;
+
+        Page(ListObjectsV2Result result) {
+            List<S3ObjectSummary> summaries = result.getObjectSummaries();
+            keys = Lists.newArrayListWithCapacity(summaries.size());
+            for (S3ObjectSummary summary : summaries) keys.add(summary.getKey());
+            nextContinuationToken = result.isTruncated() ? result.getNextContinuationToken() : null;
+        }
+    }
 }
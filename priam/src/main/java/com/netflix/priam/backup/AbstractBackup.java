@@ -28,6 +28,8 @@ import java.nio.file.Paths;
 import java.util.HashSet;
 import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.Stream;
 import javax.inject.Inject;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -37,6 +39,7 @@ public abstract class AbstractBackup extends Task {
     private static final Logger logger = LoggerFactory.getLogger(AbstractBackup.class);
     static final String INCREMENTAL_BACKUP_FOLDER = "backups";
     public static final String SNAPSHOT_FOLDER = "snapshots";
+    private ForkJoinPool traversalPool;
 
     @Inject
     public AbstractBackup(IConfiguration config) {
@@ -52,31 +55,38 @@ public abstract class AbstractBackup extends Task {
                     "The configured 'data file location' does not exist or is not a directory: "
                             + config.getDataFileLocation());
         }
-        logger.debug("Scanning for backup in: {}", dataDir.getAbsolutePath());
-        File[] keyspaceDirectories = dataDir.listFiles();
-        if (keyspaceDirectories == null) return;
-
-        for (File keyspaceDir : keyspaceDirectories) {
-            if (keyspaceDir.isFile()) continue;
+        // Directories are listed while the ones found are processed.
+        try (Stream<File> backupDirs =
+                BackupDirectoryTraversal.stream(
+                        getTraversalPool(), dataDir, monitoringFolder, getName())) {
+            for (File backupDir : (Iterable<File>) backupDirs::iterator)
+                initiateBackup(backupDir, backupRestoreUtil);
+        }
+    }
 
-            logger.debug("Entering {} keyspace..", keyspaceDir.getName());
-            File[] columnFamilyDirectories = keyspaceDir.listFiles();
-            if (columnFamilyDirectories == null) continue;
+    private synchronized ForkJoinPool getTraversalPool() {
+        if (traversalPool == null)
+            traversalPool = new ForkJoinPool(config.getBackupTraversalThreads());
+        return traversalPool;
+    }
 
-            for (File columnFamilyDir : columnFamilyDirectories) {
-                File backupDir = new File(columnFamilyDir, monitoringFolder);
-                if (isAReadableDirectory(backupDir)) {
-                    String columnFamilyName = getColumnFamily(backupDir);
-                    if (backupRestoreUtil.isFiltered(keyspaceDir.getName(), columnFamilyName)) {
-                        // Clean the backup/snapshot directory else files will keep getting
-                        // accumulated.
-                        SystemUtils.cleanupDir(backupDir.getAbsolutePath(), null);
-                    } else {
-                        processColumnFamily(backupDir);
-                    }
-                }
-            } // end processing all CFs for keyspace
-        } // end processing keyspaces under the C* data dir
+    /**
+     * Process a single backup/snapshot directory of a columnfamily, if it exists.
+     *
+     * @param backupDir Location of the backup/snapshot directory in that columnfamily.
+     * @param backupRestoreUtil filter of the keyspaces and columnfamilies to process.
+     * @throws Exception throws exception if there is any error in process the directory.
+     */
+    protected final void initiateBackup(File backupDir, BackupRestoreUtil backupRestoreUtil)
+            throws Exception {
+        if (!isAReadableDirectory(backupDir)) return;
+        if (backupRestoreUtil.isFiltered(getKeyspace(backupDir), getColumnFamily(backupDir))) {
+            // Clean the backup/snapshot directory else files will keep getting
+            // accumulated.
+            SystemUtils.cleanupDir(backupDir.getAbsolutePath(), null);
+        } else {
+            processColumnFamily(backupDir);
+        }
     }
 
     protected String getColumnFamily(File backupDir) {
@@ -334,6 +334,10 @@ public abstract class AbstractBackupPath implements Comparable<AbstractBackupPat
         this.encryption = CryptographyAlgorithm.valueOf(encryption);
     }
 
+    public void setEncryption(CryptographyAlgorithm encryption) {
+        this.encryption = encryption;
+    }
+
     public boolean isIncremental() {
         return isIncremental;
     }
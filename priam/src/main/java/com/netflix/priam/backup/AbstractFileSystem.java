@@ -21,22 +21,28 @@ import com.google.common.annotations.VisibleForTesting;
 import com.google.common.base.Preconditions;
 import com.google.common.cache.Cache;
 import com.google.common.cache.CacheBuilder;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.ImmutableSortedSet;
 import com.google.common.util.concurrent.Futures;
 import com.google.common.util.concurrent.ListenableFuture;
 import com.google.common.util.concurrent.ListeningExecutorService;
 import com.google.common.util.concurrent.MoreExecutors;
 import com.netflix.priam.backup.AbstractBackupPath.BackupFileType;
+import com.netflix.priam.backupv2.BackupCatalog;
 import com.netflix.priam.config.IConfiguration;
 import com.netflix.priam.merics.BackupMetrics;
 import com.netflix.priam.notification.BackupNotificationMgr;
 import com.netflix.priam.notification.UploadStatus;
 import com.netflix.priam.scheduler.BlockingSubmitThreadPoolExecutor;
+import com.netflix.priam.scheduler.NamedThreadPoolExecutor;
 import com.netflix.priam.utils.BoundedExponentialRetryCallable;
 import com.netflix.spectator.api.patterns.PolledMeter;
 import java.io.File;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.time.Instant;
+import java.util.ArrayList;
 import java.util.Date;
 import java.util.Iterator;
 import java.util.List;
@@ -66,6 +72,7 @@ public abstract class AbstractFileSystem implements IBackupFileSystem {
     private final ListeningExecutorService fileUploadExecutor;
     private final ThreadPoolExecutor fileDownloadExecutor;
     private final BackupNotificationMgr backupNotificationMgr;
+    private final BackupCatalog backupCatalog;
 
     // This is going to be a write-thru cache containing the most frequently used items from remote
     // file system. This is to ensure that we don't make too many API calls to remote file system.
@@ -76,11 +83,13 @@ public abstract class AbstractFileSystem implements IBackupFileSystem {
             IConfiguration configuration,
             BackupMetrics backupMetrics,
             BackupNotificationMgr backupNotificationMgr,
-            Provider<AbstractBackupPath> pathProvider) {
+            Provider<AbstractBackupPath> pathProvider,
+            BackupCatalog backupCatalog) {
         this.configuration = configuration;
         this.backupMetrics = backupMetrics;
         this.pathProvider = pathProvider;
         this.backupNotificationMgr = backupNotificationMgr;
+        this.backupCatalog = backupCatalog;
         this.objectCache =
                 CacheBuilder.newBuilder().maximumSize(configuration.getBackupQueueSize()).build();
         tasksQueued = new ConcurrentHashMap<>().newKeySet();
@@ -204,10 +213,13 @@ public abstract class AbstractFileSystem implements IBackupFileSystem {
                     backupMetrics.recordUploadRate(uploadedFileSize);
                     backupMetrics.incrementValidUploads();
                     path.setCompressedFileSize(uploadedFileSize);
+                    backupCatalog.recordUpload(path);
                     backupNotificationMgr.notify(path, UploadStatus.SUCCESS);
                 } else {
                     // file is already uploaded to remote file system.
                     logger.info("File: {} already present on remoteFileSystem.", remotePath);
+                    backupCatalog.recordExisting(path);
+                    uploadSkipped(path);
                 }
 
                 logger.info(
@@ -257,6 +269,67 @@ public abstract class AbstractFileSystem implements IBackupFileSystem {
         return remoteFileExist;
     }
 
+    @Override
+    public ImmutableSet<String> getExistingObjects(ImmutableSortedSet<String> remotePaths) {
+        if (remotePaths.isEmpty()) return ImmutableSet.of();
+
+        // Split the sorted paths into contiguous key ranges and list each range concurrently. The
+        // cost is then governed by the no. of list pages in the range and not the no. of paths.
+        ImmutableList<String> sortedPaths = remotePaths.asList();
+        int ranges = Math.max(1, configuration.getRemoteFileSystemListThreads());
+        int rangeSize = (sortedPaths.size() + ranges - 1) / ranges;
+        ExecutorService executor =
+                new NamedThreadPoolExecutor(ranges, "RemoteFileSystemListThreads");
+        try {
+            List<Future<ImmutableSet<String>>> futures = new ArrayList<>();
+            for (int start = 0; start < sortedPaths.size(); start += rangeSize) {
+                List<String> range =
+                        sortedPaths.subList(start, Math.min(start + rangeSize, sortedPaths.size()));
+                futures.add(executor.submit(() -> getExistingObjectsInRange(range)));
+            }
+            ImmutableSet.Builder<String> existing = ImmutableSet.builder();
+            for (Future<ImmutableSet<String>> future : futures) existing.addAll(future.get());
+            return existing.build();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new CancellationException("Interrupted while listing remote file system");
+        } catch (ExecutionException e) {
+            logger.error(
+                    "Error while listing remote file system. Falling back to checking objects one by one.",
+                    e);
+            return IBackupFileSystem.super.getExistingObjects(remotePaths);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /*
+     * Merge-join the sorted paths with a single listing of the key range they span. This relies on
+     * the remote file system listing keys in lexicographic order, as S3 and GCS do.
+     */
+    private ImmutableSet<String> getExistingObjectsInRange(List<String> sortedPaths) {
+        String first = sortedPaths.get(0);
+        String last = sortedPaths.get(sortedPaths.size() - 1);
+        // Listing starts strictly after the marker, so use a key which sorts just before the first.
+        String marker = first.substring(0, first.length() - 1);
+        Iterator<String> remoteKeys =
+                listFileSystem(StringUtils.getCommonPrefix(first, last), null, marker);
+        ImmutableSet.Builder<String> existing = ImmutableSet.builder();
+        int index = 0;
+        while (index < sortedPaths.size() && remoteKeys.hasNext()) {
+            String remoteKey = remoteKeys.next();
+            if (remoteKey.compareTo(last) > 0) break;
+            while (index < sortedPaths.size() && sortedPaths.get(index).compareTo(remoteKey) < 0)
+                index++;
+            if (index < sortedPaths.size() && sortedPaths.get(index).equals(remoteKey)) {
+                existing.add(remoteKey);
+                addObjectCache(Paths.get(remoteKey));
+                index++;
+            }
+        }
+        return existing.build();
+    }
+
     @Override
     public void deleteRemoteFiles(List<Path> remotePaths) throws BackupRestoreException {
         if (remotePaths == null) return;
@@ -267,6 +340,7 @@ public abstract class AbstractFileSystem implements IBackupFileSystem {
         // help in ensuring that our validation job fails if there are any error caused due to TTL
         // of a file.
         objectCache.invalidateAll(remotePaths);
+        backupCatalog.recordDeletes(remotePaths);
         deleteFiles(remotePaths);
     }
 
@@ -277,6 +351,12 @@ public abstract class AbstractFileSystem implements IBackupFileSystem {
     protected abstract long uploadFileImpl(final AbstractBackupPath path, Instant target)
             throws BackupRestoreException;
 
+    /**
+     * Called instead of {@link #uploadFileImpl(AbstractBackupPath, Instant)} for a file which is
+     * already on the remote file system, as it is no longer left to upload either.
+     */
+    protected void uploadSkipped(AbstractBackupPath path) {}
+
     @Override
     public String getShard() {
         return getPrefix().getName(0).toString();
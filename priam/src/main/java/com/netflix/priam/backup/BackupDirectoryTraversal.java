@@ -0,0 +1,253 @@
+/*
+ * Copyright 2020 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.netflix.priam.backup;
+
+import java.io.File;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Lists the backup/snapshot directories of all the columnfamilies in the data directory, e.g.
+ * data/keyspace/columnfamily/backups. Keyspaces and ranges of columnfamilies are listed
+ * concurrently on a {@link ForkJoinPool}, and the directories are handed to the caller through a
+ * bounded queue as they are found, so that backing them up starts before all of them are listed.
+ *
+ * <p>Close the stream when done with it. The time spent listing, processing the directories and
+ * waiting for the listing is logged then.
+ */
+public final class BackupDirectoryTraversal implements Iterator<File>, AutoCloseable {
+    private static final Logger logger = LoggerFactory.getLogger(BackupDirectoryTraversal.class);
+    // Columnfamilies of a keyspace checked by one task.
+    private static final int COLUMN_FAMILIES_PER_TASK = 32;
+    private static final int QUEUE_CAPACITY = 256;
+    // Marks the end of the listing in the queue.
+    private static final File END = new File("");
+
+    private final String name;
+    private final String monitoringFolder;
+    private final BlockingQueue<File> queue = new ArrayBlockingQueue<>(QUEUE_CAPACITY);
+    private final ForkJoinTask<Void> listing;
+    private final long startNanos = System.nanoTime();
+    private final AtomicInteger found = new AtomicInteger();
+    private volatile boolean closed;
+    private volatile long listingNanos;
+    private long waitingNanos;
+    private File next;
+    private boolean ended;
+
+    private BackupDirectoryTraversal(
+            ForkJoinPool pool, File dataDir, String monitoringFolder, String name) {
+        this.name = name;
+        this.monitoringFolder = monitoringFolder;
+        this.listing = pool.submit(new ListDataDirectory(dataDir));
+    }
+
+    /**
+     * Start listing the backup directories.
+     *
+     * @param pool pool to list the directories on.
+     * @param dataDir the Cassandra data directory.
+     * @param monitoringFolder name of the backup/snapshot directory of a columnfamily.
+     * @param name name of the caller, for logging.
+     * @return the backup directories in no particular order.
+     */
+    public static Stream<File> stream(
+            ForkJoinPool pool, File dataDir, String monitoringFolder, String name) {
+        BackupDirectoryTraversal traversal =
+                new BackupDirectoryTraversal(pool, dataDir, monitoringFolder, name);
+        return StreamSupport.stream(
+                        Spliterators.spliteratorUnknownSize(
+                                traversal, Spliterator.DISTINCT | Spliterator.NONNULL),
+                        false)
+                .onClose(traversal::close);
+    }
+
+    @Override
+    public boolean hasNext() {
+        if (next != null) return true;
+        if (ended) return false;
+        long start = System.nanoTime();
+        try {
+            next = queue.take();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new CancellationException("Interrupted while listing " + monitoringFolder);
+        } finally {
+            waitingNanos += System.nanoTime() - start;
+        }
+        if (next == END) {
+            next = null;
+            ended = true;
+            // Report a failure to list the directories.
+            listing.join();
+        }
+        return next != null;
+    }
+
+    @Override
+    public File next() {
+        if (!hasNext()) throw new NoSuchElementException();
+        File backupDir = next;
+        next = null;
+        return backupDir;
+    }
+
+    @Override
+    public void close() {
+        if (closed) return;
+        closed = true;
+        listing.cancel(false);
+        // Unblock the tasks waiting for room in the queue.
+        queue.clear();
+        long totalNanos = System.nanoTime() - startNanos;
+        logger.info(
+                "{}: found {} {} directories in {} ms. Listing took {} ms, processing {} ms and waiting for the listing {} ms.",
+                name,
+                found.get(),
+                monitoringFolder,
+                TimeUnit.NANOSECONDS.toMillis(totalNanos),
+                TimeUnit.NANOSECONDS.toMillis(listingNanos == 0 ? totalNanos : listingNanos),
+                TimeUnit.NANOSECONDS.toMillis(totalNanos - waitingNanos),
+                TimeUnit.NANOSECONDS.toMillis(waitingNanos));
+    }
+
+    private void emit(File backupDir) {
+        if (offer(backupDir)) found.incrementAndGet();
+    }
+
+    private void end() {
+        listingNanos = System.nanoTime() - startNanos;
+        offer(END);
+    }
+
+    /**
+     * Wait for room in the queue, unless the caller closed the stream. The pool is told about the
+     * wait, so it can compensate with another worker while the queue is full.
+     */
+    private boolean offer(File file) {
+        QueueOffer queueOffer = new QueueOffer(file);
+        try {
+            ForkJoinPool.managedBlock(queueOffer);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new CancellationException("Interrupted while listing " + monitoringFolder);
+        }
+        return queueOffer.offered;
+    }
+
+    private static File[] listDirectories(File dir) {
+        File[] directories = dir.listFiles(File::isDirectory);
+        return directories == null ? new File[0] : directories;
+    }
+
+    private class QueueOffer implements ForkJoinPool.ManagedBlocker {
+        private final File file;
+        private boolean offered;
+
+        QueueOffer(File file) {
+            this.file = file;
+        }
+
+        @Override
+        public boolean block() throws InterruptedException {
+            if (!offered && !closed) offered = queue.offer(file, 100, TimeUnit.MILLISECONDS);
+            return isReleasable();
+        }
+
+        @Override
+        public boolean isReleasable() {
+            if (!offered && !closed) offered = queue.offer(file);
+            return offered || closed;
+        }
+    }
+
+    private class ListDataDirectory extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+        private final File dataDir;
+
+        ListDataDirectory(File dataDir) {
+            this.dataDir = dataDir;
+        }
+
+        @Override
+        protected void compute() {
+            try {
+                logger.debug("Scanning for backup in: {}", dataDir.getAbsolutePath());
+                File[] keyspaceDirectories = listDirectories(dataDir);
+                ListKeyspace[] tasks = new ListKeyspace[keyspaceDirectories.length];
+                for (int i = 0; i < keyspaceDirectories.length; i++)
+                    tasks[i] = new ListKeyspace(keyspaceDirectories[i]);
+                invokeAll(tasks);
+            } finally {
+                end();
+            }
+        }
+    }
+
+    private class ListKeyspace extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+        private final File keyspaceDir;
+
+        ListKeyspace(File keyspaceDir) {
+            this.keyspaceDir = keyspaceDir;
+        }
+
+        @Override
+        protected void compute() {
+            logger.debug("Entering {} keyspace..", keyspaceDir.getName());
+            File[] columnFamilyDirectories = listDirectories(keyspaceDir);
+            new ListColumnFamilies(columnFamilyDirectories, 0, columnFamilyDirectories.length)
+                    .compute();
+        }
+    }
+
+    private class ListColumnFamilies extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+        private final File[] columnFamilyDirectories;
+        private final int from;
+        private final int to;
+
+        ListColumnFamilies(File[] columnFamilyDirectories, int from, int to) {
+            this.columnFamilyDirectories = columnFamilyDirectories;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from > COLUMN_FAMILIES_PER_TASK) {
+                int middle = (from + to) >>> 1;
+                invokeAll(
+                        new ListColumnFamilies(columnFamilyDirectories, from, middle),
+                        new ListColumnFamilies(columnFamilyDirectories, middle, to));
+                return;
+            }
+            for (int i = from; i < to && !closed; i++) {
+                File backupDir = new File(columnFamilyDirectories[i], monitoringFolder);
+                if (AbstractBackup.isAReadableDirectory(backupDir)) emit(backupDir);
+            }
+        }
+    }
+}
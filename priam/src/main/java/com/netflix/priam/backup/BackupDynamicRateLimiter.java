@@ -3,50 +3,161 @@ package com.netflix.priam.backup;
 import com.google.common.base.Preconditions;
 import com.google.common.util.concurrent.RateLimiter;
 import com.netflix.priam.config.IConfiguration;
+import com.netflix.priam.merics.BackupMetrics;
+import java.nio.file.Path;
 import java.time.Clock;
 import java.time.Duration;
 import java.time.Instant;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
 import javax.inject.Inject;
+import javax.inject.Singleton;
 
+/**
+ * Schedules the bandwidth of all the uploads, so that the upload throttle ({@link
+ * IConfiguration#getUploadThrottle()}) and the network headroom ({@link NetworkHeadroom}) are not
+ * exceeded, and snapshot files are uploaded by their target time.
+ *
+ * <p>Snapshot files with a target time are paced at the lowest rate which uploads the bytes queued
+ * for every target by that target, so they do not burst. All the other uploads (incrementals,
+ * commit logs, meta files, files past their target) get the rest of the throttle.
+ *
+ * <p>The size of the snapshot files is found by walking the data directory once when the files of a
+ * new snapshot start uploading, and decremented as files are uploaded, so throttling a chunk does
+ * not touch the file system.
+ */
+@Singleton
 public class BackupDynamicRateLimiter implements DynamicRateLimiter {
+    // Share of the throttle left to the other uploads when snapshot files need all of it.
+    private static final double MIN_BEST_EFFORT_SHARE = 0.1;
 
     private final Clock clock;
     private final IConfiguration config;
     private final DirectorySize dirSize;
-    private final RateLimiter rateLimiter;
+    private final BackupMetrics backupMetrics;
+    private final NetworkHeadroom networkHeadroom;
+    // Limits all the uploads together.
+    private final RateLimiter throttle = RateLimiter.create(Double.MAX_VALUE);
+    // Paces the snapshot files with a target.
+    private final RateLimiter rateLimiter = RateLimiter.create(Double.MAX_VALUE);
+    // Paces the other uploads.
+    private final RateLimiter bestEffortLimiter = RateLimiter.create(Double.MAX_VALUE);
+    // Bytes of the snapshot files left to upload, by target.
+    private final NavigableMap<Instant, Long> queuedBytes = new TreeMap<>();
+    // Latest snapshot whose files were counted in queuedBytes.
+    private String snapshot;
 
     @Inject
-    public BackupDynamicRateLimiter(IConfiguration config, Clock clock, DirectorySize dirSize) {
+    public BackupDynamicRateLimiter(
+            IConfiguration config,
+            Clock clock,
+            DirectorySize dirSize,
+            BackupMetrics backupMetrics,
+            NetworkHeadroom networkHeadroom) {
         this.clock = clock;
         this.config = config;
         this.dirSize = dirSize;
-        this.rateLimiter = RateLimiter.create(Double.MAX_VALUE);
+        this.backupMetrics = backupMetrics;
+        this.networkHeadroom = networkHeadroom;
     }
 
     @Override
     public void acquire(AbstractBackupPath path, Instant target, int permits) {
-        if (target.equals(Instant.EPOCH)
-                || !path.getBackupFile()
-                        .getAbsolutePath()
-                        .contains(AbstractBackup.SNAPSHOT_FOLDER)) {
-            return;
+        Preconditions.checkArgument(
+                permits > 0, "Requested permits (%s) must be positive", permits);
+        String fileSnapshot = getSnapshot(path);
+        boolean scheduled =
+                !target.equals(Instant.EPOCH)
+                        && fileSnapshot != null
+                        && Duration.between(clock.instant(), target).getSeconds() >= 1;
+        if (scheduled) {
+            Preconditions.checkState(config.getBackupThreads() > 0);
+            count(fileSnapshot, target);
         }
-        long secondsRemaining = Duration.between(clock.instant(), target).getSeconds();
-        if (secondsRemaining < 1) {
-            // skip file system checks when unnecessary
-            return;
+        double throttleRate =
+                Math.min(
+                        config.getUploadThrottle() < 1
+                                ? Double.MAX_VALUE
+                                : config.getUploadThrottle(),
+                        networkHeadroom.getHeadroom());
+        double plannedRate = Math.min(getPlannedRate(), throttleRate);
+        backupMetrics.setPlannedUploadRate(plannedRate);
+        setRate(throttle, throttleRate, 0);
+        if (scheduled && plannedRate > 0) {
+            setRate(rateLimiter, plannedRate, config.getRateLimitChangeThreshold());
+            rateLimiter.acquire(permits);
+            backupMetrics.recordScheduledUpload(permits);
+        } else {
+            // Lend what the snapshot files do not need.
+            double bestEffortRate =
+                    throttleRate == Double.MAX_VALUE
+                            ? Double.MAX_VALUE
+                            : Math.max(
+                                    throttleRate - plannedRate,
+                                    throttleRate * MIN_BEST_EFFORT_SHARE);
+            setRate(bestEffortLimiter, bestEffortRate, 0);
+            bestEffortLimiter.acquire(permits);
+            backupMetrics.recordBestEffortUpload(permits);
         }
-        int backupThreads = config.getBackupThreads();
-        Preconditions.checkState(backupThreads > 0);
-        long bytesPerThread = this.dirSize.getBytes(config.getDataFileLocation()) / backupThreads;
-        if (bytesPerThread < 1) {
-            return;
-        }
-        double newRate = (double) bytesPerThread / secondsRemaining;
-        double oldRate = rateLimiter.getRate();
-        if ((Math.abs(newRate - oldRate) / oldRate) > config.getRateLimitChangeThreshold()) {
-            rateLimiter.setRate(newRate);
+        throttle.acquire(permits);
+        networkHeadroom.recordUpload(permits);
+    }
+
+    private static void setRate(RateLimiter limiter, double newRate, double changeThreshold) {
+        double oldRate = limiter.getRate();
+        if ((Math.abs(newRate - oldRate) / oldRate) > changeThreshold) limiter.setRate(newRate);
+    }
+
+    @Override
+    public synchronized void uploaded(AbstractBackupPath path) {
+        if (snapshot == null || getSnapshot(path) == null || queuedBytes.isEmpty()) return;
+        // Targets are met in order.
+        Map.Entry<Instant, Long> earliest = queuedBytes.firstEntry();
+        long left = earliest.getValue() - path.getSize();
+        if (left > 0) queuedBytes.put(earliest.getKey(), left);
+        else queuedBytes.remove(earliest.getKey());
+    }
+
+    /**
+     * Count the snapshot files left to upload when the file is of a snapshot newer than the ones
+     * counted. They are all due by the target of the new snapshot.
+     */
+    private synchronized void count(String fileSnapshot, Instant target) {
+        if (snapshot != null && fileSnapshot.compareTo(snapshot) <= 0) return;
+        // Counts the files of all the snapshots, including the ones left by earlier runs.
+        queuedBytes.clear();
+        long bytes = dirSize.getBytes(config.getDataFileLocation());
+        if (bytes > 0) queuedBytes.put(target, bytes);
+        snapshot = fileSnapshot;
+    }
+
+    /**
+     * @return the lowest rate of all the backup threads together which uploads the bytes queued for
+     *     every target by that target, as the limiters are shared by the threads. Bytes of targets
+     *     which have passed are not planned for any more.
+     */
+    private synchronized double getPlannedRate() {
+        Instant now = clock.instant();
+        queuedBytes.headMap(now.plusSeconds(1)).clear();
+        double rate = 0;
+        long bytes = 0;
+        for (Map.Entry<Instant, Long> entry : queuedBytes.entrySet()) {
+            bytes += entry.getValue();
+            rate =
+                    Math.max(
+                            rate,
+                            (double) bytes / Duration.between(now, entry.getKey()).getSeconds());
         }
-        rateLimiter.acquire(permits);
+        return rate;
+    }
+
+    /** @return name of the snapshot directory of the file, e.g. snap_v2_202201010000. */
+    private static String getSnapshot(AbstractBackupPath path) {
+        Path file = path.getBackupFile().toPath();
+        for (int i = 0; i < file.getNameCount() - 1; i++)
+            if (file.getName(i).toString().equals(AbstractBackup.SNAPSHOT_FOLDER))
+                return file.getName(i + 1).toString();
+        return null;
     }
 }
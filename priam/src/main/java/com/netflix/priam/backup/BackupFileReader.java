@@ -0,0 +1,202 @@
+/*
+ * Copyright 2020 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.netflix.priam.backup;
+
+import com.netflix.priam.config.BackupReadMode;
+import com.netflix.priam.utils.NativeIO;
+import com.sun.jna.Memory;
+import com.sun.jna.Pointer;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Opens the files to upload, so that reading them disturbs the page cache Cassandra reads from as
+ * little as the {@link BackupReadMode} allows.
+ */
+public final class BackupFileReader {
+    private static final Logger logger = LoggerFactory.getLogger(BackupFileReader.class);
+    // Pages are dropped once this many bytes past the last drop were read.
+    private static final long DONTNEED_WINDOW = 8 * 1024 * 1024;
+    // Logical block size of the devices O_DIRECT reads are aligned to.
+    private static final int ALIGNMENT = 4096;
+    private static final int DIRECT_BUFFER_SIZE = 1024 * 1024;
+
+    private BackupFileReader() {}
+
+    /**
+     * @param file to read.
+     * @param mode how to read it. Modes not supported by the platform or the file system fall back
+     *     to the next one, down to BUFFERED.
+     * @return a stream reading the file from the start.
+     */
+    public static InputStream open(File file, BackupReadMode mode) throws IOException {
+        if (mode == BackupReadMode.DIRECT && NativeIO.isDirectAvailable()) {
+            try {
+                return new DirectInputStream(file);
+            } catch (IOException e) {
+                if (logger.isDebugEnabled())
+                    logger.debug("Reading {} without O_DIRECT: {}", file, e.getMessage());
+            }
+        }
+        if (mode != BackupReadMode.BUFFERED && NativeIO.isAvailable())
+            return new AdvisedInputStream(file);
+        return new FileInputStream(file);
+    }
+
+    /** Reads sequentially, dropping the pages behind. */
+    private static final class AdvisedInputStream extends FileInputStream {
+        private final int fd;
+        private long position;
+        private long dropped;
+        private boolean closed;
+
+        AdvisedInputStream(File file) throws FileNotFoundException {
+            super(file);
+            int fd;
+            try {
+                fd = NativeIO.getfd(getFD());
+            } catch (IOException e) {
+                fd = -1;
+            }
+            this.fd = fd;
+            NativeIO.fadvise(fd, 0, 0, NativeIO.POSIX_FADV_SEQUENTIAL);
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if (b >= 0) advance(1);
+            return b;
+        }
+
+        // FileInputStream does not read arrays through read(byte[], int, int).
+        @Override
+        public int read(byte[] b) throws IOException {
+            return read(b, 0, b.length);
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int count = super.read(b, off, len);
+            if (count > 0) advance(count);
+            return count;
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            long skipped = super.skip(n);
+            position += skipped;
+            return skipped;
+        }
+
+        private void advance(int bytes) {
+            position += bytes;
+            if (position - dropped >= DONTNEED_WINDOW) drop();
+        }
+
+        private void drop() {
+            NativeIO.fadvise(fd, dropped, position - dropped, NativeIO.POSIX_FADV_DONTNEED);
+            dropped = position;
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (!closed && position > dropped) drop();
+            closed = true;
+            super.close();
+        }
+    }
+
+    /** Reads with O_DIRECT into an aligned buffer, bypassing the page cache. */
+    private static final class DirectInputStream extends InputStream {
+        private final String path;
+        private final int fd;
+        private final AlignedBuffer memory;
+        private final Pointer buffer;
+        private long offset;
+        private int start;
+        private int end;
+        private boolean eof;
+        private boolean closed;
+
+        DirectInputStream(File file) throws IOException {
+            path = file.getAbsolutePath();
+            fd = NativeIO.openDirect(path);
+            memory = new AlignedBuffer();
+            buffer = memory.align(ALIGNMENT);
+        }
+
+        @Override
+        public int read() throws IOException {
+            if (start == end && !fill()) return -1;
+            return buffer.getByte(start++) & 0xff;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (len == 0) return 0;
+            if (start == end && !fill()) return -1;
+            int count = Math.min(len, end - start);
+            buffer.read(start, b, off, count);
+            start += count;
+            return count;
+        }
+
+        @Override
+        public int available() {
+            return end - start;
+        }
+
+        private boolean fill() throws IOException {
+            if (closed) throw new IOException(path + " is closed");
+            if (eof) return false;
+            long count = NativeIO.pread(fd, buffer, DIRECT_BUFFER_SIZE, offset, path);
+            // Only the last read of the file may end unaligned.
+            if (count <= 0 || count % ALIGNMENT != 0) eof = true;
+            if (count <= 0) return false;
+            offset += count;
+            start = 0;
+            end = (int) count;
+            return true;
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (closed) return;
+            closed = true;
+            // Native memory is only freed by the finalizer otherwise, long after the upload.
+            memory.free();
+            NativeIO.close(fd, path);
+        }
+    }
+
+    /** Native buffer for O_DIRECT reads, which can be freed once the file is read. */
+    private static final class AlignedBuffer extends Memory {
+        AlignedBuffer() {
+            super(DIRECT_BUFFER_SIZE + ALIGNMENT);
+        }
+
+        void free() {
+            dispose();
+        }
+    }
+}
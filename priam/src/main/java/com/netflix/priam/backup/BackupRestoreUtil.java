@@ -21,14 +21,12 @@ import com.google.common.collect.ImmutableMap;
 import com.netflix.priam.backupv2.IMetaProxy;
 import com.netflix.priam.backupv2.MetaV2Proxy;
 import com.netflix.priam.utils.DateUtil;
-import java.nio.file.Path;
 import java.time.Instant;
 import java.util.*;
 import java.util.regex.Pattern;
 import java.util.stream.Collectors;
 import javax.inject.Inject;
 import javax.inject.Provider;
-import org.apache.commons.io.FileUtils;
 import org.apache.commons.lang3.StringUtils;
 
 /** Helper methods applicable to both backup and restore */
@@ -63,20 +61,17 @@ public class BackupRestoreUtil {
             IMetaProxy metaProxy,
             Provider<AbstractBackupPath> pathProvider)
             throws Exception {
-        Path metaFile = metaProxy.downloadMetaFile(latestValidMetaFile);
-        List<AbstractBackupPath> snapshotPaths =
-                metaProxy
-                        .getSSTFilesFromMeta(metaFile)
-                        .stream()
-                        .map(
-                                value -> {
-                                    AbstractBackupPath path = pathProvider.get();
-                                    path.parseRemote(value);
-                                    return path;
-                                })
-                        .collect(Collectors.toList());
-        FileUtils.deleteQuietly(metaFile.toFile());
-        return snapshotPaths;
+        return metaProxy
+                .resolveMeta(latestValidMetaFile)
+                .getFiles()
+                .stream()
+                .map(
+                        value -> {
+                            AbstractBackupPath path = pathProvider.get();
+                            path.parseRemote(value);
+                            return path;
+                        })
+                .collect(Collectors.toList());
     }
 
     public static List<AbstractBackupPath> getIncrementalPaths(
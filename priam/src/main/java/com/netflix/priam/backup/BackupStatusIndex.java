@@ -0,0 +1,125 @@
+/*
+ * Copyright 2020 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.netflix.priam.backup;
+
+import java.time.Instant;
+import java.util.*;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+/**
+ * Index of the backup statuses held in memory, ordered by start time for each backup version and
+ * status. Lookups of backups started in a time range are logarithmic in the number of statuses.
+ *
+ * <p>The status of a {@link BackupMetadata} changes in place, so call {@link
+ * #update(BackupMetadata)} after it changed.
+ */
+final class BackupStatusIndex {
+    private final Map<BackupVersion, Map<Status, ConcurrentNavigableMap<Key, BackupMetadata>>>
+            byVersionAndStatus = new EnumMap<>(BackupVersion.class);
+
+    BackupStatusIndex() {
+        for (BackupVersion backupVersion : BackupVersion.values()) {
+            Map<Status, ConcurrentNavigableMap<Key, BackupMetadata>> byStatus =
+                    new EnumMap<>(Status.class);
+            for (Status status : Status.values())
+                byStatus.put(status, new ConcurrentSkipListMap<>());
+            byVersionAndStatus.put(backupVersion, byStatus);
+        }
+    }
+
+    /** Add the status, or move it to its current status if it was added before. */
+    void update(BackupMetadata backupMetadata) {
+        Key key = new Key(backupMetadata);
+        Map<Status, ConcurrentNavigableMap<Key, BackupMetadata>> byStatus =
+                byVersionAndStatus.get(backupMetadata.getBackupVersion());
+        for (Map.Entry<Status, ConcurrentNavigableMap<Key, BackupMetadata>> entry :
+                byStatus.entrySet()) {
+            if (entry.getKey() == backupMetadata.getStatus())
+                entry.getValue().put(key, backupMetadata);
+            else entry.getValue().remove(key);
+        }
+    }
+
+    void remove(BackupMetadata backupMetadata) {
+        Key key = new Key(backupMetadata);
+        for (Map<Status, ConcurrentNavigableMap<Key, BackupMetadata>> byStatus :
+                byVersionAndStatus.values()) byStatus.values().forEach(index -> index.remove(key));
+    }
+
+    void clear() {
+        for (Map<Status, ConcurrentNavigableMap<Key, BackupMetadata>> byStatus :
+                byVersionAndStatus.values()) byStatus.values().forEach(Map::clear);
+    }
+
+    /**
+     * @return the backups of the version and status which started in [start, end], in descending
+     *     order of start time.
+     */
+    Collection<BackupMetadata> range(
+            BackupVersion backupVersion, Status status, Instant start, Instant end) {
+        if (start.isAfter(end)) return Collections.emptyList();
+        return byVersionAndStatus
+                .get(backupVersion)
+                .get(status)
+                .subMap(new Key(start.toEpochMilli()), true, new Key(end.toEpochMilli() + 1), false)
+                .descendingMap()
+                .values();
+    }
+
+    /**
+     * Start time, version and token identify a backup, like {@link BackupMetadata#equals(Object)}
+     * does. A key without version and token sorts before the backups started at that time.
+     */
+    private static final class Key implements Comparable<Key> {
+        private final long start;
+        private final BackupVersion backupVersion;
+        private final String token;
+
+        Key(BackupMetadata backupMetadata) {
+            this.start = backupMetadata.getStart().getTime();
+            this.backupVersion = backupMetadata.getBackupVersion();
+            this.token = backupMetadata.getToken();
+        }
+
+        Key(long start) {
+            this.start = start;
+            this.backupVersion = null;
+            this.token = null;
+        }
+
+        @Override
+        public int compareTo(Key o) {
+            int result = Long.compare(start, o.start);
+            if (result != 0) return result;
+            if (backupVersion == null || o.backupVersion == null)
+                return Boolean.compare(backupVersion != null, o.backupVersion != null);
+            result = backupVersion.compareTo(o.backupVersion);
+            return result != 0 ? result : token.compareTo(o.token);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof Key && compareTo((Key) o) == 0;
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(start, backupVersion, token);
+        }
+    }
+}
@@ -19,7 +19,6 @@ import com.netflix.priam.utils.MaxSizeHashMap;
 import java.time.Instant;
 import java.time.temporal.ChronoUnit;
 import java.util.*;
-import java.util.stream.Collectors;
 import javax.inject.Inject;
 import javax.inject.Singleton;
 import org.apache.commons.lang3.StringUtils;
@@ -41,6 +40,9 @@ public abstract class BackupStatusMgr implements IBackupStatusMgr {
      */
     Map<String, LinkedList<BackupMetadata>> backupMetadataMap;
 
+    /** The statuses in {@link #backupMetadataMap}, by start time. */
+    private final BackupStatusIndex statusIndex = new BackupStatusIndex();
+
     final int capacity;
     private final InstanceState instanceState;
 
@@ -55,7 +57,20 @@ public abstract class BackupStatusMgr implements IBackupStatusMgr {
         this.instanceState = instanceState;
         // This is to avoid us loading lot of status in memory.
         // We will fetch previous status from backend service, if required.
-        backupMetadataMap = new MaxSizeHashMap<>(capacity);
+        backupMetadataMap = newStatusMap();
+    }
+
+    /** @return an empty status map, which drops the days it evicts from the index. */
+    Map<String, LinkedList<BackupMetadata>> newStatusMap() {
+        statusIndex.clear();
+        return new IndexedStatusMap(capacity, statusIndex);
+    }
+
+    /** Index the statuses in {@link #backupMetadataMap} again, after it was changed directly. */
+    void reindex() {
+        statusIndex.clear();
+        for (LinkedList<BackupMetadata> metadataLinkedList : backupMetadataMap.values())
+            if (metadataLinkedList != null) metadataLinkedList.forEach(statusIndex::update);
     }
 
     @Override
@@ -84,6 +99,7 @@ public abstract class BackupStatusMgr implements IBackupStatusMgr {
 
         // Save the result in local cache so we don't hit data store/file.
         backupMetadataMap.put(snapshotDate, metadataLinkedList);
+        if (metadataLinkedList != null) metadataLinkedList.forEach(statusIndex::update);
 
         return metadataLinkedList;
     }
@@ -98,6 +114,7 @@ public abstract class BackupStatusMgr implements IBackupStatusMgr {
 
         metadataLinkedList.addFirst(backupMetadata);
         backupMetadataMap.put(backupMetadata.getSnapshotDate(), metadataLinkedList);
+        statusIndex.update(backupMetadata);
         instanceState.setBackupStatus(backupMetadata);
         // Save the backupMetaDataMap
         save(backupMetadata);
@@ -144,6 +161,7 @@ public abstract class BackupStatusMgr implements IBackupStatusMgr {
                         .findFirst();
         if (!searchedData.isPresent()) {
             metadataLinkedList.addFirst(backupMetadata);
+            statusIndex.update(backupMetadata);
         }
         searchedData.ifPresent(
                 backupMetadata1 -> {
@@ -153,6 +171,7 @@ public abstract class BackupStatusMgr implements IBackupStatusMgr {
                             backupMetadata.isCassandraSnapshotSuccess());
                     backupMetadata1.setSnapshotLocation(backupMetadata.getSnapshotLocation());
                     backupMetadata1.setLastValidated(backupMetadata.getLastValidated());
+                    statusIndex.update(backupMetadata1);
                 });
     }
 
@@ -186,45 +205,61 @@ public abstract class BackupStatusMgr implements IBackupStatusMgr {
      */
     protected abstract LinkedList<BackupMetadata> fetch(String snapshotDate);
 
+    /**
+     * Days of the range which are not held in memory are fetched first, then the backups are looked
+     * up in the statuses held in memory, ordered by start time.
+     */
+    @Override
     public List<BackupMetadata> getLatestBackupMetadata(
             BackupVersion backupVersion, DateUtil.DateRange dateRange) {
-        Instant startDay = dateRange.getStartTime().truncatedTo(ChronoUnit.DAYS);
-        Instant endDay = dateRange.getEndTime().truncatedTo(ChronoUnit.DAYS);
-
-        List<BackupMetadata> allBackups = new ArrayList<>();
-        Instant previousDay = endDay;
-        do {
-            // We need to find the latest backupmetadata in this date range.
-            logger.info(
-                    "Will try to find snapshot for : {}",
-                    DateUtil.formatInstant(DateUtil.yyyyMMddHHmm, previousDay));
-            List<BackupMetadata> backupsForDate = locate(new Date(previousDay.toEpochMilli()));
-            if (backupsForDate != null) allBackups.addAll(backupsForDate);
-            previousDay = previousDay.minus(1, ChronoUnit.DAYS);
-        } while (!previousDay.isBefore(startDay));
-
+        fetchMissingDays(dateRange);
         // Return all the backups which are FINISHED and were "started" in the dateRange provided.
         // Do not compare the end time of snapshot as it may take random amount of time to finish
         // the snapshot.
-        return allBackups
-                .stream()
-                .filter(Objects::nonNull)
-                .filter(backupMetadata -> backupMetadata.getStatus() == Status.FINISHED)
-                .filter(backupMetadata -> backupMetadata.getBackupVersion().equals(backupVersion))
-                .filter(
-                        backupMetadata ->
-                                backupMetadata
-                                                        .getStart()
-                                                        .toInstant()
-                                                        .compareTo(dateRange.getStartTime())
-                                                >= 0
-                                        && backupMetadata
-                                                        .getStart()
-                                                        .toInstant()
-                                                        .compareTo(dateRange.getEndTime())
-                                                <= 0)
-                .sorted(Comparator.comparing(BackupMetadata::getStart).reversed())
-                .collect(Collectors.toList());
+        return new ArrayList<>(
+                statusIndex.range(
+                        backupVersion,
+                        Status.FINISHED,
+                        dateRange.getStartTime(),
+                        dateRange.getEndTime()));
+    }
+
+    /**
+     * Fetch the days of the range which are not held in memory. Unlike {@link #locate(String)},
+     * days without backups are not cached, so they do not evict the days which have backups.
+     */
+    private void fetchMissingDays(DateUtil.DateRange dateRange) {
+        Instant startDay = dateRange.getStartTime().truncatedTo(ChronoUnit.DAYS);
+        for (Instant day = dateRange.getEndTime().truncatedTo(ChronoUnit.DAYS);
+                !day.isBefore(startDay);
+                day = day.minus(1, ChronoUnit.DAYS)) {
+            String snapshotDate = DateUtil.formatyyyyMMdd(new Date(day.toEpochMilli()));
+            if (backupMetadataMap.containsKey(snapshotDate)) continue;
+            LinkedList<BackupMetadata> metadataLinkedList = fetch(snapshotDate);
+            if (metadataLinkedList == null || metadataLinkedList.isEmpty()) continue;
+            logger.info("Fetched snapshot status for: {}", snapshotDate);
+            backupMetadataMap.put(snapshotDate, metadataLinkedList);
+            metadataLinkedList.forEach(statusIndex::update);
+        }
+    }
+
+    /** Status map which drops the days it evicts from the index. */
+    private static final class IndexedStatusMap
+            extends MaxSizeHashMap<String, LinkedList<BackupMetadata>> {
+        private static final long serialVersionUID = 1L;
+        private final transient BackupStatusIndex statusIndex;
+
+        IndexedStatusMap(int capacity, BackupStatusIndex statusIndex) {
+            super(capacity);
+            this.statusIndex = statusIndex;
+        }
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, LinkedList<BackupMetadata>> eldest) {
+            boolean evict = super.removeEldestEntry(eldest);
+            if (evict && eldest.getValue() != null) eldest.getValue().forEach(statusIndex::remove);
+            return evict;
+        }
     }
 
     @Override
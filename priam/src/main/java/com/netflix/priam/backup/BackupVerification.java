@@ -92,13 +92,23 @@ public class BackupVerification {
             BackupVersion backupVersion, DateRange dateRange) throws IllegalArgumentException {
         IMetaProxy metaProxy = getMetaProxy(backupVersion);
         List<BackupMetadata> results = new ArrayList<>();
+        List<BackupMetadata> toVerify = new ArrayList<>();
+        List<AbstractBackupPath> metaFiles = new ArrayList<>();
         for (BackupMetadata backupMetadata :
                 backupStatusMgr.getLatestBackupMetadata(backupVersion, dateRange)) {
-            if (backupMetadata.getLastValidated() != null
-                    || verifyBackup(metaProxy, backupMetadata).isPresent()) {
+            if (backupMetadata.getLastValidated() != null) {
                 results.add(backupMetadata);
+            } else {
+                toVerify.add(backupMetadata);
+                metaFiles.add(getMetaFile(backupMetadata));
             }
         }
+        // All the meta files are verified together so the files they share are checked once.
+        List<BackupVerificationResult> verificationResults = metaProxy.isMetaFileValid(metaFiles);
+        for (int i = 0; i < toVerify.size(); i++) {
+            if (onVerified(toVerify.get(i), verificationResults.get(i)).isPresent())
+                results.add(toVerify.get(i));
+        }
         return results;
     }
 
@@ -109,11 +119,21 @@ public class BackupVerification {
 
     private Optional<BackupVerificationResult> verifyBackup(
             IMetaProxy metaProxy, BackupMetadata latestBackupMetaData) {
-        Path metadataLocation = Paths.get(latestBackupMetaData.getSnapshotLocation());
+        BackupVerificationResult result =
+                metaProxy.isMetaFileValid(getMetaFile(latestBackupMetaData));
+        return onVerified(latestBackupMetaData, result);
+    }
+
+    private AbstractBackupPath getMetaFile(BackupMetadata backupMetadata) {
+        Path metadataLocation = Paths.get(backupMetadata.getSnapshotLocation());
         metadataLocation = metadataLocation.subpath(1, metadataLocation.getNameCount());
         AbstractBackupPath abstractBackupPath = abstractBackupPathProvider.get();
         abstractBackupPath.parseRemote(metadataLocation.toString());
-        BackupVerificationResult result = metaProxy.isMetaFileValid(abstractBackupPath);
+        return abstractBackupPath;
+    }
+
+    private Optional<BackupVerificationResult> onVerified(
+            BackupMetadata latestBackupMetaData, BackupVerificationResult result) {
         if (result.valid) {
             updateLatestResult(latestBackupMetaData);
             Date now = new Date(DateUtil.getInstant().toEpochMilli());
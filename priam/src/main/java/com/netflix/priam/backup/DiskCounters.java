@@ -0,0 +1,59 @@
+/*
+ * Copyright 2020 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.netflix.priam.backup;
+
+import com.google.inject.ImplementedBy;
+import java.io.IOException;
+
+/** Source of the I/O statistics of the data device. */
+@ImplementedBy(ProcDiskStats.class)
+public interface DiskCounters {
+    /**
+     * @return the statistics of the data device so far. Only the difference between two calls is
+     *     meaningful.
+     * @throws IOException if the statistics cannot be read.
+     */
+    Stats getStats() throws IOException;
+
+    /** Cumulative I/O statistics of a device. */
+    final class Stats {
+        private final long ios;
+        private final long ioWaitMillis;
+        private final long busyMillis;
+
+        public Stats(long ios, long ioWaitMillis, long busyMillis) {
+            this.ios = ios;
+            this.ioWaitMillis = ioWaitMillis;
+            this.busyMillis = busyMillis;
+        }
+
+        /** @return reads and writes completed. */
+        public long getIos() {
+            return ios;
+        }
+
+        /** @return milliseconds the completed reads and writes took, queueing included. */
+        public long getIoWaitMillis() {
+            return ioWaitMillis;
+        }
+
+        /** @return milliseconds the device had I/O in flight. */
+        public long getBusyMillis() {
+            return busyMillis;
+        }
+    }
+}
@@ -0,0 +1,180 @@
+/*
+ * Copyright 2020 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.netflix.priam.backup;
+
+import com.google.common.util.concurrent.RateLimiter;
+import com.netflix.priam.config.IConfiguration;
+import com.netflix.priam.merics.BackupMetrics;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.time.Clock;
+import java.util.concurrent.atomic.AtomicLong;
+import javax.inject.Inject;
+import javax.inject.Singleton;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Paces the reads of the files to upload, so that the utilization and await of the data device stay
+ * under {@link IConfiguration#getBackupDiskUtilizationTarget()} and {@link
+ * IConfiguration#getBackupDiskAwaitTargetMillis()}, and Cassandra reads keep their latency.
+ *
+ * <p>The device statistics are sampled at most once per {@link
+ * IConfiguration#getBackupDiskSampleMillis()}. Reads are not paced until the device misses a
+ * target. The rate is then halved from what backups were reading on every sample which misses a
+ * target, and raised by a fifth on every sample which meets them, until it no longer limits the
+ * reads.
+ */
+@Singleton
+public class DiskReadGovernor {
+    private static final Logger logger = LoggerFactory.getLogger(DiskReadGovernor.class);
+    private static final double DECREASE = 0.5;
+    private static final double INCREASE = 1.2;
+    // Backups always make progress.
+    private static final double MIN_RATE = 1024 * 1024;
+    private final IConfiguration config;
+    private final DiskCounters counters;
+    private final Clock clock;
+    private final BackupMetrics backupMetrics;
+    private final RateLimiter rateLimiter = RateLimiter.create(Double.MAX_VALUE);
+    private final AtomicLong readBytes = new AtomicLong();
+    private volatile boolean pacing;
+    private volatile long nextSampleMillis;
+    private long lastSampleMillis = -1;
+    private DiskCounters.Stats lastStats;
+    private long lastReadBytes;
+    private boolean countersAvailable = true;
+
+    @Inject
+    public DiskReadGovernor(
+            IConfiguration config,
+            DiskCounters counters,
+            Clock clock,
+            BackupMetrics backupMetrics) {
+        this.config = config;
+        this.counters = counters;
+        this.clock = clock;
+        this.backupMetrics = backupMetrics;
+    }
+
+    /** @return the stream, whose reads are paced to the data device. */
+    public InputStream pace(InputStream in) {
+        return new PacedInputStream(in);
+    }
+
+    /** @param bytes just read from the data device. */
+    void acquire(int bytes) {
+        if (bytes <= 0) return;
+        readBytes.addAndGet(bytes);
+        if (clock.millis() >= nextSampleMillis) sample();
+        if (pacing) rateLimiter.acquire(bytes);
+    }
+
+    /** @return bytes per second reads are paced at, Double.MAX_VALUE if they are not. */
+    double getRate() {
+        return pacing ? rateLimiter.getRate() : Double.MAX_VALUE;
+    }
+
+    private synchronized void sample() {
+        long now = clock.millis();
+        if (now < nextSampleMillis) return;
+        nextSampleMillis = now + config.getBackupDiskSampleMillis();
+        int utilizationTarget = config.getBackupDiskUtilizationTarget();
+        int awaitTarget = config.getBackupDiskAwaitTargetMillis();
+        if (utilizationTarget < 1 && awaitTarget < 1) {
+            setPacing(false);
+            lastStats = null;
+            return;
+        }
+        DiskCounters.Stats stats;
+        try {
+            stats = counters.getStats();
+        } catch (IOException e) {
+            // Logged once, not on every sample.
+            if (countersAvailable)
+                logger.warn("Failed to read disk statistics, not pacing backup reads", e);
+            countersAvailable = false;
+            setPacing(false);
+            lastStats = null;
+            return;
+        }
+        countersAvailable = true;
+        long read = readBytes.get();
+        if (lastStats != null && now > lastSampleMillis) {
+            long millis = now - lastSampleMillis;
+            long ios = stats.getIos() - lastStats.getIos();
+            double utilization =
+                    100.0 * (stats.getBusyMillis() - lastStats.getBusyMillis()) / millis;
+            double await =
+                    ios > 0
+                            ? (double) (stats.getIoWaitMillis() - lastStats.getIoWaitMillis()) / ios
+                            : 0;
+            double readRate = (read - lastReadBytes) * 1000.0 / millis;
+            boolean overloaded =
+                    (utilizationTarget > 0 && utilization > utilizationTarget)
+                            || (awaitTarget > 0 && await > awaitTarget);
+            adjust(overloaded, readRate);
+        }
+        lastSampleMillis = now;
+        lastStats = stats;
+        lastReadBytes = read;
+    }
+
+    private void adjust(boolean overloaded, double readRate) {
+        if (overloaded) {
+            double rate = pacing ? Math.min(rateLimiter.getRate(), readRate) : readRate;
+            rateLimiter.setRate(Math.max(MIN_RATE, rate * DECREASE));
+            setPacing(true);
+        } else if (pacing) {
+            double rate = rateLimiter.getRate() * INCREASE;
+            // Stop pacing once backups do not read as fast as they may.
+            if (rate >= 2 * readRate) setPacing(false);
+            else {
+                rateLimiter.setRate(rate);
+                setPacing(true);
+            }
+        }
+    }
+
+    private void setPacing(boolean pacing) {
+        if (this.pacing != pacing)
+            logger.info("{} pacing backup reads of the data device", pacing ? "Start" : "Stop");
+        this.pacing = pacing;
+        backupMetrics.setDiskReadRate(pacing ? rateLimiter.getRate() : 0);
+    }
+
+    private final class PacedInputStream extends FilterInputStream {
+        PacedInputStream(InputStream in) {
+            super(in);
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if (b >= 0) acquire(1);
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int count = super.read(b, off, len);
+            acquire(count);
+            return count;
+        }
+    }
+}
@@ -6,4 +6,11 @@ import java.time.Instant;
 @ImplementedBy(BackupDynamicRateLimiter.class)
 public interface DynamicRateLimiter {
     void acquire(AbstractBackupPath dir, Instant target, int tokens);
+
+    /**
+     * Tell the rate limiter that a file was uploaded, so its bytes are no longer left to upload.
+     *
+     * @param path the file which was uploaded.
+     */
+    default void uploaded(AbstractBackupPath path) {}
 }
@@ -19,10 +19,16 @@ package com.netflix.priam.backup;
 
 import com.netflix.priam.config.IConfiguration;
 import com.netflix.priam.health.InstanceState;
-import com.netflix.priam.utils.MaxSizeHashMap;
 import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.Date;
+import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.Map;
+import java.util.zip.CRC32;
 import javax.inject.Inject;
 import javax.inject.Singleton;
 import org.slf4j.Logger;
@@ -31,12 +37,30 @@ import org.slf4j.LoggerFactory;
 /**
  * Default implementation for {@link IBackupStatusMgr}. This will save the snapshot status in local
  * file. Created by aagrawal on 7/11/17.
+ *
+ * <p>The file is a journal: every change of a snapshot status is appended as a record with its
+ * length and checksum, and the journal is replayed when Priam starts. A record cut short by a crash
+ * is ignored. Records carry all the fields of the status and newer fields are only ever added at
+ * the end of a record, so an older Priam reads what it knows and skips the rest. The journal is
+ * compacted to one record per snapshot when Priam starts and once it grew past the live statuses. A
+ * status file written with Java serialization by an older Priam is converted on start.
  */
 @Singleton
 public class FileSnapshotStatusMgr extends BackupStatusMgr {
     private static final Logger logger = LoggerFactory.getLogger(FileSnapshotStatusMgr.class);
     private static final int IN_MEMORY_SNAPSHOT_CAPACITY = 60;
-    private final String filename;
+    private static final int MAGIC = 0x50535441; // "PSTA"
+    private static final byte FORMAT_VERSION = 1;
+    private static final byte PUT_STATUS = 1;
+    private static final int MAX_RECORD_SIZE = 1024 * 1024;
+    private static final int MIN_RECORDS_TO_COMPACT = 100;
+    private final Path journalFile;
+    private final boolean fsync;
+    private FileOutputStream journal;
+    private DataOutputStream journalOut;
+    // Records in the journal, and how many of those were written by the last compaction.
+    private int records;
+    private int compactedRecords;
 
     /**
      * Constructor to initialize the file based snapshot status manager.
@@ -50,65 +74,233 @@ public class FileSnapshotStatusMgr extends BackupStatusMgr {
         super(
                 IN_MEMORY_SNAPSHOT_CAPACITY,
                 instanceState); // Fetch capacity from properties, if required.
-        this.filename = config.getBackupStatusFileLoc();
+        this.journalFile = Paths.get(config.getBackupStatusFileLoc());
+        this.fsync = config.isBackupStatusFsyncEnabled();
         init();
     }
 
-    private void init() {
-        // Retrieve entire file and re-populate the list.
-        File snapshotFile = new File(filename);
-        if (!snapshotFile.exists()) {
-            snapshotFile.getParentFile().mkdirs();
+    private synchronized void init() {
+        backupMetadataMap = newStatusMap();
+        if (!Files.exists(journalFile)) {
             logger.info(
                     "Snapshot status file do not exist on system. Bypassing initilization phase.");
-            backupMetadataMap = new MaxSizeHashMap<>(capacity);
+        } else {
+            try {
+                if (!replay()) readSerialized();
+                logger.info(
+                        "Snapshot status of size {} fetched successfully from {}",
+                        backupMetadataMap.size(),
+                        journalFile);
+            } catch (Exception e) {
+                logger.error(
+                        "Error while trying to fetch snapshot status from {}. Error: {}.",
+                        journalFile,
+                        e.getLocalizedMessage());
+            }
+        }
+        reindex();
+        // Start from a journal with only the live statuses, in the current format.
+        compact();
+    }
+
+    /** @return false if the file is not a journal. */
+    private boolean replay() throws IOException {
+        long fileLength = Files.size(journalFile);
+        try (DataInputStream in =
+                new DataInputStream(new BufferedInputStream(Files.newInputStream(journalFile)))) {
+            if (fileLength < Integer.BYTES + 1 || in.readInt() != MAGIC) return false;
+            byte version = in.readByte();
+            if (version > FORMAT_VERSION)
+                throw new IOException("Unsupported snapshot status journal version: " + version);
+            long position = Integer.BYTES + 1;
+            CRC32 crc = new CRC32();
+            // A tail too short to hold the length of a record is an incomplete record as well.
+            while (position + Integer.BYTES <= fileLength) {
+                int length = in.readInt();
+                if (length < 1
+                        || length > MAX_RECORD_SIZE
+                        || position + 2 * Integer.BYTES + length > fileLength) break;
+                int checksum = in.readInt();
+                byte[] record = new byte[length];
+                in.readFully(record);
+                crc.reset();
+                crc.update(record);
+                if ((int) crc.getValue() != checksum) break;
+                apply(record);
+                position += 2 * Integer.BYTES + length;
+            }
+            // Only the last record can be incomplete, when Priam stopped while writing it.
+            if (position < fileLength)
+                logger.warn(
+                        "Ignoring incomplete record at {} in snapshot status journal: {}",
+                        position,
+                        journalFile);
+        }
+        return true;
+    }
+
+    private void apply(byte[] record) throws IOException {
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(record));
+        byte type = in.readByte();
+        if (type != PUT_STATUS) {
+            logger.warn("Skipping unknown record type {} in snapshot status journal", type);
             return;
         }
+        BackupMetadata backupMetadata;
+        try {
+            backupMetadata = readStatus(in);
+        } catch (IllegalArgumentException e) {
+            // e.g. a status unknown to this version of Priam.
+            logger.warn("Skipping unreadable record in snapshot status journal", e);
+            return;
+        }
+        LinkedList<BackupMetadata> metadataLinkedList =
+                backupMetadataMap.get(backupMetadata.getSnapshotDate());
+        if (metadataLinkedList == null) {
+            metadataLinkedList = new LinkedList<>();
+            backupMetadataMap.put(backupMetadata.getSnapshotDate(), metadataLinkedList);
+        }
+        int index = metadataLinkedList.indexOf(backupMetadata);
+        if (index < 0) metadataLinkedList.addFirst(backupMetadata);
+        else metadataLinkedList.set(index, backupMetadata);
+        records++;
+    }
 
+    @SuppressWarnings("unchecked")
+    private void readSerialized() throws IOException, ClassNotFoundException {
         try (final ObjectInputStream inputStream =
-                new ObjectInputStream(new FileInputStream(snapshotFile))) {
-            backupMetadataMap = (Map<String, LinkedList<BackupMetadata>>) inputStream.readObject();
-            logger.info(
-                    "Snapshot status of size {} fetched successfully from {}",
-                    backupMetadataMap.size(),
-                    filename);
+                new ObjectInputStream(Files.newInputStream(journalFile))) {
+            backupMetadataMap.putAll(
+                    (Map<String, LinkedList<BackupMetadata>>) inputStream.readObject());
+            logger.info("Converting snapshot status in {} to a journal", journalFile);
+        }
+    }
+
+    private static void writeStatus(DataOutputStream out, BackupMetadata backupMetadata)
+            throws IOException {
+        out.writeUTF(backupMetadata.getBackupVersion().name());
+        out.writeUTF(backupMetadata.getToken());
+        out.writeLong(backupMetadata.getStart().getTime());
+        writeDate(out, backupMetadata.getCompleted());
+        out.writeUTF(backupMetadata.getStatus().name());
+        out.writeBoolean(backupMetadata.isCassandraSnapshotSuccess());
+        writeDate(out, backupMetadata.getLastValidated());
+        out.writeBoolean(backupMetadata.getSnapshotLocation() != null);
+        if (backupMetadata.getSnapshotLocation() != null)
+            out.writeUTF(backupMetadata.getSnapshotLocation());
+    }
+
+    private static BackupMetadata readStatus(DataInputStream in) throws IOException {
+        BackupVersion backupVersion = BackupVersion.valueOf(in.readUTF());
+        String token = in.readUTF();
+        BackupMetadata backupMetadata =
+                new BackupMetadata(backupVersion, token, new Date(in.readLong()));
+        backupMetadata.setCompleted(readDate(in));
+        backupMetadata.setStatus(Status.valueOf(in.readUTF()));
+        backupMetadata.setCassandraSnapshotSuccess(in.readBoolean());
+        backupMetadata.setLastValidated(readDate(in));
+        if (in.readBoolean()) backupMetadata.setSnapshotLocation(in.readUTF());
+        return backupMetadata;
+    }
+
+    private static void writeDate(DataOutputStream out, Date date) throws IOException {
+        out.writeLong(date == null ? Long.MIN_VALUE : date.getTime());
+    }
+
+    private static Date readDate(DataInputStream in) throws IOException {
+        long time = in.readLong();
+        return time == Long.MIN_VALUE ? null : new Date(time);
+    }
+
+    private static void writeRecord(DataOutputStream out, BackupMetadata backupMetadata)
+            throws IOException {
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        DataOutputStream record = new DataOutputStream(buffer);
+        record.writeByte(PUT_STATUS);
+        writeStatus(record, backupMetadata);
+        record.flush();
+        CRC32 crc = new CRC32();
+        crc.update(buffer.toByteArray());
+        out.writeInt(buffer.size());
+        out.writeInt((int) crc.getValue());
+        buffer.writeTo(out);
+    }
+
+    @Override
+    public synchronized void save(BackupMetadata backupMetadata) {
+        // The in-memory status already has the change, so a new journal gets it as well.
+        if (journalOut == null || !Files.exists(journalFile)) {
+            compact();
+            return;
+        }
+        try {
+            writeRecord(journalOut, backupMetadata);
+            journalOut.flush();
+            if (fsync) journal.getFD().sync();
+            records++;
         } catch (IOException e) {
             logger.error(
-                    "Error while trying to fetch snapshot status from {}. Error: {}. If this is first time after upgrading Priam, ignore this.",
-                    filename,
-                    e.getLocalizedMessage());
-            e.printStackTrace();
-        } catch (Exception e) {
-            logger.error(
-                    "Error while trying to fetch snapshot status from {}. Error: {}.",
-                    filename,
+                    "Error while trying to persist snapshot status to {}. Error: {}",
+                    journalFile,
                     e.getLocalizedMessage());
-            e.printStackTrace();
+            // Rewrite the journal on the next change.
+            closeJournal();
+            return;
         }
-
-        if (backupMetadataMap == null) backupMetadataMap = new MaxSizeHashMap<>(capacity);
+        if (records - compactedRecords >= Math.max(MIN_RECORDS_TO_COMPACT, compactedRecords))
+            compact();
     }
 
-    @Override
-    public void save(BackupMetadata backupMetadata) {
-        File snapshotFile = new File(filename);
-        if (!snapshotFile.exists()) snapshotFile.getParentFile().mkdirs();
-
-        // Will save entire list to file.
-        try (final ObjectOutputStream out =
-                new ObjectOutputStream(new FileOutputStream(filename))) {
-            out.writeObject(backupMetadataMap);
-            out.flush();
-            logger.info(
-                    "Snapshot status of size {} is saved to {}",
-                    backupMetadataMap.size(),
-                    filename);
+    /** Write the live statuses to a new journal, which replaces the current one. */
+    private void compact() {
+        closeJournal();
+        Path tmpFile = journalFile.resolveSibling(journalFile.getFileName() + ".tmp");
+        try {
+            Files.createDirectories(journalFile.toAbsolutePath().getParent());
+            int written = 0;
+            try (FileOutputStream file = new FileOutputStream(tmpFile.toFile());
+                    DataOutputStream out = new DataOutputStream(new BufferedOutputStream(file))) {
+                out.writeInt(MAGIC);
+                out.writeByte(FORMAT_VERSION);
+                for (LinkedList<BackupMetadata> metadataLinkedList : backupMetadataMap.values()) {
+                    if (metadataLinkedList == null) continue;
+                    // Oldest first, as replay adds a new snapshot at the front of the list.
+                    Iterator<BackupMetadata> iterator = metadataLinkedList.descendingIterator();
+                    while (iterator.hasNext()) {
+                        writeRecord(out, iterator.next());
+                        written++;
+                    }
+                }
+                out.flush();
+                file.getFD().sync();
+            }
+            Files.move(
+                    tmpFile,
+                    journalFile,
+                    StandardCopyOption.REPLACE_EXISTING,
+                    StandardCopyOption.ATOMIC_MOVE);
+            journal = new FileOutputStream(journalFile.toFile(), true);
+            journalOut = new DataOutputStream(new BufferedOutputStream(journal));
+            records = compactedRecords = written;
+            logger.info("Snapshot status of size {} is saved to {}", written, journalFile);
         } catch (IOException e) {
             logger.error(
                     "Error while trying to persist snapshot status to {}. Error: {}",
-                    filename,
+                    journalFile,
                     e.getLocalizedMessage());
+            closeJournal();
+        }
+    }
+
+    private void closeJournal() {
+        if (journalOut == null) return;
+        try {
+            journalOut.close();
+        } catch (IOException e) {
+            logger.warn("Unable to close snapshot status journal {}", journalFile, e);
         }
+        journal = null;
+        journalOut = null;
     }
 
     @Override
@@ -16,15 +16,24 @@
  */
 package com.netflix.priam.backup;
 
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.ImmutableSortedSet;
+import com.google.common.collect.Iterators;
+import com.google.common.collect.Streams;
 import com.google.common.util.concurrent.ListenableFuture;
 import java.io.FileNotFoundException;
+import java.io.InputStream;
 import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.time.Instant;
+import java.util.Comparator;
 import java.util.Date;
 import java.util.Iterator;
 import java.util.List;
 import java.util.concurrent.Future;
 import java.util.concurrent.RejectedExecutionException;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 /** Interface representing a backup storage as a file system */
 public interface IBackupFileSystem {
@@ -40,6 +49,18 @@ public interface IBackupFileSystem {
     void downloadFile(AbstractBackupPath path, String suffix, int retry)
             throws BackupRestoreException;
 
+    /**
+     * Open the file denoted by remotePath for reading. The content is as stored on the remote file
+     * system, i.e. still compressed and encrypted if it was at upload. The caller must close the
+     * stream.
+     *
+     * @param path Backup path representing the remote file
+     * @return stream of the content of the remote file.
+     * @throws BackupRestoreException if file is not available or any other error from remote file
+     *     system.
+     */
+    InputStream openFile(AbstractBackupPath path) throws BackupRestoreException;
+
     /**
      * Download the file denoted by remotePath in an async fashion to the local file system denoted
      * by local path.
@@ -131,6 +152,40 @@ public interface IBackupFileSystem {
      */
     Iterator<String> listFileSystem(String prefix, String delimiter, String marker);
 
+    /**
+     * List several disjoint prefixes at once, e.g. the shards of a large prefix. The listing of
+     * each prefix is started before any key is returned, so the file systems which list ahead do so
+     * for all the prefixes in parallel.
+     *
+     * @param prefixes disjoint prefixes to list.
+     * @param marker only keys after this one are listed. Null to list from the start.
+     * @return iterator over the keys of all the prefixes, in lexicographic order.
+     */
+    default Iterator<String> listFileSystem(List<String> prefixes, String marker) {
+        if (prefixes.size() == 1) return listFileSystem(prefixes.get(0), null, marker);
+        List<Iterator<String>> iterators =
+                prefixes.stream()
+                        .map(prefix -> listFileSystem(prefix, null, marker))
+                        .collect(Collectors.toList());
+        return Iterators.mergeSorted(iterators, Comparator.naturalOrder());
+    }
+
+    /**
+     * Same as {@link #listFileSystem(List, String)} for callers which do not need the keys in
+     * order. The prefixes are consumed in parallel.
+     *
+     * @param prefixes disjoint prefixes to list.
+     * @param marker only keys after this one are listed. Null to list from the start.
+     * @return unordered parallel stream of the keys of all the prefixes.
+     */
+    default Stream<String> streamFileSystem(List<String> prefixes, String marker) {
+        List<Iterator<String>> iterators =
+                prefixes.stream()
+                        .map(prefix -> listFileSystem(prefix, null, marker))
+                        .collect(Collectors.toList());
+        return iterators.parallelStream().flatMap(Streams::stream).unordered();
+    }
+
     /** Runs cleanup or set retention */
     void cleanup();
 
@@ -158,6 +213,23 @@ public interface IBackupFileSystem {
         return false;
     }
 
+    /**
+     * Finds which of the given remote paths exist on the remote file system. This is meant for
+     * large batches (e.g. all the files of a snapshot) where calling {@link
+     * #checkObjectExists(Path)} once per object is too slow. Implementations should resolve the
+     * batch by listing the remote key range instead of issuing one request per object.
+     *
+     * @param remotePaths locations on the remote file system.
+     * @return the subset of remotePaths which are present on the remote file system.
+     * @throws java.util.concurrent.CancellationException if interrupted while listing.
+     */
+    default ImmutableSet<String> getExistingObjects(ImmutableSortedSet<String> remotePaths) {
+        return remotePaths
+                .stream()
+                .filter(remotePath -> checkObjectExists(Paths.get(remotePath)))
+                .collect(ImmutableSet.toImmutableSet());
+    }
+
     /**
      * Delete list of remote files from the remote file system. It should throw exception if there
      * is anything wrong in processing the request. If the remotePath passed do not exist, then it
@@ -20,6 +20,7 @@ import com.google.common.collect.ImmutableList;
 import com.google.common.util.concurrent.Futures;
 import com.google.common.util.concurrent.ListenableFuture;
 import com.google.common.util.concurrent.MoreExecutors;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import com.netflix.priam.backup.AbstractBackupPath.BackupFileType;
 import com.netflix.priam.backupv2.SnapshotMetaTask;
 import com.netflix.priam.config.IBackupRestoreConfig;
@@ -27,11 +28,21 @@ import com.netflix.priam.config.IConfiguration;
 import com.netflix.priam.scheduler.SimpleTimer;
 import com.netflix.priam.scheduler.TaskTimer;
 import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
 import javax.inject.Inject;
 import javax.inject.Singleton;
 import org.apache.commons.io.FileUtils;
+import org.quartz.JobExecutionException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -45,6 +56,19 @@ public class IncrementalBackup extends AbstractBackup {
     private final BackupRestoreUtil backupRestoreUtil;
     private final IBackupRestoreConfig backupRestoreConfig;
     private final BackupHelper backupHelper;
+    private IncrementalBackupWatcher watcher;
+    private boolean watchFailed;
+    private volatile boolean rescan;
+    private Instant lastFullScan = Instant.EPOCH;
+    // Directories reported by the watcher, backed up by the next run.
+    private final Set<File> changedDirs = ConcurrentHashMap.newKeySet();
+    private final AtomicBoolean runQueued = new AtomicBoolean();
+    private final ExecutorService runner =
+            Executors.newSingleThreadExecutor(
+                    new ThreadFactoryBuilder()
+                            .setDaemon(true)
+                            .setNameFormat("IncrementalBackupRun-%d")
+                            .build());
 
     @Inject
     public IncrementalBackup(
@@ -61,12 +85,98 @@ public class IncrementalBackup extends AbstractBackup {
         this.backupHelper = backupHelper;
     }
 
+    /**
+     * Back up all the incremental backup directories. When they are watched, this backs up the
+     * directories changed since the last run, and only lists all the directories once in a while,
+     * or when events were missed.
+     */
     @Override
-    public void execute() throws Exception {
-        // Clearing remotePath List
+    public synchronized void execute() throws Exception {
+        if (!config.isIncrementalBackupWatchEnabled()) {
+            stopWatching();
+        } else if (watch()) {
+            // Watching started before listing, so that files created while listing are not missed.
+            Instant nextFullScan =
+                    lastFullScan.plus(
+                            config.getIncrementalBackupRescanIntervalMinutes(), ChronoUnit.MINUTES);
+            if (!rescan && Instant.now().isBefore(nextFullScan)) {
+                backupChangedDirs();
+                return;
+            }
+        }
+        rescan = false;
+        lastFullScan = Instant.now();
+        // The listing finds the changed directories too.
+        changedDirs.clear();
         initiateBackup(INCREMENTAL_BACKUP_FOLDER, backupRestoreUtil);
     }
 
+    private void stopWatching() {
+        if (watcher == null) return;
+        try {
+            watcher.close();
+        } catch (IOException e) {
+            logger.warn("Error while closing the incremental backup watcher", e);
+        }
+        watcher = null;
+        changedDirs.clear();
+    }
+
+    private void backupChangedDirs() {
+        for (File backupDir : changedDirs) {
+            changedDirs.remove(backupDir);
+            try {
+                initiateBackup(backupDir, backupRestoreUtil);
+            } catch (Exception e) {
+                logger.error("Error while backing up {}, will rescan", backupDir, e);
+                rescan = true;
+            }
+        }
+    }
+
+    /** @return true if the incremental backup directories are watched. */
+    private boolean watch() {
+        if (watcher != null || watchFailed) return watcher != null;
+        Path dataDir = Paths.get(config.getDataFileLocation());
+        // Listing the directories reports a missing data directory.
+        if (!Files.isDirectory(dataDir)) return false;
+        try {
+            watcher =
+                    new IncrementalBackupWatcher(
+                            dataDir,
+                            INCREMENTAL_BACKUP_FOLDER,
+                            config.getIncrementalBackupWatchWindowMillis(),
+                            this::onChange);
+        } catch (IOException e) {
+            logger.error(
+                    "Unable to watch incremental backup directories, will list them instead", e);
+            watchFailed = true;
+        }
+        return watcher != null;
+    }
+
+    /**
+     * Called on the thread of the watcher, which must not wait for uploads: the changes are handed
+     * to a run of the task, which reports to the task monitor like scheduled runs. A run skipped as
+     * another is in progress leaves the changes to the next one.
+     */
+    private void onChange(Set<File> backupDirs, boolean missedEvents) {
+        if (missedEvents) rescan = true;
+        else changedDirs.addAll(backupDirs);
+        if (!runQueued.compareAndSet(false, true)) return;
+        runner.execute(
+                () -> {
+                    runQueued.set(false);
+                    // The scheduled runs list the directories once watching is disabled.
+                    if (!config.isIncrementalBackupWatchEnabled()) return;
+                    try {
+                        execute(null);
+                    } catch (JobExecutionException e) {
+                        logger.error("Error while backing up the changed directories", e);
+                    }
+                });
+    }
+
     /** Run every 10 Sec */
     public static TaskTimer getTimer(
             IConfiguration config, IBackupRestoreConfig backupRestoreConfig) {
@@ -0,0 +1,167 @@
+/*
+ * Copyright 2020 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.netflix.priam.backup;
+
+import static java.nio.file.StandardWatchEventKinds.ENTRY_CREATE;
+import static java.nio.file.StandardWatchEventKinds.OVERFLOW;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.*;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Watches the incremental backup directories of all the columnfamilies for new files, so that only
+ * the directories which changed are backed up. New keyspaces, columnfamilies and backup directories
+ * are watched as they are created.
+ *
+ * <p>Events are coalesced until none arrived for the coalescing window, then the listener is called
+ * once for all of them. When events were lost, e.g. the kernel queue overflowed, the listener is
+ * asked for a full rescan.
+ */
+class IncrementalBackupWatcher implements Closeable {
+    private static final Logger logger = LoggerFactory.getLogger(IncrementalBackupWatcher.class);
+    // Depth of the watched directories below the data directory.
+    private static final int KEYSPACE = 1;
+    private static final int COLUMN_FAMILY = 2;
+    private static final int BACKUP = 3;
+    private static final int SECONDARY_INDEX = 4;
+    // Longest a directory written to continuously delays the listener, in coalescing windows.
+    private static final int MAX_WINDOWS = 10;
+
+    /** Called on the watcher thread with the backup directories which have new files. */
+    interface Listener {
+        void onChange(Set<File> backupDirs, boolean rescan);
+    }
+
+    private final Path dataDir;
+    private final String monitoringFolder;
+    private final long windowMillis;
+    private final Listener listener;
+    private final WatchService watchService;
+    private final Map<WatchKey, Path> watched = new HashMap<>();
+    private final Thread thread;
+    // Only used by the watcher thread.
+    private Set<File> changedDirs = new HashSet<>();
+    private boolean rescan;
+
+    IncrementalBackupWatcher(
+            Path dataDir, String monitoringFolder, long windowMillis, Listener listener)
+            throws IOException {
+        this.dataDir = dataDir;
+        this.monitoringFolder = monitoringFolder;
+        this.windowMillis = windowMillis;
+        this.listener = listener;
+        this.watchService = dataDir.getFileSystem().newWatchService();
+        // The directories which exist now are listed by the first backup.
+        register(dataDir, 0, false);
+        thread = new Thread(this::run, "IncrementalBackupWatcher");
+        thread.setDaemon(true);
+        thread.start();
+        logger.info("Watching {} directories for incremental backups", watched.size());
+    }
+
+    /**
+     * Watch the directory and the directories below it which can hold incremental files.
+     *
+     * @param isNew whether the files in them are new.
+     */
+    private void register(Path dir, int depth, boolean isNew) throws IOException {
+        if (depth > SECONDARY_INDEX
+                || (depth == BACKUP && !dir.getFileName().toString().equals(monitoringFolder))
+                || (depth == SECONDARY_INDEX && !dir.getFileName().toString().startsWith("."))
+                || !Files.isDirectory(dir)) return;
+        // Files moved into a directory are created as well.
+        watched.put(dir.register(watchService, ENTRY_CREATE), dir);
+        // Files may have been created before the directory was watched.
+        if (isNew && depth >= BACKUP) changed(dir, depth);
+        try (DirectoryStream<Path> children = Files.newDirectoryStream(dir, Files::isDirectory)) {
+            for (Path child : children) register(child, depth + 1, isNew);
+        }
+    }
+
+    private void changed(Path dir, int depth) {
+        changedDirs.add((depth == SECONDARY_INDEX ? dir.getParent() : dir).toFile());
+    }
+
+    private void run() {
+        try {
+            while (true) {
+                WatchKey key = watchService.take();
+                long deadline =
+                        System.nanoTime()
+                                + TimeUnit.MILLISECONDS.toNanos(windowMillis * MAX_WINDOWS);
+                // Wait for more events until none arrived for the coalescing window.
+                do {
+                    process(key);
+                } while (System.nanoTime() < deadline
+                        && (key = watchService.poll(windowMillis, TimeUnit.MILLISECONDS)) != null);
+                notifyListener();
+            }
+        } catch (InterruptedException | ClosedWatchServiceException e) {
+            logger.info("Stopped watching incremental backup directories");
+        }
+    }
+
+    private void process(WatchKey key) {
+        Path dir = watched.get(key);
+        for (WatchEvent<?> event : key.pollEvents()) {
+            if (event.kind() == OVERFLOW) {
+                logger.warn("Missed events of incremental backup directories, will rescan");
+                rescan = true;
+                continue;
+            }
+            if (dir == null) continue;
+            int depth = dir.equals(dataDir) ? 0 : dataDir.relativize(dir).getNameCount();
+            if (depth >= BACKUP) changed(dir, depth);
+            Path child = dir.resolve((Path) event.context());
+            try {
+                register(child, depth + 1, true);
+            } catch (IOException e) {
+                logger.warn("Unable to watch {}, will rescan: {}", child, e.getMessage());
+                rescan = true;
+            }
+        }
+        if (!key.reset()) watched.remove(key);
+    }
+
+    private void notifyListener() {
+        if (changedDirs.isEmpty() && !rescan) return;
+        Set<File> backupDirs = changedDirs;
+        boolean fullRescan = rescan;
+        changedDirs = new HashSet<>();
+        rescan = false;
+        try {
+            listener.onChange(backupDirs, fullRescan);
+        } catch (Exception e) {
+            logger.error("Error while backing up changed incremental directories", e);
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        thread.interrupt();
+        watchService.close();
+    }
+}
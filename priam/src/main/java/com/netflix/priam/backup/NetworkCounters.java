@@ -0,0 +1,31 @@
+/*
+ * Copyright 2020 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.netflix.priam.backup;
+
+import com.google.inject.ImplementedBy;
+import java.io.IOException;
+
+/** Source of the traffic counters of the network interfaces of the node. */
+@ImplementedBy(ProcNetDevCounters.class)
+public interface NetworkCounters {
+    /**
+     * @return total bytes transmitted by the network interfaces so far. Only the difference between
+     *     two calls is meaningful.
+     * @throws IOException if the counters cannot be read.
+     */
+    long getTransmittedBytes() throws IOException;
+}
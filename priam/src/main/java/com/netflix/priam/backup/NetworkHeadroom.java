@@ -0,0 +1,121 @@
+/*
+ * Copyright 2020 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.netflix.priam.backup;
+
+import com.netflix.priam.config.IConfiguration;
+import java.io.IOException;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.concurrent.atomic.AtomicLong;
+import javax.inject.Inject;
+import javax.inject.Singleton;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Bandwidth left for uploads under the network ceiling ({@link
+ * IConfiguration#getBackupNetworkCeiling()}), given the traffic the node is transmitting for
+ * clients, streaming and everything else.
+ *
+ * <p>The interface counters are sampled at most once per {@link
+ * IConfiguration#getBackupNetworkSampleMillis()}, and the bytes uploaded in between are subtracted
+ * from them. Uploads back off as soon as other traffic rises, and speed up gradually as it falls,
+ * so a short lull does not let them flood the network at peak. They always keep a small share of
+ * the ceiling so backups still make progress.
+ */
+@Singleton
+public class NetworkHeadroom {
+    private static final Logger logger = LoggerFactory.getLogger(NetworkHeadroom.class);
+    // Share of the ceiling uploads keep when other traffic uses all of it.
+    private static final double MIN_BACKUP_SHARE = 0.05;
+    // Weight of the latest sample when other traffic falls.
+    private static final double SMOOTHING = 0.2;
+    private final IConfiguration config;
+    private final NetworkCounters counters;
+    private final Clock clock;
+    private final AtomicLong uploadedBytes = new AtomicLong();
+    private Instant lastSample;
+    private long lastTransmitted;
+    private long lastUploaded;
+    // Bytes per second transmitted by anything but uploads, negative until sampled twice.
+    private double otherRate = -1;
+    private boolean countersAvailable = true;
+
+    @Inject
+    public NetworkHeadroom(IConfiguration config, NetworkCounters counters, Clock clock) {
+        this.config = config;
+        this.counters = counters;
+        this.clock = clock;
+    }
+
+    /** @param bytes about to be uploaded, which are not other traffic. */
+    public void recordUpload(long bytes) {
+        uploadedBytes.addAndGet(bytes);
+    }
+
+    /**
+     * @return bytes per second uploads may use, Double.MAX_VALUE if there is no ceiling or the
+     *     traffic is unknown.
+     */
+    public synchronized double getHeadroom() {
+        long ceiling = config.getBackupNetworkCeiling();
+        if (ceiling < 1) return Double.MAX_VALUE;
+        Instant now = clock.instant();
+        if (lastSample == null
+                || Duration.between(lastSample, now).toMillis()
+                        >= config.getBackupNetworkSampleMillis()) sample(now);
+        if (!countersAvailable) return Double.MAX_VALUE;
+        if (otherRate < 0) return ceiling;
+        return Math.max(ceiling - otherRate, ceiling * MIN_BACKUP_SHARE);
+    }
+
+    private void sample(Instant now) {
+        long transmitted;
+        try {
+            transmitted = counters.getTransmittedBytes();
+        } catch (IOException e) {
+            // Logged once, not on every sample.
+            if (countersAvailable)
+                logger.warn(
+                        "Failed to read network counters, not throttling on network traffic", e);
+            lastSample = now;
+            otherRate = -1;
+            countersAvailable = false;
+            return;
+        }
+        long uploaded = uploadedBytes.get();
+        // The previous counters are the baseline, if there were any.
+        long millis =
+                lastSample == null || !countersAvailable
+                        ? 0
+                        : Duration.between(lastSample, now).toMillis();
+        countersAvailable = true;
+        // Counters reset when an interface goes down.
+        if (millis > 0 && transmitted >= lastTransmitted) {
+            long other = (transmitted - lastTransmitted) - (uploaded - lastUploaded);
+            double rate = Math.max(0, other) * 1000.0 / millis;
+            otherRate =
+                    otherRate < 0 || rate > otherRate
+                            ? rate
+                            : SMOOTHING * rate + (1 - SMOOTHING) * otherRate;
+        }
+        lastSample = now;
+        lastTransmitted = transmitted;
+        lastUploaded = uploaded;
+    }
+}
@@ -0,0 +1,97 @@
+/*
+ * Copyright 2020 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.netflix.priam.backup;
+
+import com.google.common.base.Splitter;
+import com.google.common.base.Strings;
+import com.netflix.priam.config.IConfiguration;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+import javax.inject.Inject;
+
+/** Reads the I/O statistics of the data device from /proc/diskstats. */
+public class ProcDiskStats implements DiskCounters {
+    private static final String DEV = "/dev/";
+    // Fields of a line, after the major and minor numbers and the device name.
+    private static final int NAME = 2;
+    private static final int READS = 3;
+    private static final int READ_MILLIS = 6;
+    private static final int WRITES = 7;
+    private static final int WRITE_MILLIS = 10;
+    private static final int BUSY_MILLIS = 12;
+    private final IConfiguration config;
+    private final Path file;
+    private String device;
+
+    @Inject
+    public ProcDiskStats(IConfiguration config) {
+        this(config, Paths.get("/proc/diskstats"));
+    }
+
+    ProcDiskStats(IConfiguration config, Path file) {
+        this.config = config;
+        this.file = file;
+    }
+
+    @Override
+    public Stats getStats() throws IOException {
+        return parse(Files.readAllLines(file, StandardCharsets.US_ASCII), getDevice());
+    }
+
+    /**
+     * The configured device, or the device of the file store holding the data directory. Devices
+     * behind the device mapper are named differently in /proc/diskstats and must be configured.
+     */
+    private String getDevice() throws IOException {
+        String configured = config.getBackupDiskDevice();
+        if (!Strings.isNullOrEmpty(configured)) return configured;
+        if (device == null) {
+            String name = Files.getFileStore(Paths.get(config.getDataFileLocation())).name();
+            device = name.startsWith(DEV) ? name.substring(DEV.length()) : name;
+        }
+        return device;
+    }
+
+    /**
+     * @param lines of /proc/diskstats.
+     * @param device name of the device.
+     * @return the statistics of the device.
+     * @throws IOException if the device is not listed.
+     */
+    static Stats parse(List<String> lines, String device) throws IOException {
+        for (String line : lines) {
+            List<String> fields = Splitter.on(' ').omitEmptyStrings().splitToList(line);
+            if (fields.size() <= NAME || !fields.get(NAME).equals(device)) continue;
+            if (fields.size() <= BUSY_MILLIS)
+                throw new IOException("Unexpected statistics of " + device + ": " + line);
+            try {
+                return new Stats(
+                        Long.parseLong(fields.get(READS)) + Long.parseLong(fields.get(WRITES)),
+                        Long.parseLong(fields.get(READ_MILLIS))
+                                + Long.parseLong(fields.get(WRITE_MILLIS)),
+                        Long.parseLong(fields.get(BUSY_MILLIS)));
+            } catch (NumberFormatException e) {
+                throw new IOException("Unexpected statistics of " + device + ": " + line, e);
+            }
+        }
+        throw new IOException(device + " is not listed in /proc/diskstats");
+    }
+}
@@ -0,0 +1,85 @@
+/*
+ * Copyright 2020 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.netflix.priam.backup;
+
+import com.google.common.base.Splitter;
+import com.google.common.collect.ImmutableSet;
+import com.netflix.priam.config.IConfiguration;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.Set;
+import javax.inject.Inject;
+
+/** Reads the transmit counters of the network interfaces from /proc/net/dev. */
+public class ProcNetDevCounters implements NetworkCounters {
+    private static final String LOOPBACK = "lo";
+    // Transmitted bytes follow the 8 receive counters.
+    private static final int TRANSMIT_BYTES = 8;
+    private final IConfiguration config;
+    private final Path file;
+
+    @Inject
+    public ProcNetDevCounters(IConfiguration config) {
+        this(config, Paths.get("/proc/net/dev"));
+    }
+
+    ProcNetDevCounters(IConfiguration config, Path file) {
+        this.config = config;
+        this.file = file;
+    }
+
+    @Override
+    public long getTransmittedBytes() throws IOException {
+        Set<String> interfaces =
+                ImmutableSet.copyOf(
+                        Splitter.on(',')
+                                .trimResults()
+                                .omitEmptyStrings()
+                                .split(config.getBackupNetworkInterfaces()));
+        return parse(Files.readAllLines(file, StandardCharsets.US_ASCII), interfaces);
+    }
+
+    /**
+     * @param lines of /proc/net/dev.
+     * @param interfaces to count, all but the loopback if empty.
+     * @return the bytes transmitted by the interfaces.
+     */
+    static long parse(List<String> lines, Set<String> interfaces) throws IOException {
+        long bytes = 0;
+        for (String line : lines) {
+            int colon = line.indexOf(':');
+            // Skips the two header lines.
+            if (colon < 0) continue;
+            String name = line.substring(0, colon).trim();
+            if (interfaces.isEmpty() ? name.equals(LOOPBACK) : !interfaces.contains(name)) continue;
+            List<String> counters =
+                    Splitter.on(' ').omitEmptyStrings().splitToList(line.substring(colon + 1));
+            if (counters.size() <= TRANSMIT_BYTES)
+                throw new IOException("Unexpected counters of " + name + ": " + line);
+            try {
+                bytes += Long.parseLong(counters.get(TRANSMIT_BYTES));
+            } catch (NumberFormatException e) {
+                throw new IOException("Unexpected counters of " + name + ": " + line, e);
+            }
+        }
+        return bytes;
+    }
+}
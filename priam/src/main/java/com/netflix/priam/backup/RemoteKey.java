@@ -0,0 +1,257 @@
+/*
+ * Copyright 2020 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.netflix.priam.backup;
+
+import static com.netflix.priam.backup.AbstractBackupPath.PATH_SEP;
+
+import com.google.common.collect.Interner;
+import com.google.common.collect.Interners;
+import com.netflix.priam.backup.AbstractBackupPath.BackupFileType;
+import com.netflix.priam.compress.CompressionType;
+import com.netflix.priam.cryptography.CryptographyAlgorithm;
+import java.time.Instant;
+import javax.inject.Provider;
+
+/**
+ * Remote path of a V2 backup file as listed from the remote file system, e.g.
+ * base/hash_app/token/SST_V2/lastModified/keyspace/columnfamily/SNAPPY/PLAINTEXT/file.
+ *
+ * <p>Listings visit every file of a node, so unlike {@link AbstractBackupPath} this holds no
+ * configuration, no local file and no mutable state. The components repeated across keys are
+ * interned, and the file name is kept as an offset in the remote path. Use {@link
+ * #toBackupPath(Provider)} once a file is actually transferred.
+ */
+public final class RemoteKey implements Comparable<RemoteKey> {
+    private static final Interner<String> COMPONENTS = Interners.newWeakInterner();
+    private static final BackupFileType[] FILE_TYPES = BackupFileType.values();
+    private static final CompressionType[] COMPRESSION_TYPES = CompressionType.values();
+    private static final CryptographyAlgorithm[] ENCRYPTIONS = CryptographyAlgorithm.values();
+    private final String remotePath;
+    private final String baseDir;
+    private final String clusterName;
+    private final String token;
+    private final BackupFileType type;
+    private final long lastModified;
+    private final String keyspace;
+    private final String columnFamily;
+    private final String indexDir;
+    private final CompressionType compression;
+    private final CryptographyAlgorithm encryption;
+    private final int fileNameStart;
+    private final int fileNameEnd;
+
+    private RemoteKey(String remotePath) {
+        this.remotePath = remotePath;
+        Names names = new Names(remotePath);
+        baseDir = names.next().intern();
+        clusterName = names.next().removeHash();
+        token = names.next().intern();
+        type = names.next().valueOf(FILE_TYPES);
+        if (!BackupFileType.isV2(type))
+            throw new IllegalArgumentException(type + " is not a V2 backup file type");
+        lastModified = names.next().parseLong();
+        if (BackupFileType.isDataFile(type)) {
+            keyspace = names.next().intern();
+            columnFamily = names.next().intern();
+        } else {
+            keyspace = null;
+            columnFamily = null;
+        }
+        indexDir = type == BackupFileType.SECONDARY_INDEX_V2 ? names.next().intern() : null;
+        compression = names.next().valueOf(COMPRESSION_TYPES);
+        encryption = names.next().valueOf(ENCRYPTIONS);
+        names.next();
+        fileNameStart = names.start;
+        fileNameEnd = names.end;
+    }
+
+    /**
+     * Parse the remote path of a V2 backup file. Redundant separators are ignored, like {@link
+     * java.nio.file.Path} does.
+     *
+     * @param remotePath remote path of the file.
+     * @return the key of the file.
+     * @throws IllegalArgumentException if this is not the remote path of a V2 backup file.
+     */
+    public static RemoteKey parse(String remotePath) {
+        return new RemoteKey(remotePath);
+    }
+
+    /** @return a full backup path of the file, to transfer it. */
+    public AbstractBackupPath toBackupPath(Provider<AbstractBackupPath> pathProvider) {
+        AbstractBackupPath path = pathProvider.get();
+        path.parseRemote(remotePath);
+        return path;
+    }
+
+    /** @return the remote path as listed. */
+    public String getRemotePath() {
+        return remotePath;
+    }
+
+    public String getBaseDir() {
+        return baseDir;
+    }
+
+    public String getClusterName() {
+        return clusterName;
+    }
+
+    public String getToken() {
+        return token;
+    }
+
+    public BackupFileType getType() {
+        return type;
+    }
+
+    /** @return last modified time of the file in epoch millis. */
+    public long getLastModifiedMillis() {
+        return lastModified;
+    }
+
+    public Instant getLastModified() {
+        return Instant.ofEpochMilli(lastModified);
+    }
+
+    /** @return keyspace of a data file, null otherwise. */
+    public String getKeyspace() {
+        return keyspace;
+    }
+
+    /** @return column family of a data file, null otherwise. */
+    public String getColumnFamily() {
+        return columnFamily;
+    }
+
+    /** @return directory of a secondary index file, null otherwise. */
+    public String getIndexDir() {
+        return indexDir;
+    }
+
+    public CompressionType getCompression() {
+        return compression;
+    }
+
+    public CryptographyAlgorithm getEncryption() {
+        return encryption;
+    }
+
+    public String getFileName() {
+        return remotePath.substring(fileNameStart, fileNameEnd);
+    }
+
+    @Override
+    public int compareTo(RemoteKey o) {
+        return remotePath.compareTo(o.remotePath);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        return o instanceof RemoteKey && remotePath.equals(((RemoteKey) o).remotePath);
+    }
+
+    @Override
+    public int hashCode() {
+        return remotePath.hashCode();
+    }
+
+    @Override
+    public String toString() {
+        return remotePath;
+    }
+
+    /** Cursor over the names of a remote path, without creating strings for the parsed ones. */
+    private static final class Names {
+        private final String path;
+        private int start;
+        private int end = -1;
+
+        Names(String path) {
+            this.path = path;
+        }
+
+        Names next() {
+            start = end + 1;
+            while (start < path.length() && path.charAt(start) == PATH_SEP) start++;
+            if (start >= path.length())
+                throw new IllegalArgumentException(path + " has too few parts");
+            end = path.indexOf(PATH_SEP, start);
+            if (end < 0) end = path.length();
+            return this;
+        }
+
+        String intern() {
+            return COMPONENTS.intern(path.substring(start, end));
+        }
+
+        <T extends Enum<T>> T valueOf(T[] values) {
+            for (T value : values) {
+                String name = value.name();
+                if (name.length() == end - start && path.regionMatches(start, name, 0, end - start))
+                    return value;
+            }
+            throw new IllegalArgumentException(
+                    "No enum constant "
+                            + values.getClass().getComponentType().getCanonicalName()
+                            + "."
+                            + path.substring(start, end));
+        }
+
+        /** Same as {@link Long#parseLong(String)} of the name, without creating it. */
+        long parseLong() {
+            return parseLong(start, end);
+        }
+
+        private long parseLong(int from, int to) {
+            // Longer numbers could overflow, leave them to the JDK.
+            if (to - from < 1 || to - from > 18) return Long.parseLong(path.substring(from, to));
+            int index = from;
+            boolean negative = false;
+            char first = path.charAt(index);
+            if (first == '-' || first == '+') {
+                negative = first == '-';
+                if (++index == to) return Long.parseLong(path.substring(from, to));
+            }
+            long value = 0;
+            for (; index < to; index++) {
+                int digit = Character.digit(path.charAt(index), 10);
+                if (digit < 0) return Long.parseLong(path.substring(from, to));
+                value = value * 10 + digit;
+            }
+            return negative ? -value : value;
+        }
+
+        /** The app name of a name with a prepended hash, see RemoteBackupPath#prependHash. */
+        String removeHash() {
+            int separator = path.indexOf('_', start);
+            if (separator < 0 || separator >= end)
+                throw new NumberFormatException(
+                        "For input string: \"" + path.substring(start, end) + "\"");
+            int hash = (int) parseLong(start, separator);
+            String appName = COMPONENTS.intern(path.substring(separator + 1, end));
+            if (hash != appName.hashCode() % 10000)
+                throw new IllegalArgumentException(
+                        "Prepended hash does not match app name. Should have received: "
+                                + appName.hashCode() % 10000
+                                + "_"
+                                + appName);
+            return appName;
+        }
+    }
+}
@@ -0,0 +1,880 @@
+/*
+ * Copyright 2020 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.netflix.priam.backupv2;
+
+import static com.netflix.priam.backupv2.BinaryMetaFile.readSignedVarLong;
+import static com.netflix.priam.backupv2.BinaryMetaFile.readString;
+import static com.netflix.priam.backupv2.BinaryMetaFile.readVarInt;
+import static com.netflix.priam.backupv2.BinaryMetaFile.readVarLong;
+import static com.netflix.priam.backupv2.BinaryMetaFile.writeSignedVarLong;
+import static com.netflix.priam.backupv2.BinaryMetaFile.writeString;
+import static com.netflix.priam.backupv2.BinaryMetaFile.writeVarInt;
+import static com.netflix.priam.backupv2.BinaryMetaFile.writeVarLong;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.collect.ImmutableList;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.netflix.priam.backup.AbstractBackupPath;
+import com.netflix.priam.backup.AbstractBackupPath.BackupFileType;
+import com.netflix.priam.backup.IBackupFileSystem;
+import com.netflix.priam.backup.RemoteKey;
+import com.netflix.priam.config.IBackupRestoreConfig;
+import com.netflix.priam.config.IConfiguration;
+import com.netflix.priam.utils.DateUtil;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.zip.CRC32;
+import javax.inject.Inject;
+import javax.inject.Provider;
+import javax.inject.Singleton;
+import org.apache.commons.io.FileUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Local catalog of the backup version 2.0 objects of this node on the remote file system. It keeps
+ * the remote path, size and upload time of every object and the resolved content of every meta
+ * file, so questions like "which meta files are there" or "does this file exist" are answered
+ * without listing the remote file system or downloading meta files.
+ *
+ * <p>The catalog is maintained by the upload path in {@link
+ * com.netflix.priam.backup.AbstractFileSystem} and by {@link SnapshotMetaTask}. Every change is
+ * appended as a record to a segment file on local disk and applied to an in-memory index. The
+ * segments are replayed when Priam starts and compacted into a single one in the background once
+ * there are too many. A segment which is corrupt, rather than cut short by a crash, drops the
+ * catalog, as the changes after the corrupt record are lost. Uploads are recorded after the object
+ * is uploaded and deletes before it is deleted, so a change lost in a crash can only make the
+ * catalog miss an object that exists and never the other way round. Consumers fall back to the
+ * remote file system for objects which are not in the catalog.
+ *
+ * <p>The catalog knows about all the objects only once it is synced with the remote file system
+ * using {@link #sync(IBackupFileSystem, IMetaProxy)}. Until then, or once the last sync is older
+ * than {@link IBackupRestoreConfig#getBackupCatalogSyncIntervalInDays()}, {@link #isSynced(String)}
+ * is false and consumers use the remote file system instead.
+ *
+ * <p>The index is kept on heap, so it is bounded by {@link
+ * IBackupRestoreConfig#getBackupCatalogMaxObjects()}. A catalog which would outgrow the bound is
+ * dropped and consumers use the remote file system.
+ */
+@Singleton
+public class BackupCatalog {
+    private static final Logger logger = LoggerFactory.getLogger(BackupCatalog.class);
+    static final String SEGMENT_PREFIX = "backup_catalog_";
+    static final String SEGMENT_SUFFIX = ".log";
+    private static final String COMPACTION_PREFIX = "compacting_";
+    private static final int MAGIC = 0x50434154; // "PCAT"
+    private static final byte FORMAT_VERSION = 1;
+    private static final long MAX_SEGMENT_SIZE = 64L * 1024 * 1024;
+    private static final int MAX_SEGMENTS = 4;
+    private static final byte PUT_OBJECT = 1;
+    private static final byte DELETE_OBJECT = 2;
+    private static final byte PUT_META = 3;
+    private static final byte SYNCED = 4;
+
+    private final IConfiguration configuration;
+    private final IBackupRestoreConfig backupRestoreConfig;
+    private final Provider<AbstractBackupPath> pathProvider;
+    private final Path catalogDirectory;
+    private final ConcurrentSkipListMap<String, Entry> objects = new ConcurrentSkipListMap<>();
+    private final Map<String, ResolvedMeta> metas = new ConcurrentHashMap<>();
+    private final Lock syncLock = new ReentrantLock();
+    // Objects deleted while a sync is listing the remote file system. Null if no sync is running.
+    private volatile Set<String> deletedWhileSyncing;
+    private volatile boolean loaded;
+    // Set once the catalog outgrew its bound, until it is disabled or Priam restarts.
+    private volatile boolean overflowed;
+    private int objectCount;
+    private long syncNumber;
+    private volatile Instant syncedAt;
+    private volatile String syncedPrefix;
+    private DataOutputStream segment;
+    private long segmentNumber;
+    private long segmentSize;
+    private int segments;
+    private final ExecutorService compactor =
+            Executors.newSingleThreadExecutor(
+                    new ThreadFactoryBuilder()
+                            .setDaemon(true)
+                            .setNameFormat("BackupCatalogCompaction")
+                            .build());
+    // Compaction in progress, if any.
+    private Future<?> compaction;
+    // Incremented when the catalog is dropped, so a compaction of the dropped catalog is discarded.
+    private long generation;
+
+    @Inject
+    public BackupCatalog(
+            IConfiguration configuration,
+            IBackupRestoreConfig backupRestoreConfig,
+            Provider<AbstractBackupPath> pathProvider) {
+        this.configuration = configuration;
+        this.backupRestoreConfig = backupRestoreConfig;
+        this.pathProvider = pathProvider;
+        this.catalogDirectory = Paths.get(configuration.getBackupCatalogLocation());
+        // A catalog left over from when it was enabled is stale and must not be used again.
+        if (!backupRestoreConfig.enableBackupCatalog()) deleteSegments();
+    }
+
+    /** @return true if the catalog is enabled. */
+    public boolean isEnabled() {
+        return open();
+    }
+
+    /**
+     * Checks if the catalog knows about all the objects under the given remote prefix, i.e. if the
+     * absence of an object from the catalog means it is not on the remote file system.
+     *
+     * @param remotePrefix prefix of the remote paths in question.
+     * @return true if the catalog can be used instead of listing the remote file system.
+     */
+    public boolean isSynced(String remotePrefix) {
+        if (!open() || syncedAt == null || syncedPrefix == null) return false;
+        Instant expiry =
+                syncedAt.plus(
+                        backupRestoreConfig.getBackupCatalogSyncIntervalInDays(), ChronoUnit.DAYS);
+        return DateUtil.getInstant().isBefore(expiry) && remotePrefix.startsWith(syncedPrefix);
+    }
+
+    /**
+     * @return true if the catalog is enabled but needs to be synced with the remote file system.
+     */
+    public boolean needsSync() {
+        return open() && !isSynced(getRemotePrefix());
+    }
+
+    /** @return the time of the last sync with the remote file system, if any. */
+    public Optional<Instant> getSyncedAt() {
+        return Optional.ofNullable(syncedAt);
+    }
+
+    /**
+     * Record an object uploaded to the remote file system.
+     *
+     * @param path the object uploaded. Its compressed file size is the size of the object.
+     */
+    public void recordUpload(AbstractBackupPath path) {
+        if (!BackupFileType.isV2(path.getType()) || !open()) return;
+        put(
+                new Entry(
+                        path.getRemotePath(),
+                        path.getType(),
+                        path.getLastModified(),
+                        path.getCompressedFileSize(),
+                        DateUtil.getInstant()));
+    }
+
+    /**
+     * Record an object which was not uploaded as it is already on the remote file system.
+     *
+     * @param path the object found on the remote file system.
+     */
+    public void recordExisting(AbstractBackupPath path) {
+        if (!BackupFileType.isV2(path.getType()) || !open()) return;
+        if (objects.containsKey(path.getRemotePath())) return;
+        put(new Entry(path.getRemotePath(), path.getType(), path.getLastModified(), -1, null));
+    }
+
+    /**
+     * Record objects which are about to be deleted from the remote file system.
+     *
+     * @param remotePaths the objects to be deleted.
+     */
+    public void recordDeletes(Collection<Path> remotePaths) {
+        if (!open()) return;
+        Set<String> deleted = deletedWhileSyncing;
+        for (Path remotePath : remotePaths) {
+            String key = remotePath.toString();
+            if (deleted != null) deleted.add(key);
+            if (objects.containsKey(key)) remove(key);
+        }
+    }
+
+    /**
+     * Record the content of a meta file. The content is only kept for meta files which are in the
+     * catalog.
+     *
+     * @param remotePath remote path of the meta file.
+     * @param resolvedMeta the content of the meta file.
+     */
+    public void recordMeta(String remotePath, ResolvedMeta resolvedMeta) {
+        if (!open() || !objects.containsKey(remotePath) || metas.containsKey(remotePath)) return;
+        // Share the strings with the index of objects, as snapshots mostly reference the same
+        // files.
+        ImmutableList.Builder<String> files = ImmutableList.builder();
+        for (String file : resolvedMeta.getFiles()) {
+            Entry entry = objects.get(file);
+            files.add(entry == null ? file : entry.getRemotePath());
+        }
+        putMeta(remotePath, new ResolvedMeta(resolvedMeta.getBaseMetaFiles(), files.build()));
+    }
+
+    /**
+     * @param remotePath remote path of the object.
+     * @return true if the object is in the catalog. If the catalog is not synced, an object which
+     *     is not in the catalog may still be on the remote file system.
+     */
+    public boolean contains(String remotePath) {
+        return open() && objects.containsKey(remotePath);
+    }
+
+    public Optional<Entry> getObject(String remotePath) {
+        if (!open()) return Optional.empty();
+        return Optional.ofNullable(objects.get(remotePath));
+    }
+
+    /** @return all the objects in the catalog, in the order of their remote paths. */
+    public Collection<Entry> getObjects() {
+        if (!open()) return Collections.emptyList();
+        return Collections.unmodifiableCollection(objects.values());
+    }
+
+    /**
+     * @param remoteMetaPath remote path of the meta file.
+     * @return the content of the meta file if it is in the catalog.
+     */
+    public Optional<ResolvedMeta> getMeta(String remoteMetaPath) {
+        if (!open()) return Optional.empty();
+        return Optional.ofNullable(metas.get(remoteMetaPath));
+    }
+
+    /**
+     * List the objects in the catalog like {@link IBackupFileSystem#listFileSystem(String, String,
+     * String)} lists the remote file system.
+     *
+     * @param prefix common prefix of the remote paths to list.
+     * @param marker only remote paths after this one are listed. Null to list from the start.
+     * @return iterator over the remote paths in lexicographic order.
+     */
+    public Iterator<String> list(String prefix, String marker) {
+        if (!open()) return Collections.emptyIterator();
+        // All the remote paths with the prefix sort before the prefix followed by the largest char.
+        String to = prefix + Character.MAX_VALUE;
+        String from = marker != null && marker.compareTo(prefix) > 0 ? marker : prefix;
+        if (from.compareTo(to) >= 0) return Collections.emptyIterator();
+        return objects.subMap(from, !from.equals(marker), to, false).keySet().iterator();
+    }
+
+    /**
+     * @param remotePaths remote paths of objects.
+     * @return the total size of the objects of known size in the catalog.
+     */
+    public long getSize(Collection<String> remotePaths) {
+        if (!open()) return 0;
+        long size = 0;
+        for (String remotePath : remotePaths) {
+            Entry entry = objects.get(remotePath);
+            if (entry != null && entry.getSize() > 0) size += entry.getSize();
+        }
+        return size;
+    }
+
+    /**
+     * Sync the catalog with the remote file system. All the objects of this node are listed and the
+     * meta files which are not in the catalog yet are downloaded, oldest first, so the chain of a
+     * delta meta file is always resolved from the catalog.
+     *
+     * @param fs the remote file system of this node.
+     * @param metaProxy proxy used to read the meta files.
+     * @throws Exception if unable to list the remote file system.
+     */
+    public void sync(IBackupFileSystem fs, IMetaProxy metaProxy) throws Exception {
+        if (!open()) return;
+        if (!syncLock.tryLock()) {
+            logger.warn("Backup catalog is already being synced. Try again later.");
+            return;
+        }
+        try {
+            Instant syncStart = DateUtil.getInstant();
+            String remotePrefix = getRemotePrefix();
+            deletedWhileSyncing = ConcurrentHashMap.newKeySet();
+            // Listed objects are marked with the number of this sync, rather than collecting their
+            // remote paths, so syncing does not double the heap used by the catalog.
+            long sync = ++syncNumber;
+            List<String> metaFiles = new ArrayList<>();
+            int added = 0;
+            for (BackupFileType type : BackupFileType.values()) {
+                if (!BackupFileType.isV2(type)) continue;
+                String prefix =
+                        pathProvider
+                                .get()
+                                .remoteV2Prefix(Paths.get(configuration.getBackupPrefix()), type)
+                                .toString();
+                Iterator<String> remotePaths = fs.listFileSystem(prefix, null, null);
+                while (remotePaths.hasNext()) {
+                    String remotePath = remotePaths.next();
+                    if (deletedWhileSyncing.contains(remotePath)) continue;
+                    if (type == BackupFileType.META_V2) metaFiles.add(remotePath);
+                    Entry entry = objects.get(remotePath);
+                    if (entry != null) {
+                        entry.syncNumber = sync;
+                        continue;
+                    }
+                    RemoteKey remoteKey = RemoteKey.parse(remotePath);
+                    entry = new Entry(remotePath, type, remoteKey.getLastModified(), -1, null);
+                    entry.syncNumber = sync;
+                    put(entry);
+                    if (overflowed) return;
+                    added++;
+                }
+            }
+
+            // Objects which are gone from the remote file system, unless uploaded while listing.
+            int removed = 0;
+            for (Entry entry : objects.values()) {
+                if (entry.syncNumber == sync) continue;
+                if (entry.getUploadTime() != null && !entry.getUploadTime().isBefore(syncStart))
+                    continue;
+                remove(entry.getRemotePath());
+                removed++;
+            }
+
+            Collections.sort(metaFiles);
+            for (String metaFile : metaFiles) {
+                if (metas.containsKey(metaFile)) continue;
+                AbstractBackupPath metaPath = pathProvider.get();
+                metaPath.parseRemote(metaFile);
+                try {
+                    recordMeta(metaFile, metaProxy.resolveMeta(metaPath));
+                } catch (Exception e) {
+                    logger.error(
+                            "Unable to read meta file {} while syncing the backup catalog",
+                            metaFile,
+                            e);
+                }
+            }
+
+            synchronized (this) {
+                putSynced(syncStart, remotePrefix);
+                startCompaction();
+            }
+            logger.info(
+                    "Backup catalog synced with {}. Objects: {} (added: {}, removed: {}), meta files: {}",
+                    remotePrefix,
+                    objects.size(),
+                    added,
+                    removed,
+                    metas.size());
+        } finally {
+            deletedWhileSyncing = null;
+            syncLock.unlock();
+        }
+    }
+
+    private String getRemotePrefix() {
+        return pathProvider
+                .get()
+                .remoteV2Prefix(Paths.get(configuration.getBackupPrefix()), BackupFileType.META_V2)
+                .getParent()
+                .toString();
+    }
+
+    private boolean open() {
+        boolean enabled = backupRestoreConfig.enableBackupCatalog();
+        if (!enabled) overflowed = false;
+        if (overflowed) return false;
+        if (enabled == loaded) return enabled;
+        synchronized (this) {
+            if (enabled && !loaded && !overflowed) load();
+            else if (!enabled && loaded) reset();
+        }
+        return enabled && !overflowed;
+    }
+
+    private synchronized void put(Entry entry) {
+        if (overflowed) return;
+        if (!objects.containsKey(entry.getRemotePath())
+                && objectCount >= backupRestoreConfig.getBackupCatalogMaxObjects()) {
+            overflow();
+            return;
+        }
+        append(PUT_OBJECT, out -> writeEntry(out, entry));
+        putObject(entry);
+    }
+
+    private synchronized void remove(String remotePath) {
+        append(DELETE_OBJECT, out -> writeString(out, remotePath));
+        removeObject(remotePath);
+    }
+
+    private void putObject(Entry entry) {
+        if (objects.put(entry.getRemotePath(), entry) == null) objectCount++;
+    }
+
+    private void removeObject(String remotePath) {
+        if (objects.remove(remotePath) != null) objectCount--;
+        metas.remove(remotePath);
+    }
+
+    private void overflow() {
+        logger.error(
+                "Backup catalog has more than {} objects. Dropping the catalog.",
+                backupRestoreConfig.getBackupCatalogMaxObjects());
+        reset();
+        overflowed = true;
+    }
+
+    private synchronized void putMeta(String remotePath, ResolvedMeta resolvedMeta) {
+        append(PUT_META, out -> writeMeta(out, remotePath, resolvedMeta));
+        metas.put(remotePath, resolvedMeta);
+    }
+
+    private synchronized void putSynced(Instant instant, String remotePrefix) {
+        syncedAt = instant;
+        syncedPrefix = remotePrefix;
+        append(SYNCED, out -> writeSynced(out, instant, remotePrefix));
+    }
+
+    private static void writeSynced(DataOutputStream out, Instant instant, String remotePrefix)
+            throws IOException {
+        writeVarLong(out, instant.toEpochMilli());
+        writeString(out, remotePrefix);
+    }
+
+    private void load() {
+        deleteCompactionLeftovers();
+        List<Path> segmentFiles = getSegments();
+        try {
+            for (int i = 0; i < segmentFiles.size(); i++)
+                replay(segmentFiles.get(i), i == segmentFiles.size() - 1);
+            segments = segmentFiles.size();
+            if (segmentFiles.isEmpty()) {
+                openSegment(0);
+            } else {
+                segmentNumber = getSegmentNumber(segmentFiles.get(segmentFiles.size() - 1));
+                segment = newSegmentStream(segmentFiles.get(segmentFiles.size() - 1), false);
+                segmentSize = Files.size(segmentFiles.get(segmentFiles.size() - 1));
+            }
+            if (objectCount > backupRestoreConfig.getBackupCatalogMaxObjects()) {
+                overflow();
+                return;
+            }
+            loaded = true;
+            logger.info(
+                    "Backup catalog loaded from {} segments. Objects: {}, meta files: {}, synced at: {}",
+                    segmentFiles.size(),
+                    objects.size(),
+                    metas.size(),
+                    syncedAt);
+            if (segments > MAX_SEGMENTS) startCompaction();
+        } catch (IOException e) {
+            logger.error(
+                    "Unable to load the backup catalog. Starting with an empty one, which is synced with the remote file system.",
+                    e);
+            reset();
+            try {
+                openSegment(0);
+                loaded = true;
+            } catch (IOException ioe) {
+                logger.error("Unable to create the backup catalog in {}", catalogDirectory, ioe);
+            }
+        }
+    }
+
+    /**
+     * Apply the records of a segment. Only the last record of the last segment can be incomplete,
+     * when Priam stopped while writing it, and it is truncated.
+     *
+     * @throws IOException if the segment is corrupt.
+     */
+    private void replay(Path segmentFile, boolean lastSegment) throws IOException {
+        long fileLength = Files.size(segmentFile);
+        long validLength = Integer.BYTES + 1;
+        try (DataInputStream in =
+                new DataInputStream(new BufferedInputStream(Files.newInputStream(segmentFile)))) {
+            if (in.readInt() != MAGIC || in.readByte() > FORMAT_VERSION)
+                throw new IOException("Not a backup catalog segment: " + segmentFile);
+            CRC32 crc = new CRC32();
+            while (validLength + 2 * Integer.BYTES <= fileLength) {
+                int length = in.readInt();
+                if (length < 0)
+                    throw new IOException(
+                            String.format(
+                                    "Invalid record at %d in backup catalog segment: %s",
+                                    validLength, segmentFile));
+                if (validLength + 2 * Integer.BYTES + length > fileLength) break;
+                int checksum = in.readInt();
+                byte[] record = new byte[length];
+                in.readFully(record);
+                crc.reset();
+                crc.update(record);
+                if ((int) crc.getValue() != checksum)
+                    throw new IOException(
+                            String.format(
+                                    "Checksum mismatch at %d in backup catalog segment: %s",
+                                    validLength, segmentFile));
+                apply(new DataInputStream(new ByteArrayInputStream(record)));
+                validLength += 2 * Integer.BYTES + length;
+            }
+        }
+        if (validLength == fileLength) return;
+        if (!lastSegment)
+            throw new IOException(
+                    String.format(
+                            "Incomplete record at %d in backup catalog segment: %s",
+                            validLength, segmentFile));
+        logger.warn(
+                "Truncating incomplete record at {} in backup catalog segment: {}",
+                validLength,
+                segmentFile);
+        try (RandomAccessFile file = new RandomAccessFile(segmentFile.toFile(), "rw")) {
+            file.setLength(validLength);
+        }
+    }
+
+    private void apply(DataInputStream record) throws IOException {
+        byte type = record.readByte();
+        switch (type) {
+            case PUT_OBJECT:
+                putObject(readEntry(record));
+                break;
+            case DELETE_OBJECT:
+                removeObject(readString(record));
+                break;
+            case PUT_META:
+                readMeta(record);
+                break;
+            case SYNCED:
+                syncedAt = Instant.ofEpochMilli(readVarLong(record));
+                syncedPrefix = readString(record);
+                break;
+            default:
+                throw new IOException("Unknown record type in backup catalog: " + type);
+        }
+    }
+
+    private void writeEntry(DataOutputStream out, Entry entry) throws IOException {
+        writeString(out, entry.getRemotePath());
+        writeString(out, entry.getType().name());
+        writeVarLong(out, entry.getLastModified().toEpochMilli());
+        writeSignedVarLong(out, entry.getSize());
+        writeSignedVarLong(
+                out, entry.getUploadTime() == null ? -1 : entry.getUploadTime().toEpochMilli());
+    }
+
+    private Entry readEntry(DataInputStream in) throws IOException {
+        String remotePath = readString(in);
+        BackupFileType type = BackupFileType.valueOf(readString(in));
+        Instant lastModified = Instant.ofEpochMilli(readVarLong(in));
+        long size = readSignedVarLong(in);
+        long uploadTime = readSignedVarLong(in);
+        return new Entry(
+                remotePath,
+                type,
+                lastModified,
+                size,
+                uploadTime < 0 ? null : Instant.ofEpochMilli(uploadTime));
+    }
+
+    private void writeMeta(DataOutputStream out, String remotePath, ResolvedMeta resolvedMeta)
+            throws IOException {
+        writeString(out, remotePath);
+        writeVarInt(out, resolvedMeta.getBaseMetaFiles().size());
+        for (String baseMeta : resolvedMeta.getBaseMetaFiles()) writeString(out, baseMeta);
+        // Remote paths of a snapshot share long prefixes, so only the part which differs from the
+        // previous path is written.
+        writeVarInt(out, resolvedMeta.getFiles().size());
+        String previous = "";
+        for (String file : resolvedMeta.getFiles()) {
+            int common = 0;
+            int max = Math.min(previous.length(), file.length());
+            while (common < max && previous.charAt(common) == file.charAt(common)) common++;
+            writeVarInt(out, common);
+            writeString(out, file.substring(common));
+            previous = file;
+        }
+    }
+
+    private void readMeta(DataInputStream in) throws IOException {
+        String remotePath = readString(in);
+        int baseCount = readVarInt(in);
+        ImmutableList.Builder<String> baseMetaFiles = ImmutableList.builder();
+        for (int i = 0; i < baseCount; i++) baseMetaFiles.add(readString(in));
+        int fileCount = readVarInt(in);
+        ImmutableList.Builder<String> files = ImmutableList.builder();
+        String previous = "";
+        for (int i = 0; i < fileCount; i++) {
+            String file = previous.substring(0, readVarInt(in)) + readString(in);
+            Entry entry = objects.get(file);
+            files.add(entry == null ? file : entry.getRemotePath());
+            previous = file;
+        }
+        metas.put(remotePath, new ResolvedMeta(baseMetaFiles.build(), files.build()));
+    }
+
+    private interface RecordWriter {
+        void write(DataOutputStream out) throws IOException;
+    }
+
+    private void append(byte type, RecordWriter recordWriter) {
+        if (segment == null) return;
+        try {
+            segmentSize += writeRecord(segment, type, recordWriter);
+            // Flushed to the OS on every record so it is not lost if Priam stops.
+            segment.flush();
+            if (segmentSize > MAX_SEGMENT_SIZE) {
+                segment.close();
+                openSegment(segmentNumber + 1);
+                if (++segments > MAX_SEGMENTS) startCompaction();
+            }
+        } catch (IOException e) {
+            // A catalog which missed a change cannot be trusted anymore.
+            logger.error("Unable to write to the backup catalog. Dropping the catalog.", e);
+            reset();
+        }
+    }
+
+    /** @return the number of bytes written. */
+    private static int writeRecord(DataOutputStream segment, byte type, RecordWriter recordWriter)
+            throws IOException {
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(buffer);
+        out.writeByte(type);
+        recordWriter.write(out);
+        out.flush();
+        byte[] record = buffer.toByteArray();
+        CRC32 crc = new CRC32();
+        crc.update(record);
+        segment.writeInt(record.length);
+        segment.writeInt((int) crc.getValue());
+        segment.write(record);
+        return 2 * Integer.BYTES + record.length;
+    }
+
+    /**
+     * Start writing the current state to a new segment in the background, unless a compaction is in
+     * progress. The segment after it takes the changes meanwhile, so they do not wait for the
+     * compaction. Called with the lock held.
+     */
+    private void startCompaction() {
+        if (segment == null || (compaction != null && !compaction.isDone())) return;
+        try {
+            segment.close();
+            List<Path> oldSegments = getSegments();
+            long compactedNumber = segmentNumber + 1;
+            openSegment(segmentNumber + 2);
+            segments++;
+            long compactionGeneration = generation;
+            compaction =
+                    compactor.submit(
+                            () -> compact(oldSegments, compactedNumber, compactionGeneration));
+        } catch (IOException e) {
+            logger.error("Unable to write to the backup catalog. Dropping the catalog.", e);
+            reset();
+        }
+    }
+
+    /**
+     * Write the state to the given segment and delete the older ones. The state may already include
+     * some of the changes of the newer segments. Replaying these again gives the same state, as
+     * every record replaces what it is about.
+     */
+    private void compact(List<Path> oldSegments, long number, long compactionGeneration) {
+        Path compacted = getSegmentFile(number);
+        Path tempFile = catalogDirectory.resolve(COMPACTION_PREFIX + compacted.getFileName());
+        try {
+            long size;
+            try (DataOutputStream out = newSegmentStream(tempFile, true)) {
+                size = writeHeader(out);
+                for (Entry entry : objects.values())
+                    size += writeRecord(out, PUT_OBJECT, o -> writeEntry(o, entry));
+                for (Map.Entry<String, ResolvedMeta> meta : metas.entrySet())
+                    size +=
+                            writeRecord(
+                                    out,
+                                    PUT_META,
+                                    o -> writeMeta(o, meta.getKey(), meta.getValue()));
+                Instant instant = syncedAt;
+                String remotePrefix = syncedPrefix;
+                if (instant != null && remotePrefix != null)
+                    size += writeRecord(out, SYNCED, o -> writeSynced(o, instant, remotePrefix));
+            }
+            synchronized (this) {
+                if (compactionGeneration != generation) {
+                    Files.deleteIfExists(tempFile);
+                    return;
+                }
+                Files.move(tempFile, compacted, StandardCopyOption.ATOMIC_MOVE);
+                for (Path oldSegment : oldSegments) Files.deleteIfExists(oldSegment);
+                segments -= oldSegments.size() - 1;
+            }
+            logger.info("Compacted backup catalog to segment {} of size {}", number, size);
+        } catch (IOException e) {
+            // The segments are left as they were, and are compacted again later.
+            logger.error("Unable to compact the backup catalog", e);
+            FileUtils.deleteQuietly(tempFile.toFile());
+        }
+    }
+
+    @VisibleForTesting
+    void awaitCompaction() throws Exception {
+        Future<?> pending;
+        synchronized (this) {
+            pending = compaction;
+        }
+        if (pending != null) pending.get();
+    }
+
+    private void openSegment(long number) throws IOException {
+        segmentNumber = number;
+        segment = newSegmentStream(getSegmentFile(number), true);
+        segmentSize = writeHeader(segment);
+    }
+
+    private static int writeHeader(DataOutputStream out) throws IOException {
+        out.writeInt(MAGIC);
+        out.writeByte(FORMAT_VERSION);
+        out.flush();
+        return Integer.BYTES + 1;
+    }
+
+    private Path getSegmentFile(long number) {
+        return catalogDirectory.resolve(
+                String.format("%s%010d%s", SEGMENT_PREFIX, number, SEGMENT_SUFFIX));
+    }
+
+    private DataOutputStream newSegmentStream(Path segmentFile, boolean create) throws IOException {
+        Files.createDirectories(catalogDirectory);
+        return new DataOutputStream(
+                new BufferedOutputStream(new FileOutputStream(segmentFile.toFile(), !create)));
+    }
+
+    private void reset() {
+        if (segment != null) {
+            try {
+                segment.close();
+            } catch (IOException e) {
+                logger.warn("Unable to close the backup catalog segment", e);
+            }
+            segment = null;
+        }
+        objects.clear();
+        objectCount = 0;
+        metas.clear();
+        syncedAt = null;
+        syncedPrefix = null;
+        segments = 0;
+        loaded = false;
+        generation++;
+        deleteSegments();
+    }
+
+    private void deleteSegments() {
+        getSegments().forEach(path -> FileUtils.deleteQuietly(path.toFile()));
+        deleteCompactionLeftovers();
+    }
+
+    private void deleteCompactionLeftovers() {
+        File[] files =
+                catalogDirectory
+                        .toFile()
+                        .listFiles((dir, name) -> name.startsWith(COMPACTION_PREFIX));
+        if (files != null) for (File file : files) FileUtils.deleteQuietly(file);
+    }
+
+    private List<Path> getSegments() {
+        List<Path> segmentFiles = new ArrayList<>();
+        File[] files = catalogDirectory.toFile().listFiles();
+        if (files == null) return segmentFiles;
+        for (File file : files)
+            if (file.getName().startsWith(SEGMENT_PREFIX)
+                    && file.getName().endsWith(SEGMENT_SUFFIX)) segmentFiles.add(file.toPath());
+        Collections.sort(segmentFiles);
+        return segmentFiles;
+    }
+
+    private static long getSegmentNumber(Path segmentFile) {
+        String name = segmentFile.toFile().getName();
+        return Long.parseLong(
+                name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length()));
+    }
+
+    /** An object on the remote file system as known to the catalog. */
+    public static final class Entry {
+        private final String remotePath;
+        private final BackupFileType type;
+        private final Instant lastModified;
+        private final long size;
+        private final Instant uploadTime;
+        // Number of the last sync which listed the object.
+        private volatile long syncNumber;
+
+        Entry(
+                String remotePath,
+                BackupFileType type,
+                Instant lastModified,
+                long size,
+                Instant uploadTime) {
+            this.remotePath = remotePath;
+            this.type = type;
+            this.lastModified = lastModified;
+            this.size = size;
+            this.uploadTime = uploadTime;
+        }
+
+        public String getRemotePath() {
+            return remotePath;
+        }
+
+        public BackupFileType getType() {
+            return type;
+        }
+
+        /** Last modified time of the file which was uploaded, as in its remote path. */
+        public Instant getLastModified() {
+            return lastModified;
+        }
+
+        /** Size of the object on the remote file system or -1 if unknown. */
+        public long getSize() {
+            return size;
+        }
+
+        /** Time of the upload or null if the object was found while syncing. */
+        public Instant getUploadTime() {
+            return uploadTime;
+        }
+    }
+}
@@ -0,0 +1,467 @@
+/*
+ * Copyright 2020 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.netflix.priam.backupv2;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.hash.HashFunction;
+import com.google.common.hash.Hashing;
+import com.google.common.util.concurrent.RateLimiter;
+import com.netflix.priam.backup.*;
+import com.netflix.priam.compress.CompressionType;
+import com.netflix.priam.compress.ICompression;
+import com.netflix.priam.config.IBackupRestoreConfig;
+import com.netflix.priam.config.IConfiguration;
+import com.netflix.priam.cred.ICredentialGeneric;
+import com.netflix.priam.cryptography.CryptographyAlgorithm;
+import com.netflix.priam.cryptography.IFileCryptography;
+import com.netflix.priam.health.InstanceState;
+import com.netflix.priam.merics.BackupMetrics;
+import com.netflix.priam.scheduler.CronTimer;
+import com.netflix.priam.scheduler.MaintenanceCoordinator;
+import com.netflix.priam.scheduler.MaintenanceCoordinator.Priority;
+import com.netflix.priam.scheduler.MaintenanceCoordinator.Resource;
+import com.netflix.priam.scheduler.Task;
+import com.netflix.priam.scheduler.TaskTimer;
+import com.netflix.priam.utils.DateUtil;
+import com.netflix.priam.utils.GsonJsonSerializer;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.text.ParseException;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedOutputStream;
+import javax.inject.Inject;
+import javax.inject.Named;
+import javax.inject.Provider;
+import javax.inject.Singleton;
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.io.input.CountingInputStream;
+import org.apache.commons.io.input.ProxyInputStream;
+import org.apache.commons.io.output.NullOutputStream;
+import org.quartz.CronExpression;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Reads back the content of backed up files to make sure they can be restored, which the existence
+ * checks of {@link BackupVerificationTask} cannot tell. Files of the last verified snapshot are
+ * streamed through download, decryption and decompression into a null sink, the way a restore would
+ * read them. A Data.db component is also checked against the CRC32 in the Digest.crc32 component of
+ * the same SSTable, and the bytes read are checked against the size recorded in the backup catalog.
+ *
+ * <p>The files are visited in the order of a hash of their remote path, so each run checks a random
+ * sample spread over all keyspaces. The position in that order is kept on local disk, and once
+ * every file was visited a new cycle starts. The length of a cycle is the window in which all the
+ * backup gets verified. The bytes read are limited by {@link
+ * IBackupRestoreConfig#getBackupContentVerificationBytesPerDay()}, which accrues continuously and
+ * is spent by the runs, so the cost stays a fixed fraction of the bandwidth whatever the schedule.
+ * A run paces its reads to spend its allowance by the next run, and gives way to other maintenance
+ * through the {@link MaintenanceCoordinator}.
+ */
+@Singleton
+public class BackupContentVerificationTask extends Task {
+    private static final Logger logger =
+            LoggerFactory.getLogger(BackupContentVerificationTask.class);
+    public static final String JOBNAME = "BackupContentVerificationService";
+    static final String STATE_FILE = "backup_content_verification.state";
+    private static final HashFunction HASH_FUNCTION = Hashing.murmur3_128();
+    private static final String DATA_SUFFIX = "-Data.db";
+    private static final String DIGEST_SUFFIX = "-Digest.crc32";
+    private static final TimeZone UTC = TimeZone.getTimeZone(ZoneId.of("UTC"));
+    private static final ImmutableMap<Resource, Integer> DEMAND =
+            ImmutableMap.of(Resource.NETWORK, 50, Resource.DISK, 25);
+    private final IBackupRestoreConfig backupRestoreConfig;
+    private final IBackupFileSystem fs;
+    private final IMetaProxy metaProxy;
+    private final VerifiedFiles verifiedFiles;
+    private final BackupCatalog backupCatalog;
+    private final Provider<AbstractBackupPath> abstractBackupPathProvider;
+    private final ICompression compress;
+    private final IFileCryptography fileCryptography;
+    private final ICredentialGeneric pgpCredential;
+    private final InstanceState instanceState;
+    private final BackupMetrics backupMetrics;
+    private final MaintenanceCoordinator maintenanceCoordinator;
+
+    @Inject
+    public BackupContentVerificationTask(
+            IConfiguration configuration,
+            IBackupRestoreConfig backupRestoreConfig,
+            IFileSystemContext backupFileSystemCtx,
+            @Named("v2") IMetaProxy metaProxy,
+            VerifiedFiles verifiedFiles,
+            BackupCatalog backupCatalog,
+            Provider<AbstractBackupPath> abstractBackupPathProvider,
+            ICompression compress,
+            @Named("filecryptoalgorithm") IFileCryptography fileCryptography,
+            @Named("pgpcredential") ICredentialGeneric pgpCredential,
+            InstanceState instanceState,
+            BackupMetrics backupMetrics,
+            MaintenanceCoordinator maintenanceCoordinator) {
+        super(configuration);
+        this.backupRestoreConfig = backupRestoreConfig;
+        this.fs = backupFileSystemCtx.getFileStrategy(configuration);
+        this.metaProxy = metaProxy;
+        this.verifiedFiles = verifiedFiles;
+        this.backupCatalog = backupCatalog;
+        this.abstractBackupPathProvider = abstractBackupPathProvider;
+        this.compress = compress;
+        this.fileCryptography = fileCryptography;
+        this.pgpCredential = pgpCredential;
+        this.instanceState = instanceState;
+        this.backupMetrics = backupMetrics;
+        this.maintenanceCoordinator = maintenanceCoordinator;
+    }
+
+    @Override
+    public void execute() throws Exception {
+        if (instanceState.getRestoreStatus() != null
+                && instanceState.getRestoreStatus().getStatus() == Status.STARTED) {
+            logger.info("Skipping backup content verification. Priam is in restore mode.");
+            return;
+        }
+
+        Optional<String> metaFile = verifiedFiles.getMetaFile();
+        if (!metaFile.isPresent()) {
+            logger.info("Skipping backup content verification. No verified snapshot yet.");
+            return;
+        }
+
+        State state = readState();
+        Instant now = DateUtil.getInstant();
+        state.accrue(backupRestoreConfig.getBackupContentVerificationBytesPerDay(), now);
+        if (state.allowance <= 0) {
+            logger.info("Skipping backup content verification. Budget is used up for now.");
+            writeState(state);
+            return;
+        }
+
+        int verified = 0;
+        long bytes = 0;
+        Map.Entry<Long, String> next;
+        // Reading back can wait, it gives way to other maintenance and resumes from the cursor.
+        MaintenanceCoordinator.Lease lease =
+                maintenanceCoordinator.acquire(JOBNAME, Priority.BEST_EFFORT, DEMAND);
+        try {
+            AbstractBackupPath metaPath = abstractBackupPathProvider.get();
+            metaPath.parseRemote(metaFile.get());
+            List<String> files = metaProxy.resolveMeta(metaPath).getFiles();
+            Map<String, String> digestFiles = getDigestFiles(files);
+            TreeMap<Long, String> order = new TreeMap<>();
+            for (String file : files) order.put(hash(file), file);
+
+            RateLimiter readLimiter =
+                    RateLimiter.create(getReadRate(state.allowance, now, getNextRun(now)));
+            next = state.cursor == null ? order.firstEntry() : order.higherEntry(state.cursor);
+            while (next != null && state.allowance > 0 && !lease.isPreempted()) {
+                long read = verify(next.getValue(), digestFiles, readLimiter);
+                state.allowance -= read;
+                state.cursor = next.getKey();
+                state.cycleFiles++;
+                state.cycleBytes += read;
+                bytes += read;
+                verified++;
+                next = order.higherEntry(next.getKey());
+            }
+        } finally {
+            lease.close();
+        }
+        if (next == null) {
+            state.onCycleCompleted(now);
+            logger.info(
+                    "Backup content verification completed a cycle over {} files in {} hours",
+                    state.lastCycleFiles,
+                    Duration.ofMillis(state.lastCycleDuration).toHours());
+        }
+        writeState(state);
+        logger.info(
+                "Backup content verification checked {} files, {} bytes of snapshot: {}. {} files in this cycle so far.",
+                verified,
+                bytes,
+                metaFile.get(),
+                state.cycleFiles);
+    }
+
+    /**
+     * Read back a file, and for a Data.db component, the Digest.crc32 component of its SSTable as
+     * well.
+     *
+     * @param digestFiles remote paths of the Digest.crc32 components by SSTable.
+     * @param readLimiter paces the reads, in bytes.
+     * @return no. of bytes read from the remote file system, whether the file is valid or not.
+     */
+    private long verify(
+            String remotePath, Map<String, String> digestFiles, RateLimiter readLimiter) {
+        AbstractBackupPath path = abstractBackupPathProvider.get();
+        path.parseRemote(remotePath);
+        CRC32 crc = new CRC32();
+        AtomicLong read = new AtomicLong();
+        try {
+            read(
+                    path,
+                    new CheckedOutputStream(NullOutputStream.NULL_OUTPUT_STREAM, crc),
+                    readLimiter,
+                    read);
+            // Each component of an SSTable is uploaded on its own, so their remote paths differ in
+            // the last modified time as well as in the component name.
+            String digestFile =
+                    remotePath.endsWith(DATA_SUFFIX) ? digestFiles.get(getSSTable(path)) : null;
+            if (digestFile != null) {
+                AbstractBackupPath digestPath = abstractBackupPathProvider.get();
+                digestPath.parseRemote(digestFile);
+                ByteArrayOutputStream digest = new ByteArrayOutputStream();
+                read(digestPath, digest, readLimiter, read);
+                long expected =
+                        Long.parseLong(
+                                new String(digest.toByteArray(), StandardCharsets.UTF_8).trim());
+                if (expected != crc.getValue())
+                    throw new IOException(
+                            "CRC32 mismatch. Expected: "
+                                    + expected
+                                    + ", actual: "
+                                    + crc.getValue());
+            }
+        } catch (Exception e) {
+            logger.error("Backup content verification failed for: {}", remotePath, e);
+            backupMetrics.incrementBackupContentVerificationFailure();
+        }
+        return read.get();
+    }
+
+    /**
+     * Stream the remote file to the output the way a restore would, closing it.
+     *
+     * @param readLimiter paces the reads, in bytes.
+     * @param bytesRead incremented by the no. of bytes read from the remote file system, even if
+     *     reading fails.
+     */
+    private void read(
+            AbstractBackupPath path,
+            OutputStream out,
+            RateLimiter readLimiter,
+            AtomicLong bytesRead)
+            throws Exception {
+        String remotePath = path.getRemotePath();
+        CountingInputStream raw =
+                new CountingInputStream(new PacedInputStream(fs.openFile(path), readLimiter));
+        try {
+            InputStream in = raw;
+            if (path.getEncryption() == CryptographyAlgorithm.PGP) {
+                char[] passPhrase =
+                        new String(pgpCredential.getValue(ICredentialGeneric.KEY.PGP_PASSWORD))
+                                .toCharArray();
+                in = fileCryptography.decryptStream(in, passPhrase, remotePath);
+            }
+            if (path.getCompression() == CompressionType.NONE) {
+                try (OutputStream os = out) {
+                    IOUtils.copyLarge(in, os);
+                }
+            } else {
+                compress.decompressAndClose(in, out);
+            }
+            long size = raw.getByteCount();
+            Optional<BackupCatalog.Entry> cataloged = backupCatalog.getObject(remotePath);
+            if (cataloged.isPresent()
+                    && cataloged.get().getSize() >= 0
+                    && cataloged.get().getSize() != size)
+                throw new IOException(
+                        "Size mismatch. Expected: "
+                                + cataloged.get().getSize()
+                                + ", actual: "
+                                + size);
+        } finally {
+            raw.close();
+            bytesRead.addAndGet(raw.getByteCount());
+        }
+    }
+
+    /**
+     * @return bytes per second which spend the allowance by the next run, or no limit if there is
+     *     no next run.
+     */
+    @VisibleForTesting
+    static double getReadRate(long allowance, Instant now, Optional<Instant> nextRun) {
+        if (!nextRun.isPresent()) return Double.MAX_VALUE;
+        long seconds = Math.max(1, Duration.between(now, nextRun.get()).getSeconds());
+        return Math.max(1, (double) allowance / seconds);
+    }
+
+    private Optional<Instant> getNextRun(Instant now) {
+        try {
+            CronExpression cron =
+                    new CronExpression(
+                            backupRestoreConfig.getBackupContentVerificationCronExpression());
+            cron.setTimeZone(UTC);
+            return Optional.ofNullable(cron.getNextValidTimeAfter(Date.from(now)))
+                    .map(Date::toInstant);
+        } catch (ParseException e) {
+            return Optional.empty();
+        }
+    }
+
+    /** @return the remote paths of the Digest.crc32 components among the files, by SSTable. */
+    private Map<String, String> getDigestFiles(List<String> files) {
+        Map<String, String> digestFiles = new HashMap<>();
+        for (String file : files) {
+            if (!file.endsWith(DIGEST_SUFFIX)) continue;
+            AbstractBackupPath path = abstractBackupPathProvider.get();
+            path.parseRemote(file);
+            digestFiles.put(getSSTable(path), file);
+        }
+        return digestFiles;
+    }
+
+    /**
+     * @return the keyspace, column family and the prefix the SSTable components have in common,
+     *     like the prefix of a {@link ColumnFamilyResult.SSTableResult}.
+     */
+    private static String getSSTable(AbstractBackupPath path) {
+        String fileName = path.getFileName();
+        return path.getKeyspace()
+                + AbstractBackupPath.PATH_SEP
+                + path.getColumnFamily()
+                + AbstractBackupPath.PATH_SEP
+                + fileName.substring(0, fileName.lastIndexOf('-'));
+    }
+
+    private static long hash(String remotePath) {
+        return HASH_FUNCTION.hashUnencodedChars(remotePath).asLong();
+    }
+
+    private State readState() {
+        Path stateFile = getStateFile();
+        if (Files.exists(stateFile)) {
+            try {
+                return GsonJsonSerializer.getGson()
+                        .fromJson(
+                                new String(Files.readAllBytes(stateFile), StandardCharsets.UTF_8),
+                                State.class);
+            } catch (Exception e) {
+                logger.warn(
+                        "Unable to read the content verification state: {}. Starting over.",
+                        stateFile,
+                        e);
+            }
+        }
+        return new State();
+    }
+
+    private void writeState(State state) throws IOException {
+        Path stateFile = getStateFile();
+        Path tmpFile = stateFile.resolveSibling(stateFile.getFileName() + ".tmp");
+        Files.write(
+                tmpFile,
+                GsonJsonSerializer.getGson().toJson(state).getBytes(StandardCharsets.UTF_8));
+        Files.move(
+                tmpFile,
+                stateFile,
+                StandardCopyOption.REPLACE_EXISTING,
+                StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private Path getStateFile() {
+        return Paths.get(config.getDataFileLocation(), STATE_FILE);
+    }
+
+    /**
+     * Interval between runs of the content verification of backups.
+     *
+     * @param backupRestoreConfig {@link
+     *     IBackupRestoreConfig#getBackupContentVerificationCronExpression()} to get configuration
+     *     details from priam. Use "-1" to disable the service.
+     * @return the timer to be used for backup content verification service.
+     * @throws Exception if the configuration is not set correctly or are not valid. This is to
+     *     ensure we fail-fast.
+     */
+    public static TaskTimer getTimer(IBackupRestoreConfig backupRestoreConfig) throws Exception {
+        String cronExpression = backupRestoreConfig.getBackupContentVerificationCronExpression();
+        return CronTimer.getCronTimer(JOBNAME, cronExpression);
+    }
+
+    @Override
+    public String getName() {
+        return JOBNAME;
+    }
+
+    /** Acquires a permit from the rate limiter for every byte read. */
+    private static final class PacedInputStream extends ProxyInputStream {
+        private final RateLimiter readLimiter;
+
+        PacedInputStream(InputStream in, RateLimiter readLimiter) {
+            super(in);
+            this.readLimiter = readLimiter;
+        }
+
+        @Override
+        protected void afterRead(int n) {
+            if (n > 0) readLimiter.acquire(n);
+        }
+    }
+
+    /** Progress of the verification, and the budget left to spend. */
+    static class State {
+        // A node starts with an hour worth of budget.
+        private static final long INITIAL_ACCRUAL_MILLIS = Duration.ofHours(1).toMillis();
+        private static final long DAY_MILLIS = Duration.ofDays(1).toMillis();
+        private long allowance;
+        private long allowanceAt;
+        private Long cursor;
+        private long cycleStartedAt;
+        private long cycleFiles;
+        private long cycleBytes;
+        private long lastCycleCompletedAt;
+        private long lastCycleDuration;
+        private long lastCycleFiles;
+
+        /** Add the budget accrued since the last run, up to a day worth of budget. */
+        void accrue(long bytesPerDay, Instant now) {
+            long nowMillis = now.toEpochMilli();
+            if (allowanceAt == 0) {
+                allowanceAt = nowMillis - INITIAL_ACCRUAL_MILLIS;
+                cycleStartedAt = nowMillis;
+            }
+            long elapsed = Math.max(0, nowMillis - allowanceAt);
+            double accrued = (double) bytesPerDay * elapsed / DAY_MILLIS;
+            allowance = (long) Math.min(bytesPerDay, allowance + accrued);
+            allowanceAt = nowMillis;
+        }
+
+        void onCycleCompleted(Instant now) {
+            long nowMillis = now.toEpochMilli();
+            lastCycleCompletedAt = nowMillis;
+            lastCycleDuration = nowMillis - cycleStartedAt;
+            lastCycleFiles = cycleFiles;
+            cursor = null;
+            cycleStartedAt = nowMillis;
+            cycleFiles = 0;
+            cycleBytes = 0;
+        }
+    }
+}
@@ -17,27 +17,46 @@
 
 package com.netflix.priam.backupv2;
 
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Lists;
+import com.google.common.math.LongMath;
+import com.google.common.util.concurrent.RateLimiter;
 import com.netflix.priam.backup.*;
 import com.netflix.priam.config.IBackupRestoreConfig;
 import com.netflix.priam.config.IConfiguration;
 import com.netflix.priam.health.InstanceState;
 import com.netflix.priam.identity.token.TokenRetriever;
+import com.netflix.priam.scheduler.MaintenanceCoordinator;
+import com.netflix.priam.scheduler.MaintenanceCoordinator.Priority;
+import com.netflix.priam.scheduler.MaintenanceCoordinator.Resource;
+import com.netflix.priam.scheduler.NamedThreadPoolExecutor;
 import com.netflix.priam.scheduler.SimpleTimer;
 import com.netflix.priam.scheduler.Task;
 import com.netflix.priam.scheduler.TaskTimer;
 import com.netflix.priam.utils.DateUtil;
+import com.netflix.priam.utils.FingerprintSet;
+import com.netflix.priam.utils.GsonJsonSerializer;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
 import java.time.Instant;
 import java.time.temporal.ChronoUnit;
 import java.util.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReentrantLock;
 import javax.inject.Inject;
 import javax.inject.Named;
 import javax.inject.Provider;
 import javax.inject.Singleton;
-import org.apache.commons.io.FileUtils;
+import org.apache.commons.lang3.StringUtils;
 import org.apache.commons.lang3.math.Fraction;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -51,7 +70,15 @@ import org.slf4j.LoggerFactory;
  * <p>To TTL the SSTable components we refer to the first manifest file on the remote file system
  * after the TTL period. Any sstable components referenced in that manifest file should not be
  * deleted. Any other sstable components (files) on remote file system before the TTL period can be
- * safely deleted. Created by aagrawal on 11/26/18.
+ * safely deleted. If that manifest file is a delta, its base manifest files are needed to read it
+ * and are not deleted either.
+ *
+ * <p>The SST_V2 files are listed in partitions of their last modified time, concurrently, and
+ * deleted in batches by a bounded pool of workers, see {@link
+ * IBackupRestoreConfig#getBackupTTLThreads()} and {@link
+ * IBackupRestoreConfig#getBackupTTLDeleteRate()}. The progress is checkpointed on disk, so a run
+ * interrupted midway, or the next run against the same manifest file, resumes where the last one
+ * stopped instead of listing everything again. Created by aagrawal on 11/26/18.
  */
 @Singleton
 public class BackupTTLTask extends Task {
@@ -61,11 +88,21 @@ public class BackupTTLTask extends Task {
     private IBackupFileSystem fileSystem;
     private Provider<AbstractBackupPath> abstractBackupPathProvider;
     private InstanceState instanceState;
+    private BackupCatalog backupCatalog;
+    private MaintenanceCoordinator maintenanceCoordinator;
     public static final String JOBNAME = "BackupTTLService";
-    private Map<String, Boolean> filesInMeta = new HashMap<>();
-    private List<Path> filesToDelete = new ArrayList<>();
     private static final Lock lock = new ReentrantLock();
+    private static final ImmutableMap<Resource, Integer> DEMAND =
+            ImmutableMap.of(Resource.NETWORK, 50, Resource.CPU, 25);
     private final int BATCH_SIZE = 1000;
+    private static final int INITIAL_FILES_IN_META = 1 << 16;
+    private static final int PARTITIONS_PER_THREAD = 4;
+    // Smallest epoch millis with 13 digits.
+    private static final long MIN_LAST_MODIFIED = 1_000_000_000_000L;
+    // Sorts after the separator and all the digits, so a marker ending with it skips the keys of
+    // the given time.
+    private static final String MARKER_SUFFIX = ":";
+    private static final String CHECKPOINT_FILE = "backup_ttl.checkpoint";
     private final Instant start_of_feature = DateUtil.parseInstant("201801010000");
     private final int maxWaitMillis;
 
@@ -77,7 +114,9 @@ public class BackupTTLTask extends Task {
             IFileSystemContext backupFileSystemCtx,
             Provider<AbstractBackupPath> abstractBackupPathProvider,
             InstanceState instanceState,
-            TokenRetriever tokenRetriever)
+            TokenRetriever tokenRetriever,
+            BackupCatalog backupCatalog,
+            MaintenanceCoordinator maintenanceCoordinator)
             throws Exception {
         super(configuration);
         this.backupRestoreConfig = backupRestoreConfig;
@@ -85,6 +124,8 @@ public class BackupTTLTask extends Task {
         this.fileSystem = backupFileSystemCtx.getFileStrategy(configuration);
         this.abstractBackupPathProvider = abstractBackupPathProvider;
         this.instanceState = instanceState;
+        this.backupCatalog = backupCatalog;
+        this.maintenanceCoordinator = maintenanceCoordinator;
         this.maxWaitMillis =
                 1_000
                         * backupRestoreConfig.getBackupTTLMonitorPeriodInSec()
@@ -110,10 +151,10 @@ public class BackupTTLTask extends Task {
         // Sleep a random amount but not so long that it will spill into the next token's turn.
         if (maxWaitMillis > 0) Thread.sleep(new Random().nextInt(maxWaitMillis));
 
+        MaintenanceCoordinator.Lease lease = null;
         try {
-            filesInMeta.clear();
-            filesToDelete.clear();
-
+            // TTL can wait, it gives way to other maintenance and resumes from its checkpoint.
+            lease = maintenanceCoordinator.acquire(JOBNAME, Priority.BEST_EFFORT, DEMAND);
             Instant dateToTtl =
                     DateUtil.getInstant().minus(config.getBackupRetentionDays(), ChronoUnit.DAYS);
 
@@ -131,16 +172,19 @@ public class BackupTTLTask extends Task {
             // oldest.
             AbstractBackupPath metaFile = metas.get(metas.size() - 1);
 
-            // Download the meta file to local file system.
-            Path localFile = metaProxy.downloadMetaFile(metaFile);
-
-            // Walk over the file system iterator and if not in map, it is eligible for delete.
-            new MetaFileWalker().readMeta(localFile);
-
-            logger.info("No. of component files loaded from meta file: {}", filesInMeta.size());
+            // Walk over the file system iterator and if not in the set, it is eligible for delete.
+            // If the meta file is a delta, this resolves it using its base meta files. Only a
+            // fingerprint of every file is kept, so the memory used stays small no matter how
+            // many files there are. A fingerprint collision can only keep a file, never delete one.
+            FingerprintSet filesInMeta =
+                    new FingerprintSet(
+                            INITIAL_FILES_IN_META, backupRestoreConfig.enableBackupTTLOffHeap());
+            List<String> baseMetaFiles = metaProxy.resolveMeta(metaFile, filesInMeta);
 
-            // Delete the meta file downloaded locally
-            FileUtils.deleteQuietly(localFile.toFile());
+            logger.info(
+                    "No. of component files loaded from meta file: {}, memory used: {} bytes",
+                    filesInMeta.size(),
+                    filesInMeta.getMemoryUsage());
 
             // If there are no files listed in meta, do not delete. This could be a bug!!
             if (filesInMeta.isEmpty()) {
@@ -157,18 +201,24 @@ public class BackupTTLTask extends Task {
                                     start_of_feature, dateToTtl.minus(1, ChronoUnit.HOURS)));
 
             if (metas != null && metas.size() != 0) {
+                List<Path> metasToDelete = new ArrayList<>();
                 logger.info(
                         "Will delete(TTL) {} META files starting from: [{}]",
                         metas.size(),
                         metas.get(metas.size() - 1).getLastModified());
                 for (AbstractBackupPath meta : metas) {
-                    deleteFile(meta, false);
+                    // The base meta files are still required to read the meta file we keep.
+                    if (baseMetaFiles.contains(meta.getRemotePath())) {
+                        logger.info(
+                                "Not deleting this META file as it is a base of a retained META file: {}",
+                                meta.getRemotePath());
+                        continue;
+                    }
+                    metasToDelete.add(Paths.get(meta.getRemotePath()));
                 }
+                deleteFiles(metasToDelete);
             }
 
-            Iterator<String> remoteFileLocations =
-                    fileSystem.listFileSystem(getSSTPrefix(), null, null);
-
             /*
             We really cannot delete the files until the TTL period.
             Cassandra can flush files on file system like Index.db first and other component files later (like 30 mins). If there is a snapshot in between, then this "single" component file would not be part of the snapshot as SSTable is still not part of Cassandra's "view". Only if Cassandra could provide strong guarantees on the file system such that -
@@ -184,47 +234,222 @@ public class BackupTTLTask extends Task {
                     config.getBackupRetentionDays(),
                     config.getGracePeriodDaysForCompaction());
 
-            while (remoteFileLocations.hasNext()) {
-                AbstractBackupPath abstractBackupPath = abstractBackupPathProvider.get();
-                abstractBackupPath.parseRemote(remoteFileLocations.next());
-                // If lastModifiedTime is after the dateToTTL, we should get out of this loop as
-                // remote file systems always give locations which are sorted.
-                if (abstractBackupPath.getLastModified().isAfter(dateToTtl)) {
+            // Files up to the checkpoint were already processed against the same meta file.
+            long ttlFrom = MIN_LAST_MODIFIED - 1;
+            long ttlTo = dateToTtl.toEpochMilli();
+            Checkpoint checkpoint = readCheckpoint();
+            if (checkpoint != null && metaFile.getRemotePath().equals(checkpoint.metaFile)) {
+                ttlFrom = Math.max(ttlFrom, checkpoint.ttlUpTo);
+                logger.info("Resuming TTL of SST_V2 files after: {}", checkpoint.ttlUpTo);
+            }
+            if (ttlFrom < ttlTo) {
+                deleteSSTFiles(metaFile.getRemotePath(), filesInMeta, ttlFrom, ttlTo, lease);
+            }
+
+            logger.info("Finished processing files for TTL service");
+        } finally {
+            if (lease != null) lease.close();
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Delete the SST_V2 files last modified in (ttlFrom, ttlTo] which are not referenced by the
+     * retained meta file. The range is split into partitions which are listed concurrently, and the
+     * delete batches of all partitions share a bounded pool of workers. The checkpoint is advanced
+     * as the partitions complete in order, and the deletes stop there if the lease is preempted.
+     */
+    private void deleteSSTFiles(
+            String metaFile,
+            FingerprintSet filesInMeta,
+            long ttlFrom,
+            long ttlTo,
+            MaintenanceCoordinator.Lease lease)
+            throws Exception {
+        int threads = Math.max(1, backupRestoreConfig.getBackupTTLThreads());
+        List<Partition> partitions = getPartitions(ttlFrom, ttlTo, threads * PARTITIONS_PER_THREAD);
+        logger.info(
+                "Listing SST_V2 files in {} partitions using {} threads",
+                partitions.size(),
+                threads);
+        String sstPrefix = getSSTPrefix();
+        boolean useCatalog = backupCatalog.isSynced(sstPrefix);
+        ThreadPoolExecutor listExecutor = new NamedThreadPoolExecutor(threads, JOBNAME + "-list");
+        // The queue is bounded, so listing waits while the deletes catch up.
+        ThreadPoolExecutor deleteExecutor =
+                new NamedThreadPoolExecutor(
+                        threads, JOBNAME + "-delete", new LinkedBlockingQueue<>(threads));
+        int deleteRate = backupRestoreConfig.getBackupTTLDeleteRate();
+        RateLimiter deleteLimiter =
+                RateLimiter.create(deleteRate < 1 ? Double.MAX_VALUE : deleteRate);
+        try {
+            // Only keys of the same length sort by time, so the marker is used for those only.
+            String marker =
+                    ttlFrom < MIN_LAST_MODIFIED
+                            ? null
+                            : sstPrefix + AbstractBackupPath.PATH_SEP + ttlFrom + MARKER_SUFFIX;
+            List<Future<Integer>> futures = new ArrayList<>(partitions.size());
+            for (Partition partition : partitions) {
+                String prefix = sstPrefix + AbstractBackupPath.PATH_SEP + partition.prefix;
+                futures.add(
+                        listExecutor.submit(
+                                () ->
+                                        deletePartition(
+                                                prefix,
+                                                marker,
+                                                useCatalog,
+                                                filesInMeta,
+                                                ttlFrom,
+                                                ttlTo,
+                                                deleteExecutor,
+                                                deleteLimiter)));
+            }
+            int deleted = 0;
+            for (int i = 0; i < partitions.size(); i++) {
+                deleted += futures.get(i).get();
+                writeCheckpoint(
+                        new Checkpoint(metaFile, Math.min(ttlTo, partitions.get(i).lastModified)));
+                if (lease.isPreempted() && i + 1 < partitions.size()) {
                     logger.info(
-                            "Breaking from TTL. Got a key which is after the TTL time: {}",
-                            abstractBackupPath.getRemotePath());
-                    break;
+                            "Deleted(TTL) {} SST_V2 files, preempted after {} of {} partitions",
+                            deleted,
+                            i + 1,
+                            partitions.size());
+                    return;
                 }
+            }
+            logger.info("Deleted(TTL) {} SST_V2 files", deleted);
+        } catch (ExecutionException e) {
+            throw new BackupRestoreException(
+                    "Error while deleting SST_V2 files: " + e.getCause(), e);
+        } finally {
+            listExecutor.shutdownNow();
+            deleteExecutor.shutdownNow();
+        }
+    }
+
+    private int deletePartition(
+            String prefix,
+            String marker,
+            boolean useCatalog,
+            FingerprintSet filesInMeta,
+            long ttlFrom,
+            long ttlTo,
+            ExecutorService deleteExecutor,
+            RateLimiter deleteLimiter)
+            throws Exception {
+        Iterator<String> remoteFileLocations =
+                useCatalog
+                        ? backupCatalog.list(prefix, marker)
+                        : fileSystem.listFileSystem(prefix, null, marker);
+        List<Future<?>> deletes = new ArrayList<>();
+        List<Path> batch = new ArrayList<>(BATCH_SIZE);
+        int count = 0;
+        while (remoteFileLocations.hasNext()) {
+            RemoteKey remoteKey = RemoteKey.parse(remoteFileLocations.next());
+            long lastModified = remoteKey.getLastModifiedMillis();
+            // Not all the remote file systems start the listing after the marker.
+            if (lastModified <= ttlFrom) continue;
+            // If lastModifiedTime is after the dateToTTL, we should get out of this loop as
+            // remote file systems always give locations which are sorted.
+            if (lastModified > ttlTo) {
+                logger.info(
+                        "Breaking from TTL. Got a key which is after the TTL time: {}",
+                        remoteKey.getRemotePath());
+                break;
+            }
 
-                if (!filesInMeta.containsKey(abstractBackupPath.getRemotePath())) {
-                    deleteFile(abstractBackupPath, false);
-                } else {
-                    if (logger.isDebugEnabled())
-                        logger.debug(
-                                "Not deleting this key as it is referenced in backups: {}",
-                                abstractBackupPath.getRemotePath());
+            if (!filesInMeta.contains(remoteKey.getRemotePath())) {
+                batch.add(Paths.get(remoteKey.getRemotePath()));
+                count++;
+                if (batch.size() >= BATCH_SIZE) {
+                    deletes.add(deleteBatch(batch, deleteExecutor, deleteLimiter));
+                    batch = new ArrayList<>(BATCH_SIZE);
                 }
+            } else {
+                if (logger.isDebugEnabled())
+                    logger.debug(
+                            "Not deleting this key as it is referenced in backups: {}",
+                            remoteKey.getRemotePath());
             }
+        }
+        if (!batch.isEmpty()) deletes.add(deleteBatch(batch, deleteExecutor, deleteLimiter));
+        for (Future<?> delete : deletes) delete.get();
+        return count;
+    }
 
-            // Delete remaining files.
-            deleteFile(null, true);
+    private Future<?> deleteBatch(
+            List<Path> batch, ExecutorService deleteExecutor, RateLimiter deleteLimiter) {
+        return deleteExecutor.submit(
+                () -> {
+                    deleteLimiter.acquire(batch.size());
+                    fileSystem.deleteRemoteFiles(batch);
+                    return null;
+                });
+    }
 
-            logger.info("Finished processing files for TTL service");
-        } finally {
-            lock.unlock();
-        }
+    private void deleteFiles(List<Path> remotePaths) throws BackupRestoreException {
+        for (List<Path> batch : Lists.partition(remotePaths, BATCH_SIZE))
+            fileSystem.deleteRemoteFiles(batch);
     }
 
-    private void deleteFile(AbstractBackupPath path, boolean forceClear)
-            throws BackupRestoreException {
-        if (path != null) filesToDelete.add(Paths.get(path.getRemotePath()));
+    /**
+     * Split the range (from, to] of epoch millis into partitions of the SST_V2 key space. The last
+     * modified time is the first component of the key after the SST_V2 prefix, so every partition
+     * is a prefix of its decimal representation. The prefixes are made longer until there are at
+     * least minPartitions of them.
+     */
+    static List<Partition> getPartitions(long from, long to, int minPartitions) {
+        String first = String.valueOf(from + 1);
+        String last = String.valueOf(to);
+        if (first.length() != last.length())
+            return Collections.singletonList(new Partition("", to));
+        int depth = StringUtils.getCommonPrefix(first, last).length();
+        long start;
+        long end;
+        do {
+            depth = Math.min(depth + 1, last.length());
+            start = Long.parseLong(first.substring(0, depth));
+            end = Long.parseLong(last.substring(0, depth));
+        } while (depth < last.length() && end - start + 1 < minPartitions);
+        long scale = LongMath.pow(10, last.length() - depth);
+        List<Partition> partitions = new ArrayList<>();
+        for (long prefix = start; prefix <= end; prefix++)
+            partitions.add(new Partition(String.valueOf(prefix), (prefix + 1) * scale - 1));
+        return partitions;
+    }
 
-        if (forceClear || filesToDelete.size() >= BATCH_SIZE) {
-            fileSystem.deleteRemoteFiles(filesToDelete);
-            filesToDelete.clear();
+    private Checkpoint readCheckpoint() {
+        Path checkpointFile = getCheckpointFile();
+        if (!Files.exists(checkpointFile)) return null;
+        try {
+            return GsonJsonSerializer.getGson()
+                    .fromJson(
+                            new String(Files.readAllBytes(checkpointFile), StandardCharsets.UTF_8),
+                            Checkpoint.class);
+        } catch (Exception e) {
+            logger.warn("Unable to read the TTL checkpoint: {}. Starting over.", checkpointFile, e);
+            return null;
         }
     }
 
+    private void writeCheckpoint(Checkpoint checkpoint) throws IOException {
+        Path checkpointFile = getCheckpointFile();
+        Path tmpFile = checkpointFile.resolveSibling(checkpointFile.getFileName() + ".tmp");
+        Files.write(
+                tmpFile,
+                GsonJsonSerializer.getGson().toJson(checkpoint).getBytes(StandardCharsets.UTF_8));
+        Files.move(
+                tmpFile,
+                checkpointFile,
+                StandardCopyOption.REPLACE_EXISTING,
+                StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private Path getCheckpointFile() {
+        return Paths.get(config.getDataFileLocation(), CHECKPOINT_FILE);
+    }
+
     private String getSSTPrefix() {
         Path location = fileSystem.getPrefix();
         AbstractBackupPath abstractBackupPath = abstractBackupPathProvider.get();
@@ -233,6 +458,31 @@ public class BackupTTLTask extends Task {
                 .toString();
     }
 
+    /** A prefix of the SST_V2 key space and the last modified time of its last possible key. */
+    static final class Partition {
+        final String prefix;
+        final long lastModified;
+
+        Partition(String prefix, long lastModified) {
+            this.prefix = prefix;
+            this.lastModified = lastModified;
+        }
+    }
+
+    /**
+     * Progress of the TTL of SST_V2 files, persisted so an interrupted run can resume. All the
+     * files last modified up to ttlUpTo which are not referenced by metaFile have been deleted.
+     */
+    private static final class Checkpoint {
+        private final String metaFile;
+        private final long ttlUpTo;
+
+        Checkpoint(String metaFile, long ttlUpTo) {
+            this.metaFile = metaFile;
+            this.ttlUpTo = ttlUpTo;
+        }
+    }
+
     @Override
     public String getName() {
         return JOBNAME;
@@ -253,22 +503,4 @@ public class BackupTTLTask extends Task {
         Instant start = Instant.ofEpochSecond((long) (period * ringPosition.doubleValue()));
         return new SimpleTimer(JOBNAME, period, start);
     }
-
-    private class MetaFileWalker extends MetaFileReader {
-        @Override
-        public void process(ColumnFamilyResult columnfamilyResult) {
-            columnfamilyResult
-                    .getSstables()
-                    .forEach(
-                            ssTableResult ->
-                                    ssTableResult
-                                            .getSstableComponents()
-                                            .forEach(
-                                                    fileUploadResult ->
-                                                            filesInMeta.put(
-                                                                    fileUploadResult
-                                                                            .getBackupPath(),
-                                                                    null)));
-        }
-    }
 }
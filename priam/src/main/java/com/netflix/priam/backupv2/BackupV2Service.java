@@ -57,6 +57,8 @@ public class BackupV2Service implements IService {
 
     @Override
     public void scheduleService() throws Exception {
+        // Before any run of this process can start a snapshot.
+        snapshotMetaTask.failInterruptedSnapshots();
         TaskTimer snapshotMetaTimer = SnapshotMetaTask.getTimer(backupRestoreConfig);
         if (snapshotMetaTimer == null) {
             SnapshotMetaTask.cleanOldBackups(configuration);
@@ -73,8 +75,15 @@ public class BackupV2Service implements IService {
                     scheduler,
                     BackupVerificationTask.class,
                     BackupVerificationTask.getTimer(backupRestoreConfig));
+
+            // Schedule the backup content verification service
+            scheduleTask(
+                    scheduler,
+                    BackupContentVerificationTask.class,
+                    BackupContentVerificationTask.getTimer(backupRestoreConfig));
         } else {
             scheduler.deleteTask(BackupVerificationTask.JOBNAME);
+            scheduler.deleteTask(BackupContentVerificationTask.JOBNAME);
         }
 
         // Schedule the TTL service
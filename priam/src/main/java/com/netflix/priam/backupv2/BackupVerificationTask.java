@@ -17,6 +17,7 @@
 
 package com.netflix.priam.backupv2;
 
+import com.google.common.collect.ImmutableMap;
 import com.netflix.priam.backup.*;
 import com.netflix.priam.config.IBackupRestoreConfig;
 import com.netflix.priam.config.IConfiguration;
@@ -24,6 +25,9 @@ import com.netflix.priam.health.InstanceState;
 import com.netflix.priam.merics.BackupMetrics;
 import com.netflix.priam.notification.BackupNotificationMgr;
 import com.netflix.priam.scheduler.CronTimer;
+import com.netflix.priam.scheduler.MaintenanceCoordinator;
+import com.netflix.priam.scheduler.MaintenanceCoordinator.Priority;
+import com.netflix.priam.scheduler.MaintenanceCoordinator.Resource;
 import com.netflix.priam.scheduler.Task;
 import com.netflix.priam.scheduler.TaskTimer;
 import com.netflix.priam.utils.DateUtil;
@@ -49,6 +53,9 @@ public class BackupVerificationTask extends Task {
     private BackupMetrics backupMetrics;
     private InstanceState instanceState;
     private BackupNotificationMgr backupNotificationMgr;
+    private MaintenanceCoordinator maintenanceCoordinator;
+    private static final ImmutableMap<Resource, Integer> DEMAND =
+            ImmutableMap.of(Resource.NETWORK, 25, Resource.CPU, 25);
 
     @Inject
     public BackupVerificationTask(
@@ -57,13 +64,15 @@ public class BackupVerificationTask extends Task {
             BackupVerification backupVerification,
             BackupMetrics backupMetrics,
             InstanceState instanceState,
-            BackupNotificationMgr backupNotificationMgr) {
+            BackupNotificationMgr backupNotificationMgr,
+            MaintenanceCoordinator maintenanceCoordinator) {
         super(configuration);
         this.backupRestoreConfig = backupRestoreConfig;
         this.backupVerification = backupVerification;
         this.backupMetrics = backupMetrics;
         this.instanceState = instanceState;
         this.backupNotificationMgr = backupNotificationMgr;
+        this.maintenanceCoordinator = maintenanceCoordinator;
     }
 
     @Override
@@ -86,9 +95,17 @@ public class BackupVerificationTask extends Task {
         Instant slo =
                 now.minus(backupRestoreConfig.getBackupVerificationSLOInHours(), ChronoUnit.HOURS);
         DateRange dateRange = new DateRange(slo, now);
-        List<BackupMetadata> verifiedBackups =
-                backupVerification.verifyBackupsInRange(
-                        BackupVersion.SNAPSHOT_META_SERVICE, dateRange);
+        List<BackupMetadata> verifiedBackups;
+        // Verification is short, it is not stopped when preempted.
+        MaintenanceCoordinator.Lease lease =
+                maintenanceCoordinator.acquire(JOBNAME, Priority.BEST_EFFORT, DEMAND);
+        try {
+            verifiedBackups =
+                    backupVerification.verifyBackupsInRange(
+                            BackupVersion.SNAPSHOT_META_SERVICE, dateRange);
+        } finally {
+            lease.close();
+        }
 
         verifiedBackups
                 .stream()
@@ -0,0 +1,169 @@
+/*
+ * Copyright 2020 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.netflix.priam.backupv2;
+
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Constants and encoding primitives of the binary meta file format. The layout of the file is:
+ *
+ * <pre>
+ * header  : MAGIC (4 bytes) | FORMAT_VERSION (1 byte)
+ * info    : block containing {@link MetaFileInfo}
+ * data    : one block per {@link ColumnFamilyResult}, followed by an empty block (length 0)
+ * index   : varint count, then per column family: keyspace, columnfamily, varint offset
+ * footer  : index offset (8 bytes) | MAGIC (4 bytes)
+ * </pre>
+ *
+ * Every block is a varint length followed by that many bytes of deflated content. Blocks are
+ * self-contained, so a single column family can be decoded after a seek using the index. Within a
+ * block, sizes and timestamps are varint encoded (timestamps as deltas) and directory prefixes of
+ * remote paths are written once and then referred to by their position in a per-block dictionary.
+ * Fields added after the first version of the format are appended at the end of a block, so they
+ * are read only if the block has bytes left.
+ *
+ * <p>Binary meta files keep the same file name as JSON meta files. Readers tell them apart by the
+ * magic at the start of the file.
+ */
+final class BinaryMetaFile {
+    static final int MAGIC = 0x504d4554; // "PMET"
+    static final byte FORMAT_VERSION = 1;
+
+    private BinaryMetaFile() {}
+
+    /**
+     * Checks if the local file denoted by path is a binary meta file.
+     *
+     * @param path location of the meta file on local file system.
+     * @return true if the file starts with the binary meta file magic.
+     * @throws IOException if unable to read the file.
+     */
+    static boolean isBinaryMetaFile(Path path) throws IOException {
+        try (InputStream inputStream = Files.newInputStream(path)) {
+            return new DataInputStream(inputStream).readInt() == MAGIC;
+        } catch (EOFException e) {
+            return false;
+        }
+    }
+
+    static void writeVarLong(DataOutput out, long value) throws IOException {
+        while ((value & ~0x7FL) != 0) {
+            out.writeByte((int) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.writeByte((int) value);
+    }
+
+    static long readVarLong(DataInput in) throws IOException {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            byte b = in.readByte();
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) return value;
+        }
+        throw new IOException("Malformed varint in binary meta file");
+    }
+
+    static void writeSignedVarLong(DataOutput out, long value) throws IOException {
+        writeVarLong(out, (value << 1) ^ (value >> 63));
+    }
+
+    static long readSignedVarLong(DataInput in) throws IOException {
+        long value = readVarLong(in);
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    static void writeVarInt(DataOutput out, int value) throws IOException {
+        writeVarLong(out, value & 0xFFFFFFFFL);
+    }
+
+    static int readVarInt(DataInput in) throws IOException {
+        return (int) readVarLong(in);
+    }
+
+    /** Strings are written as varint (length + 1) followed by UTF-8 bytes. 0 denotes null. */
+    static void writeString(DataOutput out, String value) throws IOException {
+        if (value == null) {
+            writeVarInt(out, 0);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        writeVarInt(out, bytes.length + 1);
+        out.write(bytes);
+    }
+
+    static String readString(DataInput in) throws IOException {
+        int length = readVarInt(in);
+        if (length == 0) return null;
+        byte[] bytes = new byte[length - 1];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Dictionary of strings built while a block is written. The first occurrence of a string is
+     * written inline and every later occurrence as its position in the dictionary.
+     */
+    static class StringDictionaryWriter {
+        private final Map<String, Integer> positions = new HashMap<>();
+
+        void write(DataOutput out, String value) throws IOException {
+            if (value == null) {
+                writeVarInt(out, 0);
+                return;
+            }
+            Integer position = positions.get(value);
+            if (position != null) {
+                writeVarInt(out, position + 2);
+                return;
+            }
+            positions.put(value, positions.size());
+            writeVarInt(out, 1);
+            writeString(out, value);
+        }
+    }
+
+    /** Mirror of {@link StringDictionaryWriter} used while a block is read. */
+    static class StringDictionaryReader {
+        private final List<String> values = new ArrayList<>();
+
+        String read(DataInput in) throws IOException {
+            int reference = readVarInt(in);
+            if (reference == 0) return null;
+            if (reference == 1) {
+                String value = readString(in);
+                values.add(value);
+                return value;
+            }
+            if (reference - 2 >= values.size())
+                throw new IOException("Invalid dictionary reference in binary meta file");
+            return values.get(reference - 2);
+        }
+    }
+}
@@ -0,0 +1,203 @@
+/*
+ * Copyright 2020 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.netflix.priam.backupv2;
+
+import static com.netflix.priam.backupv2.BinaryMetaFile.FORMAT_VERSION;
+import static com.netflix.priam.backupv2.BinaryMetaFile.MAGIC;
+import static com.netflix.priam.backupv2.BinaryMetaFile.readSignedVarLong;
+import static com.netflix.priam.backupv2.BinaryMetaFile.readString;
+import static com.netflix.priam.backupv2.BinaryMetaFile.readVarInt;
+import static com.netflix.priam.backupv2.BinaryMetaFile.readVarLong;
+
+import com.google.common.collect.ImmutableSet;
+import com.netflix.priam.backupv2.BinaryMetaFile.StringDictionaryReader;
+import com.netflix.priam.compress.CompressionType;
+import com.netflix.priam.cryptography.CryptographyAlgorithm;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Paths;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+/**
+ * Streaming reader for the binary meta file format described in {@link BinaryMetaFile}. Column
+ * families are decoded one block at a time, so memory usage is bounded by the largest column family
+ * and not by the size of the meta file.
+ */
+public class BinaryMetaFileReader implements Closeable {
+    private final DataInputStream in;
+    private final Inflater inflater = new Inflater();
+    private boolean infoRead;
+    private boolean endOfData;
+
+    public BinaryMetaFileReader(InputStream inputStream) throws IOException {
+        in = new DataInputStream(inputStream);
+        if (in.readInt() != MAGIC) throw new IOException("Not a binary meta file");
+        byte version = in.readByte();
+        if (version > FORMAT_VERSION)
+            throw new IOException("Unsupported binary meta file format version: " + version);
+    }
+
+    public MetaFileInfo readMetaFileInfo() throws IOException {
+        if (infoRead) throw new IllegalStateException("Meta file info is already read");
+        DataInputStream block = readBlock(in, inflater);
+        short version = block.readShort();
+        String appName = readString(block);
+        String region = readString(block);
+        String rack = readString(block);
+        int count = readVarInt(block);
+        List<String> backupIdentifier = null;
+        if (count > 0) {
+            backupIdentifier = new ArrayList<>(count - 1);
+            for (int i = 1; i < count; i++) backupIdentifier.add(readString(block));
+        }
+        MetaFileInfo metaFileInfo = new MetaFileInfo(appName, region, rack, backupIdentifier);
+        metaFileInfo.setVersion(version);
+        if (block.available() > 0) metaFileInfo.setBaseMeta(readString(block));
+        infoRead = true;
+        return metaFileInfo;
+    }
+
+    /**
+     * Read the next column family from the meta file.
+     *
+     * @return the next column family or null if all of them have been read.
+     * @throws IOException if the meta file is not readable or corrupt.
+     */
+    public ColumnFamilyResult readColumnFamilyResult() throws IOException {
+        if (!infoRead) readMetaFileInfo();
+        if (endOfData) return null;
+        DataInputStream block = readBlock(in, inflater);
+        if (block == null) {
+            endOfData = true;
+            return null;
+        }
+        return decodeColumnFamilyResult(block);
+    }
+
+    private static ColumnFamilyResult decodeColumnFamilyResult(DataInputStream block)
+            throws IOException {
+        ColumnFamilyResult columnFamilyResult =
+                new ColumnFamilyResult(readString(block), readString(block));
+        int sstableCount = readVarInt(block);
+        StringDictionaryReader dictionary = new StringDictionaryReader();
+        if (sstableCount == 0) {
+            columnFamilyResult.setSstables(null);
+        } else {
+            List<ColumnFamilyResult.SSTableResult> sstables = new ArrayList<>(sstableCount - 1);
+            long previousLastModified = 0;
+            for (int i = 1; i < sstableCount; i++) {
+                ColumnFamilyResult.SSTableResult sstable = new ColumnFamilyResult.SSTableResult();
+                sstable.setPrefix(readString(block));
+                int componentCount = readVarInt(block);
+                if (componentCount > 0) {
+                    ImmutableSet.Builder<FileUploadResult> components = ImmutableSet.builder();
+                    for (int j = 1; j < componentCount; j++) {
+                        FileUploadResult component =
+                                readFileUploadResult(block, dictionary, previousLastModified);
+                        previousLastModified = component.getLastModifiedTime().toEpochMilli();
+                        components.add(component);
+                    }
+                    sstable.setSstableComponents(components.build());
+                }
+                sstables.add(sstable);
+            }
+            columnFamilyResult.setSstables(sstables);
+        }
+        if (block.available() > 0) {
+            int removedCount = readVarInt(block);
+            if (removedCount > 0) {
+                Set<String> removedFiles = new LinkedHashSet<>();
+                for (int i = 1; i < removedCount; i++)
+                    removedFiles.add(dictionary.read(block) + readString(block));
+                columnFamilyResult.setRemovedFiles(removedFiles);
+            }
+        }
+        return columnFamilyResult;
+    }
+
+    private static FileUploadResult readFileUploadResult(
+            DataInput block, StringDictionaryReader dictionary, long previousLastModified)
+            throws IOException {
+        String fileName = readString(block);
+        String remoteDirectory = dictionary.read(block);
+        String backupPath = null;
+        if (remoteDirectory != null) {
+            String remoteName = readString(block);
+            backupPath = remoteDirectory + (remoteName == null ? fileName : remoteName);
+        }
+        long lastModified = previousLastModified + readSignedVarLong(block);
+        long creationTime = lastModified + readSignedVarLong(block);
+        long size = readVarLong(block);
+        CompressionType compression = CompressionType.valueOf(dictionary.read(block));
+        CryptographyAlgorithm encryption = CryptographyAlgorithm.valueOf(dictionary.read(block));
+        byte isUploaded = block.readByte();
+        FileUploadResult fileUploadResult =
+                new FileUploadResult(
+                        fileName == null ? null : Paths.get(fileName),
+                        Instant.ofEpochMilli(lastModified),
+                        Instant.ofEpochMilli(creationTime),
+                        size,
+                        compression,
+                        encryption);
+        fileUploadResult.setBackupPath(backupPath);
+        if (isUploaded != 0) fileUploadResult.setUploaded(isUploaded == 2);
+        return fileUploadResult;
+    }
+
+    /** Returns the decompressed content of the next block or null for the end of data marker. */
+    private static DataInputStream readBlock(DataInput input, Inflater inflater)
+            throws IOException {
+        int length = readVarInt(input);
+        if (length == 0) return null;
+        byte[] compressed = new byte[length];
+        input.readFully(compressed);
+        inflater.reset();
+        inflater.setInput(compressed);
+        // Blocks are inflated at once, decoding byte by byte from an InflaterInputStream is slow.
+        ByteArrayOutputStream block = new ByteArrayOutputStream(length * 4);
+        byte[] buffer = new byte[8192];
+        try {
+            while (!inflater.finished()) {
+                int inflated = inflater.inflate(buffer);
+                if (inflated == 0 && inflater.needsInput())
+                    throw new EOFException("Truncated block in binary meta file");
+                block.write(buffer, 0, inflated);
+            }
+        } catch (DataFormatException e) {
+            throw new IOException("Corrupt block in binary meta file", e);
+        }
+        return new DataInputStream(new ByteArrayInputStream(block.toByteArray()));
+    }
+
+    @Override
+    public void close() throws IOException {
+        inflater.end();
+        in.close();
+    }
+}
@@ -0,0 +1,188 @@
+/*
+ * Copyright 2020 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.netflix.priam.backupv2;
+
+import static com.netflix.priam.backupv2.BinaryMetaFile.FORMAT_VERSION;
+import static com.netflix.priam.backupv2.BinaryMetaFile.MAGIC;
+import static com.netflix.priam.backupv2.BinaryMetaFile.writeSignedVarLong;
+import static com.netflix.priam.backupv2.BinaryMetaFile.writeString;
+import static com.netflix.priam.backupv2.BinaryMetaFile.writeVarInt;
+import static com.netflix.priam.backupv2.BinaryMetaFile.writeVarLong;
+
+import com.google.common.io.CountingOutputStream;
+import com.netflix.priam.backupv2.BinaryMetaFile.StringDictionaryWriter;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+
+/**
+ * Streaming writer for the binary meta file format described in {@link BinaryMetaFile}. Only one
+ * column family is held in memory at a time. The caller is expected to write the {@link
+ * MetaFileInfo} first, then each {@link ColumnFamilyResult} and finally close the writer which
+ * writes the index and the footer.
+ */
+public class BinaryMetaFileWriter implements Closeable {
+    private final CountingOutputStream countingOutputStream;
+    private final DataOutputStream out;
+    private final List<IndexEntry> index = new ArrayList<>();
+    private final ByteArrayOutputStream blockBuffer = new ByteArrayOutputStream();
+    private final Deflater deflater = new Deflater(Deflater.BEST_COMPRESSION);
+    private boolean infoWritten;
+
+    public BinaryMetaFileWriter(OutputStream outputStream) throws IOException {
+        countingOutputStream = new CountingOutputStream(outputStream);
+        out = new DataOutputStream(countingOutputStream);
+        out.writeInt(MAGIC);
+        out.writeByte(FORMAT_VERSION);
+    }
+
+    public void writeMetaFileInfo(MetaFileInfo metaFileInfo) throws IOException {
+        if (infoWritten) throw new IllegalStateException("Meta file info is already written");
+        DataOutputStream block = startBlock();
+        block.writeShort(metaFileInfo.getVersion());
+        writeString(block, metaFileInfo.getAppName());
+        writeString(block, metaFileInfo.getRegion());
+        writeString(block, metaFileInfo.getRack());
+        List<String> backupIdentifier = metaFileInfo.getBackupIdentifier();
+        writeVarInt(block, backupIdentifier == null ? 0 : backupIdentifier.size() + 1);
+        if (backupIdentifier != null)
+            for (String identifier : backupIdentifier) writeString(block, identifier);
+        writeString(block, metaFileInfo.getBaseMeta());
+        endBlock(block);
+        infoWritten = true;
+    }
+
+    public void writeColumnFamilyResult(ColumnFamilyResult columnFamilyResult) throws IOException {
+        if (!infoWritten) throw new IllegalStateException("Meta file info is not written yet");
+        index.add(
+                new IndexEntry(
+                        columnFamilyResult.getKeyspaceName(),
+                        columnFamilyResult.getColumnfamilyName(),
+                        countingOutputStream.getCount()));
+        DataOutputStream block = startBlock();
+        writeString(block, columnFamilyResult.getKeyspaceName());
+        writeString(block, columnFamilyResult.getColumnfamilyName());
+        List<ColumnFamilyResult.SSTableResult> sstables = columnFamilyResult.getSstables();
+        writeVarInt(block, sstables == null ? 0 : sstables.size() + 1);
+        StringDictionaryWriter dictionary = new StringDictionaryWriter();
+        if (sstables != null) {
+            long previousLastModified = 0;
+            for (ColumnFamilyResult.SSTableResult sstable : sstables) {
+                writeString(block, sstable.getPrefix());
+                Set<FileUploadResult> components = sstable.getSstableComponents();
+                writeVarInt(block, components == null ? 0 : components.size() + 1);
+                if (components == null) continue;
+                for (FileUploadResult component : components) {
+                    writeFileUploadResult(block, dictionary, component, previousLastModified);
+                    previousLastModified = component.getLastModifiedTime().toEpochMilli();
+                }
+            }
+        }
+        Set<String> removedFiles = columnFamilyResult.getRemovedFiles();
+        writeVarInt(block, removedFiles == null ? 0 : removedFiles.size() + 1);
+        if (removedFiles != null)
+            for (String removedFile : removedFiles) {
+                int separator = removedFile.lastIndexOf('/') + 1;
+                dictionary.write(block, removedFile.substring(0, separator));
+                writeString(block, removedFile.substring(separator));
+            }
+        endBlock(block);
+    }
+
+    private void writeFileUploadResult(
+            DataOutputStream block,
+            StringDictionaryWriter dictionary,
+            FileUploadResult component,
+            long previousLastModified)
+            throws IOException {
+        // Like the JSON format, only the name of the local file is kept.
+        String fileName =
+                component.getFileName() == null ? null : component.getFileName().toFile().getName();
+        writeString(block, fileName);
+        // Remote paths of a column family share everything but the file name, so the directory
+        // goes through the dictionary and the name is omitted when it matches the local one.
+        String backupPath = component.getBackupPath();
+        if (backupPath == null) {
+            dictionary.write(block, null);
+        } else {
+            int separator = backupPath.lastIndexOf('/') + 1;
+            String remoteName = backupPath.substring(separator);
+            dictionary.write(block, backupPath.substring(0, separator));
+            writeString(block, remoteName.equals(fileName) ? null : remoteName);
+        }
+        long lastModified = component.getLastModifiedTime().toEpochMilli();
+        writeSignedVarLong(block, lastModified - previousLastModified);
+        writeSignedVarLong(block, component.getFileCreationTime().toEpochMilli() - lastModified);
+        writeVarLong(block, component.getFileSizeOnDisk());
+        dictionary.write(block, component.getCompression().name());
+        dictionary.write(block, component.getEncryption().name());
+        Boolean isUploaded = component.getIsUploaded();
+        block.writeByte(isUploaded == null ? 0 : isUploaded ? 2 : 1);
+    }
+
+    private DataOutputStream startBlock() {
+        blockBuffer.reset();
+        deflater.reset();
+        return new DataOutputStream(new DeflaterOutputStream(blockBuffer, deflater));
+    }
+
+    private void endBlock(DataOutputStream block) throws IOException {
+        block.close();
+        writeVarInt(out, blockBuffer.size());
+        blockBuffer.writeTo(out);
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            // Empty block marks the end of data for sequential readers.
+            writeVarInt(out, 0);
+            long indexOffset = countingOutputStream.getCount();
+            writeVarInt(out, index.size());
+            for (IndexEntry entry : index) {
+                writeString(out, entry.keyspace);
+                writeString(out, entry.columnfamily);
+                writeVarLong(out, entry.offset);
+            }
+            out.writeLong(indexOffset);
+            out.writeInt(MAGIC);
+            out.flush();
+        } finally {
+            deflater.end();
+            out.close();
+        }
+    }
+
+    private static class IndexEntry {
+        private final String keyspace;
+        private final String columnfamily;
+        private final long offset;
+
+        IndexEntry(String keyspace, String columnfamily, long offset) {
+            this.keyspace = keyspace;
+            this.columnfamily = columnfamily;
+            this.offset = offset;
+        }
+    }
+}
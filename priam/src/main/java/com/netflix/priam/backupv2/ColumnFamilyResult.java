@@ -27,12 +27,22 @@ public class ColumnFamilyResult {
     private String keyspaceName;
     private String columnfamilyName;
     private List<SSTableResult> sstables = new ArrayList<>();
+    // Only in delta meta files: remote paths of the files removed since the base meta file.
+    private Set<String> removedFiles;
 
     public ColumnFamilyResult(String keyspaceName, String columnfamilyName) {
         this.keyspaceName = keyspaceName;
         this.columnfamilyName = columnfamilyName;
     }
 
+    public String getKeyspaceName() {
+        return keyspaceName;
+    }
+
+    public String getColumnfamilyName() {
+        return columnfamilyName;
+    }
+
     public List<SSTableResult> getSstables() {
         return sstables;
     }
@@ -46,6 +56,14 @@ public class ColumnFamilyResult {
         sstables.add(sstable);
     }
 
+    public Set<String> getRemovedFiles() {
+        return removedFiles;
+    }
+
+    public void setRemovedFiles(Set<String> removedFiles) {
+        this.removedFiles = removedFiles;
+    }
+
     @Override
     public String toString() {
         return GsonJsonSerializer.getGson().toJson(this);
@@ -56,6 +74,10 @@ public class ColumnFamilyResult {
         private String prefix;
         private Set<FileUploadResult> sstableComponents;
 
+        public String getPrefix() {
+            return prefix;
+        }
+
         public void setPrefix(String prefix) {
             this.prefix = prefix;
         }
@@ -56,6 +56,21 @@ public class FileUploadResult {
         this.encryption = CryptographyAlgorithm.PLAINTEXT;
     }
 
+    FileUploadResult(
+            Path fileName,
+            Instant lastModifiedTime,
+            Instant fileCreationTime,
+            long fileSizeOnDisk,
+            CompressionType compression,
+            CryptographyAlgorithm encryption) {
+        this.fileName = fileName;
+        this.lastModifiedTime = lastModifiedTime;
+        this.fileCreationTime = fileCreationTime;
+        this.fileSizeOnDisk = fileSizeOnDisk;
+        this.compression = compression;
+        this.encryption = encryption;
+    }
+
     public FileUploadResult(AbstractBackupPath path) {
         Preconditions.checkArgument(path.getLastModified().toEpochMilli() > 0);
         Preconditions.checkArgument(path.getCreationTime().toEpochMilli() > 0);
@@ -81,6 +96,26 @@ public class FileUploadResult {
         return fileName;
     }
 
+    public Instant getLastModifiedTime() {
+        return lastModifiedTime;
+    }
+
+    public Instant getFileCreationTime() {
+        return fileCreationTime;
+    }
+
+    public long getFileSizeOnDisk() {
+        return fileSizeOnDisk;
+    }
+
+    public CompressionType getCompression() {
+        return compression;
+    }
+
+    public CryptographyAlgorithm getEncryption() {
+        return encryption;
+    }
+
     public String getBackupPath() {
         return backupPath;
     }
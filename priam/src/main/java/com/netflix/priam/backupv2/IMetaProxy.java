@@ -17,13 +17,17 @@
 
 package com.netflix.priam.backupv2;
 
+import com.google.common.collect.ImmutableList;
 import com.netflix.priam.backup.AbstractBackupPath;
 import com.netflix.priam.backup.BackupRestoreException;
 import com.netflix.priam.backup.BackupVerificationResult;
 import com.netflix.priam.utils.DateUtil;
+import com.netflix.priam.utils.FingerprintSet;
 import java.nio.file.Path;
+import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.List;
+import org.apache.commons.io.FileUtils;
 
 /** Proxy to do management tasks for meta files. Created by aagrawal on 12/18/18. */
 public interface IMetaProxy {
@@ -72,6 +76,57 @@ public interface IMetaProxy {
      */
     List<String> getSSTFilesFromMeta(Path localMetaPath) throws Exception;
 
+    /**
+     * Read the manifest file and resolve it into the snapshot it represents. A delta manifest file
+     * only has the changes since its base manifest file, so the chain of base manifest files is
+     * downloaded and applied as well.
+     *
+     * @param localMetaPath location of the manifest file on disk.
+     * @return all the sstable components of the snapshot and the base manifest files used.
+     * @throws Exception if file is not found on local system, is corrupt or if any of the base
+     *     manifest files cannot be downloaded.
+     */
+    default ResolvedMeta resolveMeta(Path localMetaPath) throws Exception {
+        return new ResolvedMeta(
+                ImmutableList.of(), ImmutableList.copyOf(getSSTFilesFromMeta(localMetaPath)));
+    }
+
+    /**
+     * Resolve the manifest file on the remote file system into the snapshot it represents. The
+     * manifest file is downloaded and deleted from disk once resolved.
+     *
+     * @param meta AbstractBackupPath denoting the manifest file on remote file system.
+     * @return all the sstable components of the snapshot and the base manifest files used.
+     * @throws Exception if the manifest file or any of its base manifest files cannot be
+     *     downloaded, or is corrupt.
+     */
+    default ResolvedMeta resolveMeta(AbstractBackupPath meta) throws Exception {
+        Path localMetaPath = downloadMetaFile(meta);
+        try {
+            return resolveMeta(localMetaPath);
+        } finally {
+            FileUtils.deleteQuietly(localMetaPath.toFile());
+        }
+    }
+
+    /**
+     * Resolve the manifest file on the remote file system like {@link
+     * #resolveMeta(AbstractBackupPath)}, but add the sstable components to the given set instead of
+     * returning them. This keeps the memory used small for snapshots with millions of files.
+     *
+     * @param meta AbstractBackupPath denoting the manifest file on remote file system.
+     * @param files set to which the remote paths of all the sstable components are added.
+     * @return remote paths of the base manifest files used, nearest first.
+     * @throws Exception if the manifest file or any of its base manifest files cannot be
+     *     downloaded, or is corrupt.
+     */
+    default ImmutableList<String> resolveMeta(AbstractBackupPath meta, FingerprintSet files)
+            throws Exception {
+        ResolvedMeta resolvedMeta = resolveMeta(meta);
+        resolvedMeta.getFiles().forEach(files::add);
+        return resolvedMeta.getBaseMetaFiles();
+    }
+
     /**
      * Get the list of incremental files given the daterange.
      *
@@ -90,6 +145,21 @@ public interface IMetaProxy {
      */
     BackupVerificationResult isMetaFileValid(AbstractBackupPath metaBackupPath);
 
+    /**
+     * Validate a batch of meta files like {@link #isMetaFileValid(AbstractBackupPath)}. Meta files
+     * of the same node mostly share files, so implementations can check them once for all.
+     *
+     * @param metaBackupPaths Paths to the remote meta files.
+     * @return the backupVerificationResult of every meta file, in the same order.
+     */
+    default List<BackupVerificationResult> isMetaFileValid(
+            List<AbstractBackupPath> metaBackupPaths) {
+        List<BackupVerificationResult> results = new ArrayList<>(metaBackupPaths.size());
+        for (AbstractBackupPath metaBackupPath : metaBackupPaths)
+            results.add(isMetaFileValid(metaBackupPath));
+        return results;
+    }
+
     /** Delete the old meta files, if any present in the metaFileDirectory */
     void cleanupOldMetaFiles();
 }
@@ -62,6 +62,9 @@ public class MetaFileInfo {
 
     private List<String> backupIdentifier;
 
+    // Remote path of the meta file this meta file is a delta of. Null for a full meta file.
+    private String baseMeta;
+
     public MetaFileInfo(String appName, String region, String rack, List<String> backupIdentifier) {
         this.appName = appName;
         this.region = region;
@@ -89,6 +92,14 @@ public class MetaFileInfo {
         return backupIdentifier;
     }
 
+    public String getBaseMeta() {
+        return baseMeta;
+    }
+
+    public void setBaseMeta(String baseMeta) {
+        this.baseMeta = baseMeta;
+    }
+
     @Override
     public String toString() {
         return GsonJsonSerializer.getGson().toJson(this);
@@ -19,6 +19,8 @@ package com.netflix.priam.backupv2;
 import com.google.gson.stream.JsonReader;
 import com.netflix.priam.utils.DateUtil;
 import com.netflix.priam.utils.GsonJsonSerializer;
+import java.io.BufferedInputStream;
+import java.io.FileInputStream;
 import java.io.FileNotFoundException;
 import java.io.FileReader;
 import java.io.IOException;
@@ -57,6 +59,12 @@ public abstract class MetaFileReader {
 
         // Read the meta file.
         logger.info("Trying to read the meta file: {}", metaFilePath);
+        if (BinaryMetaFile.isBinaryMetaFile(metaFilePath)) {
+            readBinaryMeta(metaFilePath);
+            logger.info("Finished reading the binary meta file: {}", metaFilePath);
+            return;
+        }
+
         JsonReader jsonReader = new JsonReader(new FileReader(metaFilePath.toFile()));
         jsonReader.beginObject();
         while (jsonReader.hasNext()) {
@@ -79,6 +87,45 @@ public abstract class MetaFileReader {
         logger.info("Finished reading the meta file: {}", metaFilePath);
     }
 
+    /**
+     * Reads only the {@link MetaFileInfo} of the local meta file as denoted by metaFilePath. The
+     * rest of the meta file is not parsed.
+     *
+     * @param metaFilePath local file path for the meta file.
+     * @return the info of the meta file.
+     * @throws IOException if not enough permissions or file is not valid format.
+     */
+    public static MetaFileInfo readMetaFileInfo(Path metaFilePath) throws IOException {
+        if (BinaryMetaFile.isBinaryMetaFile(metaFilePath)) {
+            try (BinaryMetaFileReader reader =
+                    new BinaryMetaFileReader(
+                            new BufferedInputStream(new FileInputStream(metaFilePath.toFile())))) {
+                return reader.readMetaFileInfo();
+            }
+        }
+
+        try (JsonReader jsonReader = new JsonReader(new FileReader(metaFilePath.toFile()))) {
+            jsonReader.beginObject();
+            while (jsonReader.hasNext()) {
+                if (MetaFileInfo.META_FILE_INFO.equals(jsonReader.nextName()))
+                    return GsonJsonSerializer.getGson().fromJson(jsonReader, MetaFileInfo.class);
+                jsonReader.skipValue();
+            }
+        }
+        throw new IOException("No meta file info found in: " + metaFilePath);
+    }
+
+    private void readBinaryMeta(Path metaFilePath) throws IOException {
+        try (BinaryMetaFileReader reader =
+                new BinaryMetaFileReader(
+                        new BufferedInputStream(new FileInputStream(metaFilePath.toFile())))) {
+            metaFileInfo = reader.readMetaFileInfo();
+            ColumnFamilyResult columnFamilyResult;
+            while ((columnFamilyResult = reader.readColumnFamilyResult()) != null)
+                process(columnFamilyResult);
+        }
+    }
+
     /**
      * Process the columnfamily result obtained after reading meta file.
      *
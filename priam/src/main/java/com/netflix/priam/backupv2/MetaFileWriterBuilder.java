@@ -16,22 +16,31 @@
  */
 package com.netflix.priam.backupv2;
 
+import com.google.common.collect.HashBasedTable;
 import com.google.common.collect.ImmutableCollection;
 import com.google.common.collect.ImmutableMultimap;
 import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.ImmutableSortedSet;
+import com.google.common.collect.Table;
 import com.google.gson.stream.JsonWriter;
 import com.netflix.priam.backup.AbstractBackupPath;
 import com.netflix.priam.backup.IBackupFileSystem;
 import com.netflix.priam.backup.IFileSystemContext;
+import com.netflix.priam.config.IBackupRestoreConfig;
 import com.netflix.priam.config.IConfiguration;
 import com.netflix.priam.identity.InstanceIdentity;
+import java.io.BufferedOutputStream;
+import java.io.FileOutputStream;
 import java.io.FileWriter;
 import java.io.IOException;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.time.Instant;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 import java.util.stream.Collectors;
 import javax.inject.Inject;
 import javax.inject.Named;
@@ -44,8 +53,9 @@ import org.slf4j.LoggerFactory;
  * that were there on the file system. This will write the meta.json file as a JSON blob. NOTE: We
  * want to ensure that it is done via streaming JSON write to ensure we do not consume memory to
  * load all these objects in memory. With multi-tenant clusters or LCS enabled on large number of
- * CF's it is easy to have 1000's of SSTables (thus 1000's of SSTable components) across CF's.
- * Created by aagrawal on 6/12/18.
+ * CF's it is easy to have 1000's of SSTables (thus 1000's of SSTable components) across CF's. When
+ * {@link IBackupRestoreConfig#enableBinaryMetaFile()} is set, the same content is streamed in the
+ * compact format of {@link BinaryMetaFileWriter} instead. Created by aagrawal on 6/12/18.
  */
 public class MetaFileWriterBuilder {
     private final MetaFileWriter metaFileWriter;
@@ -62,9 +72,15 @@ public class MetaFileWriterBuilder {
 
     public interface StartStep {
         DataStep startMetaFileGeneration(Instant snapshotInstant) throws IOException;
+
+        DataStep startDeltaMetaFileGeneration(
+                Instant snapshotInstant, String baseMeta, Collection<String> baseFiles)
+                throws IOException;
     }
 
     public interface DataStep {
+        DataStep resolveUploadedFiles(ImmutableSortedSet<String> remotePaths);
+
         ColumnFamilyResult addColumnfamilyResult(
                 String keyspace,
                 String columnFamily,
@@ -88,13 +104,22 @@ public class MetaFileWriterBuilder {
 
         private final MetaFileInfo metaFileInfo;
         private final IMetaProxy metaProxy;
+        private final IBackupRestoreConfig backupRestoreConfig;
         private JsonWriter jsonWriter;
+        private BinaryMetaFileWriter binaryWriter;
         private Instant snapshotInstant;
         private Path metaFilePath;
+        private ImmutableSet<String> uploadedFiles;
+        // Files of the base meta file not yet seen, by keyspace and column family. Null for a
+        // full meta file.
+        private Table<String, String, Set<String>> baseFiles;
+        private int addedFiles;
+        private int removedFiles;
 
         @Inject
         public MetaFileWriter(
                 IConfiguration configuration,
+                IBackupRestoreConfig backupRestoreConfig,
                 InstanceIdentity instanceIdentity,
                 Provider<AbstractBackupPath> pathFactory,
                 IFileSystemContext backupFileSystemCtx,
@@ -102,6 +127,7 @@ public class MetaFileWriterBuilder {
             this.pathFactory = pathFactory;
             this.backupFileSystem = backupFileSystemCtx.getFileStrategy(configuration);
             this.metaProxy = metaProxy;
+            this.backupRestoreConfig = backupRestoreConfig;
             List<String> backupIdentifier = new ArrayList<>();
             backupIdentifier.add(instanceIdentity.getInstance().getToken());
             metaFileInfo =
@@ -118,8 +144,44 @@ public class MetaFileWriterBuilder {
          * @throws IOException if unable to write to meta file (permissions, disk full etc)
          */
         public DataStep startMetaFileGeneration(Instant snapshotInstant) throws IOException {
+            this.baseFiles = null;
+            return startMetaFileGeneration(snapshotInstant, null);
+        }
+
+        /**
+         * Start the generation of a delta meta file. It will only contain the files which are not
+         * in the base meta file and the files of the base meta file which are not there anymore.
+         *
+         * @param snapshotInstant time of the snapshot.
+         * @param baseMeta remote path of the meta file this is a delta of.
+         * @param baseFiles remote paths of all the files in the snapshot of the base meta file.
+         * @throws IOException if unable to write to meta file (permissions, disk full etc)
+         */
+        public DataStep startDeltaMetaFileGeneration(
+                Instant snapshotInstant, String baseMeta, Collection<String> baseFiles)
+                throws IOException {
+            this.baseFiles = HashBasedTable.create();
+            for (String baseFile : baseFiles) {
+                AbstractBackupPath path = pathFactory.get();
+                path.parseRemote(baseFile);
+                Set<String> files = this.baseFiles.get(path.getKeyspace(), path.getColumnFamily());
+                if (files == null) {
+                    files = new HashSet<>();
+                    this.baseFiles.put(path.getKeyspace(), path.getColumnFamily(), files);
+                }
+                files.add(baseFile);
+            }
+            return startMetaFileGeneration(snapshotInstant, baseMeta);
+        }
+
+        private DataStep startMetaFileGeneration(Instant snapshotInstant, String baseMeta)
+                throws IOException {
             // Compute meta file name.
             this.snapshotInstant = snapshotInstant;
+            this.uploadedFiles = null;
+            this.addedFiles = 0;
+            this.removedFiles = 0;
+            metaFileInfo.setBaseMeta(baseMeta);
             String fileName = MetaFileInfo.getMetaFileName(snapshotInstant);
             metaFilePath = Paths.get(metaProxy.getLocalMetaFileDirectory().toString(), fileName);
             Path tempMetaFilePath =
@@ -127,6 +189,17 @@ public class MetaFileWriterBuilder {
 
             logger.info("Starting to write a new meta file: {}", metaFilePath);
 
+            jsonWriter = null;
+            binaryWriter = null;
+            if (backupRestoreConfig.enableBinaryMetaFile()) {
+                binaryWriter =
+                        new BinaryMetaFileWriter(
+                                new BufferedOutputStream(
+                                        new FileOutputStream(tempMetaFilePath.toFile())));
+                binaryWriter.writeMetaFileInfo(metaFileInfo);
+                return this;
+            }
+
             jsonWriter = new JsonWriter(new FileWriter(tempMetaFilePath.toFile()));
             jsonWriter.beginObject();
             jsonWriter.name(MetaFileInfo.META_FILE_INFO);
@@ -136,6 +209,23 @@ public class MetaFileWriterBuilder {
             return this;
         }
 
+        /**
+         * Resolve in bulk which of the given remote paths are already present on the backup file
+         * system, using {@link IBackupFileSystem#getExistingObjects(ImmutableSortedSet)}.
+         * Components added afterwards are marked uploaded by a lookup in the result instead of an
+         * existence check on the remote file system per component.
+         *
+         * @param remotePaths remote paths of all the components which will be added to this meta.
+         */
+        public DataStep resolveUploadedFiles(ImmutableSortedSet<String> remotePaths) {
+            this.uploadedFiles = backupFileSystem.getExistingObjects(remotePaths);
+            logger.info(
+                    "{} of {} files in the snapshot are already on the remote file system",
+                    uploadedFiles.size(),
+                    remotePaths.size());
+            return this;
+        }
+
         /**
          * Add {@link ColumnFamilyResult} after it has been processed so it can be streamed to
          * meta.json. Streaming write to meta.json is required so we don't get Priam OOM.
@@ -148,11 +238,16 @@ public class MetaFileWriterBuilder {
                 ImmutableMultimap<String, AbstractBackupPath> sstables)
                 throws IOException {
 
-            if (jsonWriter == null)
+            if (jsonWriter == null && binaryWriter == null)
                 throw new NullPointerException(
                         "addColumnfamilyResult: Json Writer in MetaFileWriter is null. This should not happen!");
             ColumnFamilyResult result = toColumnFamilyResult(keyspace, columnFamily, sstables);
-            jsonWriter.jsonValue(result.toString());
+            if (baseFiles == null) {
+                write(result);
+            } else {
+                ColumnFamilyResult delta = toDeltaResult(result);
+                if (!delta.getSstables().isEmpty() || delta.getRemovedFiles() != null) write(delta);
+            }
             return result;
         }
 
@@ -163,13 +258,34 @@ public class MetaFileWriterBuilder {
          * @throws IOException if unable to write to file or if JSON is not valid
          */
         public MetaFileWriterBuilder.UploadStep endMetaFileGeneration() throws IOException {
-            if (jsonWriter == null)
+            if (jsonWriter == null && binaryWriter == null)
                 throw new NullPointerException(
                         "endMetaFileGeneration: Json Writer in MetaFileWriter is null. This should not happen!");
 
-            jsonWriter.endArray();
-            jsonWriter.endObject();
-            jsonWriter.close();
+            if (baseFiles != null) {
+                // Whatever is left are column families which are not in the snapshot anymore.
+                for (Table.Cell<String, String, Set<String>> cell : baseFiles.cellSet()) {
+                    ColumnFamilyResult delta =
+                            new ColumnFamilyResult(cell.getRowKey(), cell.getColumnKey());
+                    delta.setRemovedFiles(cell.getValue());
+                    removedFiles += cell.getValue().size();
+                    write(delta);
+                }
+                baseFiles = null;
+                logger.info(
+                        "Delta meta file of {} has {} files added and {} files removed",
+                        metaFileInfo.getBaseMeta(),
+                        addedFiles,
+                        removedFiles);
+            }
+
+            if (binaryWriter != null) {
+                binaryWriter.close();
+            } else {
+                jsonWriter.endArray();
+                jsonWriter.endObject();
+                jsonWriter.close();
+            }
 
             Path tempMetaFilePath =
                     Paths.get(
@@ -211,6 +327,39 @@ public class MetaFileWriterBuilder {
             return abstractBackupPath.getRemotePath();
         }
 
+        private void write(ColumnFamilyResult result) throws IOException {
+            if (binaryWriter != null) binaryWriter.writeColumnFamilyResult(result);
+            else jsonWriter.jsonValue(result.toString());
+        }
+
+        private ColumnFamilyResult toDeltaResult(ColumnFamilyResult result) {
+            Set<String> removed =
+                    baseFiles.remove(result.getKeyspaceName(), result.getColumnfamilyName());
+            if (removed == null) removed = new HashSet<>();
+            ColumnFamilyResult delta =
+                    new ColumnFamilyResult(result.getKeyspaceName(), result.getColumnfamilyName());
+            for (ColumnFamilyResult.SSTableResult sstable : result.getSstables()) {
+                // Files also in the base meta file are unchanged. Whatever remains of the base
+                // meta file once all the files are seen has been removed.
+                ImmutableSet.Builder<FileUploadResult> added = ImmutableSet.builder();
+                for (FileUploadResult component : sstable.getSstableComponents())
+                    if (!removed.remove(component.getBackupPath())) added.add(component);
+                ImmutableSet<FileUploadResult> addedComponents = added.build();
+                if (addedComponents.isEmpty()) continue;
+                ColumnFamilyResult.SSTableResult deltaSSTable =
+                        new ColumnFamilyResult.SSTableResult();
+                deltaSSTable.setPrefix(sstable.getPrefix());
+                deltaSSTable.setSstableComponents(addedComponents);
+                delta.addSstable(deltaSSTable);
+                addedFiles += addedComponents.size();
+            }
+            if (!removed.isEmpty()) {
+                delta.setRemovedFiles(removed);
+                removedFiles += removed.size();
+            }
+            return delta;
+        }
+
         private ColumnFamilyResult toColumnFamilyResult(
                 String keyspace,
                 String columnFamily,
@@ -238,8 +387,11 @@ public class MetaFileWriterBuilder {
         private FileUploadResult toFileUploadResult(AbstractBackupPath path) {
             FileUploadResult fileUploadResult = new FileUploadResult(path);
             try {
-                Path backupPath = Paths.get(fileUploadResult.getBackupPath());
-                fileUploadResult.setUploaded(backupFileSystem.checkObjectExists(backupPath));
+                String backupPath = fileUploadResult.getBackupPath();
+                fileUploadResult.setUploaded(
+                        uploadedFiles != null
+                                ? uploadedFiles.contains(backupPath)
+                                : backupFileSystem.checkObjectExists(Paths.get(backupPath)));
             } catch (Exception e) {
                 logger.error("Error checking if file exists. Ignoring as it is not fatal.", e);
             }
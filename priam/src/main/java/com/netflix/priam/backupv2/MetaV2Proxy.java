@@ -17,15 +17,21 @@
 
 package com.netflix.priam.backupv2;
 
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSortedSet;
+import com.google.common.collect.Lists;
 import com.netflix.priam.backup.*;
+import com.netflix.priam.config.IBackupRestoreConfig;
 import com.netflix.priam.config.IConfiguration;
 import com.netflix.priam.utils.DateUtil;
+import com.netflix.priam.utils.FingerprintSet;
 import java.io.File;
 import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.*;
+import java.util.function.Consumer;
 import javax.inject.Inject;
 import javax.inject.Provider;
 import org.apache.commons.collections4.iterators.FilterIterator;
@@ -43,14 +49,23 @@ public class MetaV2Proxy implements IMetaProxy {
     private final Path metaFileDirectory;
     private final IBackupFileSystem fs;
     private final Provider<AbstractBackupPath> abstractBackupPathProvider;
+    private final BackupCatalog backupCatalog;
+    private final IBackupRestoreConfig backupRestoreConfig;
+    private final VerifiedFiles verifiedFiles;
 
     @Inject
     public MetaV2Proxy(
             IConfiguration configuration,
             IFileSystemContext backupFileSystemCtx,
-            Provider<AbstractBackupPath> abstractBackupPathProvider) {
+            Provider<AbstractBackupPath> abstractBackupPathProvider,
+            BackupCatalog backupCatalog,
+            IBackupRestoreConfig backupRestoreConfig,
+            VerifiedFiles verifiedFiles) {
         fs = backupFileSystemCtx.getFileStrategy(configuration);
         this.abstractBackupPathProvider = abstractBackupPathProvider;
+        this.backupCatalog = backupCatalog;
+        this.backupRestoreConfig = backupRestoreConfig;
+        this.verifiedFiles = verifiedFiles;
         metaFileDirectory = Paths.get(configuration.getDataFileLocation());
     }
 
@@ -90,29 +105,18 @@ public class MetaV2Proxy implements IMetaProxy {
                 incrementalPrefix,
                 marker,
                 dateRange);
-        Iterator<String> iterator = fs.listFileSystem(incrementalPrefix, null, marker);
-        Iterator<AbstractBackupPath> transformIterator =
-                new TransformIterator<>(
-                        iterator,
-                        s -> {
-                            AbstractBackupPath path = abstractBackupPathProvider.get();
-                            path.parseRemote(s);
-                            return path;
-                        });
-
-        return new FilterIterator<>(
-                transformIterator,
-                abstractBackupPath ->
-                        (abstractBackupPath.getLastModified().isAfter(dateRange.getStartTime())
-                                        && abstractBackupPath
-                                                .getLastModified()
-                                                .isBefore(dateRange.getEndTime()))
-                                || abstractBackupPath
-                                        .getLastModified()
-                                        .equals(dateRange.getStartTime())
-                                || abstractBackupPath
-                                        .getLastModified()
-                                        .equals(dateRange.getEndTime()));
+        Iterator<String> iterator = listIncrementals(incrementalPrefix, marker, dateRange);
+        long startTime = dateRange.getStartTime().toEpochMilli();
+        long endTime = dateRange.getEndTime().toEpochMilli();
+        // Only the files in range become full backup paths, when they are downloaded.
+        Iterator<RemoteKey> inRange =
+                new FilterIterator<>(
+                        new TransformIterator<>(iterator, RemoteKey::parse),
+                        remoteKey ->
+                                remoteKey.getLastModifiedMillis() >= startTime
+                                        && remoteKey.getLastModifiedMillis() <= endTime);
+        return new TransformIterator<>(
+                inRange, remoteKey -> remoteKey.toBackupPath(abstractBackupPathProvider));
     }
 
     @Override
@@ -125,17 +129,14 @@ public class MetaV2Proxy implements IMetaProxy {
                 prefix,
                 marker,
                 dateRange);
-        Iterator<String> iterator = fs.listFileSystem(prefix, null, marker);
+        Iterator<String> iterator = list(prefix, marker);
 
         while (iterator.hasNext()) {
-            AbstractBackupPath abstractBackupPath = abstractBackupPathProvider.get();
-            abstractBackupPath.parseRemote(iterator.next());
-            logger.debug("Meta file found: {}", abstractBackupPath);
-            if (abstractBackupPath.getLastModified().toEpochMilli()
-                            >= dateRange.getStartTime().toEpochMilli()
-                    && abstractBackupPath.getLastModified().toEpochMilli()
-                            <= dateRange.getEndTime().toEpochMilli()) {
-                metas.add(abstractBackupPath);
+            RemoteKey remoteKey = RemoteKey.parse(iterator.next());
+            logger.debug("Meta file found: {}", remoteKey);
+            if (remoteKey.getLastModifiedMillis() >= dateRange.getStartTime().toEpochMilli()
+                    && remoteKey.getLastModifiedMillis() <= dateRange.getEndTime().toEpochMilli()) {
+                metas.add(remoteKey.toBackupPath(abstractBackupPathProvider));
             }
         }
 
@@ -149,6 +150,36 @@ public class MetaV2Proxy implements IMetaProxy {
         return metas;
     }
 
+    /**
+     * List the incremental files of the date range. Unless the backup catalog is synced, the range
+     * is split in shards by the leading digits of the last modified time in the remote paths, the
+     * same way as the backup TTL does, and the shards are listed concurrently.
+     */
+    private Iterator<String> listIncrementals(
+            String prefix, String marker, DateUtil.DateRange dateRange) {
+        int shards = backupRestoreConfig.getBackupListingShards();
+        if (shards < 2 || dateRange.getEndTime() == null || backupCatalog.isSynced(prefix))
+            return list(prefix, marker);
+        List<BackupTTLTask.Partition> partitions =
+                BackupTTLTask.getPartitions(
+                        dateRange.getStartTime().toEpochMilli() - 1,
+                        dateRange.getEndTime().toEpochMilli(),
+                        shards);
+        if (partitions.size() < 2) return list(prefix, marker);
+        String sstPrefix = getMatch(null, AbstractBackupPath.BackupFileType.SST_V2);
+        List<String> prefixes = new ArrayList<>(partitions.size());
+        for (BackupTTLTask.Partition partition : partitions)
+            prefixes.add(sstPrefix + AbstractBackupPath.PATH_SEP + partition.prefix);
+        logger.info("Listing incremental files in {} shards", prefixes.size());
+        return fs.listFileSystem(prefixes, marker);
+    }
+
+    /** List the remote file system, using the backup catalog instead if it is synced. */
+    private Iterator<String> list(String prefix, String marker) {
+        if (backupCatalog.isSynced(prefix)) return backupCatalog.list(prefix, marker);
+        return fs.listFileSystem(prefix, null, marker);
+    }
+
     @Override
     public Path downloadMetaFile(AbstractBackupPath meta) throws BackupRestoreException {
         fs.downloadFile(meta, "" /* suffix */, 10 /* retries */);
@@ -179,25 +210,160 @@ public class MetaV2Proxy implements IMetaProxy {
 
     @Override
     public List<String> getSSTFilesFromMeta(Path localMetaPath) throws Exception {
-        MetaFileBackupWalker metaFileBackupWalker = new MetaFileBackupWalker();
-        metaFileBackupWalker.readMeta(localMetaPath);
-        return metaFileBackupWalker.backupRemotePaths;
+        return new ArrayList<>(resolveMeta(localMetaPath).getFiles());
+    }
+
+    @Override
+    public ResolvedMeta resolveMeta(Path localMetaPath) throws IOException, BackupRestoreException {
+        Set<String> files = new LinkedHashSet<>();
+        ImmutableList<String> baseMetaFiles = resolveMeta(localMetaPath, files::add, files::remove);
+        return new ResolvedMeta(baseMetaFiles, ImmutableList.copyOf(files));
+    }
+
+    @Override
+    public ImmutableList<String> resolveMeta(AbstractBackupPath meta, FingerprintSet files)
+            throws Exception {
+        // The catalog keeps the content of the meta file anyway, so it is resolved through it.
+        if (backupCatalog.isEnabled()) return IMetaProxy.super.resolveMeta(meta, files);
+        Path localMetaPath = downloadMetaFile(meta);
+        try {
+            return resolveMeta(localMetaPath, files::add, files::remove);
+        } finally {
+            FileUtils.deleteQuietly(localMetaPath.toFile());
+        }
+    }
+
+    /**
+     * Resolve the meta file, passing the remote paths of the sstable components to the consumers as
+     * the chain of meta files is applied.
+     *
+     * @return remote paths of the base meta files used, nearest first.
+     */
+    private ImmutableList<String> resolveMeta(
+            Path localMetaPath, Consumer<String> addFile, Consumer<String> removeFile)
+            throws IOException, BackupRestoreException {
+        // Walk the chain down to the full meta file, downloading the base meta files on the way.
+        // The walk stops early at a base meta file already resolved in the backup catalog.
+        List<String> baseMetaFiles = new ArrayList<>();
+        List<Path> localBaseMetaFiles = new ArrayList<>();
+        MetaFileBackupWalker metaFileBackupWalker = new MetaFileBackupWalker(addFile, removeFile);
+        try {
+            String baseMeta = MetaFileReader.readMetaFileInfo(localMetaPath).getBaseMeta();
+            while (baseMeta != null) {
+                Optional<ResolvedMeta> catalogedMeta = backupCatalog.getMeta(baseMeta);
+                if (catalogedMeta.isPresent()) {
+                    baseMetaFiles.add(baseMeta);
+                    baseMetaFiles.addAll(catalogedMeta.get().getBaseMetaFiles());
+                    catalogedMeta.get().getFiles().forEach(addFile);
+                    break;
+                }
+                if (baseMetaFiles.contains(baseMeta))
+                    throw new IOException("Cycle in the chain of meta files at: " + baseMeta);
+                AbstractBackupPath baseMetaPath = abstractBackupPathProvider.get();
+                baseMetaPath.parseRemote(baseMeta);
+                Path localBaseMeta = downloadMetaFile(baseMetaPath);
+                if (localBaseMeta.equals(localMetaPath))
+                    throw new IOException("Meta file is its own base: " + baseMeta);
+                baseMetaFiles.add(baseMeta);
+                localBaseMetaFiles.add(localBaseMeta);
+                baseMeta = MetaFileReader.readMetaFileInfo(localBaseMeta).getBaseMeta();
+            }
+            if (!baseMetaFiles.isEmpty())
+                logger.info(
+                        "Resolving delta meta file: {} using {} base meta files",
+                        localMetaPath,
+                        baseMetaFiles.size());
+
+            // Apply the chain starting from the full meta file.
+            for (Path localBaseMeta : Lists.reverse(localBaseMetaFiles))
+                metaFileBackupWalker.readMeta(localBaseMeta);
+            metaFileBackupWalker.readMeta(localMetaPath);
+            return ImmutableList.copyOf(baseMetaFiles);
+        } finally {
+            localBaseMetaFiles.forEach(path -> FileUtils.deleteQuietly(path.toFile()));
+        }
+    }
+
+    @Override
+    public ResolvedMeta resolveMeta(AbstractBackupPath meta) throws Exception {
+        Optional<ResolvedMeta> catalogedMeta = backupCatalog.getMeta(meta.getRemotePath());
+        if (catalogedMeta.isPresent()) return catalogedMeta.get();
+        ResolvedMeta resolvedMeta = IMetaProxy.super.resolveMeta(meta);
+        backupCatalog.recordMeta(meta.getRemotePath(), resolvedMeta);
+        return resolvedMeta;
     }
 
     @Override
     public BackupVerificationResult isMetaFileValid(AbstractBackupPath metaBackupPath) {
-        MetaFileBackupValidator metaFileBackupValidator = new MetaFileBackupValidator();
-        BackupVerificationResult result = metaFileBackupValidator.verificationResult;
-        result.remotePath = metaBackupPath.getRemotePath();
-        result.snapshotInstant = metaBackupPath.getLastModified();
+        return isMetaFileValid(Collections.singletonList(metaBackupPath)).get(0);
+    }
+
+    @Override
+    public List<BackupVerificationResult> isMetaFileValid(
+            List<AbstractBackupPath> metaBackupPaths) {
+        List<BackupVerificationResult> results = new ArrayList<>(metaBackupPaths.size());
+        // Files of the last verified snapshot are not checked again, unless a full pass is due.
+        Optional<FingerprintSet> verified = verifiedFiles.getVerifiedFiles();
+        // Meta files are resolved one at a time. As they mostly overlap, the outcome of every
+        // remote check is kept so the files they share are checked once.
+        Map<String, Boolean> checkedFiles = new HashMap<>();
+        BackupVerificationResult latestValid = null;
+        ImmutableList<String> latestValidFiles = null;
+        for (AbstractBackupPath metaBackupPath : metaBackupPaths) {
+            BackupVerificationResult result = new BackupVerificationResult();
+            result.remotePath = metaBackupPath.getRemotePath();
+            result.snapshotInstant = metaBackupPath.getLastModified();
+            results.add(result);
+            ResolvedMeta resolvedMeta = resolveForVerification(metaBackupPath, result);
+            if (resolvedMeta == null) continue;
+            checkFiles(resolvedMeta.getFiles(), verified, checkedFiles);
+            for (String backupPath : resolvedMeta.getFiles()) {
+                if ((verified.isPresent() && verified.get().contains(backupPath))
+                        || checkedFiles.getOrDefault(backupPath, false)) {
+                    result.filesMatched++;
+                } else {
+                    result.filesInMetaOnly.add(backupPath);
+                }
+            }
+            result.valid = (result.filesInMetaOnly.isEmpty());
+            if (result.valid
+                    && result.snapshotInstant != null
+                    && (latestValid == null
+                            || result.snapshotInstant.isAfter(latestValid.snapshotInstant))) {
+                latestValid = result;
+                latestValidFiles = resolvedMeta.getFiles();
+            }
+        }
+        logger.info(
+                "Checked {} files on the remote file system. Full pass: {}",
+                checkedFiles.size(),
+                !verified.isPresent());
+        if (latestValid != null)
+            verifiedFiles.update(
+                    latestValid.remotePath,
+                    latestValid.snapshotInstant,
+                    latestValidFiles,
+                    !verified.isPresent());
+        return results;
+    }
+
+    /** @return the content of the meta file or null if it cannot be read. */
+    private ResolvedMeta resolveForVerification(
+            AbstractBackupPath metaBackupPath, BackupVerificationResult result) {
+        Optional<ResolvedMeta> catalogedMeta = backupCatalog.getMeta(result.remotePath);
+        if (catalogedMeta.isPresent()) {
+            result.manifestAvailable = true;
+            return catalogedMeta.get();
+        }
 
         Path metaFile = null;
         try {
             metaFile = downloadMetaFile(metaBackupPath);
             result.manifestAvailable = true;
 
-            metaFileBackupValidator.readMeta(metaFile);
-            result.valid = (result.filesInMetaOnly.isEmpty());
+            ResolvedMeta resolvedMeta = resolveMeta(metaFile);
+            backupCatalog.recordMeta(result.remotePath, resolvedMeta);
+            return resolvedMeta;
         } catch (FileNotFoundException fne) {
             logger.error(fne.getLocalizedMessage());
         } catch (IOException ioe) {
@@ -209,36 +375,56 @@ public class MetaV2Proxy implements IMetaProxy {
         } finally {
             if (metaFile != null) FileUtils.deleteQuietly(metaFile.toFile());
         }
-        return result;
+        return null;
     }
 
-    private class MetaFileBackupValidator extends MetaFileReader {
-        private BackupVerificationResult verificationResult = new BackupVerificationResult();
-
-        @Override
-        public void process(ColumnFamilyResult columnfamilyResult) {
-            for (ColumnFamilyResult.SSTableResult ssTableResult :
-                    columnfamilyResult.getSstables()) {
-                for (FileUploadResult fileUploadResult : ssTableResult.getSstableComponents()) {
-                    if (fs.checkObjectExists(Paths.get(fileUploadResult.getBackupPath()))) {
-                        verificationResult.filesMatched++;
-                    } else {
-                        verificationResult.filesInMetaOnly.add(fileUploadResult.getBackupPath());
-                    }
-                }
-            }
+    /**
+     * Checks which of the files of a meta file are on the remote file system, unless they were
+     * verified with the last snapshot or checked for an earlier meta file. The backup catalog is
+     * not taken as proof, as it does not know about objects deleted outside of Priam.
+     */
+    private void checkFiles(
+            List<String> files,
+            Optional<FingerprintSet> verified,
+            Map<String, Boolean> checkedFiles) {
+        ImmutableSortedSet.Builder<String> builder = ImmutableSortedSet.naturalOrder();
+        for (String backupPath : files)
+            if (!(verified.isPresent() && verified.get().contains(backupPath))
+                    && !checkedFiles.containsKey(backupPath)) builder.add(backupPath);
+        ImmutableSortedSet<String> remotePaths = builder.build();
+        if (remotePaths.isEmpty()) return;
+        if (backupRestoreConfig.enableListingBackupVerification()) {
+            // Merge-join of the sorted files with a listing of the key ranges they span.
+            Set<String> existingFiles = fs.getExistingObjects(remotePaths);
+            for (String backupPath : remotePaths)
+                checkedFiles.put(backupPath, existingFiles.contains(backupPath));
+            return;
         }
+        for (String backupPath : remotePaths)
+            checkedFiles.put(backupPath, fs.checkObjectExists(Paths.get(backupPath)));
     }
 
-    private class MetaFileBackupWalker extends MetaFileReader {
-        private List<String> backupRemotePaths = new ArrayList<>();
+    /**
+     * Passes on the remote paths of the sstable components. Reading a delta meta file after its
+     * base meta files applies the changes it records.
+     */
+    private static class MetaFileBackupWalker extends MetaFileReader {
+        private final Consumer<String> addFile;
+        private final Consumer<String> removeFile;
+
+        MetaFileBackupWalker(Consumer<String> addFile, Consumer<String> removeFile) {
+            this.addFile = addFile;
+            this.removeFile = removeFile;
+        }
 
         @Override
         public void process(ColumnFamilyResult columnfamilyResult) {
+            if (columnfamilyResult.getRemovedFiles() != null)
+                columnfamilyResult.getRemovedFiles().forEach(removeFile);
             for (ColumnFamilyResult.SSTableResult ssTableResult :
                     columnfamilyResult.getSstables()) {
                 for (FileUploadResult fileUploadResult : ssTableResult.getSstableComponents()) {
-                    backupRemotePaths.add(fileUploadResult.getBackupPath());
+                    addFile.accept(fileUploadResult.getBackupPath());
                 }
             }
         }
@@ -0,0 +1,46 @@
+/*
+ * Copyright 2020 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.netflix.priam.backupv2;
+
+import com.google.common.collect.ImmutableList;
+
+/**
+ * The content of a snapshot as obtained from a meta file. For a delta meta file, this is the result
+ * of applying the delta over the chain of base meta files it depends on.
+ */
+public class ResolvedMeta {
+    private final ImmutableList<String> baseMetaFiles;
+    private final ImmutableList<String> files;
+
+    public ResolvedMeta(ImmutableList<String> baseMetaFiles, ImmutableList<String> files) {
+        this.baseMetaFiles = baseMetaFiles;
+        this.files = files;
+    }
+
+    /**
+     * Remote paths of the meta files the meta file depends on, nearest first. The last one is
+     * always a full meta file. Empty for a full meta file.
+     */
+    public ImmutableList<String> getBaseMetaFiles() {
+        return baseMetaFiles;
+    }
+
+    /** Remote paths of all the sstable components in the snapshot. */
+    public ImmutableList<String> getFiles() {
+        return files;
+    }
+}
@@ -18,18 +18,26 @@ package com.netflix.priam.backupv2;
 
 import com.google.common.annotations.VisibleForTesting;
 import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.ImmutableSetMultimap;
+import com.google.common.collect.ImmutableSortedSet;
 import com.google.common.util.concurrent.FutureCallback;
 import com.google.common.util.concurrent.Futures;
 import com.google.common.util.concurrent.ListenableFuture;
 import com.google.common.util.concurrent.MoreExecutors;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import com.netflix.priam.backup.*;
 import com.netflix.priam.config.IBackupRestoreConfig;
 import com.netflix.priam.config.IConfiguration;
 import com.netflix.priam.connection.CassandraOperations;
 import com.netflix.priam.health.CassandraMonitor;
 import com.netflix.priam.identity.InstanceIdentity;
+import com.netflix.priam.identity.token.ITokenRetriever;
 import com.netflix.priam.scheduler.CronTimer;
+import com.netflix.priam.scheduler.MaintenanceCoordinator;
+import com.netflix.priam.scheduler.MaintenanceCoordinator.Priority;
+import com.netflix.priam.scheduler.MaintenanceCoordinator.Resource;
+import com.netflix.priam.scheduler.NamedThreadPoolExecutor;
 import com.netflix.priam.scheduler.TaskTimer;
 import com.netflix.priam.utils.DateUtil;
 import java.io.File;
@@ -46,12 +54,17 @@ import java.time.temporal.ChronoUnit;
 import java.util.*;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReentrantLock;
 import javax.inject.Inject;
 import javax.inject.Named;
 import javax.inject.Singleton;
 import org.apache.commons.io.FileUtils;
+import org.apache.commons.lang3.math.Fraction;
 import org.quartz.CronExpression;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -86,14 +99,21 @@ public class SnapshotMetaTask extends AbstractBackup {
     private final CassandraOperations cassandraOperations;
     private String snapshotName = null;
     private static final Lock lock = new ReentrantLock();
+    private static final ImmutableMap<Resource, Integer> DEMAND =
+            ImmutableMap.of(Resource.DISK, 50, Resource.NETWORK, 75, Resource.CPU, 25);
     private final IBackupStatusMgr snapshotStatusMgr;
     private final InstanceIdentity instanceIdentity;
     private final ExecutorService threadPool;
+    private final ScheduledExecutorService uploadScheduler;
     private final IConfiguration config;
     private final Clock clock;
     private final IBackupRestoreConfig backupRestoreConfig;
     private final BackupVerification backupVerification;
     private final BackupHelper backupHelper;
+    private final BackupCatalog backupCatalog;
+    private final IBackupFileSystem fs;
+    private final MaintenanceCoordinator maintenanceCoordinator;
+    private final ITokenRetriever tokenRetriever;
 
     private enum MetaStep {
         META_GENERATION,
@@ -101,6 +121,12 @@ public class SnapshotMetaTask extends AbstractBackup {
     }
 
     private MetaStep metaStep = MetaStep.META_GENERATION;
+    private Instant uploadTarget;
+    // Whether the snapshots in progress at startup were marked failed.
+    private boolean interruptedSnapshotsFailed;
+    // Uploads enqueued by the last call to uploadFiles.
+    private final List<ListenableFuture<AbstractBackupPath>> uploads = new ArrayList<>();
+    private final List<File> columnFamilyDirectories = new ArrayList<>();
 
     @Inject
     public SnapshotMetaTask(
@@ -113,7 +139,11 @@ public class SnapshotMetaTask extends AbstractBackup {
             CassandraOperations cassandraOperations,
             Clock clock,
             IBackupRestoreConfig backupRestoreConfig,
-            BackupVerification backupVerification) {
+            BackupVerification backupVerification,
+            BackupCatalog backupCatalog,
+            IFileSystemContext backupFileSystemCtx,
+            MaintenanceCoordinator maintenanceCoordinator,
+            ITokenRetriever tokenRetriever) {
         super(config);
         this.config = config;
         this.backupHelper = backupHelper;
@@ -123,12 +153,22 @@ public class SnapshotMetaTask extends AbstractBackup {
         this.clock = clock;
         this.backupRestoreConfig = backupRestoreConfig;
         this.backupVerification = backupVerification;
+        this.backupCatalog = backupCatalog;
+        this.fs = backupFileSystemCtx.getFileStrategy(config);
+        this.maintenanceCoordinator = maintenanceCoordinator;
+        this.tokenRetriever = tokenRetriever;
         backupRestoreUtil =
                 new BackupRestoreUtil(
                         config.getSnapshotIncludeCFList(), config.getSnapshotExcludeCFList());
         this.metaFileWriter = metaFileWriter;
         this.metaProxy = metaProxy;
         this.threadPool = Executors.newSingleThreadExecutor();
+        this.uploadScheduler =
+                Executors.newSingleThreadScheduledExecutor(
+                        new ThreadFactoryBuilder()
+                                .setDaemon(true)
+                                .setNameFormat("SnapshotUpload-%d")
+                                .build());
     }
 
     /**
@@ -167,24 +207,68 @@ public class SnapshotMetaTask extends AbstractBackup {
         return SNAPSHOT_PREFIX + DateUtil.formatInstant(DateUtil.yyyyMMddHHmm, snapshotInstant);
     }
 
+    /**
+     * Mark failed the snapshots left in progress by a restart of Priam. The upload of a snapshot
+     * waiting for its window is scheduled in memory only, so it is lost with the process. The files
+     * left on disk are uploaded by {@link #uploadFiles()}, and the next run takes a new snapshot.
+     * Only the first call does so, later ones come from a change of configuration.
+     */
+    public void failInterruptedSnapshots() {
+        lock.lock();
+        try {
+            if (interruptedSnapshotsFailed) return;
+            interruptedSnapshotsFailed = true;
+            List<BackupMetadata> interrupted = new ArrayList<>();
+            for (List<BackupMetadata> metadataList :
+                    snapshotStatusMgr.getAllSnapshotStatus().values()) {
+                if (metadataList == null) continue;
+                for (BackupMetadata backupMetadata : metadataList)
+                    if (backupMetadata.getBackupVersion() == BackupVersion.SNAPSHOT_META_SERVICE
+                            && backupMetadata.getStatus() == Status.STARTED)
+                        interrupted.add(backupMetadata);
+            }
+            for (BackupMetadata backupMetadata : interrupted) {
+                logger.warn("Snapshot interrupted by a restart: {}", backupMetadata);
+                snapshotStatusMgr.failed(backupMetadata);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
     /**
      * Enqueue all the files for upload in the snapshot directory. This will only enqueue the files
      * and do not give guarantee as when they will be uploaded. It will only try to upload files
      * which matches backup version 2.0 naming conventions.
      */
     public void uploadFiles() {
+        uploadFiles(getUploadTarget(clock.instant()));
+    }
+
+    /**
+     * Enqueue all the files for upload in the snapshot directory, see {@link #uploadFiles()}.
+     *
+     * @param target time by which the files should be uploaded.
+     * @return future which completes once all the enqueued files are uploaded or failed.
+     */
+    ListenableFuture<?> uploadFiles(Instant target) {
+        uploads.clear();
         try {
             // enqueue all the old snapshot folder for upload/delete, if any, as we don't want
             // our disk to be filled by them.
             metaStep = MetaStep.UPLOAD_FILES;
+            uploadTarget = target;
             initiateBackup(SNAPSHOT_FOLDER, backupRestoreUtil);
-            logger.info("Finished queuing the files for upload");
+            logger.info("Finished queuing {} files for upload", uploads.size());
         } catch (Exception e) {
             logger.error("Error while trying to upload all the files", e);
             e.printStackTrace();
         } finally {
             metaStep = MetaStep.META_GENERATION;
         }
+        ListenableFuture<?> uploaded = Futures.successfulAsList(uploads);
+        uploads.clear();
+        return uploaded;
     }
 
     @Override
@@ -201,6 +285,16 @@ public class SnapshotMetaTask extends AbstractBackup {
             throw new Exception("SnapshotMetaService already running");
         }
 
+        // Snapshots have a deadline, other maintenance waits for them.
+        MaintenanceCoordinator.Lease lease;
+        try {
+            lease = acquireLease();
+        } catch (Exception e) {
+            lock.unlock();
+            throw e;
+        }
+        ListenableFuture<?> uploaded = Futures.immediateFuture(null);
+
         // Save start snapshot status
         Instant snapshotInstant = clock.instant();
         String token = instanceIdentity.getInstance().getToken();
@@ -228,29 +322,221 @@ public class SnapshotMetaTask extends AbstractBackup {
 
             // Process the snapshot and upload the meta file.
             MetaFileWriterBuilder.UploadStep uploadStep = processSnapshot(snapshotInstant);
+            String remoteMetaFilePath = uploadStep.getRemoteMetaFilePath();
             backupMetadata.setSnapshotLocation(
-                    config.getBackupPrefix() + File.separator + uploadStep.getRemoteMetaFilePath());
+                    config.getBackupPrefix() + File.separator + remoteMetaFilePath);
+            Optional<ResolvedMeta> resolvedMeta = resolveForCatalog(uploadStep.getMetaFilePath());
             uploadStep.uploadMetaFile();
+            resolvedMeta.ifPresent(meta -> backupCatalog.recordMeta(remoteMetaFilePath, meta));
 
             logger.info("Finished processing snapshot meta service");
 
-            // Upload all the files from snapshot
-            uploadFiles();
-            snapshotStatusMgr.finish(backupMetadata);
+            // Upload all the files from snapshot, in the turn of this node.
+            UploadWindowPlanner.UploadWindow window = planUploadWindow(snapshotInstant);
+            Duration wait = Duration.between(clock.instant(), window.getStart());
+            if (wait.isNegative() || wait.isZero()) {
+                uploaded = uploadSnapshot(window.getTarget(), backupMetadata);
+            } else {
+                logger.info("Uploading the snapshot in {}, starting in {}", window, wait);
+                // Let other maintenance use the resources meanwhile.
+                if (lease != null) lease.close();
+                lease = null;
+                uploadScheduler.schedule(
+                        () -> uploadSnapshotLater(window.getTarget(), backupMetadata),
+                        wait.toMillis(),
+                        TimeUnit.MILLISECONDS);
+            }
         } catch (Exception e) {
             logger.error("Error while executing SnapshotMetaService", e);
             snapshotStatusMgr.failed(backupMetadata);
         } finally {
+            // The files are uploaded in the background, the resources are in use until they are.
+            if (lease != null) uploaded.addListener(lease::close, MoreExecutors.directExecutor());
+            lock.unlock();
+        }
+    }
+
+    private ListenableFuture<?> uploadSnapshot(Instant target, BackupMetadata backupMetadata) {
+        ListenableFuture<?> uploaded = uploadFiles(target);
+        syncBackupCatalog();
+        snapshotStatusMgr.finish(backupMetadata);
+        return uploaded;
+    }
+
+    /**
+     * Upload the files of a snapshot whose upload window started after its meta file was uploaded.
+     * The snapshot stays in progress until then.
+     */
+    private void uploadSnapshotLater(Instant target, BackupMetadata backupMetadata) {
+        lock.lock();
+        MaintenanceCoordinator.Lease lease = null;
+        ListenableFuture<?> uploaded = Futures.immediateFuture(null);
+        try {
+            lease = acquireLease();
+            uploaded = uploadSnapshot(target, backupMetadata);
+        } catch (Exception e) {
+            logger.error("Error while uploading the snapshot {}", backupMetadata, e);
+            snapshotStatusMgr.failed(backupMetadata);
+        } finally {
+            if (lease != null) uploaded.addListener(lease::close, MoreExecutors.directExecutor());
             lock.unlock();
         }
     }
 
+    /**
+     * Lease the resources for the snapshot. Unlike other maintenance, a snapshot which cannot get
+     * them in time still runs, as it has a deadline to meet.
+     *
+     * @return the lease, or null if the resources were not available in time.
+     */
+    private MaintenanceCoordinator.Lease acquireLease() throws InterruptedException {
+        try {
+            return maintenanceCoordinator.acquire(JOBNAME, Priority.HIGH, DEMAND);
+        } catch (TimeoutException e) {
+            logger.warn("Running SnapshotMetaService without a lease: {}", e.getMessage());
+            return null;
+        }
+    }
+
     MetaFileWriterBuilder.UploadStep processSnapshot(Instant snapshotInstant) throws Exception {
-        dataStep = metaFileWriter.newBuilder().startMetaFileGeneration(snapshotInstant);
+        dataStep = startMetaFileGeneration(snapshotInstant);
+        columnFamilyDirectories.clear();
         initiateBackup(SNAPSHOT_FOLDER, backupRestoreUtil);
+        // The directories are found in no particular order.
+        Collections.sort(columnFamilyDirectories);
+
+        // Find out which files are already on the remote file system in bulk. Checking each file
+        // one by one is the dominant cost on nodes with a large number of SSTables. Only the remote
+        // paths are kept, so the files of the whole snapshot are not on heap at once.
+        ImmutableSortedSet.Builder<String> remotePaths = ImmutableSortedSet.naturalOrder();
+        forEachColumnFamily(
+                columnFamilyDirectories,
+                this::getRemotePaths,
+                (backupDir, paths) -> remotePaths.addAll(paths));
+        dataStep.resolveUploadedFiles(remotePaths.build());
+
+        // The files are resolved again, a column family at a time, to write the meta file.
+        forEachColumnFamily(
+                columnFamilyDirectories,
+                this::getSnapshotFiles,
+                (backupDir, snapshotFiles) ->
+                        generateMetaFile(
+                                        getKeyspace(backupDir),
+                                        getColumnFamily(backupDir),
+                                        backupDir,
+                                        snapshotFiles)
+                                .ifPresent(this::deleteUploadedFiles));
         return dataStep.endMetaFileGeneration();
     }
 
+    /** Resolve the content of the meta file before it is uploaded, to record it in the catalog. */
+    private Optional<ResolvedMeta> resolveForCatalog(Path metaFilePath) {
+        if (!backupCatalog.isEnabled()) return Optional.empty();
+        try {
+            return Optional.of(metaProxy.resolveMeta(metaFilePath));
+        } catch (Exception e) {
+            logger.error("Unable to read meta file {} for the backup catalog", metaFilePath, e);
+            return Optional.empty();
+        }
+    }
+
+    /** Sync the catalog with the remote file system if it was never synced or is due a sync. */
+    private void syncBackupCatalog() {
+        if (!backupCatalog.needsSync()) return;
+        try {
+            backupCatalog.sync(fs, metaProxy);
+        } catch (Exception e) {
+            logger.error("Error while syncing the backup catalog", e);
+        }
+    }
+
+    /**
+     * Start a delta meta file relative to the latest meta file on the remote file system, unless
+     * that would make the chain of delta meta files longer than {@link
+     * IBackupRestoreConfig#getSnapshotMetaMaxDeltas()}. A full meta file is written otherwise, or
+     * if the latest meta file cannot be read for any reason.
+     */
+    private MetaFileWriterBuilder.DataStep startMetaFileGeneration(Instant snapshotInstant)
+            throws IOException {
+        MetaFileWriterBuilder.StartStep startStep = metaFileWriter.newBuilder();
+        int maxDeltas = backupRestoreConfig.getSnapshotMetaMaxDeltas();
+        if (maxDeltas <= 0) return startStep.startMetaFileGeneration(snapshotInstant);
+
+        List<AbstractBackupPath> metas =
+                metaProxy.findMetaFiles(
+                        new DateUtil.DateRange(
+                                snapshotInstant.minus(
+                                        config.getBackupRetentionDays(), ChronoUnit.DAYS),
+                                snapshotInstant));
+        if (metas.isEmpty()) return startStep.startMetaFileGeneration(snapshotInstant);
+
+        AbstractBackupPath latestMeta = metas.get(0);
+        try {
+            ResolvedMeta resolvedMeta = metaProxy.resolveMeta(latestMeta);
+            if (resolvedMeta.getBaseMetaFiles().size() < maxDeltas)
+                return startStep.startDeltaMetaFileGeneration(
+                        snapshotInstant, latestMeta.getRemotePath(), resolvedMeta.getFiles());
+            logger.info(
+                    "Latest meta file {} ends a chain of {} meta files. Writing a full meta file.",
+                    latestMeta.getRemotePath(),
+                    resolvedMeta.getBaseMetaFiles().size() + 1);
+        } catch (Exception e) {
+            logger.error(
+                    "Unable to read the latest meta file {}. Writing a full meta file.",
+                    latestMeta.getRemotePath(),
+                    e);
+        }
+        return startStep.startMetaFileGeneration(snapshotInstant);
+    }
+
+    /**
+     * Get the files in the snapshot of each column family. Column families are scanned
+     * concurrently, and each directory is scanned only once for both the meta file and the
+     * resolution of the files already uploaded.
+     */
+    private interface ColumnFamilyReader<T> {
+        T read(File backupDir) throws Exception;
+    }
+
+    private interface ColumnFamilyConsumer<T> {
+        void accept(File backupDir, T result) throws Exception;
+    }
+
+    /**
+     * Read the column families in parallel and pass on what is read in the order of the column
+     * families. Only as many column families as there are threads are read ahead of the consumer.
+     */
+    private <T> void forEachColumnFamily(
+            List<File> backupDirs, ColumnFamilyReader<T> reader, ColumnFamilyConsumer<T> consumer)
+            throws Exception {
+        int threads = backupRestoreConfig.getSnapshotMetaServiceThreads();
+        ExecutorService executor = new NamedThreadPoolExecutor(threads, JOBNAME);
+        try {
+            Deque<Future<T>> pending = new ArrayDeque<>();
+            Iterator<File> toRead = backupDirs.iterator();
+            for (File backupDir : backupDirs) {
+                while (pending.size() < threads && toRead.hasNext()) {
+                    File next = toRead.next();
+                    pending.add(executor.submit(() -> reader.read(next)));
+                }
+                consumer.accept(backupDir, pending.remove().get());
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private ImmutableList<String> getRemotePaths(File backupDir) throws IOException {
+        return getSnapshotFiles(backupDir)
+                .map(
+                        files ->
+                                files.values()
+                                        .stream()
+                                        .map(AbstractBackupPath::getRemotePath)
+                                        .collect(ImmutableList.toImmutableList()))
+                .orElse(ImmutableList.of());
+    }
+
     private File getValidSnapshot(File snapshotDir, String snapshotName) {
         File[] snapshotDirectories = snapshotDir.listFiles();
         if (snapshotDirectories != null)
@@ -272,7 +558,7 @@ public class SnapshotMetaTask extends AbstractBackup {
         // (like we exhausted the wait time for upload)
         File[] snapshotDirectories = backupDir.listFiles();
         if (snapshotDirectories != null) {
-            Instant target = getUploadTarget();
+            Instant target = uploadTarget;
             for (File snapshotDirectory : snapshotDirectories) {
                 // Is it a valid SNAPSHOT_PREFIX
                 if (!snapshotDirectory.getName().startsWith(SNAPSHOT_PREFIX)
@@ -287,15 +573,19 @@ public class SnapshotMetaTask extends AbstractBackup {
                 // We do not want to wait for completion and we just want to add them to queue. This
                 // is to ensure that next run happens on time.
                 AbstractBackupPath.BackupFileType type = AbstractBackupPath.BackupFileType.SST_V2;
-                backupHelper
-                        .uploadAndDeleteAllFiles(snapshotDirectory, type, target, true)
-                        .forEach(future -> addCallback(future, snapshotDirectory));
+                for (ListenableFuture<AbstractBackupPath> future :
+                        backupHelper.uploadAndDeleteAllFiles(
+                                snapshotDirectory, type, target, true)) {
+                    addCallback(future, snapshotDirectory);
+                    uploads.add(future);
+                }
 
                 // Next, upload secondary indexes
                 type = AbstractBackupPath.BackupFileType.SECONDARY_INDEX_V2;
                 ImmutableList<ListenableFuture<AbstractBackupPath>> futures;
                 for (File subDir : getSecondaryIndexDirectories(snapshotDirectory)) {
                     futures = backupHelper.uploadAndDeleteAllFiles(subDir, type, target, true);
+                    uploads.addAll(futures);
                     if (futures.isEmpty()) {
                         deleteIfEmpty(subDir);
                     }
@@ -305,10 +595,28 @@ public class SnapshotMetaTask extends AbstractBackup {
         }
     }
 
-    private Instant getUploadTarget() {
-        Instant now = clock.instant();
+    @VisibleForTesting
+    UploadWindowPlanner.UploadWindow planUploadWindow(Instant snapshotInstant) {
+        // The deadline is the same on all the nodes, however long their meta file took.
+        Instant deadline = getUploadTarget(snapshotInstant);
+        int staggerPercent = backupRestoreConfig.getSnapshotUploadStaggerPercent();
+        if (staggerPercent <= 0)
+            return new UploadWindowPlanner.UploadWindow(clock.instant(), deadline);
+        Fraction ringPosition;
+        try {
+            ringPosition = tokenRetriever.getRingPosition();
+        } catch (Exception e) {
+            logger.warn("Unable to find the ring position, uploading the snapshot right away", e);
+            ringPosition = Fraction.ZERO;
+        }
+        // Plan from the snapshot time, which is the same on all the nodes, rather than from the
+        // end of the meta file generation, which is not.
+        return UploadWindowPlanner.plan(snapshotInstant, deadline, ringPosition, staggerPercent);
+    }
+
+    private Instant getUploadTarget(Instant from) {
         Instant target =
-                now.plus(config.getTargetMinutesToCompleteSnaphotUpload(), ChronoUnit.MINUTES);
+                from.plus(config.getTargetMinutesToCompleteSnaphotUpload(), ChronoUnit.MINUTES);
         Duration verificationSLO =
                 Duration.ofHours(backupRestoreConfig.getBackupVerificationSLOInHours());
         Instant verificationDeadline =
@@ -321,7 +629,7 @@ public class SnapshotMetaTask extends AbstractBackup {
             CronExpression snapshotCron =
                     new CronExpression(backupRestoreConfig.getSnapshotMetaServiceCronExpression());
             snapshotCron.setTimeZone(UTC);
-            Date nextSnapshotDate = snapshotCron.getNextValidTimeAfter(Date.from(now));
+            Date nextSnapshotDate = snapshotCron.getNextValidTimeAfter(Date.from(from));
             nextSnapshotTime =
                     nextSnapshotDate == null ? Instant.MAX : nextSnapshotDate.toInstant();
         } catch (ParseException e) {
@@ -345,8 +653,9 @@ public class SnapshotMetaTask extends AbstractBackup {
         String columnFamily = getColumnFamily(backupDir);
         switch (metaStep) {
             case META_GENERATION:
-                generateMetaFile(keyspace, columnFamily, backupDir)
-                        .ifPresent(this::deleteUploadedFiles);
+                // Only collect the column families here. They are processed together so that the
+                // files already uploaded can be resolved in bulk.
+                columnFamilyDirectories.add(backupDir);
                 break;
             case UPLOAD_FILES:
                 uploadAllFiles(backupDir);
@@ -357,15 +666,30 @@ public class SnapshotMetaTask extends AbstractBackup {
     }
 
     private Optional<ColumnFamilyResult> generateMetaFile(
-            final String keyspace, final String columnFamily, final File backupDir)
+            final String keyspace,
+            final String columnFamily,
+            final File backupDir,
+            final Optional<ImmutableSetMultimap<String, AbstractBackupPath>> snapshotFiles)
             throws Exception {
-        File snapshotDir = getValidSnapshot(backupDir, snapshotName);
         // Process this snapshot folder for the given columnFamily
-        if (snapshotDir == null) {
+        if (!snapshotFiles.isPresent()) {
             logger.warn("{} folder does not contain {} snapshots", backupDir, snapshotName);
             return Optional.empty();
         }
 
+        ImmutableSetMultimap<String, AbstractBackupPath> sstables = snapshotFiles.get();
+        logger.debug("Processing {} sstables from {}.{}", keyspace, columnFamily, sstables.size());
+        ColumnFamilyResult result =
+                dataStep.addColumnfamilyResult(keyspace, columnFamily, sstables);
+        logger.debug("Finished processing KS: {}, CF: {}", keyspace, columnFamily);
+        return Optional.of(result);
+    }
+
+    private Optional<ImmutableSetMultimap<String, AbstractBackupPath>> getSnapshotFiles(
+            final File backupDir) throws IOException {
+        File snapshotDir = getValidSnapshot(backupDir, snapshotName);
+        if (snapshotDir == null) return Optional.empty();
+
         logger.debug("Scanning for all SSTables in: {}", snapshotDir.getAbsolutePath());
         ImmutableSetMultimap.Builder<String, AbstractBackupPath> builder =
                 ImmutableSetMultimap.builder();
@@ -376,13 +700,7 @@ public class SnapshotMetaTask extends AbstractBackup {
             builder.putAll(
                     getSSTables(directory, AbstractBackupPath.BackupFileType.SECONDARY_INDEX_V2));
         }
-
-        ImmutableSetMultimap<String, AbstractBackupPath> sstables = builder.build();
-        logger.debug("Processing {} sstables from {}.{}", keyspace, columnFamily, sstables.size());
-        ColumnFamilyResult result =
-                dataStep.addColumnfamilyResult(keyspace, columnFamily, sstables);
-        logger.debug("Finished processing KS: {}, CF: {}", keyspace, columnFamily);
-        return Optional.of(result);
+        return Optional.of(builder.build());
     }
 
     private void deleteUploadedFiles(ColumnFamilyResult result) {
@@ -0,0 +1,84 @@
+/*
+ * Copyright 2020 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.netflix.priam.backupv2;
+
+import java.time.Duration;
+import java.time.Instant;
+import org.apache.commons.lang3.math.Fraction;
+
+/**
+ * Plans the window in which a node uploads the files of its snapshot. All the nodes take their
+ * snapshot at the same cron time, so without a plan they all upload at full speed at once and then
+ * sit idle until the next snapshot. Instead, a share of the time until the upload deadline is used
+ * to stagger the start of the uploads by the position of the node in the ring. Every node gets a
+ * window of the same length which ends no later than the deadline, and the upload rate limiter
+ * paces the files of the snapshot over it, see {@link
+ * com.netflix.priam.backup.BackupDynamicRateLimiter}. The uploads of the cluster thus overlap
+ * evenly and its egress stays flat across the window.
+ */
+final class UploadWindowPlanner {
+    static final int MAX_STAGGER_PERCENT = 90;
+
+    private UploadWindowPlanner() {}
+
+    /**
+     * @param now time at which the snapshot was taken.
+     * @param deadline time by which the snapshot should be uploaded.
+     * @param ringPosition share of the tokens in the ring which come before the token of this node,
+     *     see {@link com.netflix.priam.identity.token.ITokenRetriever#getRingPosition()}.
+     * @param staggerPercent share of the time until the deadline to spread the nodes over. Capped
+     *     at {@link #MAX_STAGGER_PERCENT} so that every node keeps some time to upload.
+     * @return the window to upload the snapshot of this node in.
+     */
+    static UploadWindow plan(
+            Instant now, Instant deadline, Fraction ringPosition, int staggerPercent) {
+        Duration window = Duration.between(now, deadline);
+        int percent = Math.min(staggerPercent, MAX_STAGGER_PERCENT);
+        if (percent <= 0 || window.isNegative() || window.isZero())
+            return new UploadWindow(now, deadline);
+        Duration stagger = window.multipliedBy(percent).dividedBy(100);
+        // The position is in [0, 1), the last node of the ring still ends before the deadline.
+        double position = Math.max(0, Math.min(ringPosition.doubleValue(), 1));
+        Instant start = now.plusMillis((long) (stagger.toMillis() * position));
+        return new UploadWindow(start, start.plus(window.minus(stagger)));
+    }
+
+    /** Time to start uploading the files of a snapshot and time by which to finish. */
+    static final class UploadWindow {
+        private final Instant start;
+        private final Instant target;
+
+        UploadWindow(Instant start, Instant target) {
+            this.start = start;
+            this.target = target;
+        }
+
+        Instant getStart() {
+            return start;
+        }
+
+        Instant getTarget() {
+            return target;
+        }
+
+        @Override
+        public String toString() {
+            return "UploadWindow{start=" + start + ", target=" + target + "}";
+        }
+    }
+}
@@ -0,0 +1,172 @@
+/*
+ * Copyright 2020 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.netflix.priam.backupv2;
+
+import com.netflix.priam.config.IBackupRestoreConfig;
+import com.netflix.priam.config.IConfiguration;
+import com.netflix.priam.utils.DateUtil;
+import com.netflix.priam.utils.FingerprintSet;
+import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.Collection;
+import java.util.Optional;
+import javax.inject.Inject;
+import javax.inject.Singleton;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Files of the last verified snapshot of this node, kept on local disk. Backup verification only
+ * checks the files of a snapshot which were not part of the last verified one, so its cost follows
+ * the new data of the node instead of its size. The remote path of a file encodes its last modified
+ * time, compression and encryption, so a file changed in any of those is checked again.
+ *
+ * <p>Every {@link IBackupRestoreConfig#getBackupVerificationFullPassIntervalInDays()} days all the
+ * files are checked again, in case objects went missing from the remote file system after they were
+ * verified. Only a fingerprint of each file is kept, see {@link FingerprintSet}.
+ */
+@Singleton
+public class VerifiedFiles {
+    private static final Logger logger = LoggerFactory.getLogger(VerifiedFiles.class);
+    static final String STATE_FILE = "backup_verification.state";
+    private static final int MAGIC = 0x50564552;
+    private static final int FORMAT_VERSION = 1;
+    private final IConfiguration configuration;
+    private final IBackupRestoreConfig backupRestoreConfig;
+
+    @Inject
+    public VerifiedFiles(IConfiguration configuration, IBackupRestoreConfig backupRestoreConfig) {
+        this.configuration = configuration;
+        this.backupRestoreConfig = backupRestoreConfig;
+    }
+
+    /**
+     * @return the files of the last verified snapshot, or empty if all the files need to be
+     *     checked, as there is no verified snapshot yet or a full pass is due.
+     */
+    public synchronized Optional<FingerprintSet> getVerifiedFiles() {
+        int interval = backupRestoreConfig.getBackupVerificationFullPassIntervalInDays();
+        if (interval < 1) return Optional.empty();
+        State state = read(false);
+        if (state == null
+                || !state.fullPassTime
+                        .plus(interval, ChronoUnit.DAYS)
+                        .isAfter(DateUtil.getInstant())) return Optional.empty();
+        state = read(true);
+        return state == null ? Optional.empty() : Optional.of(state.files);
+    }
+
+    /** @return remote path of the meta file of the last verified snapshot, if any. */
+    public synchronized Optional<String> getMetaFile() {
+        State state = read(false);
+        return state == null ? Optional.empty() : Optional.of(state.metaFile);
+    }
+
+    /**
+     * Record the files of a snapshot whose files were all found on the remote file system. A
+     * snapshot older than the recorded one is ignored, unless all its files were checked.
+     *
+     * @param metaFile remote path of the meta file of the snapshot.
+     * @param snapshotTime time of the snapshot.
+     * @param files remote paths of the files of the snapshot.
+     * @param fullPass true if all the files were checked, false if the files of the last verified
+     *     snapshot were skipped.
+     */
+    public synchronized void update(
+            String metaFile, Instant snapshotTime, Collection<String> files, boolean fullPass) {
+        State current = read(false);
+        if (current != null && !fullPass && !snapshotTime.isAfter(current.snapshotTime)) return;
+        State state = new State();
+        state.metaFile = metaFile;
+        state.snapshotTime = snapshotTime;
+        state.fullPassTime =
+                fullPass || current == null ? DateUtil.getInstant() : current.fullPassTime;
+        state.files = new FingerprintSet(files.size(), false);
+        files.forEach(state.files::add);
+        try {
+            write(state);
+        } catch (IOException e) {
+            // The next verification will check all the files.
+            logger.error("Unable to save the verified files of: {}", metaFile, e);
+            clear();
+        }
+    }
+
+    /** Forget the verified files, so the next verification checks all the files. */
+    public synchronized void clear() {
+        try {
+            Files.deleteIfExists(getStateFile());
+        } catch (IOException e) {
+            logger.error("Unable to delete: {}", getStateFile(), e);
+        }
+    }
+
+    private State read(boolean withFiles) {
+        Path stateFile = getStateFile();
+        if (!Files.exists(stateFile)) return null;
+        try (DataInputStream in =
+                new DataInputStream(new BufferedInputStream(Files.newInputStream(stateFile)))) {
+            if (in.readInt() != MAGIC || in.readInt() != FORMAT_VERSION)
+                throw new IOException("Unknown format");
+            State state = new State();
+            state.metaFile = in.readUTF();
+            state.snapshotTime = Instant.ofEpochMilli(in.readLong());
+            state.fullPassTime = Instant.ofEpochMilli(in.readLong());
+            if (withFiles) state.files = FingerprintSet.readFrom(in, false);
+            return state;
+        } catch (IOException e) {
+            logger.warn("Unable to read the verified files: {}. Starting over.", stateFile, e);
+            return null;
+        }
+    }
+
+    private void write(State state) throws IOException {
+        Path stateFile = getStateFile();
+        Path tmpFile = stateFile.resolveSibling(stateFile.getFileName() + ".tmp");
+        try (DataOutputStream out =
+                new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tmpFile)))) {
+            out.writeInt(MAGIC);
+            out.writeInt(FORMAT_VERSION);
+            out.writeUTF(state.metaFile);
+            out.writeLong(state.snapshotTime.toEpochMilli());
+            out.writeLong(state.fullPassTime.toEpochMilli());
+            state.files.writeTo(out);
+        }
+        Files.move(
+                tmpFile,
+                stateFile,
+                StandardCopyOption.REPLACE_EXISTING,
+                StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private Path getStateFile() {
+        return Paths.get(configuration.getDataFileLocation(), STATE_FILE);
+    }
+
+    private static class State {
+        private String metaFile;
+        private Instant snapshotTime;
+        private Instant fullPassTime;
+        private FingerprintSet files;
+    }
+}
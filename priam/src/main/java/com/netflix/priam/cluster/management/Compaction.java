@@ -13,11 +13,14 @@
  */
 package com.netflix.priam.cluster.management;
 
+import com.google.common.collect.ImmutableMap;
 import com.netflix.priam.backup.BackupRestoreUtil;
 import com.netflix.priam.config.IConfiguration;
 import com.netflix.priam.connection.CassandraOperations;
 import com.netflix.priam.merics.CompactionMeasurement;
 import com.netflix.priam.scheduler.CronTimer;
+import com.netflix.priam.scheduler.MaintenanceCoordinator;
+import com.netflix.priam.scheduler.MaintenanceCoordinator.Resource;
 import com.netflix.priam.scheduler.TaskTimer;
 import java.util.HashMap;
 import java.util.List;
@@ -39,8 +42,14 @@ public class Compaction extends IClusterManagement<String> {
     public Compaction(
             IConfiguration config,
             CassandraOperations cassandraOperations,
-            CompactionMeasurement compactionMeasurement) {
-        super(config, Task.COMPACTION, compactionMeasurement);
+            CompactionMeasurement compactionMeasurement,
+            MaintenanceCoordinator maintenanceCoordinator) {
+        super(
+                config,
+                Task.COMPACTION,
+                compactionMeasurement,
+                maintenanceCoordinator,
+                ImmutableMap.of(Resource.DISK, 75, Resource.CPU, 50));
         this.config = config;
         this.cassandraOperations = cassandraOperations;
     }
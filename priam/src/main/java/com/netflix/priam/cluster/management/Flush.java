@@ -13,10 +13,13 @@
  */
 package com.netflix.priam.cluster.management;
 
+import com.google.common.collect.ImmutableMap;
 import com.netflix.priam.config.IConfiguration;
 import com.netflix.priam.connection.CassandraOperations;
 import com.netflix.priam.merics.NodeToolFlushMeasurement;
 import com.netflix.priam.scheduler.CronTimer;
+import com.netflix.priam.scheduler.MaintenanceCoordinator;
+import com.netflix.priam.scheduler.MaintenanceCoordinator.Resource;
 import com.netflix.priam.scheduler.TaskTimer;
 import java.io.IOException;
 import java.util.ArrayList;
@@ -40,8 +43,14 @@ public class Flush extends IClusterManagement<String> {
     public Flush(
             IConfiguration config,
             CassandraOperations cassandraOperations,
-            NodeToolFlushMeasurement nodeToolFlushMeasurement) {
-        super(config, Task.FLUSH, nodeToolFlushMeasurement);
+            NodeToolFlushMeasurement nodeToolFlushMeasurement,
+            MaintenanceCoordinator maintenanceCoordinator) {
+        super(
+                config,
+                Task.FLUSH,
+                nodeToolFlushMeasurement,
+                maintenanceCoordinator,
+                ImmutableMap.of(Resource.DISK, 25));
         this.config = config;
         this.cassandraOperations = cassandraOperations;
     }
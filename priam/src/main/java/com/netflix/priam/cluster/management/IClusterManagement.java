@@ -16,7 +16,11 @@ package com.netflix.priam.cluster.management;
 import com.netflix.priam.config.IConfiguration;
 import com.netflix.priam.health.CassandraMonitor;
 import com.netflix.priam.merics.IMeasurement;
+import com.netflix.priam.scheduler.MaintenanceCoordinator;
+import com.netflix.priam.scheduler.MaintenanceCoordinator.Priority;
+import com.netflix.priam.scheduler.MaintenanceCoordinator.Resource;
 import com.netflix.priam.scheduler.Task;
+import java.util.Map;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReentrantLock;
 import org.slf4j.Logger;
@@ -33,12 +37,21 @@ public abstract class IClusterManagement<T> extends Task {
     private static final Logger logger = LoggerFactory.getLogger(IClusterManagement.class);
     private final Task taskType;
     private final IMeasurement measurement;
+    private final MaintenanceCoordinator maintenanceCoordinator;
+    private final Map<Resource, Integer> demand;
     private static final Lock lock = new ReentrantLock();
 
-    protected IClusterManagement(IConfiguration config, Task taskType, IMeasurement measurement) {
+    protected IClusterManagement(
+            IConfiguration config,
+            Task taskType,
+            IMeasurement measurement,
+            MaintenanceCoordinator maintenanceCoordinator,
+            Map<Resource, Integer> demand) {
         super(config);
         this.taskType = taskType;
         this.measurement = measurement;
+        this.maintenanceCoordinator = maintenanceCoordinator;
+        this.demand = demand;
     }
 
     @Override
@@ -53,7 +66,9 @@ public abstract class IClusterManagement<T> extends Task {
             throw new Exception("Operation already running");
         }
 
+        MaintenanceCoordinator.Lease lease = null;
         try {
+            lease = maintenanceCoordinator.acquire(taskType.name(), Priority.NORMAL, demand);
             String result = runTask();
             measurement.incrementSuccess();
             logger.info(
@@ -68,6 +83,7 @@ public abstract class IClusterManagement<T> extends Task {
             measurement.incrementFailure();
             throw new Exception("Exception during execution of operation: " + taskType.name(), e);
         } finally {
+            if (lease != null) lease.close();
             lock.unlock();
         }
     }
@@ -0,0 +1,11 @@
+package com.netflix.priam.config;
+
+/** How backups read the files they upload. */
+public enum BackupReadMode {
+    /** Through the page cache, like any other read. */
+    BUFFERED,
+    /** Through the page cache, dropping the pages read once they are uploaded. */
+    FADVISE,
+    /** Bypassing the page cache with O_DIRECT, where supported. Falls back to FADVISE. */
+    DIRECT
+}
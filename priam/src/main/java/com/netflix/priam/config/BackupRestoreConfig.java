@@ -34,6 +34,41 @@ public class BackupRestoreConfig implements IBackupRestoreConfig {
         return config.get("priam.snapshot.meta.cron", "-1");
     }
 
+    @Override
+    public int getSnapshotMetaServiceThreads() {
+        return config.get("priam.snapshot.meta.threads", 4);
+    }
+
+    @Override
+    public boolean enableBinaryMetaFile() {
+        return config.get("priam.snapshot.meta.binary", false);
+    }
+
+    @Override
+    public int getSnapshotMetaMaxDeltas() {
+        return config.get("priam.snapshot.meta.maxDeltas", 0);
+    }
+
+    @Override
+    public int getSnapshotUploadStaggerPercent() {
+        return config.get("priam.snapshot.upload.stagger.percent", 0);
+    }
+
+    @Override
+    public boolean enableBackupCatalog() {
+        return config.get("priam.backup.catalog.enabled", false);
+    }
+
+    @Override
+    public int getBackupCatalogSyncIntervalInDays() {
+        return config.get("priam.backup.catalog.syncIntervalInDays", 7);
+    }
+
+    @Override
+    public int getBackupCatalogMaxObjects() {
+        return config.get("priam.backup.catalog.maxObjects", 2_000_000);
+    }
+
     @Override
     public boolean enableV2Backups() {
         return config.get("priam.enableV2Backups", false);
@@ -49,6 +84,26 @@ public class BackupRestoreConfig implements IBackupRestoreConfig {
         return config.get("priam.backupTTLMonitorPeriodInSec", 21600);
     }
 
+    @Override
+    public boolean enableBackupTTLOffHeap() {
+        return config.get("priam.backupTTLOffHeap", false);
+    }
+
+    @Override
+    public int getBackupTTLThreads() {
+        return config.get("priam.backupTTLThreads", 4);
+    }
+
+    @Override
+    public int getBackupListingShards() {
+        return config.get("priam.backupListingShards", 8);
+    }
+
+    @Override
+    public int getBackupTTLDeleteRate() {
+        return config.get("priam.backupTTLDeleteRate", -1);
+    }
+
     @Override
     public int getBackupVerificationSLOInHours() {
         return config.get("priam.backupVerificationSLOInHours", 24);
@@ -59,6 +114,26 @@ public class BackupRestoreConfig implements IBackupRestoreConfig {
         return config.get("priam.backupVerificationCronExpression", "0 30 0/1 1/1 * ? *");
     }
 
+    @Override
+    public boolean enableListingBackupVerification() {
+        return config.get("priam.backupVerification.listing", true);
+    }
+
+    @Override
+    public int getBackupVerificationFullPassIntervalInDays() {
+        return config.get("priam.backupVerification.fullPassIntervalInDays", 7);
+    }
+
+    @Override
+    public String getBackupContentVerificationCronExpression() {
+        return config.get("priam.backupContentVerification.cron", "-1");
+    }
+
+    @Override
+    public long getBackupContentVerificationBytesPerDay() {
+        return config.get("priam.backupContentVerification.bytesPerDay", 10L * 1024 * 1024 * 1024);
+    }
+
     @Override
     public String getBackupNotifyComponentIncludeList() {
         return config.get("priam.backupNotifyComponentIncludeList", StringUtils.EMPTY);
@@ -36,6 +36,89 @@ public interface IBackupRestoreConfig {
         return "-1";
     }
 
+    /**
+     * Number of threads used by the snapshot meta service to scan the snapshot directories of the
+     * column families concurrently while generating the meta file.
+     *
+     * @return no. of threads to scan column families. Default: 4.
+     */
+    default int getSnapshotMetaServiceThreads() {
+        return 4;
+    }
+
+    /**
+     * Write meta files in the compact binary format instead of JSON. Binary meta files keep the
+     * same name as JSON ones and both formats can always be read, so this can be turned on and off
+     * at any time. Note that a Priam which does not know the binary format will not be able to
+     * restore from or validate backups having binary meta files.
+     *
+     * @return true if meta files should be written in binary format. Default: false.
+     */
+    default boolean enableBinaryMetaFile() {
+        return false;
+    }
+
+    /**
+     * Maximum number of delta meta files in a chain. A delta meta file only records the files added
+     * and removed since the previous meta file, so its size depends on the churn and not on the
+     * total number of files. Once the chain reaches this length a full meta file is written. Note
+     * that a Priam which does not know delta meta files will treat them as full ones.
+     *
+     * @return max no. of delta meta files after a full meta file. Default: 0, i.e. always write a
+     *     full meta file.
+     */
+    default int getSnapshotMetaMaxDeltas() {
+        return 0;
+    }
+
+    /**
+     * Share of the snapshot upload window used to stagger the start of the uploads across the ring.
+     * Every node gets a window of the same length, which starts later the further its token is in
+     * the ring, so that the backup traffic of the cluster stays flat instead of peaking at the cron
+     * time of the snapshot. The window still ends before the upload target of the snapshot, see
+     * {@link IConfiguration#getTargetMinutesToCompleteSnaphotUpload()}.
+     *
+     * @return percentage of the upload window to spread the nodes over, between 0 and 90. Default:
+     *     0, i.e. all nodes start uploading right away.
+     */
+    default int getSnapshotUploadStaggerPercent() {
+        return 0;
+    }
+
+    /**
+     * Keep a local catalog of the backup objects and meta files of this node, maintained as files
+     * are uploaded and deleted. Listing of the remote file system and downloading of meta files is
+     * then avoided by restore, backup verification and TTL. Note that the catalog is stored under
+     * {@link IConfiguration#getBackupCatalogLocation()} and is dropped when this is turned off.
+     *
+     * @return true if the backup catalog should be used. Default: false.
+     */
+    default boolean enableBackupCatalog() {
+        return false;
+    }
+
+    /**
+     * Interval at which the backup catalog is synced with the remote file system. This catches any
+     * change to the remote file system not made by this Priam, e.g. objects expired by a lifecycle
+     * policy on the bucket. The catalog is not used if the last sync is older than this.
+     *
+     * @return no. of days between syncs of the backup catalog. Default: 7.
+     */
+    default int getBackupCatalogSyncIntervalInDays() {
+        return 7;
+    }
+
+    /**
+     * Maximum number of objects in the backup catalog. The catalog keeps an index of all the
+     * objects of the node on heap, a few hundred bytes each. A catalog which would outgrow this is
+     * dropped until Priam restarts, and the remote file system is used instead.
+     *
+     * @return max no. of objects in the backup catalog. Default: 2,000,000.
+     */
+    default int getBackupCatalogMaxObjects() {
+        return 2_000_000;
+    }
+
     /**
      * Enable the backup version 2.0 in new format. This will start uploads of "incremental" backups
      * in new format. This is to be used for migration from backup version 1.0.
@@ -65,6 +148,48 @@ public interface IBackupRestoreConfig {
         return 21600;
     }
 
+    /**
+     * Keep the set of files referenced by the retained snapshot in direct memory instead of the
+     * heap while the service which does TTL of the backups is running. The set only keeps a 16 byte
+     * fingerprint of every file.
+     *
+     * @return true if the set of files should be kept off-heap. Default: false.
+     */
+    default boolean enableBackupTTLOffHeap() {
+        return false;
+    }
+
+    /**
+     * Number of threads used by the service which does TTL of the backups. The remote file system
+     * is listed in that many partitions concurrently and as many delete requests are in flight.
+     *
+     * @return no. of threads for the backup TTL service. Default: 4.
+     */
+    default int getBackupTTLThreads() {
+        return 4;
+    }
+
+    /**
+     * Number of shards a listing of incremental SST_V2 files is split in, when the backup catalog
+     * is not synced. The shards are listed concurrently and merged in order. Less than 2 lists the
+     * prefix as a whole.
+     *
+     * @return no. of shards to list incremental files in. Default: 8.
+     */
+    default int getBackupListingShards() {
+        return 8;
+    }
+
+    /**
+     * Maximum number of objects the service which does TTL of the backups deletes from the remote
+     * file system per second.
+     *
+     * @return objects deleted per second. Use -1 for no limit. Default: -1.
+     */
+    default int getBackupTTLDeleteRate() {
+        return -1;
+    }
+
     /**
      * Cron expression to be used for the service which does verification of the backups. This
      * service will run only if v2 backups are enabled.
@@ -79,6 +204,55 @@ public interface IBackupRestoreConfig {
         return "0 30 0/1 1/1 * ? *";
     }
 
+    /**
+     * Verify that the files of a backup exist on the remote file system by listing the key ranges
+     * they are in, instead of one request per file. Listing is much cheaper for snapshots with many
+     * files.
+     *
+     * @return true if backup verification should list the remote file system. Default: true.
+     */
+    default boolean enableListingBackupVerification() {
+        return true;
+    }
+
+    /**
+     * Backup verification only checks the files of a snapshot which were not in the last verified
+     * snapshot. Once in this many days, all the files are checked again in case objects went
+     * missing from the remote file system after they were verified.
+     *
+     * @return no. of days between verifications of all the files. Use 0 to check all the files
+     *     every time. Default: 7.
+     */
+    default int getBackupVerificationFullPassIntervalInDays() {
+        return 7;
+    }
+
+    /**
+     * Cron expression to be used for the service which reads back the content of backed up files to
+     * make sure they can be restored. Each run streams files of the last verified snapshot through
+     * download, decryption and decompression, within {@link
+     * #getBackupContentVerificationBytesPerDay()}.
+     *
+     * @return Backup Content Verification Service cron expression. Use "-1" to disable the service.
+     *     Default: -1.
+     * @see <a
+     *     href="http://www.quartz-scheduler.org/documentation/quartz-2.x/tutorials/crontrigger.html">quartz-scheduler</a>
+     */
+    default String getBackupContentVerificationCronExpression() {
+        return "-1";
+    }
+
+    /**
+     * The budget of the content verification service. It accrues continuously, so it is spread over
+     * the runs of the day.
+     *
+     * @return no. of bytes read from the remote file system per day to verify the content of
+     *     backups. Default: 10 GiB.
+     */
+    default long getBackupContentVerificationBytesPerDay() {
+        return 10L * 1024 * 1024 * 1024;
+    }
+
     /**
      * The default backup SLO for any cluster. This will ensure that we upload and validate a backup
      * in that SLO window. If no valid backup is found, we log ERROR message. This service will run
@@ -206,6 +206,18 @@ public interface IConfiguration {
         return null;
     }
 
+    /**
+     * The JMX connection to Cassandra is shared, and checked in the background at this interval
+     * instead of before every use. A broken connection is replaced by the check, backing off
+     * exponentially while Cassandra does not accept connections.
+     *
+     * @return interval in seconds to check the JMX connection at. Default: 10. Use 0 to check the
+     *     connection before every use instead.
+     */
+    default int getJmxHeartbeatSeconds() {
+        return 10;
+    }
+
     /** @return Enables Remote JMX connections n C* */
     default boolean enableRemoteJMX() {
         return false;
@@ -467,6 +479,17 @@ public interface IConfiguration {
         return -1;
     }
 
+    /**
+     * Number of concurrent listings used when resolving the existence of a large batch of objects
+     * on the remote file system, e.g. all the files of a snapshot while generating the meta file.
+     * The batch is split into that many contiguous key ranges and each range is listed once.
+     *
+     * @return no. of key ranges to list concurrently. Default: 4.
+     */
+    default int getRemoteFileSystemListThreads() {
+        return 4;
+    }
+
     /** @return true if Priam should local config file for tokens and seeds */
     default boolean isLocalBootstrapEnabled() {
         return false;
@@ -810,6 +833,135 @@ public interface IConfiguration {
         return false;
     }
 
+    /**
+     * Should new incremental files be detected from file system events instead of listing all the
+     * backup directories on every run? This needs about two inotify watches per column family, so
+     * fs.inotify.max_user_watches may have to be raised on nodes with many tables.
+     *
+     * @return true to watch the incremental backup directories. Default: false.
+     */
+    default boolean isIncrementalBackupWatchEnabled() {
+        return false;
+    }
+
+    /**
+     * Time to wait for more file system events before the changed incremental backup directories
+     * are uploaded, so that all the components of a flushed SSTable are uploaded together.
+     *
+     * @return coalescing window of incremental backup events in milliseconds. Default: 500.
+     */
+    default long getIncrementalBackupWatchWindowMillis() {
+        return 500;
+    }
+
+    /**
+     * Interval at which all the incremental backup directories are listed even when they are
+     * watched, in case an event was missed.
+     *
+     * @return full rescan interval of watched incremental backup directories in minutes. Default:
+     *     30.
+     */
+    default int getIncrementalBackupRescanIntervalMinutes() {
+        return 30;
+    }
+
+    /**
+     * Number of threads listing the keyspace and column family directories concurrently to find the
+     * backup and snapshot directories to upload.
+     *
+     * @return no. of threads to list the data directory. Default: 4.
+     */
+    default int getBackupTraversalThreads() {
+        return 4;
+    }
+
+    /**
+     * Bytes per second the network interfaces may transmit in total. Uploads get what client,
+     * streaming and other traffic leave under this ceiling, on top of {@link #getUploadThrottle()}.
+     *
+     * @return transmit ceiling in bytes per second, -1 to not throttle on network traffic. Default:
+     *     -1.
+     */
+    default long getBackupNetworkCeiling() {
+        return -1;
+    }
+
+    /**
+     * @return comma separated network interfaces whose traffic counts against {@link
+     *     #getBackupNetworkCeiling()}, empty for all but the loopback. Default: empty.
+     */
+    default String getBackupNetworkInterfaces() {
+        return "";
+    }
+
+    /** @return interval between samples of the network traffic. Default: 1000 ms. */
+    default int getBackupNetworkSampleMillis() {
+        return 1000;
+    }
+
+    /**
+     * Utilization of the data device above which backups read files more slowly, to leave the
+     * device to Cassandra reads.
+     *
+     * @return target in percent of the time the device is busy, -1 to not pace on utilization.
+     *     Default: -1.
+     */
+    default int getBackupDiskUtilizationTarget() {
+        return -1;
+    }
+
+    /**
+     * Average time I/O requests to the data device take above which backups read files more slowly.
+     *
+     * @return target await in milliseconds, -1 to not pace on await. Default: -1.
+     */
+    default int getBackupDiskAwaitTargetMillis() {
+        return -1;
+    }
+
+    /**
+     * @return name of the data device in /proc/diskstats, e.g. nvme0n1, empty to find the device of
+     *     {@link #getDataFileLocation()}. Default: empty.
+     */
+    default String getBackupDiskDevice() {
+        return "";
+    }
+
+    /** @return interval between samples of the data device statistics. Default: 1000 ms. */
+    default int getBackupDiskSampleMillis() {
+        return 1000;
+    }
+
+    /**
+     * Reading the files to upload through the page cache evicts the data Cassandra reads. Note that
+     * snapshot files are hard links to the live SSTables, so FADVISE also drops the pages of the
+     * SSTable Cassandra had cached; DIRECT leaves them.
+     *
+     * @return how backups read the files they upload. Default: BUFFERED.
+     */
+    default BackupReadMode getBackupReadMode() {
+        return BackupReadMode.BUFFERED;
+    }
+
+    /**
+     * Snapshot, TTL, verification, flush and compaction lease the disk, network and CPU they use
+     * from {@link com.netflix.priam.scheduler.MaintenanceCoordinator}. When this is disabled the
+     * leases are granted right away, and only show who holds what.
+     *
+     * @return true if maintenance tasks wait for the resources they need. Default: false.
+     */
+    default boolean isMaintenanceCoordinationEnabled() {
+        return false;
+    }
+
+    /**
+     * @return minutes a maintenance task waits for its lease before it gives up until its next run.
+     *     Default: 60.
+     */
+    default int getMaintenanceLeaseWaitMinutes() {
+        return 60;
+    }
+
     /**
      * Should snapshot backup be uploaded in async fashion? If this is false, then snapshot will be
      * in sync fashion.
@@ -905,6 +1057,21 @@ public interface IConfiguration {
         return getDataFileLocation() + File.separator + "backup.status";
     }
 
+    /**
+     * Whether every change of the backup status is synced to disk before the call returns. Without
+     * it a change is handed to the OS, so it survives Priam stopping but not the host crashing.
+     *
+     * @return true to fsync the backup status journal on every change. Default: true.
+     */
+    default boolean isBackupStatusFsyncEnabled() {
+        return true;
+    }
+
+    /** @return the absolute path of the directory to store the backup catalog segments on disk */
+    default String getBackupCatalogLocation() {
+        return getDataFileLocation();
+    }
+
     /** @return Decides whether to use sudo to start C* or not */
     default boolean useSudo() {
         return true;
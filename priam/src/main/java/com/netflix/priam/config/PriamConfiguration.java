@@ -155,6 +155,11 @@ public class PriamConfiguration implements IConfiguration {
         return config.get(PRIAM_PRE + ".jmx.password", "");
     }
 
+    @Override
+    public int getJmxHeartbeatSeconds() {
+        return config.get(PRIAM_PRE + ".jmx.heartbeat.seconds", 10);
+    }
+
     /** @return Enables Remote JMX connections n C* */
     @Override
     public boolean enableRemoteJMX() {
@@ -343,6 +348,11 @@ public class PriamConfiguration implements IConfiguration {
         return config.get(PRIAM_PRE + ".remoteFileSystemObjectExistThrottle", -1);
     }
 
+    @Override
+    public int getRemoteFileSystemListThreads() {
+        return config.get(PRIAM_PRE + ".remoteFileSystemListThreads", 4);
+    }
+
     @Override
     public boolean isLocalBootstrapEnabled() {
         return config.get(PRIAM_PRE + ".localbootstrap.enable", false);
@@ -638,6 +648,77 @@ public class PriamConfiguration implements IConfiguration {
         return config.get(PRIAM_PRE + ".async.incremental", false);
     }
 
+    @Override
+    public boolean isIncrementalBackupWatchEnabled() {
+        return config.get(PRIAM_PRE + ".backup.incremental.watch.enable", false);
+    }
+
+    @Override
+    public long getIncrementalBackupWatchWindowMillis() {
+        return config.get(PRIAM_PRE + ".backup.incremental.watch.window.millis", 500L);
+    }
+
+    @Override
+    public int getIncrementalBackupRescanIntervalMinutes() {
+        return config.get(PRIAM_PRE + ".backup.incremental.rescan.interval.minutes", 30);
+    }
+
+    @Override
+    public int getBackupTraversalThreads() {
+        return config.get(PRIAM_PRE + ".backup.traversal.threads", 4);
+    }
+
+    @Override
+    public long getBackupNetworkCeiling() {
+        return config.get(PRIAM_PRE + ".backup.network.ceiling", -1L);
+    }
+
+    @Override
+    public String getBackupNetworkInterfaces() {
+        return config.get(PRIAM_PRE + ".backup.network.interfaces", "");
+    }
+
+    @Override
+    public int getBackupNetworkSampleMillis() {
+        return config.get(PRIAM_PRE + ".backup.network.sample.ms", 1000);
+    }
+
+    @Override
+    public int getBackupDiskUtilizationTarget() {
+        return config.get(PRIAM_PRE + ".backup.disk.utilization.target", -1);
+    }
+
+    @Override
+    public int getBackupDiskAwaitTargetMillis() {
+        return config.get(PRIAM_PRE + ".backup.disk.await.target.ms", -1);
+    }
+
+    @Override
+    public String getBackupDiskDevice() {
+        return config.get(PRIAM_PRE + ".backup.disk.device", "");
+    }
+
+    @Override
+    public int getBackupDiskSampleMillis() {
+        return config.get(PRIAM_PRE + ".backup.disk.sample.ms", 1000);
+    }
+
+    @Override
+    public BackupReadMode getBackupReadMode() {
+        return BackupReadMode.valueOf(
+                config.get(PRIAM_PRE + ".backup.read.mode", BackupReadMode.BUFFERED.name()));
+    }
+
+    @Override
+    public boolean isMaintenanceCoordinationEnabled() {
+        return config.get(PRIAM_PRE + ".maintenance.coordination.enable", false);
+    }
+
+    @Override
+    public int getMaintenanceLeaseWaitMinutes() {
+        return config.get(PRIAM_PRE + ".maintenance.lease.wait.minutes", 60);
+    }
+
     @Override
     public boolean enableAsyncSnapshot() {
         return config.get(PRIAM_PRE + ".async.snapshot", false);
@@ -689,6 +770,16 @@ public class PriamConfiguration implements IConfiguration {
                 getDataFileLocation() + File.separator + "backup.status");
     }
 
+    @Override
+    public boolean isBackupStatusFsyncEnabled() {
+        return config.get(PRIAM_PRE + ".backup.status.fsync", true);
+    }
+
+    @Override
+    public String getBackupCatalogLocation() {
+        return config.get(PRIAM_PRE + ".backup.catalog.location", getDataFileLocation());
+    }
+
     @Override
     public boolean useSudo() {
         return config.get(PRIAM_PRE + ".cass.usesudo", true);
@@ -76,9 +76,8 @@ public class CassandraOperations implements ICassandraOperations {
     public List<String> getKeyspaces() throws Exception {
         return new RetryableCallable<List<String>>() {
             public List<String> retriableCall() throws Exception {
-                try (JMXNodeTool nodeTool = JMXNodeTool.instance(configuration)) {
-                    return nodeTool.getKeyspaces();
-                }
+                JMXNodeTool nodeTool = JMXNodeTool.instance(configuration);
+                return nodeTool.getKeyspaces();
             }
         }.call();
     }
@@ -87,19 +86,18 @@ public class CassandraOperations implements ICassandraOperations {
     public Map<String, List<String>> getColumnfamilies() throws Exception {
         return new RetryableCallable<Map<String, List<String>>>() {
             public Map<String, List<String>> retriableCall() throws Exception {
-                try (JMXNodeTool nodeTool = JMXNodeTool.instance(configuration)) {
-                    final Map<String, List<String>> columnfamilies = new HashMap<>();
-                    Iterator<Map.Entry<String, ColumnFamilyStoreMBean>> columnfamilyStoreMBean =
-                            nodeTool.getColumnFamilyStoreMBeanProxies();
-                    columnfamilyStoreMBean.forEachRemaining(
-                            entry -> {
-                                columnfamilies.putIfAbsent(entry.getKey(), new ArrayList<>());
-                                columnfamilies
-                                        .get(entry.getKey())
-                                        .add(entry.getValue().getColumnFamilyName());
-                            });
-                    return columnfamilies;
-                }
+                JMXNodeTool nodeTool = JMXNodeTool.instance(configuration);
+                final Map<String, List<String>> columnfamilies = new HashMap<>();
+                Iterator<Map.Entry<String, ColumnFamilyStoreMBean>> columnfamilyStoreMBean =
+                        nodeTool.getColumnFamilyStoreMBeanProxies();
+                columnfamilyStoreMBean.forEachRemaining(
+                        entry -> {
+                            columnfamilies.putIfAbsent(entry.getKey(), new ArrayList<>());
+                            columnfamilies
+                                    .get(entry.getKey())
+                                    .add(entry.getValue().getColumnFamilyName());
+                        });
+                return columnfamilies;
             }
         }.call();
     }
@@ -109,10 +107,9 @@ public class CassandraOperations implements ICassandraOperations {
             throws Exception {
         new RetryableCallable<Void>() {
             public Void retriableCall() throws Exception {
-                try (JMXNodeTool nodeTool = JMXNodeTool.instance(configuration)) {
-                    nodeTool.forceKeyspaceCompaction(false, keyspaceName, columnfamilies);
-                    return null;
-                }
+                JMXNodeTool nodeTool = JMXNodeTool.instance(configuration);
+                nodeTool.forceKeyspaceCompaction(false, keyspaceName, columnfamilies);
+                return null;
             }
         }.call();
     }
@@ -121,10 +118,9 @@ public class CassandraOperations implements ICassandraOperations {
     public void forceKeyspaceFlush(String keyspaceName) throws Exception {
         new RetryableCallable<Void>() {
             public Void retriableCall() throws Exception {
-                try (JMXNodeTool nodeTool = JMXNodeTool.instance(configuration)) {
-                    nodeTool.forceKeyspaceFlush(keyspaceName);
-                    return null;
-                }
+                JMXNodeTool nodeTool = JMXNodeTool.instance(configuration);
+                nodeTool.forceKeyspaceFlush(keyspaceName);
+                return null;
             }
         }.call();
     }
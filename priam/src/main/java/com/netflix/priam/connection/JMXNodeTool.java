@@ -16,6 +16,7 @@
  */
 package com.netflix.priam.connection;
 
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import com.netflix.priam.config.IConfiguration;
 import com.netflix.priam.health.CassandraMonitor;
 import com.netflix.priam.utils.BoundedExponentialRetryCallable;
@@ -29,7 +30,12 @@ import java.net.UnknownHostException;
 import java.text.DecimalFormat;
 import java.util.*;
 import java.util.Map.Entry;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
 import javax.inject.Inject;
 import javax.inject.Singleton;
 import javax.management.JMX;
@@ -50,7 +56,20 @@ import org.slf4j.LoggerFactory;
 public class JMXNodeTool extends NodeProbe implements INodeToolObservable {
     private static final Logger logger = LoggerFactory.getLogger(JMXNodeTool.class);
     private static volatile JMXNodeTool tool = null;
+    /** {@link System#nanoTime()} when the shared connection was last found healthy. */
+    private static volatile long lastVerified;
+    /** Whether the last check of the shared connection found it healthy. */
+    private static volatile boolean healthy;
+
+    private static final long MAX_RECONNECT_BACKOFF_MILLIS = TimeUnit.MINUTES.toMillis(5);
+    private static ScheduledExecutorService heartbeat;
+    private static long reconnectBackoffMillis;
+    private static long nextReconnect;
     private MBeanServerConnection mbeanServerConn = null;
+    /** The connection is shared by all callers through {@link #instance(IConfiguration)}. */
+    private volatile boolean shared;
+    /** MBean proxies over this connection. */
+    private final ConcurrentMap<String, Object> remoteBeans = new ConcurrentHashMap<>();
 
     private static final Set<INodeToolObserver> observers = new HashSet<>();
 
@@ -77,24 +96,49 @@ public class JMXNodeTool extends NodeProbe implements INodeToolObservable {
     }
 
     /**
-     * try to create if it is null.
+     * Get the shared connection, try to create it if there is none. The connection is checked in
+     * the background every {@link IConfiguration#getJmxHeartbeatSeconds()}, so it is only checked
+     * here if the heartbeat did not do so lately. A connection which broke since its last check is
+     * still handed out until the next one, for at most two heartbeats, and calls over it fail as
+     * they would had it broken right after being handed out. Callers must not close the connection,
+     * closing it is a no-op.
      *
      * @throws JMXConnectionException
      */
     public static JMXNodeTool instance(IConfiguration config) throws JMXConnectionException {
-        if (!testConnection()) tool = connect(config);
-        return tool;
+        JMXNodeTool current = tool;
+        if (current != null && isVerified(config)) return current;
+        return testConnection() ? tool : connect(config);
     }
 
+    /** Get a proxy of an MBean over the shared connection. Proxies are cached per connection. */
     public static <T> T getRemoteBean(
             Class<T> clazz, String mbeanName, IConfiguration config, boolean mxbean)
             throws IOException, MalformedObjectNameException {
-        if (mxbean)
-            return ManagementFactory.newPlatformMXBeanProxy(
-                    JMXNodeTool.instance(config).mbeanServerConn, mbeanName, clazz);
-        else
-            return JMX.newMBeanProxy(
-                    JMXNodeTool.instance(config).mbeanServerConn, new ObjectName(mbeanName), clazz);
+        JMXNodeTool nodeTool = JMXNodeTool.instance(config);
+        String key = mbeanName + "/" + clazz.getName() + "/" + mxbean;
+        Object bean = nodeTool.remoteBeans.get(key);
+        if (bean == null) {
+            if (mxbean)
+                bean =
+                        ManagementFactory.newPlatformMXBeanProxy(
+                                nodeTool.mbeanServerConn, mbeanName, clazz);
+            else
+                bean =
+                        JMX.newMBeanProxy(
+                                nodeTool.mbeanServerConn, new ObjectName(mbeanName), clazz);
+            nodeTool.remoteBeans.putIfAbsent(key, bean);
+        }
+        return clazz.cast(bean);
+    }
+
+    private static boolean isVerified(IConfiguration config) {
+        int heartbeatSeconds = config.getJmxHeartbeatSeconds();
+        // Allow for a missed heartbeat before checking the connection inline.
+        return heartbeatSeconds > 0
+                && healthy
+                && System.nanoTime() - lastVerified
+                        < TimeUnit.SECONDS.toNanos(2L * heartbeatSeconds);
     }
 
     /**
@@ -104,11 +148,14 @@ public class JMXNodeTool extends NodeProbe implements INodeToolObservable {
      * @return
      */
     private static boolean testConnection() {
+        JMXNodeTool current = tool;
         // connecting first time hence return false.
-        if (tool == null) return false;
+        if (current == null) return false;
+        // Until the check passes, callers check the connection themselves.
+        healthy = false;
 
         try {
-            MBeanServerConnection serverConn = tool.mbeanServerConn;
+            MBeanServerConnection serverConn = current.mbeanServerConn;
             if (serverConn == null) {
                 logger.info(
                         "Test connection to remove MBean server failed as there is no connection.");
@@ -122,18 +169,20 @@ public class JMXNodeTool extends NodeProbe implements INodeToolObservable {
                 return false;
             }
         } catch (Throwable ex) {
-            closeQuietly(tool);
+            closeQuietly(current);
             logger.error(
                     "Exception while checking JMX connection to C*, msg: {}",
                     ex.getLocalizedMessage());
             return false;
         }
+        lastVerified = System.nanoTime();
+        healthy = true;
         return true;
     }
 
     private static void closeQuietly(JMXNodeTool tool) {
         try {
-            tool.close();
+            tool.disconnect();
         } catch (Exception e) {
             logger.warn("failed to close jmx node tool", e);
         }
@@ -152,25 +201,10 @@ public class JMXNodeTool extends NodeProbe implements INodeToolObservable {
     public static synchronized JMXNodeTool connect(final IConfiguration config)
             throws JMXConnectionException {
         // lets make sure some other monitor didn't sneak in the recreated the connection already
-        if (!testConnection()) {
-
-            if (tool != null) {
-                try {
-                    tool.close(); // Ensure we properly close any existing (even if it's
-                    // corrupted) connection to the remote jmx agent
-                } catch (IOException e) {
-                    logger.warn(
-                            "Exception performing house cleaning -- closing current connection to jmx remote agent.  Msg: {}",
-                            e.getLocalizedMessage(),
-                            e);
-                }
-            }
-
-        } else {
+        if (testConnection()) {
             // Someone beat you and already created the connection, nothing you need to do..
             return tool;
         }
-
         return createConnection(config);
     }
 
@@ -184,63 +218,127 @@ public class JMXNodeTool extends NodeProbe implements INodeToolObservable {
             throw new JMXConnectionException(exceptionMsg);
         }
 
-        if (tool
-                != null) { // lets make sure we properly close any existing (even if it's corrupted)
-            // connection to the remote jmx agent
-            try {
-                tool.close();
-            } catch (IOException e) {
-                logger.warn(
-                        "Exception performing house cleaning -- closing current connection to jmx remote agent.  Msg: {}",
-                        e.getLocalizedMessage(),
-                        e);
-            }
-        }
+        // lets make sure we properly close any existing (even if it's corrupted) connection to the
+        // remote jmx agent
+        disconnectShared();
 
+        JMXNodeTool nodeTool;
         try {
-
-            tool =
+            nodeTool =
                     new BoundedExponentialRetryCallable<JMXNodeTool>() {
                         @Override
                         public JMXNodeTool retriableCall() throws Exception {
-                            JMXNodeTool nodetool;
-                            if ((config.getJmxUsername() == null
-                                            || config.getJmxUsername().isEmpty())
-                                    && (config.getJmxPassword() == null
-                                            || config.getJmxPassword().isEmpty())) {
-                                nodetool = new JMXNodeTool("localhost", config.getJmxPort());
-                            } else {
-                                nodetool =
-                                        new JMXNodeTool(
-                                                "localhost",
-                                                config.getJmxPort(),
-                                                config.getJmxUsername(),
-                                                config.getJmxPassword());
-                            }
-
-                            Field fields[] = NodeProbe.class.getDeclaredFields();
-                            for (Field field : fields) {
-                                if (!field.getName().equals("mbeanServerConn")) continue;
-                                field.setAccessible(true);
-                                nodetool.mbeanServerConn =
-                                        (MBeanServerConnection) field.get(nodetool);
-                            }
-
-                            return nodetool;
+                            return open(config);
                         }
                     }.call();
-
         } catch (Exception e) {
             logger.error(e.getMessage(), e);
             throw new JMXConnectionException(e.getMessage());
         }
+        connected(nodeTool, config);
+        return nodeTool;
+    }
+
+    private static JMXNodeTool open(IConfiguration config) throws Exception {
+        JMXNodeTool nodetool;
+        if ((config.getJmxUsername() == null || config.getJmxUsername().isEmpty())
+                && (config.getJmxPassword() == null || config.getJmxPassword().isEmpty())) {
+            nodetool = new JMXNodeTool("localhost", config.getJmxPort());
+        } else {
+            nodetool =
+                    new JMXNodeTool(
+                            "localhost",
+                            config.getJmxPort(),
+                            config.getJmxUsername(),
+                            config.getJmxPassword());
+        }
+
+        Field fields[] = NodeProbe.class.getDeclaredFields();
+        for (Field field : fields) {
+            if (!field.getName().equals("mbeanServerConn")) continue;
+            field.setAccessible(true);
+            nodetool.mbeanServerConn = (MBeanServerConnection) field.get(nodetool);
+        }
+        nodetool.shared = true;
+        return nodetool;
+    }
+
+    /** Make a new connection the shared one. Called with the class lock held. */
+    private static void connected(JMXNodeTool nodeTool, IConfiguration config) {
+        tool = nodeTool;
+        lastVerified = System.nanoTime();
+        healthy = true;
+        startHeartbeat(config);
 
         logger.info("Connected to remote jmx agent, will notify interested parties!");
         for (INodeToolObserver observer : observers) {
-            observer.nodeToolHasChanged(tool);
+            observer.nodeToolHasChanged(nodeTool);
         }
+    }
 
-        return tool;
+    private static void disconnectShared() {
+        JMXNodeTool current = tool;
+        if (current == null) return;
+        try {
+            current.disconnect();
+        } catch (IOException e) {
+            logger.warn(
+                    "Exception performing house cleaning -- closing current connection to jmx remote agent.  Msg: {}",
+                    e.getLocalizedMessage(),
+                    e);
+        }
+    }
+
+    private static void startHeartbeat(IConfiguration config) {
+        int heartbeatSeconds = config.getJmxHeartbeatSeconds();
+        if (heartbeat != null || heartbeatSeconds <= 0) return;
+        heartbeat =
+                Executors.newSingleThreadScheduledExecutor(
+                        new ThreadFactoryBuilder()
+                                .setNameFormat("JMXHeartbeat")
+                                .setDaemon(true)
+                                .build());
+        heartbeat.scheduleWithFixedDelay(
+                () -> beat(config), heartbeatSeconds, heartbeatSeconds, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Check the shared connection and replace it if it is broken, so callers do not have to. Failed
+     * reconnects back off exponentially. Runs on the heartbeat thread only.
+     */
+    private static void beat(IConfiguration config) {
+        try {
+            if (!CassandraMonitor.hasCassadraStarted() || testConnection()) {
+                reconnectBackoffMillis = 0;
+                return;
+            }
+            long now = System.currentTimeMillis();
+            if (now < nextReconnect) return;
+            synchronized (JMXNodeTool.class) {
+                // A caller may have reconnected meanwhile.
+                if (testConnection()) return;
+                disconnectShared();
+                try {
+                    connected(open(config), config);
+                    reconnectBackoffMillis = 0;
+                } catch (Exception e) {
+                    reconnectBackoffMillis =
+                            Math.min(
+                                    Math.max(
+                                            2 * reconnectBackoffMillis,
+                                            TimeUnit.SECONDS.toMillis(
+                                                    config.getJmxHeartbeatSeconds())),
+                                    MAX_RECONNECT_BACKOFF_MILLIS);
+                    nextReconnect = now + reconnectBackoffMillis;
+                    logger.warn(
+                            "Unable to reconnect to remote jmx agent, retrying in {} ms. Msg: {}",
+                            reconnectBackoffMillis,
+                            e.getLocalizedMessage());
+                }
+            }
+        } catch (Throwable e) {
+            logger.error("Exception in jmx heartbeat", e);
+        }
     }
 
     /**
@@ -412,10 +510,16 @@ public class JMXNodeTool extends NodeProbe implements INodeToolObservable {
         }
     }
 
+    /** The shared connection is only closed when it is replaced, closing it is a no-op. */
     @Override
     public void close() throws IOException {
+        if (shared) return;
+        super.close();
+    }
+
+    private void disconnect() throws IOException {
         synchronized (JMXNodeTool.class) {
-            tool = null;
+            if (tool == this) tool = null;
             super.close();
         }
     }
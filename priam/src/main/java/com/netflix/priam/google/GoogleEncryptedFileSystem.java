@@ -24,6 +24,7 @@ import com.google.api.services.storage.StorageScopes;
 import com.netflix.priam.backup.AbstractBackupPath;
 import com.netflix.priam.backup.AbstractFileSystem;
 import com.netflix.priam.backup.BackupRestoreException;
+import com.netflix.priam.backupv2.BackupCatalog;
 import com.netflix.priam.config.IConfiguration;
 import com.netflix.priam.cred.ICredentialGeneric;
 import com.netflix.priam.cred.ICredentialGeneric.KEY;
@@ -67,8 +68,9 @@ public class GoogleEncryptedFileSystem extends AbstractFileSystem {
             final IConfiguration config,
             @Named("gcscredential") ICredentialGeneric credential,
             BackupMetrics backupMetrics,
-            BackupNotificationMgr backupNotificationManager) {
-        super(config, backupMetrics, backupNotificationManager, pathProvider);
+            BackupNotificationMgr backupNotificationManager,
+            BackupCatalog backupCatalog) {
+        super(config, backupMetrics, backupNotificationManager, pathProvider, backupCatalog);
         this.backupMetrics = backupMetrics;
         this.config = config;
         this.gcsCredential = credential;
@@ -215,6 +217,24 @@ public class GoogleEncryptedFileSystem extends AbstractFileSystem {
         backupMetrics.recordDownloadRate(get.getLastResponseHeaders().getContentLength());
     }
 
+    @Override
+    public InputStream openFile(AbstractBackupPath path) throws BackupRestoreException {
+        String remotePath = path.getRemotePath();
+        try {
+            com.google.api.services.storage.Storage.Objects.Get get =
+                    constructObjectResourceHandle().get(this.srcBucketName, remotePath);
+            get.getMediaHttpDownloader().setDirectDownloadEnabled(true);
+            return get.executeMediaAsInputStream();
+        } catch (IOException e) {
+            throw new BackupRestoreException(
+                    "IO error opening object: "
+                            + remotePath
+                            + " from bucket: "
+                            + this.srcBucketName,
+                    e);
+        }
+    }
+
     @Override
     protected boolean doesRemoteFileExist(Path remotePath) {
         // TODO: Implement based on GCS. Since this is only used for upload, leaving it empty
@@ -15,6 +15,7 @@ package com.netflix.priam.merics;
 
 import com.netflix.spectator.api.Counter;
 import com.netflix.spectator.api.DistributionSummary;
+import com.netflix.spectator.api.Gauge;
 import com.netflix.spectator.api.Registry;
 import javax.inject.Inject;
 import javax.inject.Singleton;
@@ -36,7 +37,15 @@ public class BackupMetrics {
             snsNotificationSuccess,
             snsNotificationFailure,
             forgottenFiles,
-            backupVerificationFailure;
+            backupVerificationFailure,
+            backupContentVerificationFailure,
+            scheduledUploadBytes,
+            bestEffortUploadBytes;
+    /** Upload rate planned for snapshot files to meet their target, against the actual bytes. */
+    private final Gauge plannedUploadRate;
+    /** Rate backup reads of the data device are paced at, 0 if they are not. */
+    private final Gauge diskReadRate;
+
     public static final String uploadQueueSize = Metrics.METRIC_PREFIX + "upload.queue.size";
     public static final String downloadQueueSize = Metrics.METRIC_PREFIX + "download.queue.size";
 
@@ -56,6 +65,12 @@ public class BackupMetrics {
         forgottenFiles = registry.counter(Metrics.METRIC_PREFIX + "forgotten.files");
         backupVerificationFailure =
                 registry.counter(Metrics.METRIC_PREFIX + "backup.verification.failure");
+        backupContentVerificationFailure =
+                registry.counter(Metrics.METRIC_PREFIX + "backup.content.verification.failure");
+        scheduledUploadBytes = registry.counter(Metrics.METRIC_PREFIX + "upload.scheduled.bytes");
+        bestEffortUploadBytes = registry.counter(Metrics.METRIC_PREFIX + "upload.besteffort.bytes");
+        plannedUploadRate = registry.gauge(Metrics.METRIC_PREFIX + "upload.planned.rate");
+        diskReadRate = registry.gauge(Metrics.METRIC_PREFIX + "backup.disk.read.rate");
     }
 
     public DistributionSummary getUploadRate() {
@@ -98,6 +113,38 @@ public class BackupMetrics {
         backupVerificationFailure.increment();
     }
 
+    public Counter getBackupContentVerificationFailure() {
+        return backupContentVerificationFailure;
+    }
+
+    public void incrementBackupContentVerificationFailure() {
+        backupContentVerificationFailure.increment();
+    }
+
+    public void recordScheduledUpload(long bytes) {
+        scheduledUploadBytes.increment(bytes);
+    }
+
+    public void recordBestEffortUpload(long bytes) {
+        bestEffortUploadBytes.increment(bytes);
+    }
+
+    public void setPlannedUploadRate(double bytesPerSecond) {
+        plannedUploadRate.set(bytesPerSecond);
+    }
+
+    public void setDiskReadRate(double bytesPerSecond) {
+        diskReadRate.set(bytesPerSecond);
+    }
+
+    public Counter getScheduledUploadBytes() {
+        return scheduledUploadBytes;
+    }
+
+    public Counter getBestEffortUploadBytes() {
+        return bestEffortUploadBytes;
+    }
+
     public void recordUploadRate(long sizeInBytes) {
         uploadRate.record(sizeInBytes);
     }
@@ -0,0 +1,67 @@
+/*
+ * Copyright 2020 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.netflix.priam.merics;
+
+import com.netflix.spectator.api.Gauge;
+import com.netflix.spectator.api.Registry;
+import java.util.concurrent.TimeUnit;
+import javax.inject.Inject;
+import javax.inject.Singleton;
+
+/** Metrics of the runs of scheduled tasks, tagged with the name of the task. */
+@Singleton
+public class TaskMetrics {
+    private static final String TASK = "task";
+    private final Registry registry;
+    private final Gauge runningTasks;
+
+    @Inject
+    public TaskMetrics(Registry registry) {
+        this.registry = registry;
+        runningTasks = registry.gauge(Metrics.METRIC_PREFIX + "task.running");
+    }
+
+    /** Time between when the scheduler should have fired the task and when it started running. */
+    public void recordSchedulingDelay(String task, long delayMillis) {
+        registry.timer(Metrics.METRIC_PREFIX + "task.delay", TASK, task)
+                .record(Math.max(0, delayMillis), TimeUnit.MILLISECONDS);
+    }
+
+    public void recordExecution(String task, long durationNanos, boolean failed) {
+        registry.timer(
+                        Metrics.METRIC_PREFIX + "task.execution",
+                        TASK,
+                        task,
+                        "result",
+                        failed ? "failure" : "success")
+                .record(durationNanos, TimeUnit.NANOSECONDS);
+    }
+
+    /** A run was skipped as the previous run of the task was still going. */
+    public void incrementSkipped(String task) {
+        registry.counter(Metrics.METRIC_PREFIX + "task.skipped", TASK, task).increment();
+    }
+
+    /** A run started while other tasks were running. */
+    public void incrementOverlapping(String task) {
+        registry.counter(Metrics.METRIC_PREFIX + "task.overlapping", TASK, task).increment();
+    }
+
+    public void setRunningTasks(int count) {
+        runningTasks.set(count);
+    }
+}
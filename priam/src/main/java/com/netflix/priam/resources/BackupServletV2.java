@@ -18,9 +18,11 @@
 package com.netflix.priam.resources;
 
 import com.netflix.priam.backup.*;
+import com.netflix.priam.backupv2.BackupCatalog;
 import com.netflix.priam.backupv2.BackupTTLTask;
 import com.netflix.priam.backupv2.BackupV2Service;
 import com.netflix.priam.backupv2.IMetaProxy;
+import com.netflix.priam.backupv2.ResolvedMeta;
 import com.netflix.priam.backupv2.SnapshotMetaTask;
 import com.netflix.priam.config.IConfiguration;
 import com.netflix.priam.utils.DateUtil;
@@ -28,8 +30,7 @@ import com.netflix.priam.utils.DateUtil.DateRange;
 import com.netflix.priam.utils.GsonJsonSerializer;
 import java.time.Instant;
 import java.time.temporal.ChronoUnit;
-import java.util.List;
-import java.util.Optional;
+import java.util.*;
 import java.util.stream.Collectors;
 import javax.inject.Inject;
 import javax.inject.Named;
@@ -53,6 +54,7 @@ public class BackupServletV2 {
     private final IMetaProxy metaProxy;
     private final Provider<AbstractBackupPath> pathProvider;
     private final BackupV2Service backupService;
+    private final BackupCatalog backupCatalog;
     private static final String REST_SUCCESS = "[\"ok\"]";
 
     @Inject
@@ -65,7 +67,8 @@ public class BackupServletV2 {
             IFileSystemContext backupFileSystemCtx,
             @Named("v2") IMetaProxy metaV2Proxy,
             Provider<AbstractBackupPath> pathProvider,
-            BackupV2Service backupService) {
+            BackupV2Service backupService,
+            BackupCatalog backupCatalog) {
         this.backupStatusMgr = backupStatusMgr;
         this.backupVerification = backupVerification;
         this.snapshotMetaService = snapshotMetaService;
@@ -74,6 +77,7 @@ public class BackupServletV2 {
         this.metaProxy = metaV2Proxy;
         this.pathProvider = pathProvider;
         this.backupService = backupService;
+        this.backupCatalog = backupCatalog;
     }
 
     @GET
@@ -104,6 +108,60 @@ public class BackupServletV2 {
         return Response.ok(REST_SUCCESS, MediaType.APPLICATION_JSON).build();
     }
 
+    @GET
+    @Path("/catalog")
+    public Response catalog() {
+        if (!backupCatalog.isEnabled()) return Response.ok("Backup catalog is not enabled").build();
+        Map<String, Object> summary = new LinkedHashMap<>();
+        summary.put("syncedAt", backupCatalog.getSyncedAt().map(Instant::toString).orElse(null));
+        Map<AbstractBackupPath.BackupFileType, Integer> objects = new TreeMap<>();
+        long size = 0;
+        Instant latestSnapshot = null;
+        for (BackupCatalog.Entry entry : backupCatalog.getObjects()) {
+            objects.merge(entry.getType(), 1, Integer::sum);
+            if (entry.getSize() > 0) size += entry.getSize();
+            if (entry.getType() == AbstractBackupPath.BackupFileType.META_V2
+                    && backupCatalog.getMeta(entry.getRemotePath()).isPresent())
+                latestSnapshot = entry.getLastModified();
+        }
+        summary.put("objects", objects);
+        summary.put("size", size);
+
+        // What each snapshot references and its size on the remote file system.
+        Set<String> referenced = new HashSet<>();
+        List<Map<String, Object>> metas = new ArrayList<>();
+        for (BackupCatalog.Entry entry : backupCatalog.getObjects()) {
+            Optional<ResolvedMeta> meta = backupCatalog.getMeta(entry.getRemotePath());
+            if (!meta.isPresent()) continue;
+            referenced.addAll(meta.get().getFiles());
+            Map<String, Object> metaSummary = new LinkedHashMap<>();
+            metaSummary.put("remotePath", entry.getRemotePath());
+            metaSummary.put("baseMetaFiles", meta.get().getBaseMetaFiles().size());
+            metaSummary.put("files", meta.get().getFiles().size());
+            metaSummary.put("size", backupCatalog.getSize(meta.get().getFiles()));
+            metas.add(metaSummary);
+        }
+        summary.put("metaFiles", metas);
+
+        // Files older than the latest snapshot and not in any snapshot are only waiting for TTL.
+        int unreferenced = 0;
+        for (BackupCatalog.Entry entry : backupCatalog.getObjects()) {
+            if (AbstractBackupPath.BackupFileType.isDataFile(entry.getType())
+                    && latestSnapshot != null
+                    && entry.getLastModified().isBefore(latestSnapshot)
+                    && !referenced.contains(entry.getRemotePath())) unreferenced++;
+        }
+        summary.put("unreferencedFiles", unreferenced);
+        return Response.ok(GsonJsonSerializer.getGson().toJson(summary)).build();
+    }
+
+    @GET
+    @Path("/catalog/sync")
+    public Response syncCatalog() throws Exception {
+        backupCatalog.sync(fs, metaProxy);
+        return Response.ok(REST_SUCCESS, MediaType.APPLICATION_JSON).build();
+    }
+
     @GET
     @Path("/info/{date}")
     public Response info(@PathParam("date") String date) {
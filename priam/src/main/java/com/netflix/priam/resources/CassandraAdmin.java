@@ -25,9 +25,13 @@ import com.netflix.priam.connection.CassandraOperations;
 import com.netflix.priam.connection.JMXConnectionException;
 import com.netflix.priam.connection.JMXNodeTool;
 import com.netflix.priam.defaultimpl.ICassandraProcess;
+import com.netflix.priam.scheduler.MaintenanceCoordinator;
+import com.netflix.priam.scheduler.TaskMonitor;
+import com.netflix.priam.utils.GsonJsonSerializer;
 import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.IOException;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ExecutionException;
@@ -55,6 +59,8 @@ public class CassandraAdmin {
     private final Flush flush;
     private final Compaction compaction;
     private final CassandraOperations cassandraOperations;
+    private final MaintenanceCoordinator maintenanceCoordinator;
+    private final TaskMonitor taskMonitor;
 
     @Inject
     public CassandraAdmin(
@@ -62,12 +68,16 @@ public class CassandraAdmin {
             ICassandraProcess cassProcess,
             Flush flush,
             Compaction compaction,
-            CassandraOperations cassandraOperations) {
+            CassandraOperations cassandraOperations,
+            MaintenanceCoordinator maintenanceCoordinator,
+            TaskMonitor taskMonitor) {
         this.config = config;
         this.cassProcess = cassProcess;
         this.flush = flush;
         this.compaction = compaction;
         this.cassandraOperations = cassandraOperations;
+        this.maintenanceCoordinator = maintenanceCoordinator;
+        this.taskMonitor = taskMonitor;
     }
 
     @GET
@@ -195,6 +205,27 @@ public class CassandraAdmin {
         }
     }
 
+    /** @return the maintenance leases held and waited for, see {@link MaintenanceCoordinator}. */
+    @GET
+    @Path("/maintenance")
+    public Response maintenance() {
+        return Response.ok(
+                        GsonJsonSerializer.getGson().toJson(maintenanceCoordinator.getState()),
+                        MediaType.APPLICATION_JSON)
+                .build();
+    }
+
+    /** @return the scheduled tasks running now and their recent runs, see {@link TaskMonitor}. */
+    @GET
+    @Path("/tasks")
+    public Response tasks() {
+        Map<String, Object> tasks = new LinkedHashMap<>();
+        tasks.put("running", taskMonitor.getRunningTasks());
+        tasks.put("recent", taskMonitor.getRecentRuns());
+        return Response.ok(GsonJsonSerializer.getGson().toJson(tasks), MediaType.APPLICATION_JSON)
+                .build();
+    }
+
     @GET
     @Path("/cleanup")
     public Response cassCleanup() throws IOException, ExecutionException, InterruptedException {
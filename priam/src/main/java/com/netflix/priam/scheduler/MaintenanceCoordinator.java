@@ -0,0 +1,243 @@
+/*
+ * Copyright 2020 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.netflix.priam.scheduler;
+
+import com.google.common.base.Preconditions;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Maps;
+import com.netflix.priam.config.IConfiguration;
+import java.time.Clock;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import javax.inject.Inject;
+import javax.inject.Singleton;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Budget of disk, network and CPU shared by the maintenance tasks of the node, so that snapshot,
+ * TTL, verification, flush and compaction do not all run at once.
+ *
+ * <p>Each resource has a budget of 100. Tasks lease a share of the resources they use for as long
+ * as they run, and wait until it fits in what other leases leave. Waiting tasks are served in order
+ * of priority, then of arrival. A task waiting at a priority above BEST_EFFORT preempts the
+ * BEST_EFFORT leases of the resources it needs: they are flagged, and their holders stop at the
+ * next point they can resume from.
+ */
+@Singleton
+public class MaintenanceCoordinator {
+    private static final Logger logger = LoggerFactory.getLogger(MaintenanceCoordinator.class);
+    public static final int BUDGET = 100;
+
+    public enum Resource {
+        DISK,
+        NETWORK,
+        CPU
+    }
+
+    /** In decreasing order. */
+    public enum Priority {
+        HIGH,
+        NORMAL,
+        BEST_EFFORT
+    }
+
+    private final IConfiguration config;
+    private final Clock clock;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition released = lock.newCondition();
+    private final Set<Lease> leases = new LinkedHashSet<>();
+    private final TreeSet<Request> waiting =
+            new TreeSet<>(
+                    Comparator.comparing((Request request) -> request.priority)
+                            .thenComparingLong(request -> request.sequence));
+    private long sequence;
+
+    @Inject
+    public MaintenanceCoordinator(IConfiguration config, Clock clock) {
+        this.config = config;
+        this.clock = clock;
+    }
+
+    /**
+     * Lease resources, waiting up to {@link IConfiguration#getMaintenanceLeaseWaitMinutes()} for
+     * them.
+     *
+     * @param holder name of the task, to show who holds what.
+     * @param priority of the task.
+     * @param demand share of each resource the task uses, out of {@link #BUDGET}.
+     * @return the lease, to close once the task is done.
+     * @throws TimeoutException if the resources were not available in time.
+     * @throws InterruptedException if interrupted while waiting.
+     */
+    public Lease acquire(String holder, Priority priority, Map<Resource, Integer> demand)
+            throws TimeoutException, InterruptedException {
+        Preconditions.checkArgument(!demand.isEmpty(), "%s leases no resource", holder);
+        demand.forEach(
+                (resource, share) ->
+                        Preconditions.checkArgument(
+                                share > 0 && share <= BUDGET,
+                                "Share of %s (%s) must be in (0, %s]",
+                                resource,
+                                share,
+                                BUDGET));
+        lock.lock();
+        Request request = new Request(holder, priority, demand, sequence++);
+        try {
+            long nanos = TimeUnit.MINUTES.toNanos(config.getMaintenanceLeaseWaitMinutes());
+            waiting.add(request);
+            while (config.isMaintenanceCoordinationEnabled() && !isGrantable(request)) {
+                preemptFor(request);
+                if (nanos <= 0)
+                    throw new TimeoutException(
+                            holder + " could not lease " + demand + ". Leases: " + leases);
+                nanos = released.awaitNanos(nanos);
+            }
+            Lease lease = new Lease(request, clock.instant());
+            leases.add(lease);
+            logger.info("{} leased {} at priority {}", holder, demand, priority);
+            return lease;
+        } finally {
+            waiting.remove(request);
+            // Requests behind this one may be grantable now.
+            released.signalAll();
+            lock.unlock();
+        }
+    }
+
+    private void release(Lease lease) {
+        lock.lock();
+        try {
+            if (leases.remove(lease)) {
+                logger.info("{} released {}", lease.request.holder, lease.request.demand);
+                released.signalAll();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /** The request fits, and no request before it waits for the same resources. */
+    private boolean isGrantable(Request request) {
+        for (Map.Entry<Resource, Integer> share : request.demand.entrySet()) {
+            if (getLeased(share.getKey()) + share.getValue() > BUDGET) return false;
+        }
+        for (Request before : waiting.headSet(request, false)) {
+            if (!Collections.disjoint(before.demand.keySet(), request.demand.keySet()))
+                return false;
+        }
+        return true;
+    }
+
+    private int getLeased(Resource resource) {
+        int leased = 0;
+        for (Lease lease : leases) leased += lease.request.demand.getOrDefault(resource, 0);
+        return leased;
+    }
+
+    private void preemptFor(Request request) {
+        if (request.priority == Priority.BEST_EFFORT) return;
+        for (Lease lease : leases) {
+            if (lease.request.priority != Priority.BEST_EFFORT || lease.preempted) continue;
+            if (Collections.disjoint(lease.request.demand.keySet(), request.demand.keySet()))
+                continue;
+            logger.info("{} preempts {}", request.holder, lease.request.holder);
+            lease.preempted = true;
+        }
+    }
+
+    /** @return the leases held and the requests waiting, in the order they are served. */
+    public Map<String, List<Map<String, Object>>> getState() {
+        lock.lock();
+        try {
+            List<Map<String, Object>> held = new ArrayList<>();
+            for (Lease lease : leases) {
+                Map<String, Object> state = lease.request.describe();
+                state.put("acquired", lease.acquired.toString());
+                state.put("preempted", lease.preempted);
+                held.add(state);
+            }
+            List<Map<String, Object>> queued = new ArrayList<>();
+            for (Request request : waiting) queued.add(request.describe());
+            return ImmutableMap.of("leases", held, "waiting", queued);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private static final class Request {
+        private final String holder;
+        private final Priority priority;
+        private final Map<Resource, Integer> demand;
+        private final long sequence;
+
+        Request(String holder, Priority priority, Map<Resource, Integer> demand, long sequence) {
+            this.holder = holder;
+            this.priority = priority;
+            this.demand = Maps.immutableEnumMap(new EnumMap<>(demand));
+            this.sequence = sequence;
+        }
+
+        Map<String, Object> describe() {
+            Map<String, Object> state = new LinkedHashMap<>();
+            state.put("holder", holder);
+            state.put("priority", priority);
+            state.put("demand", demand);
+            return state;
+        }
+    }
+
+    /** Resources leased by a task. */
+    public final class Lease implements AutoCloseable {
+        private final Request request;
+        private final Instant acquired;
+        private volatile boolean preempted;
+
+        private Lease(Request request, Instant acquired) {
+            this.request = request;
+            this.acquired = acquired;
+        }
+
+        /** @return true if a task of higher priority waits for this lease to be released. */
+        public boolean isPreempted() {
+            return preempted;
+        }
+
+        @Override
+        public void close() {
+            release(this);
+        }
+
+        @Override
+        public String toString() {
+            return request.holder + request.demand;
+        }
+    }
+}
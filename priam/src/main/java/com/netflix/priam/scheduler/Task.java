@@ -17,7 +17,11 @@
 package com.netflix.priam.scheduler;
 
 import com.netflix.priam.config.IConfiguration;
+import java.time.Instant;
+import java.util.Optional;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import javax.inject.Inject;
 import org.quartz.Job;
 import org.quartz.JobExecutionContext;
 import org.quartz.JobExecutionException;
@@ -32,7 +36,7 @@ import org.slf4j.LoggerFactory;
  * failure
  */
 public abstract class Task implements Job {
-    public STATE status = STATE.DONE;
+    private final AtomicReference<STATE> status = new AtomicReference<>(STATE.DONE);
 
     public enum STATE {
         ERROR,
@@ -46,11 +50,17 @@ public abstract class Task implements Job {
     private static final Logger logger = LoggerFactory.getLogger(Task.class);
     private final AtomicInteger errors = new AtomicInteger();
     private final AtomicInteger executions = new AtomicInteger();
+    private TaskMonitor taskMonitor = TaskMonitor.UNMONITORED;
 
     protected Task(IConfiguration config) {
         this.config = config;
     }
 
+    @Inject
+    void setTaskMonitor(TaskMonitor taskMonitor) {
+        this.taskMonitor = taskMonitor;
+    }
+
     /** This method has to be implemented and cannot throw any exception. */
     public void initialize() throws ExecutionException {
         // nothing to initialize
@@ -61,22 +71,37 @@ public abstract class Task implements Job {
     /** Main method to execute a task */
     public void execute(JobExecutionContext context) throws JobExecutionException {
         executions.incrementAndGet();
+        STATE previous = status.getAndUpdate(state -> STATE.RUNNING);
+        if (previous == STATE.RUNNING) {
+            taskMonitor.skipped(getName());
+            return;
+        }
+        Instant scheduledTime =
+                context == null || context.getScheduledFireTime() == null
+                        ? null
+                        : context.getScheduledFireTime().toInstant();
+        Optional<TaskMonitor.Run> run = taskMonitor.start(getName(), scheduledTime);
+        if (!run.isPresent()) {
+            // Another instance of this task is running.
+            status.set(previous);
+            return;
+        }
+        STATE result = STATE.DONE;
         try {
-            if (status == STATE.RUNNING) return;
-            status = STATE.RUNNING;
             execute();
-
         } catch (Throwable e) {
-            status = STATE.ERROR;
+            result = STATE.ERROR;
             logger.error("Could not execute the task: {} because of {}", getName(), e.getMessage());
             e.printStackTrace();
             errors.incrementAndGet();
+        } finally {
+            status.set(result);
+            taskMonitor.finish(run.get(), result);
         }
-        if (status != STATE.ERROR) status = STATE.DONE;
     }
 
     public STATE state() {
-        return status;
+        return status.get();
     }
 
     public int getErrorCount() {
@@ -0,0 +1,149 @@
+/*
+ * Copyright 2020 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.netflix.priam.scheduler;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSortedSet;
+import com.netflix.priam.merics.TaskMetrics;
+import com.netflix.spectator.api.NoopRegistry;
+import java.time.Instant;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import javax.inject.Inject;
+import javax.inject.Singleton;
+
+/**
+ * Keeps track of the runs of the scheduled tasks: which are running, how late they started, how
+ * long they took and which runs were skipped. Quartz creates a new instance of a task each time it
+ * fires unless the task is a singleton, so only one run of a task name is let through at a time
+ * across all of its instances.
+ */
+@Singleton
+public class TaskMonitor {
+    /** For tasks not created by the scheduler, e.g. in tests. */
+    static final TaskMonitor UNMONITORED = new TaskMonitor(new TaskMetrics(new NoopRegistry()));
+
+    private static final int RECENT_RUNS = 100;
+    private final TaskMetrics metrics;
+    private final ConcurrentMap<String, Run> running = new ConcurrentHashMap<>();
+    private final Deque<Run> recentRuns = new ArrayDeque<>();
+
+    @Inject
+    public TaskMonitor(TaskMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    /**
+     * Start a run of a task, unless the task is already running.
+     *
+     * @param task name of the task.
+     * @param scheduledTime when the scheduler should have fired the task, null if it was run
+     *     directly.
+     * @return the run to finish once the task is done, empty if the run is skipped.
+     */
+    Optional<Run> start(String task, Instant scheduledTime) {
+        Run run = new Run(task, scheduledTime, Instant.now(), System.nanoTime());
+        if (running.putIfAbsent(task, run) != null) {
+            skipped(task);
+            return Optional.empty();
+        }
+        metrics.setRunningTasks(running.size());
+        if (scheduledTime != null) {
+            metrics.recordSchedulingDelay(
+                    task, run.startTime.toEpochMilli() - scheduledTime.toEpochMilli());
+        }
+        run.overlapping =
+                running.keySet()
+                        .stream()
+                        .filter(name -> !name.equals(task))
+                        .sorted()
+                        .collect(ImmutableList.toImmutableList());
+        if (!run.overlapping.isEmpty()) metrics.incrementOverlapping(task);
+        return Optional.of(run);
+    }
+
+    /** Record a run of a task skipped as the task was already running. */
+    void skipped(String task) {
+        metrics.incrementSkipped(task);
+        Run run = new Run(task, null, Instant.now(), System.nanoTime());
+        run.state = "SKIPPED";
+        run.overlapping = ImmutableList.of(task);
+        addRecentRun(run);
+    }
+
+    /** Finish a run of a task with its final state. */
+    void finish(Run run, Task.STATE state) {
+        long durationNanos = System.nanoTime() - run.startNanos;
+        run.durationMillis = TimeUnit.NANOSECONDS.toMillis(durationNanos);
+        run.state = state.name();
+        running.remove(run.task, run);
+        metrics.setRunningTasks(running.size());
+        metrics.recordExecution(run.task, durationNanos, state == Task.STATE.ERROR);
+        addRecentRun(run);
+    }
+
+    /** @return names of the tasks running now. */
+    public ImmutableSortedSet<String> getRunningTasks() {
+        return ImmutableSortedSet.copyOf(running.keySet());
+    }
+
+    /** @return the last runs of the tasks, skipped ones included, latest first. */
+    public synchronized List<Run> getRecentRuns() {
+        return ImmutableList.copyOf(recentRuns);
+    }
+
+    private synchronized void addRecentRun(Run run) {
+        if (recentRuns.size() == RECENT_RUNS) recentRuns.removeLast();
+        recentRuns.addFirst(run);
+    }
+
+    /** A run of a task. Runs which are still going have no state and duration yet. */
+    public static final class Run {
+        private final String task;
+        private final Instant scheduledTime;
+        private final Instant startTime;
+        private final transient long startNanos;
+        private volatile String state;
+        private volatile Long durationMillis;
+        /** Other tasks running when this one started. */
+        private volatile List<String> overlapping;
+
+        private Run(String task, Instant scheduledTime, Instant startTime, long startNanos) {
+            this.task = task;
+            this.scheduledTime = scheduledTime;
+            this.startTime = startTime;
+            this.startNanos = startNanos;
+        }
+
+        public String getTask() {
+            return task;
+        }
+
+        public String getState() {
+            return state;
+        }
+
+        public List<String> getOverlapping() {
+            return overlapping;
+        }
+    }
+}
@@ -38,10 +38,9 @@ public class CassandraTunerService implements IService {
         // Update the cassandra to enable/disable new incremental files.
         new RetryableCallable<Void>(6, 10000) {
             public Void retriableCall() throws Exception {
-                try (JMXNodeTool nodeTool = JMXNodeTool.instance(configuration)) {
-                    nodeTool.setIncrementalBackupsEnabled(
-                            IncrementalBackup.isEnabled(configuration, backupRestoreConfig));
-                }
+                JMXNodeTool nodeTool = JMXNodeTool.instance(configuration);
+                nodeTool.setIncrementalBackupsEnabled(
+                        IncrementalBackup.isEnabled(configuration, backupRestoreConfig));
                 return null;
             }
         }.call();
@@ -25,6 +25,8 @@ import java.time.format.DateTimeFormatter;
 import java.time.format.DateTimeParseException;
 import java.time.temporal.ChronoUnit;
 import java.util.Date;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import javax.inject.Singleton;
 import org.apache.commons.lang3.StringUtils;
 import org.apache.http.client.utils.DateUtils;
@@ -38,6 +40,13 @@ public class DateUtil {
     private static final String[] patterns = {yyyyMMddHHmm, yyyyMMdd};
     private static final ZoneId defaultZoneId = ZoneId.systemDefault();
     private static final ZoneId utcZoneId = ZoneId.of("UTC");
+    // DateTimeFormatter is immutable and thread-safe, so the formatters are built once.
+    private static final DateTimeFormatter yyyyMMddFormatter =
+            DateTimeFormatter.ofPattern(yyyyMMdd);
+    private static final DateTimeFormatter yyyyMMddHHmmFormatter =
+            DateTimeFormatter.ofPattern(yyyyMMddHHmm);
+    private static final ConcurrentMap<String, DateTimeFormatter> utcFormatters =
+            new ConcurrentHashMap<>();
 
     /**
      * Format the given date in format yyyyMMdd
@@ -102,7 +111,7 @@ public class DateUtil {
      */
     public static String formatyyyyMMdd(LocalDateTime date) {
         if (date == null) return null;
-        return date.format(DateTimeFormatter.ofPattern(yyyyMMdd));
+        return date.format(yyyyMMddFormatter);
     }
 
     /**
@@ -113,7 +122,7 @@ public class DateUtil {
      */
     public static String formatyyyyMMddHHmm(LocalDateTime date) {
         if (date == null) return null;
-        return date.format(DateTimeFormatter.ofPattern(yyyyMMddHHmm));
+        return date.format(yyyyMMddHHmmFormatter);
     }
 
     /**
@@ -126,20 +135,14 @@ public class DateUtil {
         if (StringUtils.isEmpty(date)) return null;
 
         try {
-            LocalDateTime localDateTime =
-                    LocalDateTime.parse(date, DateTimeFormatter.ofPattern(yyyyMMddHHmm));
-            if (localDateTime != null) return localDateTime;
+            // Only a string as long as the pattern can match it, so a date only is not first
+            // tried as a date and time, which would throw.
+            if (date.length() == yyyyMMdd.length())
+                return LocalDate.parse(date, yyyyMMddFormatter).atTime(0, 0);
+            return LocalDateTime.parse(date, yyyyMMddHHmmFormatter);
         } catch (DateTimeParseException e) {
-            // Try the date only.
-            try {
-                LocalDate localDate = LocalDate.parse(date, DateTimeFormatter.ofPattern(yyyyMMdd));
-                return localDate.atTime(0, 0);
-            } catch (DateTimeParseException ex) {
-                return null;
-            }
+            return null;
         }
-
-        return null;
     }
 
     /**
@@ -162,7 +165,9 @@ public class DateUtil {
     public static String formatInstant(String pattern, Instant instant) {
         if (instant == null || StringUtils.isEmpty(pattern)) return null;
 
-        DateTimeFormatter formatter = DateTimeFormatter.ofPattern(pattern).withZone(utcZoneId);
+        DateTimeFormatter formatter =
+                utcFormatters.computeIfAbsent(
+                        pattern, p -> DateTimeFormatter.ofPattern(p).withZone(utcZoneId));
         return formatter.format(instant);
     }
 
@@ -0,0 +1,205 @@
+/*
+ * Copyright 2020 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.netflix.priam.utils;
+
+import com.google.common.hash.HashFunction;
+import com.google.common.hash.Hashing;
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.LongBuffer;
+
+/**
+ * Compact set of strings which only keeps a 128-bit fingerprint of every string, in an open
+ * addressing table of primitive longs. It takes 16 bytes per slot no matter how long the strings
+ * are, and can be kept off-heap.
+ *
+ * <p>Two strings with the same fingerprint cannot be told apart, so {@link #contains(CharSequence)}
+ * may be true for a string that was never added. With 128-bit fingerprints the chance of that is
+ * about n^2 / 2^129 for n strings, which is negligible. It is never false for a string that was
+ * added, so a negative answer is exact.
+ */
+public class FingerprintSet {
+    private static final HashFunction HASH_FUNCTION = Hashing.murmur3_128();
+    private static final int MIN_CAPACITY = 16;
+    private static final int MAX_CAPACITY = 1 << 26;
+    private static final float LOAD_FACTOR = 0.75f;
+    private final boolean offHeap;
+    private LongBuffer table;
+    private int capacity;
+    private int size;
+
+    /**
+     * @param expectedSize the number of strings expected. The set grows beyond it if required.
+     * @param offHeap true to keep the table in direct memory instead of the heap.
+     */
+    public FingerprintSet(int expectedSize, boolean offHeap) {
+        this.offHeap = offHeap;
+        int capacity = MIN_CAPACITY;
+        while (capacity < MAX_CAPACITY && capacity * LOAD_FACTOR < expectedSize) capacity <<= 1;
+        allocate(capacity);
+    }
+
+    /** @return true if the set did not already contain the string. */
+    public boolean add(CharSequence value) {
+        long[] fingerprint = fingerprint(value);
+        return add(fingerprint[0], fingerprint[1]);
+    }
+
+    /** @return true if the set contained the string. */
+    public boolean remove(CharSequence value) {
+        long[] fingerprint = fingerprint(value);
+        int slot = findSlot(fingerprint[0], fingerprint[1]);
+        if (slot < 0) return false;
+        // Shift back the following entries of the cluster, so lookups do not need tombstones.
+        int mask = capacity - 1;
+        int next = slot;
+        while (true) {
+            next = (next + 1) & mask;
+            long high = table.get(2 * next);
+            long low = table.get(2 * next + 1);
+            if (high == 0 && low == 0) break;
+            int home = (int) high & mask;
+            boolean movable =
+                    slot <= next ? (home <= slot || home > next) : (home <= slot && home > next);
+            if (movable) {
+                table.put(2 * slot, high);
+                table.put(2 * slot + 1, low);
+                slot = next;
+            }
+        }
+        table.put(2 * slot, 0);
+        table.put(2 * slot + 1, 0);
+        size--;
+        return true;
+    }
+
+    /**
+     * @return true if the string was added to the set, or in the unlikely case of a fingerprint
+     *     collision, another one with the same fingerprint was.
+     */
+    public boolean contains(CharSequence value) {
+        long[] fingerprint = fingerprint(value);
+        return findSlot(fingerprint[0], fingerprint[1]) >= 0;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /** @return the memory used by the table in bytes. */
+    public long getMemoryUsage() {
+        return 2L * Long.BYTES * capacity;
+    }
+
+    /**
+     * Write the fingerprints to the output. They can be read back using {@link #readFrom(DataInput,
+     * boolean)}.
+     */
+    public void writeTo(DataOutput out) throws IOException {
+        out.writeInt(size);
+        for (int slot = 0; slot < capacity; slot++) {
+            long high = table.get(2 * slot);
+            long low = table.get(2 * slot + 1);
+            if (high == 0 && low == 0) continue;
+            out.writeLong(high);
+            out.writeLong(low);
+        }
+    }
+
+    /** Read fingerprints written using {@link #writeTo(DataOutput)}. */
+    public static FingerprintSet readFrom(DataInput in, boolean offHeap) throws IOException {
+        int size = in.readInt();
+        if (size < 0) throw new IOException("Invalid size of FingerprintSet: " + size);
+        FingerprintSet set = new FingerprintSet(size, offHeap);
+        for (int i = 0; i < size; i++) {
+            long high = in.readLong();
+            long low = in.readLong();
+            if (high == 0 && low == 0)
+                throw new IOException("Invalid fingerprint in FingerprintSet");
+            set.add(high, low);
+        }
+        return set;
+    }
+
+    private boolean add(long high, long low) {
+        if (findSlot(high, low) >= 0) return false;
+        if (size + 1 > capacity * LOAD_FACTOR) resize(capacity << 1);
+        insert(high, low);
+        size++;
+        return true;
+    }
+
+    private int findSlot(long high, long low) {
+        int mask = capacity - 1;
+        for (int slot = (int) high & mask; ; slot = (slot + 1) & mask) {
+            long slotHigh = table.get(2 * slot);
+            long slotLow = table.get(2 * slot + 1);
+            if (slotHigh == high && slotLow == low) return slot;
+            if (slotHigh == 0 && slotLow == 0) return -1;
+        }
+    }
+
+    private void insert(long high, long low) {
+        int mask = capacity - 1;
+        int slot = (int) high & mask;
+        while (table.get(2 * slot) != 0 || table.get(2 * slot + 1) != 0) slot = (slot + 1) & mask;
+        table.put(2 * slot, high);
+        table.put(2 * slot + 1, low);
+    }
+
+    private void resize(int newCapacity) {
+        if (capacity >= MAX_CAPACITY)
+            throw new IllegalStateException("FingerprintSet cannot grow beyond " + size);
+        LongBuffer oldTable = table;
+        int oldCapacity = capacity;
+        allocate(newCapacity);
+        for (int slot = 0; slot < oldCapacity; slot++) {
+            long high = oldTable.get(2 * slot);
+            long low = oldTable.get(2 * slot + 1);
+            if (high != 0 || low != 0) insert(high, low);
+        }
+    }
+
+    private void allocate(int capacity) {
+        this.capacity = capacity;
+        int length = 2 * Long.BYTES * capacity;
+        table =
+                offHeap
+                        ? ByteBuffer.allocateDirect(length)
+                                .order(ByteOrder.nativeOrder())
+                                .asLongBuffer()
+                        : LongBuffer.allocate(2 * capacity);
+    }
+
+    private static long[] fingerprint(CharSequence value) {
+        ByteBuffer hash =
+                ByteBuffer.wrap(HASH_FUNCTION.hashUnencodedChars(value).asBytes())
+                        .order(ByteOrder.LITTLE_ENDIAN);
+        long high = hash.getLong(0);
+        long low = hash.getLong(Long.BYTES);
+        // An all zero slot marks an empty slot.
+        if (high == 0 && low == 0) low = 1;
+        return new long[] {high, low};
+    }
+}
@@ -0,0 +1,150 @@
+/*
+ * Copyright 2020 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.netflix.priam.utils;
+
+import com.sun.jna.LastErrorException;
+import com.sun.jna.Native;
+import com.sun.jna.Platform;
+import com.sun.jna.Pointer;
+import java.io.FileDescriptor;
+import java.io.IOException;
+import java.lang.reflect.Field;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * File I/O calls of the C library which the JDK does not expose, through JNA. They are only
+ * available on Linux, callers fall back to plain Java I/O elsewhere.
+ */
+public final class NativeIO {
+    private static final Logger logger = LoggerFactory.getLogger(NativeIO.class);
+    public static final int POSIX_FADV_SEQUENTIAL = 2;
+    public static final int POSIX_FADV_DONTNEED = 4;
+    private static final int O_RDONLY = 0;
+    // O_DIRECT differs across architectures, -1 where it is not known.
+    private static final int O_DIRECT;
+    private static final boolean AVAILABLE;
+    private static final Field FD;
+
+    static {
+        boolean available = false;
+        if (Platform.isLinux()) {
+            try {
+                Native.register(Platform.C_LIBRARY_NAME);
+                available = true;
+            } catch (UnsatisfiedLinkError | NoClassDefFoundError e) {
+                logger.warn("Failed to load the C library, backups use plain Java I/O", e);
+            }
+        }
+        AVAILABLE = available;
+        if (Platform.isIntel() && Platform.is64Bit()) O_DIRECT = 040000;
+        else if ("aarch64".equals(Platform.ARCH)) O_DIRECT = 0200000;
+        else O_DIRECT = -1;
+        Field fd = null;
+        try {
+            fd = FileDescriptor.class.getDeclaredField("fd");
+            fd.setAccessible(true);
+        } catch (Exception e) {
+            logger.warn("Failed to access file descriptors, backups use plain Java I/O", e);
+        }
+        FD = fd;
+    }
+
+    private NativeIO() {}
+
+    private static native int posix_fadvise(int fd, long offset, long len, int advice);
+
+    private static native int open(String path, int flags) throws LastErrorException;
+
+    private static native long pread(int fd, Pointer buf, long count, long offset)
+            throws LastErrorException;
+
+    private static native int close(int fd) throws LastErrorException;
+
+    /** @return true if {@link #fadvise(int, long, long, int)} may be called. */
+    public static boolean isAvailable() {
+        return AVAILABLE && FD != null;
+    }
+
+    /** @return true if {@link #openDirect(String)} may be called. */
+    public static boolean isDirectAvailable() {
+        return AVAILABLE && O_DIRECT != -1;
+    }
+
+    /** @return the number of the file descriptor, -1 if it is not known. */
+    public static int getfd(FileDescriptor descriptor) {
+        if (FD == null) return -1;
+        try {
+            return FD.getInt(descriptor);
+        } catch (IllegalAccessException e) {
+            return -1;
+        }
+    }
+
+    /**
+     * Advise the kernel how a range of the file is read. Failures are ignored, this is only a hint.
+     *
+     * @param fd number of the file descriptor.
+     * @param offset start of the range.
+     * @param len length of the range, 0 for the rest of the file.
+     * @param advice one of the POSIX_FADV constants.
+     * @return true if the advice was taken.
+     */
+    public static boolean fadvise(int fd, long offset, long len, int advice) {
+        if (!AVAILABLE || fd < 0) return false;
+        int error = posix_fadvise(fd, offset, len, advice);
+        if (error != 0 && logger.isDebugEnabled())
+            logger.debug(
+                    "posix_fadvise({}, {}, {}, {}) failed: {}", fd, offset, len, advice, error);
+        return error == 0;
+    }
+
+    /**
+     * Open a file for reading with O_DIRECT. Reads must be aligned to the logical block size of the
+     * device, in offset, length and memory.
+     *
+     * @return number of the file descriptor.
+     * @throws IOException if the file cannot be opened, e.g. when the file system does not support
+     *     O_DIRECT.
+     */
+    public static int openDirect(String path) throws IOException {
+        if (!isDirectAvailable()) throw new IOException("O_DIRECT is not available");
+        try {
+            return open(path, O_RDONLY | O_DIRECT);
+        } catch (LastErrorException e) {
+            throw new IOException("Failed to open " + path + " with O_DIRECT", e);
+        }
+    }
+
+    /** @return bytes read, 0 at the end of the file. */
+    public static long pread(int fd, Pointer buffer, long count, long offset, String path)
+            throws IOException {
+        try {
+            return pread(fd, buffer, count, offset);
+        } catch (LastErrorException e) {
+            throw new IOException("Failed to read " + path + " at " + offset, e);
+        }
+    }
+
+    public static void close(int fd, String path) throws IOException {
+        try {
+            close(fd);
+        } catch (LastErrorException e) {
+            throw new IOException("Failed to close " + path, e);
+        }
+    }
+}
@@ -274,6 +274,47 @@ public class TestRemoteBackupPath {
         validateAbstractBackupPath(abstractBackupPath, abstractBackupPath2);
     }
 
+    @Test
+    public void testParseRemoteRedundantSeparators() {
+        String remotePath =
+                "casstestbackup/1049_fake-app/1808575600/SST_V2/1859817645000/keyspace1/columnfamily1/SNAPPY/PLAINTEXT/mc-1234-Data.db";
+        AbstractBackupPath abstractBackupPath = pathFactory.get();
+        abstractBackupPath.parseRemote(remotePath);
+        AbstractBackupPath abstractBackupPath2 = pathFactory.get();
+        abstractBackupPath2.parseRemote("/" + remotePath.replace("/", "//") + "/");
+        validateAbstractBackupPath(abstractBackupPath, abstractBackupPath2);
+        Assert.assertEquals(remotePath, abstractBackupPath2.getRemotePath());
+        Assert.assertEquals(
+                Paths.get("target/data", "keyspace1", "columnfamily1", "mc-1234-Data.db").toFile(),
+                abstractBackupPath2.getBackupFile());
+    }
+
+    @Test
+    public void testParseRemoteInvalid() {
+        AbstractBackupPath abstractBackupPath = pathFactory.get();
+        // The hash does not match the app name.
+        Assertions.assertThrows(
+                IllegalArgumentException.class,
+                () ->
+                        abstractBackupPath.parseRemote(
+                                "casstestbackup/1048_fake-app/1808575600/SST_V2/1859817645000/keyspace1/columnfamily1/SNAPPY/PLAINTEXT/mc-1234-Data.db"));
+        Assertions.assertThrows(
+                NumberFormatException.class,
+                () ->
+                        abstractBackupPath.parseRemote(
+                                "casstestbackup/1049_fake-app/1808575600/SST_V2/18598x7645000/keyspace1/columnfamily1/SNAPPY/PLAINTEXT/mc-1234-Data.db"));
+        Assertions.assertThrows(
+                IllegalArgumentException.class,
+                () ->
+                        abstractBackupPath.parseRemote(
+                                "casstestbackup/1049_fake-app/1808575600/SST_V2/1859817645000/keyspace1/columnfamily1/GZIP/PLAINTEXT/mc-1234-Data.db"));
+        Assertions.assertThrows(
+                IllegalArgumentException.class,
+                () ->
+                        abstractBackupPath.parseRemote(
+                                "casstestbackup/1049_fake-app/1808575600/SST_V2/1859817645000/keyspace1"));
+    }
+
     @Test
     public void testUnknownBackupFolder() {
         Path path =
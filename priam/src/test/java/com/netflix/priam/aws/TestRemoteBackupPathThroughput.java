@@ -0,0 +1,95 @@
+/*
+ * Copyright 2020 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.netflix.priam.aws;
+
+import com.netflix.priam.config.FakeConfiguration;
+import com.netflix.priam.config.IConfiguration;
+import java.lang.management.ManagementFactory;
+import java.util.function.IntFunction;
+import org.junit.Assert;
+import org.junit.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Throughput and allocation of parsing remote paths, which runs for every object listed from the
+ * remote file system. Each parser goes over millions of keys, and the allocation per key guards
+ * against regressions: unlike the time, it does not depend on the machine.
+ */
+public class TestRemoteBackupPathThroughput {
+    private static final Logger logger =
+            LoggerFactory.getLogger(TestRemoteBackupPathThroughput.class);
+    private static final int KEYS = 1 << 16;
+    private static final int WARMUP_PARSES = 1 << 20;
+    private static final int PARSES = 1 << 22;
+    private static final long MAX_BYTES_PER_PARSE = 2048;
+    private final IConfiguration configuration = new FakeConfiguration();
+
+    @Test
+    public void parseV2() {
+        measure(
+                "V2",
+                i ->
+                        String.format(
+                                "casstestbackup/1049_fake-app/1808575600/SST_V2/%d/keyspace%d/columnfamily%d/SNAPPY/PLAINTEXT/mc-%d-big-Data.db",
+                                1859817645000L + i, i % 16, i % 64, i));
+    }
+
+    @Test
+    public void parseV1() {
+        measure(
+                "V1",
+                i ->
+                        String.format(
+                                "test_backup/fake-region/fakecluster/123456/201108082320/SST/keyspace%d/columnfamily%d/mc-%d-big-Data.db",
+                                i % 16, i % 64, i));
+    }
+
+    private void measure(String layout, IntFunction<String> keyFactory) {
+        String[] keys = new String[KEYS];
+        for (int i = 0; i < KEYS; i++) keys[i] = keyFactory.apply(i);
+        parse(keys, WARMUP_PARSES);
+
+        com.sun.management.ThreadMXBean threadMXBean =
+                (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long threadId = Thread.currentThread().getId();
+        long allocatedBefore = threadMXBean.getThreadAllocatedBytes(threadId);
+        long start = System.nanoTime();
+        parse(keys, PARSES);
+        long nanos = System.nanoTime() - start;
+        long bytesPerParse =
+                (threadMXBean.getThreadAllocatedBytes(threadId) - allocatedBefore) / PARSES;
+
+        logger.info(
+                "Parsed {} {} keys: {} keys/s, {} bytes allocated per key",
+                PARSES,
+                layout,
+                PARSES * 1_000_000_000L / Math.max(1, nanos),
+                bytesPerParse);
+        Assert.assertTrue(
+                layout + " parse allocates " + bytesPerParse + " bytes",
+                bytesPerParse <= MAX_BYTES_PER_PARSE);
+    }
+
+    private void parse(String[] keys, int parses) {
+        for (int i = 0; i < parses; i++) {
+            RemoteBackupPath path = new RemoteBackupPath(configuration, null);
+            path.parseRemote(keys[i & (KEYS - 1)]);
+        }
+    }
+}
@@ -30,7 +30,9 @@ import com.netflix.priam.config.FakeConfiguration;
 import com.netflix.priam.config.IBackupRestoreConfig;
 import com.netflix.priam.config.IConfiguration;
 import com.netflix.priam.cred.ICredential;
+import com.netflix.priam.cred.ICredentialGeneric;
 import com.netflix.priam.cryptography.IFileCryptography;
+import com.netflix.priam.cryptography.pgp.PgpCredential;
 import com.netflix.priam.cryptography.pgp.PgpCryptography;
 import com.netflix.priam.defaultimpl.FakeCassandraProcess;
 import com.netflix.priam.defaultimpl.ICassandraProcess;
@@ -84,6 +86,9 @@ public class BRTestModule extends AbstractModule {
         bind(IFileCryptography.class)
                 .annotatedWith(Names.named("filecryptoalgorithm"))
                 .to(PgpCryptography.class);
+        bind(ICredentialGeneric.class)
+                .annotatedWith(Names.named("pgpcredential"))
+                .to(PgpCredential.class);
         bind(ICassandraProcess.class).to(FakeCassandraProcess.class);
         bind(IPostRestoreHook.class).to(FakePostRestoreHook.class);
         bind(Registry.class).toInstance(new DefaultRegistry());
@@ -18,15 +18,20 @@
 package com.netflix.priam.backup;
 
 import com.netflix.priam.aws.RemoteBackupPath;
+import com.netflix.priam.backupv2.BackupCatalog;
 import com.netflix.priam.config.IConfiguration;
 import com.netflix.priam.merics.BackupMetrics;
 import com.netflix.priam.notification.BackupNotificationMgr;
+import java.io.ByteArrayInputStream;
 import java.io.File;
 import java.io.FileWriter;
 import java.io.IOException;
+import java.io.InputStream;
 import java.nio.file.Path;
 import java.time.Instant;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
 import javax.inject.Inject;
 import javax.inject.Provider;
 import javax.inject.Singleton;
@@ -34,9 +39,10 @@ import org.json.simple.JSONArray;
 
 @Singleton
 public class FakeBackupFileSystem extends AbstractFileSystem {
-    private List<AbstractBackupPath> flist = new ArrayList<>();
+    private List<AbstractBackupPath> flist = new CopyOnWriteArrayList<>();
     public Set<String> downloadedFiles = new HashSet<>();
     public Set<String> uploadedFiles = new HashSet<>();
+    private final Map<String, byte[]> contents = new ConcurrentHashMap<>();
     private String baseDir;
     private String region;
     private String clusterName;
@@ -46,8 +52,9 @@ public class FakeBackupFileSystem extends AbstractFileSystem {
             IConfiguration configuration,
             BackupMetrics backupMetrics,
             BackupNotificationMgr backupNotificationMgr,
-            Provider<AbstractBackupPath> pathProvider) {
-        super(configuration, backupMetrics, backupNotificationMgr, pathProvider);
+            Provider<AbstractBackupPath> pathProvider,
+            BackupCatalog backupCatalog) {
+        super(configuration, backupMetrics, backupNotificationMgr, pathProvider, backupCatalog);
     }
 
     public void setupTest(List<String> files) {
@@ -63,6 +70,7 @@ public class FakeBackupFileSystem extends AbstractFileSystem {
         flist.clear();
         downloadedFiles.clear();
         uploadedFiles.clear();
+        contents.clear();
     }
 
     public void addFile(String file) {
@@ -71,6 +79,20 @@ public class FakeBackupFileSystem extends AbstractFileSystem {
         flist.add(path);
     }
 
+    /** Set the content of a remote file, as returned by {@link #openFile(AbstractBackupPath)}. */
+    public void setContent(String file, byte[] content) {
+        contents.put(file, content);
+    }
+
+    @Override
+    public InputStream openFile(AbstractBackupPath path) throws BackupRestoreException {
+        byte[] content = contents.get(path.getRemotePath());
+        if (content == null)
+            throw new BackupRestoreException("File not found: " + path.getRemotePath());
+        downloadedFiles.add(path.getRemotePath());
+        return new ByteArrayInputStream(content);
+    }
+
     @SuppressWarnings("unchecked")
     @Override
     public Iterator<AbstractBackupPath> list(String bucket, Date start, Date till) {
@@ -98,14 +120,15 @@ public class FakeBackupFileSystem extends AbstractFileSystem {
 
     @Override
     public Iterator<String> listFileSystem(String prefix, String delimiter, String marker) {
-        ArrayList<String> items = new ArrayList<>();
+        // Like S3, keys are listed in lexicographic order starting after the marker.
+        TreeSet<String> items = new TreeSet<>();
         flist.stream()
                 .forEach(
                         abstractBackupPath -> {
                             if (abstractBackupPath.getRemotePath().startsWith(prefix))
                                 items.add(abstractBackupPath.getRemotePath());
                         });
-        return items.iterator();
+        return (marker == null ? items : items.tailSet(marker, false)).iterator();
     }
 
     public void shutdown() {
@@ -17,9 +17,12 @@
 
 package com.netflix.priam.backup;
 
+import com.netflix.priam.backupv2.BackupCatalog;
 import com.netflix.priam.config.IConfiguration;
 import com.netflix.priam.merics.BackupMetrics;
 import com.netflix.priam.notification.BackupNotificationMgr;
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
 import java.nio.file.Path;
 import java.time.Instant;
 import java.util.Collections;
@@ -35,8 +38,9 @@ public class NullBackupFileSystem extends AbstractFileSystem {
             IConfiguration configuration,
             BackupMetrics backupMetrics,
             BackupNotificationMgr backupNotificationMgr,
-            Provider<AbstractBackupPath> pathProvider) {
-        super(configuration, backupMetrics, backupNotificationMgr, pathProvider);
+            Provider<AbstractBackupPath> pathProvider,
+            BackupCatalog backupCatalog) {
+        super(configuration, backupMetrics, backupNotificationMgr, pathProvider, backupCatalog);
     }
 
     public void shutdown() {
@@ -67,6 +71,11 @@ public class NullBackupFileSystem extends AbstractFileSystem {
     protected void downloadFileImpl(AbstractBackupPath path, String suffix)
             throws BackupRestoreException {}
 
+    @Override
+    public InputStream openFile(AbstractBackupPath path) throws BackupRestoreException {
+        return new ByteArrayInputStream(new byte[0]);
+    }
+
     @Override
     protected boolean doesRemoteFileExist(Path remotePath) {
         return false;
@@ -17,8 +17,10 @@
 
 package com.netflix.priam.backup;
 
+import com.google.common.collect.ImmutableSortedSet;
 import com.google.inject.Guice;
 import com.google.inject.Injector;
+import com.netflix.priam.backupv2.BackupCatalog;
 import com.netflix.priam.config.IConfiguration;
 import com.netflix.priam.merics.BackupMetrics;
 import com.netflix.priam.notification.BackupNotificationMgr;
@@ -30,9 +32,13 @@ import java.text.ParseException;
 import java.time.Instant;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Random;
+import java.util.TreeSet;
 import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
 import javax.inject.Inject;
 import javax.inject.Provider;
 import org.apache.commons.io.FileUtils;
@@ -68,12 +74,20 @@ public class TestAbstractFileSystem {
         if (failureFileSystem == null)
             failureFileSystem =
                     new FailureFileSystem(
-                            configuration, backupMetrics, backupNotificationMgr, pathProvider);
+                            configuration,
+                            backupMetrics,
+                            backupNotificationMgr,
+                            pathProvider,
+                            injector.getInstance(BackupCatalog.class));
 
         if (myFileSystem == null)
             myFileSystem =
                     new MyFileSystem(
-                            configuration, backupMetrics, backupNotificationMgr, pathProvider);
+                            configuration,
+                            backupMetrics,
+                            backupNotificationMgr,
+                            pathProvider,
+                            injector.getInstance(BackupCatalog.class));
 
         BackupFileUtils.cleanupDir(Paths.get(configuration.getDataFileLocation()));
     }
@@ -270,6 +284,116 @@ public class TestAbstractFileSystem {
         }
     }
 
+    @Test
+    public void testGetExistingObjects() throws Exception {
+        ListingFileSystem listingFileSystem =
+                new ListingFileSystem(
+                        configuration,
+                        backupMetrics,
+                        backupNotificationMgr,
+                        injector.getProvider(AbstractBackupPath.class),
+                        injector.getInstance(BackupCatalog.class));
+        ImmutableSortedSet.Builder<String> expected = ImmutableSortedSet.naturalOrder();
+        ImmutableSortedSet.Builder<String> snapshotFiles = ImmutableSortedSet.naturalOrder();
+        for (int i = 0; i < 100; i++) {
+            String remotePath = String.format("base/1234_app/token/SST_V2/%05d/ks/cf/file", i);
+            // Every third file is on the remote file system and every second file in the snapshot.
+            if (i % 3 == 0) listingFileSystem.remoteKeys.add(remotePath);
+            if (i % 2 == 0) snapshotFiles.add(remotePath);
+            if (i % 6 == 0) expected.add(remotePath);
+        }
+        listingFileSystem.remoteKeys.add("base/1234_app/token/META_V2/00001/meta_v2_1.json");
+
+        Assert.assertEquals(
+                expected.build(), listingFileSystem.getExistingObjects(snapshotFiles.build()));
+        // Existence is resolved by listing and not by checking each object.
+        Assert.assertEquals(0, listingFileSystem.existenceChecks.get());
+        Assert.assertEquals(
+                configuration.getRemoteFileSystemListThreads(), listingFileSystem.listings.get());
+    }
+
+    @Test
+    public void testGetExistingObjectsInterrupted() {
+        ListingFileSystem listingFileSystem =
+                new ListingFileSystem(
+                        configuration,
+                        backupMetrics,
+                        backupNotificationMgr,
+                        injector.getProvider(AbstractBackupPath.class),
+                        injector.getInstance(BackupCatalog.class));
+        Thread.currentThread().interrupt();
+        try {
+            listingFileSystem.getExistingObjects(
+                    ImmutableSortedSet.of("base/1234_app/token/SST_V2/00001/ks/cf/file"));
+            Assert.fail("Expected the listing to be cancelled");
+        } catch (CancellationException e) {
+            // The caller is still interrupted and the objects are not checked one by one instead.
+            Assert.assertTrue(Thread.interrupted());
+            Assert.assertEquals(0, listingFileSystem.existenceChecks.get());
+        }
+    }
+
+    @Test
+    public void testListFileSystemShards() {
+        ListingFileSystem listingFileSystem =
+                new ListingFileSystem(
+                        configuration,
+                        backupMetrics,
+                        backupNotificationMgr,
+                        injector.getProvider(AbstractBackupPath.class),
+                        injector.getInstance(BackupCatalog.class));
+        List<String> expected = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            String remotePath = String.format("base/1234_app/token/SST_V2/%03d/ks/cf/file", i);
+            listingFileSystem.remoteKeys.add(remotePath);
+            if (i > 5 && i < 50) expected.add(remotePath);
+        }
+        List<String> shards = new ArrayList<>();
+        for (int i = 0; i < 5; i++) shards.add("base/1234_app/token/SST_V2/0" + i);
+        String marker = "base/1234_app/token/SST_V2/005/ks/cf/file";
+
+        List<String> merged = new ArrayList<>();
+        listingFileSystem.listFileSystem(shards, marker).forEachRemaining(merged::add);
+        Assert.assertEquals(expected, merged);
+        Assert.assertEquals(shards.size(), listingFileSystem.listings.get());
+        Assert.assertEquals(
+                new TreeSet<>(expected),
+                listingFileSystem
+                        .streamFileSystem(shards, marker)
+                        .collect(Collectors.toCollection(TreeSet::new)));
+    }
+
+    class ListingFileSystem extends NullBackupFileSystem {
+        private final TreeSet<String> remoteKeys = new TreeSet<>();
+        private final AtomicInteger listings = new AtomicInteger();
+        private final AtomicInteger existenceChecks = new AtomicInteger();
+
+        ListingFileSystem(
+                IConfiguration configuration,
+                BackupMetrics backupMetrics,
+                BackupNotificationMgr backupNotificationMgr,
+                Provider<AbstractBackupPath> pathProvider,
+                BackupCatalog backupCatalog) {
+            super(configuration, backupMetrics, backupNotificationMgr, pathProvider, backupCatalog);
+        }
+
+        @Override
+        public Iterator<String> listFileSystem(String prefix, String delimiter, String marker) {
+            listings.incrementAndGet();
+            return remoteKeys
+                    .tailSet(marker, false)
+                    .stream()
+                    .filter(key -> key.startsWith(prefix))
+                    .iterator();
+        }
+
+        @Override
+        protected boolean doesRemoteFileExist(Path remotePath) {
+            existenceChecks.incrementAndGet();
+            return remoteKeys.contains(remotePath.toString());
+        }
+    }
+
     class FailureFileSystem extends NullBackupFileSystem {
 
         @Inject
@@ -277,8 +401,9 @@ public class TestAbstractFileSystem {
                 IConfiguration configuration,
                 BackupMetrics backupMetrics,
                 BackupNotificationMgr backupNotificationMgr,
-                Provider<AbstractBackupPath> pathProvider) {
-            super(configuration, backupMetrics, backupNotificationMgr, pathProvider);
+                Provider<AbstractBackupPath> pathProvider,
+                BackupCatalog backupCatalog) {
+            super(configuration, backupMetrics, backupNotificationMgr, pathProvider, backupCatalog);
         }
 
         @Override
@@ -307,8 +432,9 @@ public class TestAbstractFileSystem {
                 IConfiguration configuration,
                 BackupMetrics backupMetrics,
                 BackupNotificationMgr backupNotificationMgr,
-                Provider<AbstractBackupPath> pathProvider) {
-            super(configuration, backupMetrics, backupNotificationMgr, pathProvider);
+                Provider<AbstractBackupPath> pathProvider,
+                BackupCatalog backupCatalog) {
+            super(configuration, backupMetrics, backupNotificationMgr, pathProvider, backupCatalog);
         }
 
         @Override
@@ -22,6 +22,8 @@ import com.google.inject.Guice;
 import com.google.inject.Injector;
 import com.google.inject.Key;
 import com.google.inject.name.Names;
+import com.netflix.priam.config.FakeConfiguration;
+import com.netflix.priam.config.IConfiguration;
 import java.io.BufferedOutputStream;
 import java.io.File;
 import java.io.FileOutputStream;
@@ -29,6 +31,7 @@ import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.time.Instant;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.Set;
@@ -106,6 +109,41 @@ public class TestBackup {
         }
     }
 
+    @Test
+    public void testIncrementalBackupWatched() throws Exception {
+        Injector watchedInjector = Guice.createInjector(new BRTestModule());
+        ((FakeConfiguration) watchedInjector.getInstance(IConfiguration.class))
+                .setFakeConfig("Priam.backup.incremental.watch.enable", true);
+        FakeBackupFileSystem watchedFilesystem =
+                (FakeBackupFileSystem)
+                        watchedInjector.getInstance(
+                                Key.get(IBackupFileSystem.class, Names.named("backup")));
+        watchedFilesystem.cleanup();
+        generateIncrementalFiles();
+        IncrementalBackup backup = watchedInjector.getInstance(IncrementalBackup.class);
+        // The first run lists the directories and starts watching them.
+        backup.execute(null);
+        Assert.assertEquals(5, watchedFilesystem.uploadedFiles.size());
+
+        // A file flushed afterwards is uploaded by a run of the task, without waiting for the
+        // timer.
+        File flushed =
+                new File(
+                        "target/data/Keyspace1/Standard1/backups/Keyspace1-Standard1-ia-6-Data.db");
+        genTestFile(flushed);
+        Instant deadline = Instant.now().plusSeconds(30);
+        while (!watchedFilesystem.uploadedFiles.contains(flushed.getAbsolutePath())
+                && Instant.now().isBefore(deadline)) Thread.sleep(100);
+        Assert.assertTrue(watchedFilesystem.uploadedFiles.contains(flushed.getAbsolutePath()));
+        Assert.assertFalse(flushed.exists());
+        Assert.assertTrue(backup.getExecutionCount() > 1);
+
+        // Stop watching, the other tests back up the same directories.
+        ((FakeConfiguration) watchedInjector.getInstance(IConfiguration.class))
+                .setFakeConfig("Priam.backup.incremental.watch.enable", false);
+        backup.execute();
+    }
+
     @Test
     public void testIncrementalBackupOfSecondaryIndexes() throws Exception {
         filesystem.cleanup();
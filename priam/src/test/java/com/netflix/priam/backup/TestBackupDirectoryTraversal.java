@@ -0,0 +1,99 @@
+/*
+ * Copyright 2020 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.netflix.priam.backup;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import org.apache.commons.io.FileUtils;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+/** Tests for listing the backup directories of all the columnfamilies. */
+public class TestBackupDirectoryTraversal {
+    private final ForkJoinPool pool = new ForkJoinPool(4);
+    private final Set<File> backupDirs = new HashSet<>();
+    private Path dataDir;
+
+    @Before
+    public void setup() throws IOException {
+        dataDir = Files.createTempDirectory("data");
+        for (int keyspace = 0; keyspace < 3; keyspace++) {
+            for (int columnFamily = 0; columnFamily < 200; columnFamily++) {
+                Path columnFamilyDir =
+                        dataDir.resolve("ks" + keyspace).resolve("cf" + columnFamily + "-1234");
+                if (columnFamily % 3 == 0) Files.createDirectories(columnFamilyDir);
+                else
+                    backupDirs.add(
+                            Files.createDirectories(columnFamilyDir.resolve("backups")).toFile());
+            }
+        }
+        // Not a keyspace.
+        Files.createFile(dataDir.resolve("file.txt"));
+    }
+
+    @After
+    public void cleanup() {
+        pool.shutdownNow();
+        FileUtils.deleteQuietly(dataDir.toFile());
+    }
+
+    @Test
+    public void testTraversal() {
+        try (Stream<File> stream =
+                BackupDirectoryTraversal.stream(pool, dataDir.toFile(), "backups", "test")) {
+            Assert.assertEquals(backupDirs, stream.collect(Collectors.toSet()));
+        }
+        try (Stream<File> stream =
+                BackupDirectoryTraversal.stream(pool, dataDir.toFile(), "snapshots", "test")) {
+            Assert.assertEquals(0, stream.count());
+        }
+    }
+
+    @Test
+    public void testCloseBeforeEnd() {
+        // More directories than fit in the queue, so the listing waits for the caller.
+        try (Stream<File> stream =
+                BackupDirectoryTraversal.stream(pool, dataDir.toFile(), "backups", "test")) {
+            Assert.assertTrue(backupDirs.contains(stream.iterator().next()));
+        }
+        Assert.assertTrue(pool.awaitQuiescence(10, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void testFullQueueDoesNotStarvePool() throws Exception {
+        ForkJoinPool singleThreadPool = new ForkJoinPool(1);
+        try (Stream<File> stream =
+                BackupDirectoryTraversal.stream(
+                        singleThreadPool, dataDir.toFile(), "backups", "test")) {
+            // The listing waits for room in the queue, while other tasks of the pool still run.
+            Assert.assertTrue(singleThreadPool.submit(() -> true).get(10, TimeUnit.SECONDS));
+            Assert.assertEquals(backupDirs, stream.collect(Collectors.toSet()));
+        } finally {
+            singleThreadPool.shutdownNow();
+        }
+    }
+}
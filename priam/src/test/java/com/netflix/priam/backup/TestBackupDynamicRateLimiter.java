@@ -7,6 +7,7 @@ import com.google.inject.Guice;
 import com.google.inject.Injector;
 import com.netflix.priam.aws.RemoteBackupPath;
 import com.netflix.priam.config.FakeConfiguration;
+import com.netflix.priam.merics.BackupMetrics;
 import java.nio.file.Paths;
 import java.time.Clock;
 import java.time.Duration;
@@ -24,6 +25,7 @@ public class TestBackupDynamicRateLimiter {
     private static final int DIR_SIZE = 1 << 16;
 
     private BackupDynamicRateLimiter rateLimiter;
+    private FakeDirectorySize directorySize;
     private FakeConfiguration config;
     private Injector injector;
 
@@ -41,6 +43,15 @@ public class TestBackupDynamicRateLimiter {
         Truth.assertThat(timer.elapsed(TimeUnit.MILLISECONDS)).isAtMost(2_000);
     }
 
+    @Test
+    public void rateIsSharedByBackupThreads() {
+        // The threads share the limiter, so each upload is paced at the rate of all of them.
+        rateLimiter = getRateLimiter(ImmutableMap.of("Priam.backup.threads", 4), NOW, DIR_SIZE);
+        Stopwatch timer = timePermitAcquisition(getBackupPath(), LATER, 21);
+        Truth.assertThat(timer.elapsed(TimeUnit.MILLISECONDS)).isAtLeast(1_000);
+        Truth.assertThat(timer.elapsed(TimeUnit.MILLISECONDS)).isAtMost(2_000);
+    }
+
     @Test
     public void targetSetToEpoch() {
         rateLimiter = getRateLimiter(ImmutableMap.of("Priam.backup.threads", 1), NOW, DIR_SIZE);
@@ -112,6 +123,88 @@ public class TestBackupDynamicRateLimiter {
                 () -> timePermitAcquisition(getBackupPath(), LATER, -1));
     }
 
+    @Test
+    public void directoryWalkedOncePerSnapshot() {
+        rateLimiter = getRateLimiter(ImmutableMap.of("Priam.backup.threads", 1), NOW, 0);
+        for (int i = 0; i < 10; i++) rateLimiter.acquire(getBackupPath(), LATER, 20);
+        Assert.assertEquals(1, directorySize.walks);
+        // Files of older snapshots were counted as well.
+        rateLimiter.acquire(
+                getBackupPath(
+                        "target/data/Keyspace1/Standard1/snapshots/snap_v2_202101010000/Keyspace1-Standard1-ia-4-Data.db"),
+                LATER,
+                20);
+        Assert.assertEquals(1, directorySize.walks);
+        rateLimiter.acquire(
+                getBackupPath(
+                        "target/data/Keyspace1/Standard1/snapshots/snap_v2_202201020000/Keyspace1-Standard1-ia-4-Data.db"),
+                LATER,
+                20);
+        Assert.assertEquals(2, directorySize.walks);
+    }
+
+    @Test
+    public void uploadedFilesAreNotThrottled() {
+        rateLimiter = getRateLimiter(ImmutableMap.of("Priam.backup.threads", 1), NOW, DIR_SIZE);
+        AbstractBackupPath path = getBackupPath();
+        rateLimiter.acquire(path, LATER, 21);
+        path.setSize(DIR_SIZE);
+        rateLimiter.uploaded(path);
+        // Nothing is left to upload.
+        Stopwatch timer = timePermitAcquisition(path, LATER, 21);
+        assertNoRateLimiting(timer);
+        Assert.assertEquals(1, directorySize.walks);
+    }
+
+    @Test
+    public void throttleAppliesToAllUploads() {
+        rateLimiter =
+                getRateLimiter(
+                        ImmutableMap.of("Priam.backup.threads", 1, "Priam.upload.throttle", 100),
+                        NOW,
+                        0);
+        Stopwatch timer = timePermitAcquisition(getBackupPath(), Instant.EPOCH, 100);
+        Truth.assertThat(timer.elapsed(TimeUnit.MILLISECONDS)).isAtLeast(900);
+        Truth.assertThat(timer.elapsed(TimeUnit.MILLISECONDS)).isAtMost(1_500);
+    }
+
+    @Test
+    public void bestEffortUploadsKeepAShareOfTheThrottle() {
+        rateLimiter =
+                getRateLimiter(
+                        ImmutableMap.of("Priam.backup.threads", 1, "Priam.upload.throttle", 100),
+                        NOW,
+                        DIR_SIZE * 1000L);
+        // The snapshot needs more than the throttle to make its target.
+        rateLimiter.acquire(getBackupPath(), LATER, 1);
+        AbstractBackupPath path =
+                getBackupPath(
+                        "target/data/Keyspace1/Standard1/backups/Keyspace1-Standard1-ia-4-Data.db");
+        Stopwatch timer = timePermitAcquisition(path, Instant.EPOCH, 10);
+        Truth.assertThat(timer.elapsed(TimeUnit.MILLISECONDS)).isAtLeast(900);
+        Truth.assertThat(timer.elapsed(TimeUnit.MILLISECONDS)).isAtMost(1_500);
+        BackupMetrics backupMetrics = injector.getInstance(BackupMetrics.class);
+        Assert.assertEquals(1, backupMetrics.getScheduledUploadBytes().count());
+        Assert.assertEquals(20, backupMetrics.getBestEffortUploadBytes().count());
+    }
+
+    @Test
+    public void bestEffortUploadsGetWhatTheSnapshotLeaves() {
+        rateLimiter =
+                getRateLimiter(
+                        ImmutableMap.of("Priam.backup.threads", 4, "Priam.upload.throttle", 100),
+                        NOW,
+                        50L * Duration.between(NOW, LATER).getSeconds());
+        // The snapshot needs half of the throttle to make its target, whatever the threads.
+        rateLimiter.acquire(getBackupPath(), LATER, 1);
+        AbstractBackupPath path =
+                getBackupPath(
+                        "target/data/Keyspace1/Standard1/backups/Keyspace1-Standard1-ia-4-Data.db");
+        Stopwatch timer = timePermitAcquisition(path, Instant.EPOCH, 50);
+        Truth.assertThat(timer.elapsed(TimeUnit.MILLISECONDS)).isAtLeast(900);
+        Truth.assertThat(timer.elapsed(TimeUnit.MILLISECONDS)).isAtMost(1_500);
+    }
+
     private RemoteBackupPath getBackupPath() {
         return getBackupPath(
                 "target/data/Keyspace1/Standard1/snapshots/snap_v2_202201010000/.STANDARD1_field1_idx_1/Keyspace1-Standard1-ia-4-Data.db");
@@ -134,10 +227,13 @@ public class TestBackupDynamicRateLimiter {
     private BackupDynamicRateLimiter getRateLimiter(
             Map<String, Object> properties, Instant now, long directorySize) {
         properties.forEach(config::setFakeConfig);
+        this.directorySize = new FakeDirectorySize(directorySize);
         return new BackupDynamicRateLimiter(
                 config,
                 Clock.fixed(now, ZoneId.systemDefault()),
-                new FakeDirectorySize(directorySize));
+                this.directorySize,
+                injector.getInstance(BackupMetrics.class),
+                injector.getInstance(NetworkHeadroom.class));
     }
 
     private void assertNoRateLimiting(Stopwatch timer) {
@@ -146,6 +242,7 @@ public class TestBackupDynamicRateLimiter {
 
     private static final class FakeDirectorySize implements DirectorySize {
         private final long size;
+        private int walks;
 
         FakeDirectorySize(long size) {
             this.size = size;
@@ -153,6 +250,7 @@ public class TestBackupDynamicRateLimiter {
 
         @Override
         public long getBytes(String location) {
+            walks++;
             return size;
         }
     }
@@ -0,0 +1,93 @@
+/*
+ * Copyright 2020 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.netflix.priam.backup;
+
+import com.netflix.priam.config.BackupReadMode;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.util.Random;
+import org.apache.commons.io.IOUtils;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+/** Tests that files read the same in every read mode, whichever the platform supports. */
+public class TestBackupFileReader {
+    // Spans several direct reads and ends unaligned.
+    private static final int SIZE = 3 * 1024 * 1024 + 123;
+    private byte[] data;
+    private File file;
+
+    @Before
+    public void setup() throws IOException {
+        data = new byte[SIZE];
+        new Random(42).nextBytes(data);
+        file = Files.createTempFile("mc-1-big", "-Data.db").toFile();
+        Files.write(file.toPath(), data);
+    }
+
+    @After
+    public void cleanup() {
+        file.delete();
+    }
+
+    @Test
+    public void buffered() throws IOException {
+        assertRead(BackupReadMode.BUFFERED);
+    }
+
+    @Test
+    public void fadvise() throws IOException {
+        assertRead(BackupReadMode.FADVISE);
+    }
+
+    @Test
+    public void direct() throws IOException {
+        assertRead(BackupReadMode.DIRECT);
+    }
+
+    @Test
+    public void singleBytes() throws IOException {
+        for (BackupReadMode mode : BackupReadMode.values()) {
+            try (InputStream in = BackupFileReader.open(file, mode)) {
+                for (int i = 0; i < 5000; i++) Assert.assertEquals(data[i] & 0xff, in.read());
+                byte[] rest = IOUtils.toByteArray(in);
+                Assert.assertEquals(SIZE - 5000, rest.length);
+                Assert.assertEquals(-1, in.read());
+            }
+        }
+    }
+
+    @Test
+    public void emptyFile() throws IOException {
+        Files.write(file.toPath(), new byte[0]);
+        for (BackupReadMode mode : BackupReadMode.values()) {
+            try (InputStream in = BackupFileReader.open(file, mode)) {
+                Assert.assertEquals(-1, in.read());
+            }
+        }
+    }
+
+    private void assertRead(BackupReadMode mode) throws IOException {
+        try (InputStream in = BackupFileReader.open(file, mode)) {
+            Assert.assertArrayEquals(data, IOUtils.toByteArray(in));
+        }
+    }
+}
@@ -20,13 +20,20 @@ package com.netflix.priam.backup;
 import com.google.inject.Guice;
 import com.google.inject.Injector;
 import com.netflix.priam.config.IConfiguration;
+import com.netflix.priam.health.InstanceState;
 import com.netflix.priam.utils.DateUtil;
 import com.netflix.priam.utils.DateUtil.DateRange;
+import com.netflix.priam.utils.MaxSizeHashMap;
 import java.io.File;
+import java.io.FileOutputStream;
+import java.io.ObjectOutputStream;
 import java.time.Instant;
 import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
 import java.util.Calendar;
+import java.util.Collections;
 import java.util.Date;
+import java.util.LinkedList;
 import java.util.List;
 import java.util.Optional;
 import org.apache.commons.io.FileUtils;
@@ -42,13 +49,14 @@ import org.slf4j.LoggerFactory;
 /** Created by aagrawal on 7/11/17. */
 public class TestBackupStatusMgr {
     private static final Logger logger = LoggerFactory.getLogger(TestBackupStatusMgr.class);
+    private static Injector injector;
     private static IConfiguration configuration;
     private static IBackupStatusMgr backupStatusMgr;
     private final String backupDate = "201812011000";
 
     @BeforeClass
     public static void setup() {
-        Injector injector = Guice.createInjector(new BRTestModule());
+        injector = Guice.createInjector(new BRTestModule());
         // cleanup old saved file, if any
         configuration = injector.getInstance(IConfiguration.class);
         backupStatusMgr = injector.getInstance(IBackupStatusMgr.class);
@@ -249,4 +257,200 @@ public class TestBackupStatusMgr {
                         new DateRange(backupDate + "," + "201812031000"));
         list.forEach(System.out::println);
     }
+
+    private FileSnapshotStatusMgr reload() {
+        return new FileSnapshotStatusMgr(configuration, injector.getInstance(InstanceState.class));
+    }
+
+    @Test
+    public void testJournalReplay() throws Exception {
+        Date startTime = DateUtil.getDate("198407130720");
+        BackupMetadata backupMetadata =
+                new BackupMetadata(BackupVersion.SNAPSHOT_BACKUP, "123", startTime);
+        backupStatusMgr.start(backupMetadata);
+        backupMetadata.setCassandraSnapshotSuccess(true);
+        backupMetadata.setSnapshotLocation("random");
+        backupStatusMgr.finish(backupMetadata);
+        BackupMetadata failed =
+                new BackupMetadata(
+                        BackupVersion.SNAPSHOT_META_SERVICE,
+                        "123",
+                        new DateTime(startTime.getTime()).plusHours(1).toDate());
+        backupStatusMgr.start(failed);
+        backupStatusMgr.failed(failed);
+
+        List<BackupMetadata> metadataList = reload().locate(startTime);
+        Assert.assertEquals(2, metadataList.size());
+        Assert.assertEquals(failed, metadataList.get(0));
+        Assert.assertEquals(Status.FAILED, metadataList.get(0).getStatus());
+        Assert.assertNull(metadataList.get(0).getSnapshotLocation());
+        BackupMetadata replayed = metadataList.get(1);
+        Assert.assertEquals(backupMetadata, replayed);
+        Assert.assertEquals(Status.FINISHED, replayed.getStatus());
+        Assert.assertEquals(backupMetadata.getCompleted(), replayed.getCompleted());
+        Assert.assertTrue(replayed.isCassandraSnapshotSuccess());
+        Assert.assertEquals("random", replayed.getSnapshotLocation());
+        Assert.assertNull(replayed.getLastValidated());
+    }
+
+    @Test
+    public void testJournalIncompleteRecord() throws Exception {
+        Date startTime = DateUtil.getDate("198407140720");
+        BackupMetadata backupMetadata =
+                new BackupMetadata(BackupVersion.SNAPSHOT_BACKUP, "123", startTime);
+        backupStatusMgr.start(backupMetadata);
+        backupStatusMgr.finish(backupMetadata);
+        // A record cut short by a crash.
+        try (FileOutputStream out =
+                new FileOutputStream(configuration.getBackupStatusFileLoc(), true)) {
+            out.write(new byte[] {0, 0, 0, 42, 1, 2, 3});
+        }
+
+        FileSnapshotStatusMgr statusMgr = reload();
+        Assert.assertEquals(Status.FINISHED, statusMgr.locate(startTime).get(0).getStatus());
+        // The journal is rewritten without the incomplete record.
+        statusMgr.failed(backupMetadata);
+        Assert.assertEquals(Status.FAILED, reload().locate(startTime).get(0).getStatus());
+    }
+
+    @Test
+    public void testJournalIncompleteLength() throws Exception {
+        Date startTime = DateUtil.getDate("198407140820");
+        BackupMetadata backupMetadata =
+                new BackupMetadata(BackupVersion.SNAPSHOT_BACKUP, "123", startTime);
+        backupStatusMgr.start(backupMetadata);
+        backupStatusMgr.finish(backupMetadata);
+        // The length of a record cut short by a crash.
+        try (FileOutputStream out =
+                new FileOutputStream(configuration.getBackupStatusFileLoc(), true)) {
+            out.write(new byte[] {0, 0});
+        }
+
+        Assert.assertEquals(Status.FINISHED, reload().locate(startTime).get(0).getStatus());
+    }
+
+    @Test
+    public void testSerializedStatusFile() throws Exception {
+        Date startTime = DateUtil.getDate("198407150720");
+        BackupMetadata backupMetadata =
+                new BackupMetadata(BackupVersion.SNAPSHOT_BACKUP, "123", startTime);
+        backupMetadata.setStatus(Status.FINISHED);
+        MaxSizeHashMap<String, LinkedList<BackupMetadata>> map = new MaxSizeHashMap<>(60);
+        map.put(backupMetadata.getSnapshotDate(), new LinkedList<>());
+        map.get(backupMetadata.getSnapshotDate()).add(backupMetadata);
+        try (ObjectOutputStream out =
+                new ObjectOutputStream(
+                        new FileOutputStream(configuration.getBackupStatusFileLoc()))) {
+            out.writeObject(map);
+        }
+
+        Assert.assertEquals(Status.FINISHED, reload().locate(startTime).get(0).getStatus());
+        // Converted to a journal.
+        Assert.assertEquals(Status.FINISHED, reload().locate(startTime).get(0).getStatus());
+    }
+
+    @Test
+    public void testStatusQueries() throws Exception {
+        IBackupStatusMgr statusMgr = reload();
+        Instant start = DateUtil.parseInstant(backupDate);
+        DateRange dateRange = new DateRange(start, start.plus(1, ChronoUnit.DAYS));
+        Assert.assertTrue(
+                statusMgr
+                        .getLatestBackupMetadata(BackupVersion.SNAPSHOT_BACKUP, dateRange)
+                        .isEmpty());
+
+        BackupMetadata finished = getBackupMetaData(start, Status.STARTED);
+        statusMgr.start(finished);
+        BackupMetadata failed = getBackupMetaData(start.plus(2, ChronoUnit.HOURS), Status.STARTED);
+        statusMgr.start(failed);
+        Assert.assertTrue(
+                statusMgr
+                        .getLatestBackupMetadata(BackupVersion.SNAPSHOT_BACKUP, dateRange)
+                        .isEmpty());
+
+        statusMgr.finish(finished);
+        statusMgr.failed(failed);
+        BackupMetadata nextDay = getBackupMetaData(start.plus(1, ChronoUnit.DAYS), Status.STARTED);
+        statusMgr.start(nextDay);
+        statusMgr.finish(nextDay);
+        Assert.assertTrue(
+                statusMgr
+                        .getLatestBackupMetadata(BackupVersion.SNAPSHOT_META_SERVICE, dateRange)
+                        .isEmpty());
+
+        // Both ends of the range are inclusive.
+        List<BackupMetadata> list =
+                statusMgr.getLatestBackupMetadata(BackupVersion.SNAPSHOT_BACKUP, dateRange);
+        Assert.assertEquals(2, list.size());
+        Assert.assertEquals(nextDay, list.get(0));
+        Assert.assertEquals(finished, list.get(1));
+        list =
+                statusMgr.getLatestBackupMetadata(
+                        BackupVersion.SNAPSHOT_BACKUP,
+                        new DateRange(
+                                start.plus(1, ChronoUnit.MINUTES),
+                                start.plus(1, ChronoUnit.DAYS).minus(1, ChronoUnit.MINUTES)));
+        Assert.assertTrue(list.isEmpty());
+
+        // Statuses replayed from the journal are indexed.
+        Assert.assertEquals(
+                list,
+                reload().getLatestBackupMetadata(
+                                BackupVersion.SNAPSHOT_BACKUP,
+                                new DateRange(
+                                        start.plus(1, ChronoUnit.MINUTES),
+                                        start.plus(1, ChronoUnit.DAYS)
+                                                .minus(1, ChronoUnit.MINUTES))));
+        Assert.assertEquals(
+                2,
+                reload().getLatestBackupMetadata(BackupVersion.SNAPSHOT_BACKUP, dateRange).size());
+    }
+
+    @Test
+    public void testFetchMissingDays() throws Exception {
+        Instant start = DateUtil.parseInstant(backupDate);
+        BackupMetadata stored = getBackupMetaData(start, Status.FINISHED);
+        List<String> fetched = new ArrayList<>();
+        BackupStatusMgr statusMgr =
+                new BackupStatusMgr(10, injector.getInstance(InstanceState.class)) {
+                    @Override
+                    protected void save(BackupMetadata backupMetadata) {}
+
+                    @Override
+                    protected LinkedList<BackupMetadata> fetch(String snapshotDate) {
+                        fetched.add(snapshotDate);
+                        if (!snapshotDate.equals(stored.getSnapshotDate())) return null;
+                        return new LinkedList<>(Collections.singletonList(stored));
+                    }
+                };
+
+        DateRange dateRange =
+                new DateRange(start.minus(1, ChronoUnit.DAYS), start.plus(1, ChronoUnit.DAYS));
+        Assert.assertEquals(
+                Collections.singletonList(stored),
+                statusMgr.getLatestBackupMetadata(BackupVersion.SNAPSHOT_BACKUP, dateRange));
+        Assert.assertEquals(3, fetched.size());
+        // Only the day with backups is held in memory.
+        Assert.assertEquals(1, statusMgr.getAllSnapshotStatus().size());
+        fetched.clear();
+        statusMgr.getLatestBackupMetadata(BackupVersion.SNAPSHOT_BACKUP, dateRange);
+        Assert.assertFalse(fetched.contains(stored.getSnapshotDate()));
+    }
+
+    @Test
+    public void testStatusQueriesAfterEviction() throws Exception {
+        IBackupStatusMgr statusMgr = reload();
+        Instant start = DateUtil.parseInstant(backupDate);
+        for (int i = 0; i <= statusMgr.getCapacity(); i++)
+            statusMgr.finish(getBackupMetaData(start.plus(i, ChronoUnit.DAYS), Status.FINISHED));
+
+        // The oldest day is no longer held in memory.
+        List<BackupMetadata> list =
+                statusMgr.getLatestBackupMetadata(
+                        BackupVersion.SNAPSHOT_BACKUP,
+                        new DateRange(start, start.plus(statusMgr.getCapacity(), ChronoUnit.DAYS)));
+        Assert.assertEquals(statusMgr.getCapacity(), list.size());
+        Assert.assertEquals(
+                start.plus(1, ChronoUnit.DAYS), list.get(list.size() - 1).getStart().toInstant());
+    }
 }
@@ -34,6 +34,7 @@ import java.time.temporal.ChronoUnit;
 import java.util.Date;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Collectors;
 import mockit.Mock;
 import mockit.MockUp;
 import org.apache.commons.io.FileUtils;
@@ -80,6 +81,15 @@ public class TestBackupVerification {
         public BackupVerificationResult isMetaFileValid(AbstractBackupPath metaBackupPath) {
             return getBackupVerificationResult();
         }
+
+        @Mock
+        public List<BackupVerificationResult> isMetaFileValid(
+                List<AbstractBackupPath> metaBackupPaths) {
+            return metaBackupPaths
+                    .stream()
+                    .map(metaBackupPath -> getBackupVerificationResult())
+                    .collect(Collectors.toList());
+        }
     }
 
     @Before
@@ -0,0 +1,139 @@
+/*
+ * Copyright 2020 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.netflix.priam.backup;
+
+import com.google.common.collect.ImmutableList;
+import com.google.inject.Guice;
+import com.netflix.priam.config.FakeConfiguration;
+import com.netflix.priam.merics.BackupMetrics;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.time.Duration;
+import java.util.List;
+import org.apache.commons.io.IOUtils;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+/** Tests for the pacing of backup reads to the statistics of the data device. */
+public class TestDiskReadGovernor {
+    private static final int MB = 1024 * 1024;
+    private static final List<String> PROC_DISKSTATS =
+            ImmutableList.of(
+                    " 259       0 nvme0n1 1000 10 80000 2000 500 5 40000 3000 0 4000 5000 0 0 0 0",
+                    " 259       1 nvme0n1p1 900 10 72000 1800 400 5 32000 2500 2 3500 4300 0 0 0 0");
+
+    private final FakeConfiguration config = new FakeConfiguration();
+    private final FakeClock clock = new FakeClock();
+    private long ios;
+    private long ioWaitMillis;
+    private long busyMillis;
+    private boolean failing;
+    private DiskReadGovernor governor;
+
+    @Before
+    public void setUp() {
+        governor =
+                new DiskReadGovernor(
+                        config,
+                        () -> {
+                            if (failing) throw new IOException("No statistics");
+                            return new DiskCounters.Stats(ios, ioWaitMillis, busyMillis);
+                        },
+                        clock,
+                        Guice.createInjector(new BRTestModule()).getInstance(BackupMetrics.class));
+    }
+
+    @Test
+    public void noTargets() {
+        governor.acquire(1);
+        governor.acquire(10 * MB);
+        second(100, 10_000, 1000);
+        Assert.assertEquals(Double.MAX_VALUE, governor.getRate(), 0);
+    }
+
+    @Test
+    public void utilizationMissesTarget() {
+        config.setFakeConfig("Priam.backup.disk.utilization.target", 80);
+        governor.acquire(1);
+        governor.acquire(10 * MB);
+        second(100, 100, 900);
+        Assert.assertEquals(5 * MB, governor.getRate(), 1);
+        // Backups stopped reading, the device is still busy.
+        second(100, 100, 900);
+        Assert.assertEquals(MB, governor.getRate(), 0);
+        // Backups do not read as fast as they may.
+        second(100, 100, 100);
+        Assert.assertEquals(Double.MAX_VALUE, governor.getRate(), 0);
+    }
+
+    @Test
+    public void awaitMissesTarget() {
+        config.setFakeConfig("Priam.backup.disk.await.target.ms", 10);
+        governor.acquire(1);
+        governor.acquire(10 * MB);
+        second(100, 5000, 100);
+        Assert.assertEquals(5 * MB, governor.getRate(), 1);
+        // Backups read as fast as they may, and the device meets the target.
+        governor.acquire(4 * MB);
+        second(100, 100, 100);
+        Assert.assertEquals(6 * MB, governor.getRate(), 1);
+    }
+
+    @Test
+    public void statisticsUnavailable() {
+        config.setFakeConfig("Priam.backup.disk.utilization.target", 80);
+        failing = true;
+        governor.acquire(1);
+        governor.acquire(10 * MB);
+        second(100, 100, 900);
+        Assert.assertEquals(Double.MAX_VALUE, governor.getRate(), 0);
+    }
+
+    @Test
+    public void pacedStream() throws IOException {
+        config.setFakeConfig("Priam.backup.disk.utilization.target", 80);
+        byte[] data = new byte[64 * 1024];
+        for (int i = 0; i < data.length; i++) data[i] = (byte) i;
+        try (InputStream in = governor.pace(new ByteArrayInputStream(data))) {
+            Assert.assertArrayEquals(data, IOUtils.toByteArray(in));
+        }
+    }
+
+    @Test
+    public void parseProcDiskStats() throws IOException {
+        DiskCounters.Stats stats = ProcDiskStats.parse(PROC_DISKSTATS, "nvme0n1p1");
+        Assert.assertEquals(1300, stats.getIos());
+        Assert.assertEquals(4300, stats.getIoWaitMillis());
+        Assert.assertEquals(3500, stats.getBusyMillis());
+    }
+
+    @Test(expected = IOException.class)
+    public void parseProcDiskStatsWithoutDevice() throws IOException {
+        ProcDiskStats.parse(PROC_DISKSTATS, "sda");
+    }
+
+    /** A second passes, in which the device completes the I/O, then backups read a byte. */
+    private void second(long ios, long ioWaitMillis, long busyMillis) {
+        clock.advance(Duration.ofSeconds(1));
+        this.ios += ios;
+        this.ioWaitMillis += ioWaitMillis;
+        this.busyMillis += busyMillis;
+        governor.acquire(1);
+    }
+}
@@ -19,8 +19,8 @@ package com.netflix.priam.backup;
 
 import com.amazonaws.AmazonClientException;
 import com.amazonaws.services.s3.AmazonS3Client;
-import com.amazonaws.services.s3.model.ListObjectsRequest;
-import com.amazonaws.services.s3.model.ObjectListing;
+import com.amazonaws.services.s3.model.ListObjectsV2Request;
+import com.amazonaws.services.s3.model.ListObjectsV2Result;
 import com.amazonaws.services.s3.model.S3ObjectSummary;
 import com.google.inject.Guice;
 import com.google.inject.Injector;
@@ -66,27 +66,19 @@ public class TestFileIterator {
 
     static class MockAmazonS3Client extends MockUp<AmazonS3Client> {
         @Mock
-        public ObjectListing listObjects(ListObjectsRequest listObjectsRequest)
+        public ListObjectsV2Result listObjectsV2(ListObjectsV2Request listObjectsRequest)
                 throws AmazonClientException {
-            ObjectListing listing = new ObjectListing();
+            ListObjectsV2Result listing = new ListObjectsV2Result();
             listing.setBucketName(listObjectsRequest.getBucketName());
             listing.setPrefix(listObjectsRequest.getPrefix());
+            listing.setNextContinuationToken("token");
             return listing;
         }
-
-        @Mock
-        public ObjectListing listNextBatchOfObjects(ObjectListing previousObjectListing)
-                throws AmazonClientException {
-            ObjectListing listing = new ObjectListing();
-            listing.setBucketName(previousObjectListing.getBucketName());
-            listing.setPrefix(previousObjectListing.getPrefix());
-            return new ObjectListing();
-        }
     }
 
     // MockObjectListing class
     @Ignore
-    public static class MockObjectListing extends MockUp<ObjectListing> {
+    public static class MockObjectListing extends MockUp<ListObjectsV2Result> {
         public static boolean truncated = true;
         public static boolean firstcall = true;
         public static boolean simfilter = false; // Simulate filtering
@@ -0,0 +1,87 @@
+/*
+ * Copyright 2020 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.netflix.priam.backup;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import org.apache.commons.io.FileUtils;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+/** Tests for watching incremental backup directories. */
+public class TestIncrementalBackupWatcher {
+    private final BlockingQueue<Set<File>> changes = new LinkedBlockingQueue<>();
+    private Path dataDir;
+    private IncrementalBackupWatcher watcher;
+
+    @Before
+    public void setup() throws IOException {
+        dataDir = Files.createTempDirectory("data");
+        Files.createDirectories(dataDir.resolve("ks1/cf1-1234/backups"));
+        Files.createFile(dataDir.resolve("ks1/cf1-1234/backups/ks1-cf1-ka-1-Data.db"));
+        watcher =
+                new IncrementalBackupWatcher(
+                        dataDir, "backups", 100, (backupDirs, rescan) -> changes.add(backupDirs));
+    }
+
+    @After
+    public void cleanup() throws IOException {
+        watcher.close();
+        FileUtils.deleteQuietly(dataDir.toFile());
+    }
+
+    @Test
+    public void testNewFile() throws Exception {
+        Path backupDir = dataDir.resolve("ks1/cf1-1234/backups");
+        Files.createFile(backupDir.resolve("ks1-cf1-ka-2-Data.db"));
+        Files.createFile(backupDir.resolve("ks1-cf1-ka-2-Index.db"));
+        // Both files are reported together.
+        Assert.assertEquals(
+                backupDir.toFile(), changes.poll(10, TimeUnit.SECONDS).iterator().next());
+        Assert.assertNull(changes.poll(500, TimeUnit.MILLISECONDS));
+
+        Path indexDir = Files.createDirectories(backupDir.resolve(".cf1_field1_idx"));
+        Assert.assertEquals(
+                backupDir.toFile(), changes.poll(10, TimeUnit.SECONDS).iterator().next());
+        Files.createFile(indexDir.resolve("ks1-cf1.cf1_field1_idx-ka-1-Data.db"));
+        Assert.assertEquals(
+                backupDir.toFile(), changes.poll(10, TimeUnit.SECONDS).iterator().next());
+    }
+
+    @Test
+    public void testNewColumnFamily() throws Exception {
+        // Neither a backup directory nor a secondary index.
+        Files.createDirectories(dataDir.resolve("ks1/cf2-1234/snapshots"));
+        Files.createFile(dataDir.resolve("ks1/cf2-1234/snapshots/ks1-cf2-ka-1-Data.db"));
+        Assert.assertNull(changes.poll(500, TimeUnit.MILLISECONDS));
+
+        Path backupDir = Files.createDirectories(dataDir.resolve("ks2/cf1-1234/backups"));
+        Assert.assertEquals(
+                backupDir.toFile(), changes.poll(10, TimeUnit.SECONDS).iterator().next());
+        Files.createFile(backupDir.resolve("ks2-cf1-ka-1-Data.db"));
+        Assert.assertEquals(
+                backupDir.toFile(), changes.poll(10, TimeUnit.SECONDS).iterator().next());
+    }
+}
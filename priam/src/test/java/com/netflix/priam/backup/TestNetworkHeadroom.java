@@ -0,0 +1,143 @@
+/*
+ * Copyright 2020 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.netflix.priam.backup;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import com.netflix.priam.config.FakeConfiguration;
+import java.io.IOException;
+import java.time.Duration;
+import java.util.List;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+/** Tests for the headroom left to uploads under the network ceiling, on synthetic traffic. */
+public class TestNetworkHeadroom {
+    private static final long CEILING = 1000;
+    private static final List<String> PROC_NET_DEV =
+            ImmutableList.of(
+                    "Inter-|   Receive                                                |  Transmit",
+                    " face |bytes    packets errs drop fifo frame compressed multicast|bytes    packets errs drop fifo colls carrier compressed",
+                    "    lo: 5000      50    0    0    0     0          0         0     5000      50    0    0    0     0       0          0",
+                    "  eth0: 7000      70    0    0    0     0          0         0     3000      30    0    0    0     0       0          0",
+                    "  eth1:100000    100    0    0    0     0          0         0      200       2    0    0    0     0       0          0");
+
+    private final FakeConfiguration config = new FakeConfiguration();
+    private final FakeClock clock = new FakeClock();
+    private long transmitted;
+    private boolean failing;
+    private NetworkHeadroom headroom;
+
+    @Before
+    public void setUp() {
+        config.setFakeConfig("Priam.backup.network.ceiling", CEILING);
+        headroom =
+                new NetworkHeadroom(
+                        config,
+                        () -> {
+                            if (failing) throw new IOException("No counters");
+                            return transmitted;
+                        },
+                        clock);
+    }
+
+    @Test
+    public void noCeiling() {
+        config.setFakeConfig("Priam.backup.network.ceiling", -1L);
+        transmitted(10_000, 0);
+        Assert.assertEquals(Double.MAX_VALUE, headroom.getHeadroom(), 0);
+    }
+
+    @Test
+    public void headroomUnderCeiling() {
+        Assert.assertEquals(CEILING, headroom.getHeadroom(), 0);
+        transmitted(400, 0);
+        Assert.assertEquals(600, headroom.getHeadroom(), 0.1);
+        // Sampled at most once per interval.
+        transmitted += 1000;
+        Assert.assertEquals(600, headroom.getHeadroom(), 0.1);
+    }
+
+    @Test
+    public void uploadsAreNotOtherTraffic() {
+        headroom.getHeadroom();
+        transmitted(900, 500);
+        Assert.assertEquals(600, headroom.getHeadroom(), 0.1);
+    }
+
+    @Test
+    public void backOffAtOnceAndSpeedUpGradually() {
+        headroom.getHeadroom();
+        transmitted(100, 0);
+        Assert.assertEquals(900, headroom.getHeadroom(), 0.1);
+        transmitted(800, 0);
+        Assert.assertEquals(200, headroom.getHeadroom(), 0.1);
+        transmitted(100, 0);
+        double headroomAfterPeak = headroom.getHeadroom();
+        Assert.assertTrue(headroomAfterPeak > 200);
+        Assert.assertTrue(headroomAfterPeak < 900);
+        for (int i = 0; i < 50; i++) transmitted(100, 0);
+        Assert.assertEquals(900, headroom.getHeadroom(), 1);
+    }
+
+    @Test
+    public void uploadsKeepAShare() {
+        headroom.getHeadroom();
+        transmitted(5000, 0);
+        Assert.assertEquals(50, headroom.getHeadroom(), 0.1);
+    }
+
+    @Test
+    public void countersReset() {
+        transmitted = 1_000_000;
+        headroom.getHeadroom();
+        transmitted(400, 0);
+        transmitted = 0;
+        clock.advance(Duration.ofSeconds(1));
+        Assert.assertEquals(600, headroom.getHeadroom(), 0.1);
+    }
+
+    @Test
+    public void countersUnavailable() {
+        failing = true;
+        Assert.assertEquals(Double.MAX_VALUE, headroom.getHeadroom(), 0);
+    }
+
+    @Test
+    public void parseProcNetDev() throws IOException {
+        Assert.assertEquals(3200, ProcNetDevCounters.parse(PROC_NET_DEV, ImmutableSet.of()));
+        Assert.assertEquals(3000, ProcNetDevCounters.parse(PROC_NET_DEV, ImmutableSet.of("eth0")));
+        Assert.assertEquals(
+                8200,
+                ProcNetDevCounters.parse(PROC_NET_DEV, ImmutableSet.of("lo", "eth0", "eth1")));
+    }
+
+    @Test(expected = IOException.class)
+    public void parseTruncatedProcNetDev() throws IOException {
+        ProcNetDevCounters.parse(
+                ImmutableList.of("  eth0: 7000      70    0    0"), ImmutableSet.of());
+    }
+
+    /** A second passes, in which the node transmits the bytes, some of them uploaded. */
+    private void transmitted(long bytes, long uploaded) {
+        clock.advance(Duration.ofSeconds(1));
+        transmitted += bytes;
+        headroom.recordUpload(uploaded);
+        headroom.getHeadroom();
+    }
+}
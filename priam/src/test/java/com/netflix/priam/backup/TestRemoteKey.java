@@ -0,0 +1,107 @@
+/*
+ * Copyright 2020 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.netflix.priam.backup;
+
+import com.google.inject.Guice;
+import com.google.inject.Provider;
+import com.netflix.priam.backup.AbstractBackupPath.BackupFileType;
+import com.netflix.priam.compress.CompressionType;
+import com.netflix.priam.cryptography.CryptographyAlgorithm;
+import java.nio.file.Paths;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.jupiter.api.Assertions;
+
+/** Tests for the keys of listed V2 backup files. */
+public class TestRemoteKey {
+    private final Provider<AbstractBackupPath> pathProvider =
+            Guice.createInjector(new BRTestModule()).getProvider(AbstractBackupPath.class);
+
+    @Test
+    public void testSST() {
+        String remotePath =
+                "casstestbackup/1049_fake-app/1808575600/SST_V2/1859817645000/keyspace1/columnfamily1/SNAPPY/PLAINTEXT/mc-1234-Data.db";
+        RemoteKey remoteKey = RemoteKey.parse(remotePath);
+        Assert.assertEquals(remotePath, remoteKey.getRemotePath());
+        Assert.assertEquals("casstestbackup", remoteKey.getBaseDir());
+        Assert.assertEquals("fake-app", remoteKey.getClusterName());
+        Assert.assertEquals("1808575600", remoteKey.getToken());
+        Assert.assertEquals(BackupFileType.SST_V2, remoteKey.getType());
+        Assert.assertEquals(1859817645000L, remoteKey.getLastModifiedMillis());
+        Assert.assertEquals("keyspace1", remoteKey.getKeyspace());
+        Assert.assertEquals("columnfamily1", remoteKey.getColumnFamily());
+        Assert.assertNull(remoteKey.getIndexDir());
+        Assert.assertEquals(CompressionType.SNAPPY, remoteKey.getCompression());
+        Assert.assertEquals(CryptographyAlgorithm.PLAINTEXT, remoteKey.getEncryption());
+        Assert.assertEquals("mc-1234-Data.db", remoteKey.getFileName());
+
+        // Components repeated across keys are shared.
+        RemoteKey other =
+                RemoteKey.parse(
+                        "casstestbackup/1049_fake-app/1808575600/SST_V2/1859817646000/keyspace1/columnfamily1/SNAPPY/PLAINTEXT/mc-1235-Data.db");
+        Assert.assertSame(remoteKey.getToken(), other.getToken());
+        Assert.assertSame(remoteKey.getKeyspace(), other.getKeyspace());
+        Assert.assertSame(remoteKey.getColumnFamily(), other.getColumnFamily());
+        Assert.assertTrue(remoteKey.compareTo(other) < 0);
+        Assert.assertEquals(remoteKey, RemoteKey.parse(remotePath));
+
+        AbstractBackupPath path = remoteKey.toBackupPath(pathProvider);
+        Assert.assertEquals(remotePath, path.getRemotePath());
+        Assert.assertEquals(remoteKey.getLastModified(), path.getLastModified());
+        Assert.assertEquals(
+                Paths.get("target/data", "keyspace1", "columnfamily1", "mc-1234-Data.db").toFile(),
+                path.getBackupFile());
+    }
+
+    @Test
+    public void testSecondaryIndexAndMeta() {
+        RemoteKey remoteKey =
+                RemoteKey.parse(
+                        "casstestbackup/1049_fake-app/1808575600/SECONDARY_INDEX_V2/1859817645000/keyspace1/columnfamily1/.columnfamily1_field1_idx/SNAPPY/PLAINTEXT/mc-1234-Data.db");
+        Assert.assertEquals(".columnfamily1_field1_idx", remoteKey.getIndexDir());
+        Assert.assertEquals("mc-1234-Data.db", remoteKey.getFileName());
+
+        remoteKey =
+                RemoteKey.parse(
+                        "casstestbackup/1049_fake-app/1808575600/META_V2/1859817645000/SNAPPY/PLAINTEXT/meta_v2_202812071801.json");
+        Assert.assertEquals(BackupFileType.META_V2, remoteKey.getType());
+        Assert.assertNull(remoteKey.getKeyspace());
+        Assert.assertNull(remoteKey.getColumnFamily());
+        Assert.assertEquals("meta_v2_202812071801.json", remoteKey.getFileName());
+    }
+
+    @Test
+    public void testInvalid() {
+        // V1 layout.
+        Assertions.assertThrows(
+                IllegalArgumentException.class,
+                () ->
+                        RemoteKey.parse(
+                                "test_backup/fake-region/fakecluster/123456/201108082320/SST/ks/cf/f1.db"));
+        Assertions.assertThrows(
+                IllegalArgumentException.class,
+                () ->
+                        RemoteKey.parse(
+                                "casstestbackup/1049_fake-app/1808575600/SST_V2/1859817645000/keyspace1/columnfamily1/SNAPPY/PLAINTEXT"));
+        Assertions.assertThrows(
+                IllegalArgumentException.class,
+                () ->
+                        RemoteKey.parse(
+                                "casstestbackup/1048_fake-app/1808575600/SST_V2/1859817645000/keyspace1/columnfamily1/SNAPPY/PLAINTEXT/mc-1234-Data.db"));
+    }
+}
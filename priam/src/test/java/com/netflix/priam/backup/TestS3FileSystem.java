@@ -29,6 +29,7 @@ import com.google.api.client.util.Preconditions;
 import com.google.common.collect.Lists;
 import com.google.inject.Guice;
 import com.google.inject.Injector;
+import com.google.inject.util.Modules;
 import com.netflix.priam.aws.DataPart;
 import com.netflix.priam.aws.RemoteBackupPath;
 import com.netflix.priam.aws.S3FileSystem;
@@ -46,6 +47,7 @@ import java.nio.file.Paths;
 import java.time.Instant;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
 import java.util.Optional;
 import java.util.stream.Collectors;
@@ -211,6 +213,40 @@ public class TestS3FileSystem {
         }
     }
 
+    @Test
+    public void testUploadSkipped() throws Exception {
+        List<AbstractBackupPath> uploaded = new ArrayList<>();
+        DynamicRateLimiter dynamicRateLimiter =
+                new DynamicRateLimiter() {
+                    @Override
+                    public void acquire(AbstractBackupPath dir, Instant target, int tokens) {}
+
+                    @Override
+                    public void uploaded(AbstractBackupPath path) {
+                        uploaded.add(path);
+                    }
+                };
+        Injector injector =
+                Guice.createInjector(
+                        Modules.override(new BRTestModule())
+                                .with(
+                                        binder ->
+                                                binder.bind(DynamicRateLimiter.class)
+                                                        .toInstance(dynamicRateLimiter)));
+        S3FileSystem fs = injector.getInstance(S3FileSystem.class);
+        RemoteBackupPath backupfile = injector.getInstance(RemoteBackupPath.class);
+        backupfile.parseLocal(localFile(), BackupFileType.SST_V2);
+        try {
+            MockAmazonS3Client.objectExists = true;
+            fs.uploadAndDeleteInternal(backupfile, Instant.EPOCH, 0 /* retries */);
+        } finally {
+            MockAmazonS3Client.objectExists = false;
+        }
+        // The file is not left to upload, though it was not uploaded.
+        Assert.assertEquals(Collections.singletonList(backupfile), uploaded);
+        Assert.assertFalse(backupfile.getBackupFile().exists());
+    }
+
     private File localFile() throws IOException {
         String caller = Thread.currentThread().getStackTrace()[1].getMethodName();
         File file = new File(DIR + caller + "KS1-CF1-ia-1-Data.db");
@@ -272,6 +308,7 @@ public class TestS3FileSystem {
         private boolean ruleAvailable = false;
         static BucketLifecycleConfiguration bconf;
         static boolean emulateError = false;
+        static boolean objectExists = false;
 
         @Mock
         public InitiateMultipartUploadResult initiateMultipartUpload(
@@ -287,6 +324,11 @@ public class TestS3FileSystem {
             return result;
         }
 
+        @Mock
+        public boolean doesObjectExist(String bucketName, String objectName) {
+            return objectExists;
+        }
+
         @Mock
         public BucketLifecycleConfiguration getBucketLifecycleConfiguration(String bucketName) {
             return bconf;
@@ -0,0 +1,359 @@
+/*
+ * Copyright 2020 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.netflix.priam.backupv2;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
+import com.google.inject.Guice;
+import com.google.inject.Injector;
+import com.google.inject.Provider;
+import com.google.inject.util.Modules;
+import com.netflix.priam.backup.AbstractBackupPath;
+import com.netflix.priam.backup.BRTestModule;
+import com.netflix.priam.backup.BackupVerificationResult;
+import com.netflix.priam.backup.FakeBackupFileSystem;
+import com.netflix.priam.config.FakeBackupRestoreConfig;
+import com.netflix.priam.config.IBackupRestoreConfig;
+import com.netflix.priam.config.IConfiguration;
+import java.io.File;
+import java.io.RandomAccessFile;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import org.apache.commons.io.FileUtils;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+/** Tests for the local backup catalog. */
+public class TestBackupCatalog {
+    private static final String PREFIX = "casstestbackup/1049_fake-app/1808575600";
+    private static final String SST_PREFIX =
+            Paths.get(PREFIX, AbstractBackupPath.BackupFileType.SST_V2.toString()).toString();
+    private IConfiguration configuration;
+    private Provider<AbstractBackupPath> pathProvider;
+
+    @Before
+    public void setUp() throws Exception {
+        Injector injector = createInjector(true);
+        configuration = injector.getInstance(IConfiguration.class);
+        pathProvider = injector.getProvider(AbstractBackupPath.class);
+        FileUtils.forceMkdir(new File(configuration.getDataFileLocation()));
+        FileUtils.cleanDirectory(new File(configuration.getDataFileLocation()));
+    }
+
+    @After
+    public void cleanup() throws Exception {
+        FileUtils.cleanDirectory(new File(configuration.getDataFileLocation()));
+    }
+
+    @Test
+    public void testReplay() throws Exception {
+        BackupCatalog backupCatalog = createInjector(true).getInstance(BackupCatalog.class);
+        String file1 = getSSTFile("mc-1-Data.db");
+        String file2 = getSSTFile("mc-2-Data.db");
+        String file3 = getSSTFile("mc-3-Data.db");
+        String meta = getMetaFile(1859827645000L);
+        backupCatalog.recordUpload(getPath(file1, 10));
+        backupCatalog.recordExisting(getPath(file2, 0));
+        backupCatalog.recordUpload(getPath(file3, 30));
+        backupCatalog.recordDeletes(Collections.singletonList(Paths.get(file3)));
+        backupCatalog.recordUpload(getPath(meta, 5));
+        backupCatalog.recordMeta(
+                meta, new ResolvedMeta(ImmutableList.of(), ImmutableList.of(file1, file2)));
+        verifyCatalog(backupCatalog, file1, file2, file3, meta);
+
+        verifyCatalog(
+                createInjector(true).getInstance(BackupCatalog.class), file1, file2, file3, meta);
+    }
+
+    @Test
+    public void testTruncatedRecord() throws Exception {
+        BackupCatalog backupCatalog = createInjector(true).getInstance(BackupCatalog.class);
+        String file1 = getSSTFile("mc-1-Data.db");
+        String file2 = getSSTFile("mc-2-Data.db");
+        backupCatalog.recordUpload(getPath(file1, 10));
+
+        // A record partially written before a crash.
+        List<Path> segments = getSegments();
+        Assert.assertEquals(1, segments.size());
+        try (RandomAccessFile segment = new RandomAccessFile(segments.get(0).toFile(), "rw")) {
+            segment.seek(segment.length());
+            segment.write(new byte[] {0, 0, 1});
+        }
+
+        backupCatalog = createInjector(true).getInstance(BackupCatalog.class);
+        Assert.assertTrue(backupCatalog.contains(file1));
+        backupCatalog.recordUpload(getPath(file2, 20));
+
+        backupCatalog = createInjector(true).getInstance(BackupCatalog.class);
+        Assert.assertTrue(backupCatalog.contains(file1));
+        Assert.assertTrue(backupCatalog.contains(file2));
+    }
+
+    @Test
+    public void testSync() throws Exception {
+        Injector injector = createInjector(true);
+        BackupCatalog backupCatalog = injector.getInstance(BackupCatalog.class);
+        FakeBackupFileSystem fs = injector.getInstance(FakeBackupFileSystem.class);
+        String file1 = getSSTFile("mc-1-Data.db");
+        String file2 = getSSTFile("mc-2-Data.db");
+        String stale = getSSTFile("mc-3-Data.db");
+        Path localMeta =
+                new TestBackupUtils()
+                        .createMeta(
+                                Lists.newArrayList(file1, file2),
+                                Instant.ofEpochMilli(1859827645000L));
+        AbstractBackupPath metaPath = pathProvider.get();
+        metaPath.parseLocal(localMeta.toFile(), AbstractBackupPath.BackupFileType.META_V2);
+        fs.setupTest(Lists.newArrayList(file1, file2, metaPath.getRemotePath()));
+        backupCatalog.recordExisting(getPath(stale, 0));
+
+        Assert.assertTrue(backupCatalog.needsSync());
+        Assert.assertFalse(backupCatalog.isSynced(SST_PREFIX));
+        backupCatalog.sync(fs, injector.getInstance(MetaV2Proxy.class));
+        Assert.assertFalse(backupCatalog.needsSync());
+        Assert.assertTrue(backupCatalog.isSynced(SST_PREFIX));
+        Assert.assertTrue(backupCatalog.getSyncedAt().isPresent());
+        backupCatalog.awaitCompaction();
+
+        Assert.assertEquals(
+                Lists.newArrayList(file1, file2), toList(backupCatalog.list(SST_PREFIX, null)));
+        Assert.assertEquals(
+                Lists.newArrayList(file2), toList(backupCatalog.list(SST_PREFIX, file1)));
+        Assert.assertFalse(backupCatalog.contains(stale));
+        Assert.assertEquals(-1, backupCatalog.getObject(file1).get().getSize());
+        Assert.assertNull(backupCatalog.getObject(file1).get().getUploadTime());
+        Assert.assertEquals(
+                Lists.newArrayList(file1, file2),
+                backupCatalog.getMeta(metaPath.getRemotePath()).get().getFiles());
+
+        // The sync state survives a restart as well.
+        Assert.assertTrue(
+                createInjector(true).getInstance(BackupCatalog.class).isSynced(SST_PREFIX));
+    }
+
+    @Test
+    public void testCorruptSegment() throws Exception {
+        Injector injector = createInjector(true);
+        BackupCatalog backupCatalog = injector.getInstance(BackupCatalog.class);
+        FakeBackupFileSystem fs = injector.getInstance(FakeBackupFileSystem.class);
+        String file1 = getSSTFile("mc-1-Data.db");
+        String file2 = getSSTFile("mc-2-Data.db");
+        fs.setupTest(Lists.newArrayList(file1));
+        backupCatalog.sync(fs, injector.getInstance(MetaV2Proxy.class));
+        backupCatalog.awaitCompaction();
+        backupCatalog.recordUpload(getPath(file2, 20));
+
+        // The compacted segment is followed by the one taking the changes since.
+        List<Path> segments = getSegments();
+        Assert.assertEquals(2, segments.size());
+        try (RandomAccessFile segment = new RandomAccessFile(segments.get(0).toFile(), "rw")) {
+            segment.seek(16);
+            segment.write(~segment.read());
+        }
+
+        // The changes after the corrupt record are lost, so the catalog starts over.
+        backupCatalog = createInjector(true).getInstance(BackupCatalog.class);
+        Assert.assertFalse(backupCatalog.contains(file1));
+        Assert.assertFalse(backupCatalog.contains(file2));
+        Assert.assertTrue(backupCatalog.needsSync());
+        Assert.assertEquals(1, getSegments().size());
+    }
+
+    @Test
+    public void testVerificationBeforeSync() throws Exception {
+        Injector injector = createInjector(true);
+        BackupCatalog backupCatalog = injector.getInstance(BackupCatalog.class);
+        FakeBackupFileSystem fs = injector.getInstance(FakeBackupFileSystem.class);
+        String file1 = getSSTFile("mc-1-Data.db");
+        String file2 = getSSTFile("mc-2-Data.db");
+        Path localMeta =
+                new TestBackupUtils()
+                        .createMeta(
+                                Lists.newArrayList(file1, file2),
+                                Instant.ofEpochMilli(1859827645000L));
+        AbstractBackupPath metaPath = pathProvider.get();
+        metaPath.parseLocal(localMeta.toFile(), AbstractBackupPath.BackupFileType.META_V2);
+        backupCatalog.recordUpload(getPath(file1, 10));
+        backupCatalog.recordUpload(getPath(file2, 20));
+        // The second file was deleted without the catalog knowing about it.
+        fs.setupTest(Lists.newArrayList(file1, metaPath.getRemotePath()));
+
+        BackupVerificationResult result =
+                injector.getInstance(MetaV2Proxy.class).isMetaFileValid(metaPath);
+        Assert.assertFalse(result.valid);
+        Assert.assertEquals(Collections.singletonList(file2), result.filesInMetaOnly);
+    }
+
+    @Test
+    public void testVerificationAfterSync() throws Exception {
+        Injector injector = createInjector(true);
+        BackupCatalog backupCatalog = injector.getInstance(BackupCatalog.class);
+        FakeBackupFileSystem fs = injector.getInstance(FakeBackupFileSystem.class);
+        String file1 = getSSTFile("mc-1-Data.db");
+        String file2 = getSSTFile("mc-2-Data.db");
+        Path localMeta =
+                new TestBackupUtils()
+                        .createMeta(
+                                Lists.newArrayList(file1, file2),
+                                Instant.ofEpochMilli(1859827645000L));
+        AbstractBackupPath metaPath = pathProvider.get();
+        metaPath.parseLocal(localMeta.toFile(), AbstractBackupPath.BackupFileType.META_V2);
+        fs.setupTest(Lists.newArrayList(file1, file2, metaPath.getRemotePath()));
+        backupCatalog.sync(fs, injector.getInstance(MetaV2Proxy.class));
+        Assert.assertTrue(backupCatalog.isSynced(SST_PREFIX));
+        // The second file was deleted by a lifecycle rule after the sync.
+        fs.setupTest(Lists.newArrayList(file1, metaPath.getRemotePath()));
+
+        BackupVerificationResult result =
+                injector.getInstance(MetaV2Proxy.class).isMetaFileValid(metaPath);
+        Assert.assertFalse(result.valid);
+        Assert.assertEquals(Collections.singletonList(file2), result.filesInMetaOnly);
+    }
+
+    @Test
+    public void testDisabled() throws Exception {
+        BackupCatalog backupCatalog = createInjector(true).getInstance(BackupCatalog.class);
+        String file1 = getSSTFile("mc-1-Data.db");
+        backupCatalog.recordUpload(getPath(file1, 10));
+        Assert.assertFalse(getSegments().isEmpty());
+
+        backupCatalog = createInjector(false).getInstance(BackupCatalog.class);
+        Assert.assertTrue(getSegments().isEmpty());
+        Assert.assertFalse(backupCatalog.isEnabled());
+        backupCatalog.recordUpload(getPath(file1, 10));
+        Assert.assertFalse(backupCatalog.contains(file1));
+        Assert.assertFalse(backupCatalog.needsSync());
+        Assert.assertTrue(getSegments().isEmpty());
+    }
+
+    @Test
+    public void testMaxObjects() throws Exception {
+        BackupCatalog backupCatalog = createInjector(true, 2).getInstance(BackupCatalog.class);
+        String file1 = getSSTFile("mc-1-Data.db");
+        String file2 = getSSTFile("mc-2-Data.db");
+        backupCatalog.recordUpload(getPath(file1, 10));
+        backupCatalog.recordUpload(getPath(file2, 20));
+        backupCatalog.recordUpload(getPath(file1, 30));
+        Assert.assertTrue(backupCatalog.isEnabled());
+        Assert.assertEquals(30, backupCatalog.getObject(file1).get().getSize());
+
+        // One more object drops the catalog, consumers go to the remote file system.
+        backupCatalog.recordUpload(getPath(getSSTFile("mc-3-Data.db"), 30));
+        Assert.assertFalse(backupCatalog.isEnabled());
+        Assert.assertFalse(backupCatalog.contains(file1));
+        Assert.assertFalse(backupCatalog.needsSync());
+        Assert.assertTrue(getSegments().isEmpty());
+
+        // A catalog replayed over the bound is dropped as well.
+        backupCatalog = createInjector(true).getInstance(BackupCatalog.class);
+        backupCatalog.recordUpload(getPath(file1, 10));
+        backupCatalog.recordUpload(getPath(file2, 20));
+        Assert.assertFalse(createInjector(true, 1).getInstance(BackupCatalog.class).isEnabled());
+    }
+
+    private void verifyCatalog(
+            BackupCatalog backupCatalog, String file1, String file2, String file3, String meta) {
+        Assert.assertTrue(backupCatalog.contains(file1));
+        Assert.assertTrue(backupCatalog.contains(file2));
+        Assert.assertFalse(backupCatalog.contains(file3));
+        Assert.assertEquals(10, backupCatalog.getObject(file1).get().getSize());
+        Assert.assertNotNull(backupCatalog.getObject(file1).get().getUploadTime());
+        Assert.assertEquals(-1, backupCatalog.getObject(file2).get().getSize());
+        Assert.assertEquals(
+                Lists.newArrayList(file1, file2), backupCatalog.getMeta(meta).get().getFiles());
+        Assert.assertEquals(15, backupCatalog.getSize(Lists.newArrayList(file1, file2, meta)));
+        Assert.assertFalse(backupCatalog.isSynced(SST_PREFIX));
+    }
+
+    private AbstractBackupPath getPath(String remotePath, long size) {
+        AbstractBackupPath path = pathProvider.get();
+        path.parseRemote(remotePath);
+        path.setCompressedFileSize(size);
+        return path;
+    }
+
+    private String getSSTFile(String fileName) {
+        return Paths.get(
+                        SST_PREFIX,
+                        "1859817645000",
+                        "keyspace1",
+                        "columnfamily1",
+                        "SNAPPY",
+                        "PLAINTEXT",
+                        fileName)
+                .toString();
+    }
+
+    private String getMetaFile(long time) {
+        return Paths.get(
+                        PREFIX,
+                        AbstractBackupPath.BackupFileType.META_V2.toString(),
+                        String.valueOf(time),
+                        "SNAPPY",
+                        "PLAINTEXT",
+                        "meta_v2_202812071801.json")
+                .toString();
+    }
+
+    private List<Path> getSegments() throws Exception {
+        List<Path> segments = new ArrayList<>();
+        File[] files = new File(configuration.getBackupCatalogLocation()).listFiles();
+        if (files == null) return segments;
+        for (File file : files)
+            if (file.getName().startsWith(BackupCatalog.SEGMENT_PREFIX))
+                segments.add(file.toPath());
+        Collections.sort(segments);
+        return segments;
+    }
+
+    private static List<String> toList(Iterator<String> iterator) {
+        return Lists.newArrayList(iterator);
+    }
+
+    private static Injector createInjector(boolean enabled) {
+        return createInjector(enabled, 2_000_000);
+    }
+
+    private static Injector createInjector(boolean enabled, int maxObjects) {
+        return Guice.createInjector(
+                Modules.override(new BRTestModule())
+                        .with(
+                                binder ->
+                                        binder.bind(IBackupRestoreConfig.class)
+                                                .toInstance(
+                                                        new FakeBackupRestoreConfig() {
+                                                            @Override
+                                                            public boolean enableBackupCatalog() {
+                                                                return enabled;
+                                                            }
+
+                                                            @Override
+                                                            public int
+                                                                    getBackupCatalogMaxObjects() {
+                                                                return maxObjects;
+                                                            }
+                                                        })));
+    }
+}
@@ -0,0 +1,355 @@
+/*
+ * Copyright 2020 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.netflix.priam.backupv2;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Lists;
+import com.google.inject.Guice;
+import com.google.inject.Injector;
+import com.google.inject.Module;
+import com.google.inject.util.Modules;
+import com.netflix.priam.backup.AbstractBackupPath;
+import com.netflix.priam.backup.BRTestModule;
+import com.netflix.priam.backup.FakeBackupFileSystem;
+import com.netflix.priam.config.FakeBackupRestoreConfig;
+import com.netflix.priam.config.FakeConfiguration;
+import com.netflix.priam.config.IBackupRestoreConfig;
+import com.netflix.priam.config.IConfiguration;
+import com.netflix.priam.merics.BackupMetrics;
+import com.netflix.priam.scheduler.MaintenanceCoordinator;
+import com.netflix.priam.scheduler.MaintenanceCoordinator.Priority;
+import com.netflix.priam.scheduler.MaintenanceCoordinator.Resource;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.stream.Collectors;
+import java.util.zip.CRC32;
+import org.apache.commons.io.FileUtils;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.xerial.snappy.SnappyOutputStream;
+
+/** Tests for the content verification of backups. */
+public class TestBackupContentVerificationTask {
+    private static final String SST_PREFIX = getSSTPrefix(1859817645000L);
+    private static final String DATA_FILE = SST_PREFIX + "/mc-1-big-Data.db";
+    private static final String DIGEST_FILE = SST_PREFIX + "/mc-1-big-Digest.crc32";
+    private static final String INDEX_FILE = SST_PREFIX + "/mc-1-big-Index.db";
+    private static final List<String> FILES =
+            Lists.newArrayList(DATA_FILE, DIGEST_FILE, INDEX_FILE);
+    // The Digest.crc32 component uploaded a second later than the Data.db component.
+    private static final String LATER_DIGEST_FILE =
+            getSSTPrefix(1859817646000L) + "/mc-1-big-Digest.crc32";
+    private static final List<String> LATER_DIGEST_FILES =
+            Lists.newArrayList(DATA_FILE, LATER_DIGEST_FILE, INDEX_FILE);
+    private final Instant snapshotTime = Instant.ofEpochMilli(1859827645000L);
+    private IConfiguration configuration;
+
+    @Before
+    public void setUp() throws Exception {
+        configuration = createInjector(Long.MAX_VALUE).getInstance(IConfiguration.class);
+        FileUtils.forceMkdir(new File(configuration.getDataFileLocation()));
+        FileUtils.cleanDirectory(new File(configuration.getDataFileLocation()));
+    }
+
+    @After
+    public void cleanup() throws Exception {
+        FileUtils.cleanDirectory(new File(configuration.getDataFileLocation()));
+    }
+
+    @Test
+    public void testNoVerifiedSnapshot() throws Exception {
+        Injector injector = createInjector(Long.MAX_VALUE);
+        FakeBackupFileSystem fs = setupFiles(injector);
+        injector.getInstance(BackupContentVerificationTask.class).execute();
+        Assert.assertTrue(getReadFiles(fs).isEmpty());
+    }
+
+    @Test
+    public void testVerify() throws Exception {
+        Injector injector = createInjector(Long.MAX_VALUE);
+        FakeBackupFileSystem fs = setupFiles(injector);
+        verifySnapshot(injector);
+        BackupContentVerificationTask task =
+                injector.getInstance(BackupContentVerificationTask.class);
+        BackupMetrics backupMetrics = injector.getInstance(BackupMetrics.class);
+
+        task.execute();
+        Assert.assertEquals(FILES, getReadFiles(fs));
+        Assert.assertEquals(0, backupMetrics.getBackupContentVerificationFailure().count());
+        Assert.assertTrue(
+                Files.exists(
+                        Paths.get(
+                                configuration.getDataFileLocation(),
+                                BackupContentVerificationTask.STATE_FILE)));
+
+        // The next cycle finds the corrupted file.
+        fs.setContent(DATA_FILE, compress(new byte[] {1, 2, 3}));
+        createMeta();
+        task.execute();
+        Assert.assertEquals(1, backupMetrics.getBackupContentVerificationFailure().count());
+    }
+
+    @Test
+    public void testDigestUploadedLater() throws Exception {
+        Injector injector = createInjector(Long.MAX_VALUE);
+        FakeBackupFileSystem fs = setupFiles(injector, LATER_DIGEST_FILES);
+        verifySnapshot(injector, LATER_DIGEST_FILES);
+        BackupContentVerificationTask task =
+                injector.getInstance(BackupContentVerificationTask.class);
+        BackupMetrics backupMetrics = injector.getInstance(BackupMetrics.class);
+
+        task.execute();
+        Assert.assertTrue(fs.downloadedFiles.contains(LATER_DIGEST_FILE));
+        Assert.assertEquals(0, backupMetrics.getBackupContentVerificationFailure().count());
+
+        // The corrupted file does not match its digest.
+        fs.setContent(DATA_FILE, compress(new byte[] {1, 2, 3}));
+        createMeta(LATER_DIGEST_FILES);
+        task.execute();
+        Assert.assertEquals(1, backupMetrics.getBackupContentVerificationFailure().count());
+    }
+
+    @Test
+    public void testUncompressedData() throws Exception {
+        Injector injector = createInjector(Long.MAX_VALUE);
+        FakeBackupFileSystem fs = setupFiles(injector);
+        verifySnapshot(injector);
+        // Not snappy compressed as the path says.
+        fs.setContent(INDEX_FILE, new byte[] {1, 2, 3, 4, 5, 6, 7, 8, 9, 10, 11, 12, 13, 14, 15});
+        createMeta();
+        injector.getInstance(BackupContentVerificationTask.class).execute();
+        Assert.assertEquals(
+                1,
+                injector.getInstance(BackupMetrics.class)
+                        .getBackupContentVerificationFailure()
+                        .count());
+    }
+
+    @Test
+    public void testBudget() throws Exception {
+        // An hour of budget is a single byte, so a single file is read.
+        Injector injector = createInjector(24);
+        FakeBackupFileSystem fs = setupFiles(injector);
+        verifySnapshot(injector);
+        BackupContentVerificationTask task =
+                injector.getInstance(BackupContentVerificationTask.class);
+
+        fs.downloadedFiles.clear();
+        createMeta();
+        task.execute();
+        Assert.assertFalse(getReadFiles(fs).isEmpty());
+        Assert.assertTrue(getReadFiles(fs).size() < FILES.size());
+
+        // The budget is used up.
+        fs.downloadedFiles.clear();
+        createMeta();
+        task.execute();
+        Assert.assertTrue(getReadFiles(fs).isEmpty());
+    }
+
+    @Test
+    public void testFailedReadsUseBudget() throws Exception {
+        // An hour of budget is a single byte, so a single file is read even if it fails.
+        Injector injector = createInjector(24);
+        FakeBackupFileSystem fs = setupFiles(injector);
+        verifySnapshot(injector);
+        for (String file : FILES) fs.setContent(file, new byte[] {1, 2, 3, 4, 5, 6, 7, 8});
+
+        fs.downloadedFiles.clear();
+        createMeta();
+        injector.getInstance(BackupContentVerificationTask.class).execute();
+        Assert.assertEquals(1, getReadFiles(fs).size());
+        Assert.assertEquals(
+                1,
+                injector.getInstance(BackupMetrics.class)
+                        .getBackupContentVerificationFailure()
+                        .count());
+    }
+
+    @Test
+    public void testPreempted() throws Exception {
+        FakeConfiguration config = new FakeConfiguration();
+        config.setFakeConfig("Priam.maintenance.coordination.enable", true);
+        CompletableFuture<MaintenanceCoordinator.Lease> restore = new CompletableFuture<>();
+        // A restore asks for the whole network as soon as the task holds its lease.
+        MaintenanceCoordinator coordinator =
+                new MaintenanceCoordinator(config, Clock.systemUTC()) {
+                    @Override
+                    public Lease acquire(
+                            String holder, Priority priority, Map<Resource, Integer> demand)
+                            throws TimeoutException, InterruptedException {
+                        Lease lease = super.acquire(holder, priority, demand);
+                        if (priority == Priority.BEST_EFFORT) {
+                            Assert.assertEquals(BackupContentVerificationTask.JOBNAME, holder);
+                            CompletableFuture.runAsync(
+                                    () -> {
+                                        try {
+                                            restore.complete(
+                                                    super.acquire(
+                                                            "restore",
+                                                            Priority.NORMAL,
+                                                            ImmutableMap.of(
+                                                                    Resource.NETWORK, 100)));
+                                        } catch (Exception e) {
+                                            restore.completeExceptionally(e);
+                                        }
+                                    });
+                            while (!lease.isPreempted()) Thread.sleep(10);
+                        }
+                        return lease;
+                    }
+                };
+        Injector injector =
+                Guice.createInjector(
+                        Modules.override(createModule(Long.MAX_VALUE))
+                                .with(
+                                        binder ->
+                                                binder.bind(MaintenanceCoordinator.class)
+                                                        .toInstance(coordinator)));
+        FakeBackupFileSystem fs = setupFiles(injector);
+        verifySnapshot(injector);
+
+        injector.getInstance(BackupContentVerificationTask.class).execute();
+        Assert.assertTrue(getReadFiles(fs).isEmpty());
+        // The task released its lease for the restore.
+        restore.get(1, TimeUnit.MINUTES).close();
+        Assert.assertTrue(coordinator.getState().get("leases").isEmpty());
+    }
+
+    @Test
+    public void testReadRate() {
+        Instant now = Instant.EPOCH;
+        Assert.assertEquals(
+                Double.MAX_VALUE,
+                BackupContentVerificationTask.getReadRate(1000, now, Optional.empty()),
+                0);
+        Assert.assertEquals(
+                10,
+                BackupContentVerificationTask.getReadRate(
+                        1000, now, Optional.of(now.plus(Duration.ofSeconds(100)))),
+                0);
+        // Never slower than a byte per second, nor divided by zero.
+        Assert.assertEquals(
+                1,
+                BackupContentVerificationTask.getReadRate(
+                        10, now, Optional.of(now.plus(Duration.ofSeconds(100)))),
+                0);
+        Assert.assertEquals(
+                1000, BackupContentVerificationTask.getReadRate(1000, now, Optional.of(now)), 0);
+    }
+
+    private FakeBackupFileSystem setupFiles(Injector injector) throws Exception {
+        return setupFiles(injector, FILES);
+    }
+
+    private FakeBackupFileSystem setupFiles(Injector injector, List<String> files)
+            throws Exception {
+        FakeBackupFileSystem fs = injector.getInstance(FakeBackupFileSystem.class);
+        fs.setupTest(files);
+        byte[] data = new byte[4096];
+        new Random(42).nextBytes(data);
+        CRC32 crc = new CRC32();
+        crc.update(data);
+        fs.setContent(DATA_FILE, compress(data));
+        fs.setContent(
+                files.get(1),
+                compress(String.valueOf(crc.getValue()).getBytes(StandardCharsets.UTF_8)));
+        fs.setContent(INDEX_FILE, compress(new byte[1024]));
+        return fs;
+    }
+
+    private void verifySnapshot(Injector injector) throws Exception {
+        verifySnapshot(injector, FILES);
+    }
+
+    private void verifySnapshot(Injector injector, List<String> files) throws Exception {
+        Path meta = createMeta(files);
+        AbstractBackupPath metaPath = injector.getInstance(AbstractBackupPath.class);
+        metaPath.parseLocal(meta.toFile(), AbstractBackupPath.BackupFileType.META_V2);
+        Assert.assertTrue(injector.getInstance(MetaV2Proxy.class).isMetaFileValid(metaPath).valid);
+        // The meta file is downloaded again by the task.
+        createMeta(files);
+    }
+
+    private Path createMeta() throws Exception {
+        return createMeta(FILES);
+    }
+
+    private Path createMeta(List<String> files) throws Exception {
+        return new TestBackupUtils().createMeta(files, snapshotTime);
+    }
+
+    private static String getSSTPrefix(long lastModified) {
+        return Paths.get(
+                        "casstestbackup/1049_fake-app/1808575600",
+                        AbstractBackupPath.BackupFileType.SST_V2.toString(),
+                        String.valueOf(lastModified),
+                        "keyspace1",
+                        "columnfamily1",
+                        "SNAPPY",
+                        "PLAINTEXT")
+                .toString();
+    }
+
+    private static List<String> getReadFiles(FakeBackupFileSystem fs) {
+        return FILES.stream().filter(fs.downloadedFiles::contains).collect(Collectors.toList());
+    }
+
+    private static byte[] compress(byte[] data) throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (SnappyOutputStream snappy = new SnappyOutputStream(out)) {
+            snappy.write(data);
+        }
+        return out.toByteArray();
+    }
+
+    private static Injector createInjector(long bytesPerDay) {
+        return Guice.createInjector(createModule(bytesPerDay));
+    }
+
+    private static Module createModule(long bytesPerDay) {
+        return Modules.override(new BRTestModule())
+                .with(
+                        binder ->
+                                binder.bind(IBackupRestoreConfig.class)
+                                        .toInstance(
+                                                new FakeBackupRestoreConfig() {
+                                                    @Override
+                                                    public long
+                                                            getBackupContentVerificationBytesPerDay() {
+                                                        return bytesPerDay;
+                                                    }
+                                                }));
+    }
+}
@@ -28,6 +28,7 @@ import com.netflix.priam.health.InstanceState;
 import com.netflix.priam.utils.BackupFileUtils;
 import com.netflix.priam.utils.DateUtil;
 import java.io.File;
+import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.text.ParseException;
@@ -65,6 +66,10 @@ public class TestBackupTTLTask {
     }
 
     public void prepTest(int daysForSnapshot) throws Exception {
+        prepTest(daysForSnapshot, false);
+    }
+
+    public void prepTest(int daysForSnapshot, boolean deltaMetas) throws Exception {
         BackupFileUtils.cleanupDir(Paths.get(configuration.getDataFileLocation()));
         Instant current = DateUtil.getInstant();
 
@@ -90,10 +95,16 @@ public class TestBackupTTLTask {
         String file3 = testBackupUtils.createFile("mc-3-Data.db", time);
         String file4 =
                 testBackupUtils.createFile("mc-4-Data.db", time.plus(10, ChronoUnit.MINUTES));
+        List<String> previousList = new ArrayList<>(list);
         list.clear();
         list.add(getRemoteFromLocal(file1));
         list.add(getRemoteFromLocal(file4));
-        metas[1] = testBackupUtils.createMeta(list, time.plus(20, ChronoUnit.MINUTES));
+        metas[1] =
+                createMeta(
+                        list,
+                        time.plus(20, ChronoUnit.MINUTES),
+                        deltaMetas ? metas[0] : null,
+                        previousList);
         allFiles.add(getRemoteFromLocal(file3));
         allFiles.add(getRemoteFromLocal(file4));
 
@@ -103,11 +114,17 @@ public class TestBackupTTLTask {
                 testBackupUtils.createFile("mc-6-Data.db", time.plus(10, ChronoUnit.MINUTES));
         String file7 =
                 testBackupUtils.createFile("mc-7-Data.db", time.plus(20, ChronoUnit.MINUTES));
+        previousList = new ArrayList<>(list);
         list.clear();
         list.add(getRemoteFromLocal(file4));
         // list.add(getRemoteFromLocal(file6));
         list.add(getRemoteFromLocal(file7));
-        metas[2] = testBackupUtils.createMeta(list, time.plus(40, ChronoUnit.MINUTES));
+        metas[2] =
+                createMeta(
+                        list,
+                        time.plus(40, ChronoUnit.MINUTES),
+                        deltaMetas ? metas[1] : null,
+                        previousList);
         allFiles.add(getRemoteFromLocal(file5));
         allFiles.add(getRemoteFromLocal(file6));
         allFiles.add(getRemoteFromLocal(file7));
@@ -129,6 +146,12 @@ public class TestBackupTTLTask {
         backupFileSystem.setupTest(allFiles);
     }
 
+    private Path createMeta(List<String> list, Instant time, Path baseMeta, List<String> baseFiles)
+            throws Exception {
+        if (baseMeta == null) return testBackupUtils.createMeta(list, time);
+        return testBackupUtils.createDeltaMeta(list, time, baseMeta, baseFiles);
+    }
+
     private String getRemoteFromLocal(String localPath) throws ParseException {
         AbstractBackupPath path = pathProvider.get();
         path.parseLocal(new File(localPath), AbstractBackupPath.BackupFileType.SST_V2);
@@ -196,6 +219,69 @@ public class TestBackupTTLTask {
         Assert.assertFalse(remoteFiles.contains(allFilesMap.get("META1")));
     }
 
+    @Test
+    public void testTTLDeltaMetas() throws Exception {
+        int daysForSnapshot = configuration.getBackupRetentionDays();
+        prepTest(daysForSnapshot, true);
+        // Run ttl till 2nd meta file, which is a delta of the 1st one.
+        backupTTLService.execute();
+
+        List<String> remoteFiles = getAllFiles();
+
+        // Same as with full meta files, except that the base meta file is retained.
+        Assert.assertEquals(9, remoteFiles.size());
+        Assert.assertTrue(remoteFiles.contains(allFilesMap.get("mc-1-Data.db")));
+        Assert.assertTrue(remoteFiles.contains(allFilesMap.get("mc-4-Data.db")));
+        Assert.assertTrue(remoteFiles.contains(allFilesMap.get("META0")));
+        Assert.assertTrue(remoteFiles.contains(allFilesMap.get("META1")));
+        Assert.assertTrue(remoteFiles.contains(allFilesMap.get("META2")));
+        Assert.assertFalse(remoteFiles.contains(allFilesMap.get("mc-2-Data.db")));
+    }
+
+    @Test
+    public void testTTLResumesFromCheckpoint() throws Exception {
+        int daysForSnapshot = configuration.getBackupRetentionDays();
+        prepTest(daysForSnapshot);
+        // The fake file system does not download meta files, so keep the retained one around.
+        Path retainedMeta = Files.copy(metas[1], metas[1].resolveSibling("retained_meta"));
+        Path checkpoint = Paths.get(configuration.getDataFileLocation(), "backup_ttl.checkpoint");
+        backupTTLService.execute();
+        Assert.assertTrue(checkpoint.toFile().exists());
+
+        // Files before the checkpoint were already processed against the same meta file.
+        backupFileSystem.addFile(allFilesMap.get("mc-2-Data.db"));
+        Files.copy(retainedMeta, metas[1]);
+        backupTTLService.execute();
+        Assert.assertTrue(getAllFiles().contains(allFilesMap.get("mc-2-Data.db")));
+
+        // Without the checkpoint, everything is listed again.
+        Files.delete(checkpoint);
+        Files.copy(retainedMeta, metas[1]);
+        backupTTLService.execute();
+        Assert.assertFalse(getAllFiles().contains(allFilesMap.get("mc-2-Data.db")));
+        Assert.assertEquals(8, getAllFiles().size());
+    }
+
+    @Test
+    public void testPartitions() {
+        List<BackupTTLTask.Partition> partitions =
+                BackupTTLTask.getPartitions(999_999_999_999L, 1_859_817_645_000L, 16);
+        Assert.assertEquals(86, partitions.size());
+        Assert.assertEquals("100", partitions.get(0).prefix);
+        Assert.assertEquals(1_009_999_999_999L, partitions.get(0).lastModified);
+        Assert.assertEquals("185", partitions.get(85).prefix);
+        Assert.assertEquals(1_859_999_999_999L, partitions.get(85).lastModified);
+
+        partitions = BackupTTLTask.getPartitions(1_859_817_645_000L, 1_859_817_646_000L, 4);
+        Assert.assertEquals(11, partitions.size());
+        Assert.assertEquals("18598176450", partitions.get(0).prefix);
+        Assert.assertEquals("18598176460", partitions.get(10).prefix);
+
+        partitions = BackupTTLTask.getPartitions(1_859_817_645_000L, 1_859_817_645_001L, 4);
+        Assert.assertEquals(1, partitions.size());
+        Assert.assertEquals("1859817645001", partitions.get(0).prefix);
+    }
+
     @Test
     public void testRestoreMode(@Mocked InstanceState state) throws Exception {
         new Expectations() {
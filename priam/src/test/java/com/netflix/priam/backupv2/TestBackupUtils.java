@@ -50,8 +50,29 @@ public class TestBackupUtils {
     }
 
     public Path createMeta(List<String> filesToAdd, Instant snapshotTime) throws IOException {
-        MetaFileWriterBuilder.DataStep dataStep =
-                metaFileWriterBuilder.newBuilder().startMetaFileGeneration(snapshotTime);
+        return createMeta(
+                filesToAdd,
+                snapshotTime,
+                metaFileWriterBuilder.newBuilder().startMetaFileGeneration(snapshotTime));
+    }
+
+    public Path createDeltaMeta(
+            List<String> filesToAdd, Instant snapshotTime, Path baseMeta, List<String> baseFiles)
+            throws IOException {
+        AbstractBackupPath baseMetaPath = pathProvider.get();
+        baseMetaPath.parseLocal(baseMeta.toFile(), AbstractBackupPath.BackupFileType.META_V2);
+        return createMeta(
+                filesToAdd,
+                snapshotTime,
+                metaFileWriterBuilder
+                        .newBuilder()
+                        .startDeltaMetaFileGeneration(
+                                snapshotTime, baseMetaPath.getRemotePath(), baseFiles));
+    }
+
+    private Path createMeta(
+            List<String> filesToAdd, Instant snapshotTime, MetaFileWriterBuilder.DataStep dataStep)
+            throws IOException {
         ImmutableSetMultimap.Builder<String, AbstractBackupPath> builder =
                 ImmutableSetMultimap.builder();
         for (String file : filesToAdd) {
@@ -135,6 +135,8 @@ public class TestBackupV2Service {
                 result = 600;
                 backupRestoreConfig.getBackupVerificationCronExpression();
                 result = "0 0 0/1 1/1 * ? *";
+                backupRestoreConfig.getBackupContentVerificationCronExpression();
+                result = "-1";
                 backupRestoreConfig.enableV2Backups();
                 result = true;
                 configuration.isIncrementalBackupEnabled();
@@ -167,6 +169,8 @@ public class TestBackupV2Service {
                 result = 600;
                 backupRestoreConfig.getBackupVerificationCronExpression();
                 result = "0 0 0/1 1/1 * ? *";
+                backupRestoreConfig.getBackupContentVerificationCronExpression();
+                result = "-1";
                 configuration.isIncrementalBackupEnabled();
                 result = false;
                 configuration.getDataFileLocation();
@@ -205,6 +209,8 @@ public class TestBackupV2Service {
                 result = true;
                 backupRestoreConfig.getBackupVerificationCronExpression();
                 result = "-1";
+                backupRestoreConfig.getBackupContentVerificationCronExpression();
+                result = "-1";
                 backupRestoreConfig.getBackupTTLMonitorPeriodInSec();
                 result = 600;
                 configuration.getBackupCronExpression();
@@ -0,0 +1,256 @@
+/*
+ * Copyright 2020 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.netflix.priam.backupv2;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.ImmutableSetMultimap;
+import com.google.common.truth.Truth;
+import com.google.gson.stream.JsonWriter;
+import com.google.inject.Guice;
+import com.google.inject.Injector;
+import com.google.inject.Key;
+import com.google.inject.name.Names;
+import com.netflix.priam.backup.AbstractBackupPath;
+import com.netflix.priam.backup.BRTestModule;
+import com.netflix.priam.backup.IFileSystemContext;
+import com.netflix.priam.config.FakeBackupRestoreConfig;
+import com.netflix.priam.config.IConfiguration;
+import com.netflix.priam.identity.InstanceIdentity;
+import com.netflix.priam.utils.DateUtil;
+import java.io.BufferedOutputStream;
+import java.io.FileOutputStream;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import org.apache.commons.io.FileUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/** Tests for the binary meta file format and its compatibility with JSON meta files. */
+public class TestBinaryMetaFile {
+    private static final String[] COMPONENTS = {
+        "Data.db", "Index.db", "Filter.db", "Statistics.db", "Summary.db", "TOC.txt", "Digest.crc32"
+    };
+    private final Instant snapshotTime = DateUtil.parseInstant("202001010000");
+    private final MetaFileInfo metaFileInfo =
+            new MetaFileInfo("fake-app", "us-east-1", "us-east-1c", ImmutableList.of("1234567"));
+    private Path metaDir;
+
+    @Before
+    public void setUp() throws IOException {
+        metaDir = Files.createTempDirectory("binary-meta");
+    }
+
+    @After
+    public void cleanup() {
+        FileUtils.deleteQuietly(metaDir.toFile());
+    }
+
+    @Test
+    public void testRoundTrip() throws IOException {
+        List<ColumnFamilyResult> columnFamilies = generateColumnFamilies(5, 20);
+        columnFamilies.get(0).setSstables(null);
+        columnFamilies.get(1).getSstables().get(0).setSstableComponents(null);
+        columnFamilies.get(2).getSstables().get(0).setPrefix(null);
+        Path binaryMeta = writeBinary(metaDir.resolve("binary.meta"), columnFamilies);
+
+        List<ColumnFamilyResult> read = new ArrayList<>();
+        MetaFileInfo readInfo;
+        try (BinaryMetaFileReader reader =
+                new BinaryMetaFileReader(Files.newInputStream(binaryMeta))) {
+            readInfo = reader.readMetaFileInfo();
+            ColumnFamilyResult columnFamilyResult;
+            while ((columnFamilyResult = reader.readColumnFamilyResult()) != null)
+                read.add(columnFamilyResult);
+        }
+        Truth.assertThat(readInfo.toString()).isEqualTo(metaFileInfo.toString());
+        Truth.assertThat(toStrings(read)).isEqualTo(toStrings(columnFamilies));
+    }
+
+    @Test
+    public void testMetaFileReaderReadsBothFormats() throws IOException {
+        List<ColumnFamilyResult> columnFamilies = generateColumnFamilies(10, 10);
+        Path jsonMeta = writeJson(metaDir.resolve("json"), columnFamilies);
+        Path binaryMeta = writeBinary(metaDir.resolve("binary"), columnFamilies);
+        Truth.assertThat(BinaryMetaFile.isBinaryMetaFile(jsonMeta)).isFalse();
+        Truth.assertThat(BinaryMetaFile.isBinaryMetaFile(binaryMeta)).isTrue();
+
+        CollectingMetaFileReader jsonReader = new CollectingMetaFileReader();
+        jsonReader.readMeta(jsonMeta);
+        CollectingMetaFileReader binaryReader = new CollectingMetaFileReader();
+        binaryReader.readMeta(binaryMeta);
+
+        Truth.assertThat(binaryReader.getMetaFileInfo().toString())
+                .isEqualTo(jsonReader.getMetaFileInfo().toString());
+        Truth.assertThat(toStrings(binaryReader.columnFamilies))
+                .isEqualTo(toStrings(jsonReader.columnFamilies));
+        Truth.assertThat(toStrings(binaryReader.columnFamilies))
+                .isEqualTo(toStrings(columnFamilies));
+    }
+
+    @Test
+    public void testMetaFileWriterBinaryFormat() throws Exception {
+        Injector injector = Guice.createInjector(new BRTestModule());
+        IMetaProxy metaProxy = injector.getInstance(Key.get(IMetaProxy.class, Names.named("v2")));
+        MetaFileWriterBuilder.MetaFileWriter metaFileWriter =
+                new MetaFileWriterBuilder.MetaFileWriter(
+                        injector.getInstance(IConfiguration.class),
+                        new FakeBackupRestoreConfig() {
+                            @Override
+                            public boolean enableBinaryMetaFile() {
+                                return true;
+                            }
+                        },
+                        injector.getInstance(InstanceIdentity.class),
+                        injector.getProvider(AbstractBackupPath.class),
+                        injector.getInstance(IFileSystemContext.class),
+                        metaProxy);
+        List<String> remoteFiles = new ArrayList<>();
+        ImmutableSetMultimap.Builder<String, AbstractBackupPath> sstables =
+                ImmutableSetMultimap.builder();
+        for (int generation = 1; generation <= 3; generation++) {
+            for (String component : COMPONENTS) {
+                String remoteFile =
+                        "casstestbackup/1049_fake-app/1808575600/SST_V2/"
+                                + (1859817645000L + generation * 1000)
+                                + "/keyspace1/columnfamily1/SNAPPY/PLAINTEXT/mc-"
+                                + generation
+                                + "-big-"
+                                + component;
+                AbstractBackupPath path = injector.getInstance(AbstractBackupPath.class);
+                path.parseRemote(remoteFile);
+                path.setCreationTime(path.getLastModified());
+                sstables.put("mc-" + generation + "-big", path);
+                remoteFiles.add(remoteFile);
+            }
+        }
+
+        MetaFileWriterBuilder.DataStep dataStep =
+                metaFileWriter.startMetaFileGeneration(snapshotTime);
+        dataStep.addColumnfamilyResult("keyspace1", "columnfamily1", sstables.build());
+        Path metaPath = dataStep.endMetaFileGeneration().getMetaFilePath();
+        try {
+            Truth.assertThat(BinaryMetaFile.isBinaryMetaFile(metaPath)).isTrue();
+            Truth.assertThat(metaProxy.getSSTFilesFromMeta(metaPath))
+                    .containsExactlyElementsIn(remoteFiles);
+        } finally {
+            FileUtils.deleteQuietly(metaPath.toFile());
+        }
+    }
+
+    @Test
+    public void testSize() throws IOException {
+        // 50 column families with 200 SSTables each: 70,000 components.
+        List<ColumnFamilyResult> columnFamilies = generateColumnFamilies(50, 200);
+        Path jsonMeta = writeJson(metaDir.resolve("json"), columnFamilies);
+        Path binaryMeta = writeBinary(metaDir.resolve("binary"), columnFamilies);
+        Truth.assertThat(Files.size(binaryMeta) * 10).isLessThan(Files.size(jsonMeta));
+
+        CollectingMetaFileReader reader = new CollectingMetaFileReader();
+        reader.readMeta(binaryMeta);
+        Truth.assertThat(reader.columnFamilies).hasSize(50);
+    }
+
+    private List<ColumnFamilyResult> generateColumnFamilies(int columnFamilies, int sstables) {
+        List<ColumnFamilyResult> results = new ArrayList<>();
+        long lastModified = snapshotTime.toEpochMilli() - 86400000L;
+        for (int cf = 0; cf < columnFamilies; cf++) {
+            ColumnFamilyResult columnFamilyResult = new ColumnFamilyResult("keyspace1", "cf" + cf);
+            for (int generation = 1; generation <= sstables; generation++) {
+                ColumnFamilyResult.SSTableResult sstable = new ColumnFamilyResult.SSTableResult();
+                String prefix = "mc-" + generation + "-big";
+                sstable.setPrefix(prefix);
+                lastModified += 1000 * generation;
+                ImmutableSet.Builder<FileUploadResult> components = ImmutableSet.builder();
+                for (String component : COMPONENTS) {
+                    String fileName = prefix + "-" + component;
+                    FileUploadResult fileUploadResult =
+                            new FileUploadResult(
+                                    metaDir.resolve(fileName),
+                                    Instant.ofEpochMilli(lastModified + component.length()),
+                                    Instant.ofEpochMilli(lastModified - 5),
+                                    generation * 1024L * component.length());
+                    fileUploadResult.setBackupPath(
+                            "casstestbackup/1049_fake-app/1234567/SST_V2/"
+                                    + (lastModified + component.length())
+                                    + "/keyspace1/cf"
+                                    + cf
+                                    + "/SNAPPY/PLAINTEXT/"
+                                    + fileName);
+                    if (generation % 3 != 0) fileUploadResult.setUploaded(generation % 3 == 1);
+                    components.add(fileUploadResult);
+                }
+                sstable.setSstableComponents(components.build());
+                columnFamilyResult.addSstable(sstable);
+            }
+            results.add(columnFamilyResult);
+        }
+        return results;
+    }
+
+    private Path writeBinary(Path dir, List<ColumnFamilyResult> columnFamilies) throws IOException {
+        Path metaFile = dir.resolve(MetaFileInfo.getMetaFileName(snapshotTime));
+        Files.createDirectories(dir);
+        try (BinaryMetaFileWriter writer =
+                new BinaryMetaFileWriter(
+                        new BufferedOutputStream(new FileOutputStream(metaFile.toFile())))) {
+            writer.writeMetaFileInfo(metaFileInfo);
+            for (ColumnFamilyResult columnFamilyResult : columnFamilies)
+                writer.writeColumnFamilyResult(columnFamilyResult);
+        }
+        return metaFile;
+    }
+
+    /** Writes the meta file the same way as the JSON branch of {@link MetaFileWriterBuilder}. */
+    private Path writeJson(Path dir, List<ColumnFamilyResult> columnFamilies) throws IOException {
+        Path metaFile = dir.resolve(MetaFileInfo.getMetaFileName(snapshotTime));
+        Files.createDirectories(dir);
+        try (JsonWriter jsonWriter = new JsonWriter(new FileWriter(metaFile.toFile()))) {
+            jsonWriter.beginObject();
+            jsonWriter.name(MetaFileInfo.META_FILE_INFO);
+            jsonWriter.jsonValue(metaFileInfo.toString());
+            jsonWriter.name(MetaFileInfo.META_FILE_DATA);
+            jsonWriter.beginArray();
+            for (ColumnFamilyResult columnFamilyResult : columnFamilies)
+                jsonWriter.jsonValue(columnFamilyResult.toString());
+            jsonWriter.endArray();
+            jsonWriter.endObject();
+        }
+        return metaFile;
+    }
+
+    private static List<String> toStrings(List<ColumnFamilyResult> columnFamilies) {
+        List<String> strings = new ArrayList<>();
+        columnFamilies.forEach(columnFamilyResult -> strings.add(columnFamilyResult.toString()));
+        return strings;
+    }
+
+    private static class CollectingMetaFileReader extends MetaFileReader {
+        private final List<ColumnFamilyResult> columnFamilies = new ArrayList<>();
+
+        @Override
+        public void process(ColumnFamilyResult columnfamilyResult) {
+            columnFamilies.add(columnfamilyResult);
+        }
+    }
+}
@@ -22,16 +22,21 @@ import com.google.inject.Injector;
 import com.netflix.priam.backup.AbstractBackupPath;
 import com.netflix.priam.backup.BRTestModule;
 import com.netflix.priam.backup.BackupRestoreException;
+import com.netflix.priam.backup.BackupVerificationResult;
 import com.netflix.priam.backup.FakeBackupFileSystem;
 import com.netflix.priam.config.IConfiguration;
 import com.netflix.priam.utils.DateUtil;
 import java.io.File;
 import java.io.IOException;
+import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.time.Instant;
 import java.time.temporal.ChronoUnit;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
 import java.util.stream.Collectors;
@@ -118,6 +123,71 @@ public class TestMetaV2Proxy {
         Assert.assertFalse(metaProxy.isMetaFileValid(abstractBackupPath).valid);
     }
 
+    @Test
+    public void testIsMetaFileValidBatch() throws Exception {
+        Instant snapshotInstant = DateUtil.getInstant();
+        Path validMeta = backupUtils.createMeta(getRemoteFakeFiles(), snapshotInstant);
+        AbstractBackupPath validMetaPath = abstractBackupPathProvider.get();
+        validMetaPath.parseLocal(validMeta.toFile(), AbstractBackupPath.BackupFileType.META_V2);
+
+        String missingFile =
+                Paths.get(
+                                getPrefix(),
+                                AbstractBackupPath.BackupFileType.SST_V2.toString(),
+                                "1859817645000",
+                                "keyspace1",
+                                "columnfamily1",
+                                "SNAPPY",
+                                "PLAINTEXT",
+                                "file9.Data.db")
+                        .toString();
+        List<String> fileToAdd = getRemoteFakeFiles();
+        fileToAdd.add(missingFile);
+        Path invalidMeta =
+                backupUtils.createMeta(fileToAdd, snapshotInstant.minus(1, ChronoUnit.HOURS));
+        AbstractBackupPath invalidMetaPath = abstractBackupPathProvider.get();
+        invalidMetaPath.parseLocal(invalidMeta.toFile(), AbstractBackupPath.BackupFileType.META_V2);
+
+        List<BackupVerificationResult> results =
+                metaProxy.isMetaFileValid(Arrays.asList(validMetaPath, invalidMetaPath));
+        Assert.assertEquals(2, results.size());
+        Assert.assertTrue(results.get(0).valid);
+        Assert.assertEquals(getRemoteFakeFiles().size(), results.get(0).filesMatched);
+        Assert.assertFalse(results.get(1).valid);
+        Assert.assertTrue(results.get(1).manifestAvailable);
+        Assert.assertEquals(Collections.singletonList(missingFile), results.get(1).filesInMetaOnly);
+    }
+
+    @Test
+    public void testIncrementalVerification() throws Exception {
+        Instant snapshotInstant = DateUtil.getInstant();
+        Path meta = backupUtils.createMeta(getRemoteFakeFiles(), snapshotInstant);
+        AbstractBackupPath metaPath = abstractBackupPathProvider.get();
+        metaPath.parseLocal(meta.toFile(), AbstractBackupPath.BackupFileType.META_V2);
+        Assert.assertTrue(metaProxy.isMetaFileValid(metaPath).valid);
+
+        // A file of the verified snapshot goes missing from the remote file system.
+        List<String> remoteFiles = getRemoteFakeFiles();
+        remoteFiles.remove(0);
+        fs.setupTest(remoteFiles);
+        Path nextMeta =
+                backupUtils.createMeta(
+                        getRemoteFakeFiles(), snapshotInstant.plus(1, ChronoUnit.HOURS));
+        AbstractBackupPath nextMetaPath = abstractBackupPathProvider.get();
+        nextMetaPath.parseLocal(nextMeta.toFile(), AbstractBackupPath.BackupFileType.META_V2);
+        BackupVerificationResult result = metaProxy.isMetaFileValid(nextMetaPath);
+        Assert.assertTrue(result.valid);
+        Assert.assertEquals(getRemoteFakeFiles().size(), result.filesMatched);
+
+        // Only a full pass finds it.
+        Files.delete(Paths.get(configuration.getDataFileLocation(), VerifiedFiles.STATE_FILE));
+        backupUtils.createMeta(getRemoteFakeFiles(), snapshotInstant.plus(1, ChronoUnit.HOURS));
+        result = metaProxy.isMetaFileValid(nextMetaPath);
+        Assert.assertFalse(result.valid);
+        Assert.assertEquals(
+                Collections.singletonList(getRemoteFakeFiles().get(0)), result.filesInMetaOnly);
+    }
+
     @Test
     public void testGetSSTFilesFromMeta() throws Exception {
         Instant snapshotInstant = DateUtil.getInstant();
@@ -128,6 +198,71 @@ public class TestMetaV2Proxy {
         Assert.assertTrue(filesFromMeta.isEmpty());
     }
 
+    @Test
+    public void testResolveDeltaMeta() throws Exception {
+        Instant snapshotInstant = DateUtil.getInstant();
+        List<String> sstFiles =
+                getRemoteFakeFiles()
+                        .stream()
+                        .filter(
+                                file ->
+                                        file.contains(
+                                                AbstractBackupPath.BackupFileType.SST_V2.name()))
+                        .collect(Collectors.toList());
+        List<String> fullFiles = sstFiles.subList(0, 3);
+        List<String> delta1Files = sstFiles.subList(1, 4);
+        List<String> delta2Files = sstFiles.subList(2, 5);
+
+        Path fullMeta = backupUtils.createMeta(fullFiles, snapshotInstant);
+        Path delta1Meta =
+                backupUtils.createDeltaMeta(
+                        delta1Files,
+                        snapshotInstant.plus(1, ChronoUnit.MINUTES),
+                        fullMeta,
+                        fullFiles);
+        Path delta2Meta =
+                backupUtils.createDeltaMeta(
+                        delta2Files,
+                        snapshotInstant.plus(2, ChronoUnit.MINUTES),
+                        delta1Meta,
+                        delta1Files);
+
+        // Delta meta files only record the changes.
+        Assert.assertEquals(sstFiles.subList(3, 4), getSSTFilesFromSingleMeta(delta1Meta));
+
+        AbstractBackupPath fullMetaPath = abstractBackupPathProvider.get();
+        fullMetaPath.parseLocal(fullMeta.toFile(), AbstractBackupPath.BackupFileType.META_V2);
+        AbstractBackupPath delta1MetaPath = abstractBackupPathProvider.get();
+        delta1MetaPath.parseLocal(delta1Meta.toFile(), AbstractBackupPath.BackupFileType.META_V2);
+
+        ResolvedMeta resolvedMeta = metaProxy.resolveMeta(delta2Meta);
+        Assert.assertEquals(
+                Arrays.asList(delta1MetaPath.getRemotePath(), fullMetaPath.getRemotePath()),
+                resolvedMeta.getBaseMetaFiles());
+        Assert.assertEquals(new HashSet<>(delta2Files), new HashSet<>(resolvedMeta.getFiles()));
+    }
+
+    private List<String> getSSTFilesFromSingleMeta(Path metaPath) throws Exception {
+        List<String> files = new ArrayList<>();
+        new MetaFileReader() {
+            @Override
+            public void process(ColumnFamilyResult columnfamilyResult) {
+                if (columnfamilyResult.getSstables() == null) return;
+                columnfamilyResult
+                        .getSstables()
+                        .forEach(
+                                sstable ->
+                                        sstable.getSstableComponents()
+                                                .forEach(
+                                                        component ->
+                                                                files.add(
+                                                                        component
+                                                                                .getBackupPath())));
+            }
+        }.readMeta(metaPath);
+        return files;
+    }
+
     @Test
     public void testGetIncrementalFiles() throws Exception {
         DateUtil.DateRange dateRange = new DateUtil.DateRange("202812071820,20281229");
@@ -20,15 +20,24 @@ import com.google.inject.Guice;
 import com.google.inject.Injector;
 import com.netflix.priam.backup.AbstractBackup;
 import com.netflix.priam.backup.BRTestModule;
+import com.netflix.priam.backup.BackupMetadata;
+import com.netflix.priam.backup.BackupVersion;
+import com.netflix.priam.backup.IBackupStatusMgr;
+import com.netflix.priam.backup.Status;
 import com.netflix.priam.config.IBackupRestoreConfig;
 import com.netflix.priam.config.IConfiguration;
 import com.netflix.priam.identity.config.InstanceInfo;
 import com.netflix.priam.scheduler.TaskTimer;
 import com.netflix.priam.utils.BackupFileUtils;
 import com.netflix.priam.utils.DateUtil;
+import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.Date;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
 import org.junit.Assert;
 import org.junit.Before;
 import org.junit.Test;
@@ -45,6 +54,7 @@ public class TestSnapshotMetaTask {
     private final SnapshotMetaTask snapshotMetaService;
     private final TestMetaFileReader metaFileReader;
     private final InstanceInfo instanceInfo;
+    private final IBackupStatusMgr snapshotStatusMgr;
 
     public TestSnapshotMetaTask() {
         Injector injector = Guice.createInjector(new BRTestModule());
@@ -54,6 +64,7 @@ public class TestSnapshotMetaTask {
         snapshotMetaService = injector.getInstance(SnapshotMetaTask.class);
         metaFileReader = new TestMetaFileReader();
         instanceInfo = injector.getInstance(InstanceInfo.class);
+        snapshotStatusMgr = injector.getInstance(IBackupStatusMgr.class);
     }
 
     @Before
@@ -123,6 +134,69 @@ public class TestSnapshotMetaTask {
         test(1000, 2, 2);
     }
 
+    @Test
+    public void testUploadFilesCompletes() throws Exception {
+        Instant snapshotInstant = DateUtil.getInstant();
+        String snapshotName = snapshotMetaService.generateSnapshotName(snapshotInstant);
+        BackupFileUtils.generateDummyFiles(
+                dummyDataDirectoryLocation,
+                1,
+                2,
+                5,
+                AbstractBackup.SNAPSHOT_FOLDER,
+                snapshotName,
+                true);
+        // The future tells when the files enqueued for upload are uploaded.
+        snapshotMetaService
+                .uploadFiles(snapshotInstant.plus(1, ChronoUnit.HOURS))
+                .get(1, TimeUnit.MINUTES);
+        try (Stream<Path> files = Files.walk(dummyDataDirectoryLocation)) {
+            Assert.assertFalse(
+                    files.anyMatch(
+                            file ->
+                                    Files.isRegularFile(file)
+                                            && file.toString().contains(snapshotName)));
+        }
+    }
+
+    @Test
+    public void testUploadWindowFromSnapshotTime() {
+        // The meta file took an hour to generate, the upload deadline does not move.
+        Instant snapshotInstant = Instant.EPOCH.minus(1, ChronoUnit.HOURS);
+        UploadWindowPlanner.UploadWindow window =
+                snapshotMetaService.planUploadWindow(snapshotInstant);
+        Assert.assertEquals(snapshotInstant, window.getTarget());
+    }
+
+    @Test
+    public void testFailInterruptedSnapshots() {
+        Instant start = DateUtil.getInstant();
+        BackupMetadata interrupted =
+                new BackupMetadata(BackupVersion.SNAPSHOT_META_SERVICE, "1234", Date.from(start));
+        snapshotStatusMgr.start(interrupted);
+        BackupMetadata finished =
+                new BackupMetadata(
+                        BackupVersion.SNAPSHOT_META_SERVICE,
+                        "1234",
+                        Date.from(start.plusSeconds(60)));
+        snapshotStatusMgr.start(finished);
+        snapshotStatusMgr.finish(finished);
+
+        snapshotMetaService.failInterruptedSnapshots();
+        Assert.assertEquals(Status.FAILED, interrupted.getStatus());
+        Assert.assertEquals(Status.FINISHED, finished.getStatus());
+
+        // Snapshots started since are left to their upload.
+        BackupMetadata started =
+                new BackupMetadata(
+                        BackupVersion.SNAPSHOT_META_SERVICE,
+                        "1234",
+                        Date.from(start.plusSeconds(120)));
+        snapshotStatusMgr.start(started);
+        snapshotMetaService.failInterruptedSnapshots();
+        Assert.assertEquals(Status.STARTED, started.getStatus());
+    }
+
     static class TestMetaFileReader extends MetaFileReader {
 
         private int noOfSstables;
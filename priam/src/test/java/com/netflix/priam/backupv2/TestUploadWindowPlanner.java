@@ -0,0 +1,79 @@
+/*
+ * Copyright 2020 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.netflix.priam.backupv2;
+
+import java.time.Duration;
+import java.time.Instant;
+import org.apache.commons.lang3.math.Fraction;
+import org.junit.Assert;
+import org.junit.Test;
+
+/** Tests for the staggered upload windows of snapshots. */
+public class TestUploadWindowPlanner {
+    private static final Instant NOW = Instant.parse("2020-06-01T00:00:00Z");
+    private static final Instant DEADLINE = NOW.plus(Duration.ofHours(10));
+
+    @Test
+    public void noStagger() {
+        UploadWindowPlanner.UploadWindow window =
+                UploadWindowPlanner.plan(NOW, DEADLINE, Fraction.getFraction(3, 4), 0);
+        Assert.assertEquals(NOW, window.getStart());
+        Assert.assertEquals(DEADLINE, window.getTarget());
+    }
+
+    @Test
+    public void windowsAreSpreadEvenlyAndMeetTheDeadline() {
+        int nodes = 6;
+        Duration length = null;
+        Instant previousStart = null;
+        for (int i = 0; i < nodes; i++) {
+            UploadWindowPlanner.UploadWindow window =
+                    UploadWindowPlanner.plan(NOW, DEADLINE, Fraction.getFraction(i, nodes), 60);
+            Assert.assertFalse(window.getStart().isBefore(NOW));
+            Assert.assertFalse(window.getTarget().isAfter(DEADLINE));
+            Duration windowLength = Duration.between(window.getStart(), window.getTarget());
+            Assert.assertEquals(Duration.ofHours(4), windowLength);
+            if (previousStart != null) {
+                Assert.assertEquals(
+                        Duration.ofHours(1), Duration.between(previousStart, window.getStart()));
+            }
+            previousStart = window.getStart();
+            length = windowLength;
+        }
+        // The last node ends one step before the deadline.
+        Assert.assertEquals(DEADLINE.minus(Duration.ofHours(1)), previousStart.plus(length));
+    }
+
+    @Test
+    public void staggerIsCapped() {
+        UploadWindowPlanner.UploadWindow window =
+                UploadWindowPlanner.plan(NOW, DEADLINE, Fraction.getFraction(1, 2), 100);
+        Assert.assertEquals(NOW.plus(Duration.ofHours(9).dividedBy(2)), window.getStart());
+        Assert.assertEquals(
+                Duration.ofHours(1), Duration.between(window.getStart(), window.getTarget()));
+    }
+
+    @Test
+    public void deadlineInThePast() {
+        Instant deadline = NOW.minusSeconds(1);
+        UploadWindowPlanner.UploadWindow window =
+                UploadWindowPlanner.plan(NOW, deadline, Fraction.getFraction(1, 2), 50);
+        Assert.assertEquals(NOW, window.getStart());
+        Assert.assertEquals(deadline, window.getTarget());
+    }
+}
@@ -289,6 +289,61 @@ public class FakeConfiguration implements IConfiguration {
         this.skipIngressUnlessIPIsPublic = skipIngressUnlessIPIsPublic;
     }
 
+    @Override
+    public int getUploadThrottle() {
+        return (Integer)
+                fakeConfig.getOrDefault(
+                        "Priam.upload.throttle", IConfiguration.super.getUploadThrottle());
+    }
+
+    @Override
+    public long getBackupNetworkCeiling() {
+        return (Long)
+                fakeConfig.getOrDefault(
+                        "Priam.backup.network.ceiling",
+                        IConfiguration.super.getBackupNetworkCeiling());
+    }
+
+    @Override
+    public int getBackupDiskUtilizationTarget() {
+        return (Integer)
+                fakeConfig.getOrDefault(
+                        "Priam.backup.disk.utilization.target",
+                        IConfiguration.super.getBackupDiskUtilizationTarget());
+    }
+
+    @Override
+    public int getBackupDiskAwaitTargetMillis() {
+        return (Integer)
+                fakeConfig.getOrDefault(
+                        "Priam.backup.disk.await.target.ms",
+                        IConfiguration.super.getBackupDiskAwaitTargetMillis());
+    }
+
+    @Override
+    public boolean isIncrementalBackupWatchEnabled() {
+        return (Boolean)
+                fakeConfig.getOrDefault(
+                        "Priam.backup.incremental.watch.enable",
+                        IConfiguration.super.isIncrementalBackupWatchEnabled());
+    }
+
+    @Override
+    public boolean isMaintenanceCoordinationEnabled() {
+        return (Boolean)
+                fakeConfig.getOrDefault(
+                        "Priam.maintenance.coordination.enable",
+                        IConfiguration.super.isMaintenanceCoordinationEnabled());
+    }
+
+    @Override
+    public int getMaintenanceLeaseWaitMinutes() {
+        return (Integer)
+                fakeConfig.getOrDefault(
+                        "Priam.maintenance.lease.wait.minutes",
+                        IConfiguration.super.getMaintenanceLeaseWaitMinutes());
+    }
+
     @Override
     public int getBackupThreads() {
         return (Integer)
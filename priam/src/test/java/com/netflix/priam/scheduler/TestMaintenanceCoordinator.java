@@ -0,0 +1,156 @@
+/*
+ * Copyright 2020 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.netflix.priam.scheduler;
+
+import com.google.common.collect.ImmutableMap;
+import com.netflix.priam.config.FakeConfiguration;
+import com.netflix.priam.scheduler.MaintenanceCoordinator.Lease;
+import com.netflix.priam.scheduler.MaintenanceCoordinator.Priority;
+import com.netflix.priam.scheduler.MaintenanceCoordinator.Resource;
+import java.time.Clock;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+/** Tests for the leases of disk, network and CPU between maintenance tasks. */
+public class TestMaintenanceCoordinator {
+    private final FakeConfiguration config = new FakeConfiguration();
+    private final ExecutorService executor = Executors.newCachedThreadPool();
+    private MaintenanceCoordinator coordinator;
+
+    @Before
+    public void setUp() {
+        config.setFakeConfig("Priam.maintenance.coordination.enable", true);
+        coordinator = new MaintenanceCoordinator(config, Clock.systemUTC());
+    }
+
+    @After
+    public void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void disabled() throws Exception {
+        config.setFakeConfig("Priam.maintenance.coordination.enable", false);
+        Lease compaction =
+                coordinator.acquire(
+                        "COMPACTION", Priority.NORMAL, ImmutableMap.of(Resource.DISK, 100));
+        Lease flush =
+                coordinator.acquire("FLUSH", Priority.NORMAL, ImmutableMap.of(Resource.DISK, 100));
+        Assert.assertEquals(2, getLeases().size());
+        compaction.close();
+        flush.close();
+        Assert.assertTrue(getLeases().isEmpty());
+    }
+
+    @Test
+    public void waitForBudget() throws Exception {
+        Lease compaction =
+                coordinator.acquire(
+                        "COMPACTION", Priority.NORMAL, ImmutableMap.of(Resource.DISK, 75));
+        // Other resources are still available.
+        coordinator
+                .acquire(
+                        "VERIFICATION", Priority.BEST_EFFORT, ImmutableMap.of(Resource.NETWORK, 25))
+                .close();
+        Future<Lease> flush = acquireLater("FLUSH", Priority.NORMAL, Resource.DISK, 50);
+        awaitWaiting(1);
+        Assert.assertFalse(flush.isDone());
+        compaction.close();
+        flush.get(10, TimeUnit.SECONDS).close();
+        Assert.assertTrue(getLeases().isEmpty());
+    }
+
+    @Test(expected = TimeoutException.class)
+    public void timeout() throws Exception {
+        config.setFakeConfig("Priam.maintenance.lease.wait.minutes", 0);
+        coordinator.acquire("COMPACTION", Priority.NORMAL, ImmutableMap.of(Resource.DISK, 75));
+        coordinator.acquire("FLUSH", Priority.NORMAL, ImmutableMap.of(Resource.DISK, 50));
+    }
+
+    @Test
+    public void servedByPriority() throws Exception {
+        Lease compaction =
+                coordinator.acquire(
+                        "COMPACTION", Priority.NORMAL, ImmutableMap.of(Resource.DISK, 100));
+        Future<Lease> ttl = acquireLater("TTL", Priority.BEST_EFFORT, Resource.DISK, 100);
+        awaitWaiting(1);
+        Future<Lease> snapshot = acquireLater("SNAPSHOT", Priority.HIGH, Resource.DISK, 100);
+        awaitWaiting(2);
+        Assert.assertEquals("SNAPSHOT", getWaiting().get(0).get("holder"));
+        compaction.close();
+        snapshot.get(10, TimeUnit.SECONDS).close();
+        ttl.get(10, TimeUnit.SECONDS).close();
+    }
+
+    @Test
+    public void preemptBestEffort() throws Exception {
+        Lease ttl =
+                coordinator.acquire(
+                        "TTL",
+                        Priority.BEST_EFFORT,
+                        ImmutableMap.of(Resource.NETWORK, 50, Resource.CPU, 25));
+        // Disjoint resources do not preempt.
+        coordinator
+                .acquire("COMPACTION", Priority.NORMAL, ImmutableMap.of(Resource.DISK, 100))
+                .close();
+        Assert.assertFalse(ttl.isPreempted());
+        // Best effort tasks wait their turn.
+        Future<Lease> verification =
+                acquireLater("VERIFICATION", Priority.BEST_EFFORT, Resource.NETWORK, 75);
+        awaitWaiting(1);
+        Assert.assertFalse(ttl.isPreempted());
+        Future<Lease> snapshot = acquireLater("SNAPSHOT", Priority.HIGH, Resource.NETWORK, 75);
+        awaitWaiting(2);
+        while (!ttl.isPreempted()) Thread.sleep(10);
+        Assert.assertEquals(true, getLeases().get(0).get("preempted"));
+        ttl.close();
+        snapshot.get(10, TimeUnit.SECONDS).close();
+        verification.get(10, TimeUnit.SECONDS).close();
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void invalidShare() throws Exception {
+        coordinator.acquire("COMPACTION", Priority.NORMAL, ImmutableMap.of(Resource.DISK, 101));
+    }
+
+    private Future<Lease> acquireLater(
+            String holder, Priority priority, Resource resource, int share) {
+        return executor.submit(
+                () -> coordinator.acquire(holder, priority, ImmutableMap.of(resource, share)));
+    }
+
+    private void awaitWaiting(int requests) throws InterruptedException {
+        while (getWaiting().size() < requests) Thread.sleep(10);
+    }
+
+    private List<Map<String, Object>> getLeases() {
+        return coordinator.getState().get("leases");
+    }
+
+    private List<Map<String, Object>> getWaiting() {
+        return coordinator.getState().get("waiting");
+    }
+}
@@ -0,0 +1,149 @@
+/*
+ * Copyright 2020 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.netflix.priam.scheduler;
+
+import com.netflix.priam.config.FakeConfiguration;
+import com.netflix.priam.merics.Metrics;
+import com.netflix.priam.merics.TaskMetrics;
+import com.netflix.spectator.api.DefaultRegistry;
+import com.netflix.spectator.api.Registry;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Test;
+
+/** Tests for the instrumentation of the runs of scheduled tasks. */
+public class TestTaskMonitor {
+    private final Registry registry = new DefaultRegistry();
+    private final TaskMonitor taskMonitor = new TaskMonitor(new TaskMetrics(registry));
+    private final ExecutorService executor = Executors.newCachedThreadPool();
+
+    @After
+    public void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void runsOfATaskDoNotOverlap() throws Exception {
+        BlockingTask first = newTask("blocking");
+        BlockingTask second = newTask("blocking");
+        Future<?> run = executor.submit(() -> execute(first));
+        Assert.assertTrue(first.started.await(1, TimeUnit.SECONDS));
+
+        // Neither the same instance nor another instance of the task runs meanwhile.
+        first.execute(null);
+        second.execute(null);
+        Assert.assertEquals(1, first.runs);
+        Assert.assertEquals(0, second.runs);
+        Assert.assertEquals(Task.STATE.RUNNING, first.state());
+        Assert.assertEquals(Task.STATE.DONE, second.state());
+        Assert.assertEquals(2, count("task.skipped", "blocking"));
+        Assert.assertEquals(1, taskMonitor.getRunningTasks().size());
+
+        first.release.countDown();
+        run.get(1, TimeUnit.SECONDS);
+        Assert.assertEquals(Task.STATE.DONE, first.state());
+        Assert.assertTrue(taskMonitor.getRunningTasks().isEmpty());
+        second.release.countDown();
+        second.execute(null);
+        Assert.assertEquals(1, second.runs);
+
+        List<TaskMonitor.Run> runs = taskMonitor.getRecentRuns();
+        Assert.assertEquals(4, runs.size());
+        Assert.assertEquals("DONE", runs.get(0).getState());
+        Assert.assertEquals("DONE", runs.get(1).getState());
+        Assert.assertEquals("SKIPPED", runs.get(2).getState());
+        Assert.assertEquals(
+                2,
+                registry.timer(
+                                Metrics.METRIC_PREFIX + "task.execution",
+                                "task",
+                                "blocking",
+                                "result",
+                                "success")
+                        .count());
+    }
+
+    @Test
+    public void overlappingTasksAndFailures() throws Exception {
+        BlockingTask blocking = newTask("blocking");
+        Future<?> run = executor.submit(() -> execute(blocking));
+        Assert.assertTrue(blocking.started.await(1, TimeUnit.SECONDS));
+
+        BlockingTask failing = newTask("failing");
+        failing.fail = true;
+        failing.release.countDown();
+        failing.execute(null);
+        Assert.assertEquals(Task.STATE.ERROR, failing.state());
+        Assert.assertEquals(1, failing.getErrorCount());
+        Assert.assertEquals(1, count("task.overlapping", "failing"));
+        TaskMonitor.Run failed = taskMonitor.getRecentRuns().get(0);
+        Assert.assertEquals("ERROR", failed.getState());
+        Assert.assertEquals("blocking", failed.getOverlapping().get(0));
+
+        blocking.release.countDown();
+        run.get(1, TimeUnit.SECONDS);
+        Assert.assertEquals(0, count("task.overlapping", "blocking"));
+    }
+
+    private long count(String name, String task) {
+        return registry.counter(Metrics.METRIC_PREFIX + name, "task", task).count();
+    }
+
+    private BlockingTask newTask(String name) {
+        BlockingTask task = new BlockingTask(name);
+        task.setTaskMonitor(taskMonitor);
+        return task;
+    }
+
+    private static Void execute(Task task) throws Exception {
+        task.execute(null);
+        return null;
+    }
+
+    private static class BlockingTask extends Task {
+        private final String name;
+        private final CountDownLatch started = new CountDownLatch(1);
+        private final CountDownLatch release = new CountDownLatch(1);
+        private volatile int runs;
+        private volatile boolean fail;
+
+        BlockingTask(String name) {
+            super(new FakeConfiguration());
+            this.name = name;
+        }
+
+        @Override
+        public void execute() throws Exception {
+            runs++;
+            started.countDown();
+            release.await();
+            if (fail) throw new IllegalStateException("failed");
+        }
+
+        @Override
+        public String getName() {
+            return name;
+        }
+    }
+}
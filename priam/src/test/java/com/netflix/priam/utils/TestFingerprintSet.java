@@ -0,0 +1,112 @@
+/*
+ * Copyright 2020 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.netflix.priam.utils;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class TestFingerprintSet {
+
+    @Test
+    public void testAddRemove() {
+        FingerprintSet set = new FingerprintSet(0, false);
+        Assert.assertTrue(set.isEmpty());
+        Assert.assertTrue(set.add("casstestbackup/1049_fake-app/1808575600/SST_V2/mc-1-Data.db"));
+        Assert.assertFalse(set.add("casstestbackup/1049_fake-app/1808575600/SST_V2/mc-1-Data.db"));
+        Assert.assertTrue(
+                set.contains("casstestbackup/1049_fake-app/1808575600/SST_V2/mc-1-Data.db"));
+        Assert.assertFalse(
+                set.contains("casstestbackup/1049_fake-app/1808575600/SST_V2/mc-2-Data.db"));
+        Assert.assertEquals(1, set.size());
+        Assert.assertTrue(
+                set.remove("casstestbackup/1049_fake-app/1808575600/SST_V2/mc-1-Data.db"));
+        Assert.assertFalse(
+                set.remove("casstestbackup/1049_fake-app/1808575600/SST_V2/mc-1-Data.db"));
+        Assert.assertFalse(
+                set.contains("casstestbackup/1049_fake-app/1808575600/SST_V2/mc-1-Data.db"));
+        Assert.assertTrue(set.isEmpty());
+    }
+
+    @Test
+    public void testHeap() {
+        verifyAgainstHashSet(new FingerprintSet(16, false));
+    }
+
+    @Test
+    public void testOffHeap() {
+        verifyAgainstHashSet(new FingerprintSet(16, true));
+    }
+
+    @Test
+    public void testMemoryUsage() {
+        FingerprintSet set = new FingerprintSet(1000, false);
+        long memoryUsage = set.getMemoryUsage();
+        // 16 bytes per slot, with enough slots to stay below the load factor.
+        Assert.assertEquals(16 * 2048, memoryUsage);
+        // The table grows only once it is three quarters full.
+        for (int i = 0; i < 1536; i++) set.add("file-" + i);
+        Assert.assertEquals(memoryUsage, set.getMemoryUsage());
+        set.add("file-1536");
+        Assert.assertEquals(2 * memoryUsage, set.getMemoryUsage());
+    }
+
+    @Test
+    public void testWriteRead() throws Exception {
+        FingerprintSet set = new FingerprintSet(0, false);
+        for (int i = 0; i < 1000; i++) set.add("file-" + i);
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        set.writeTo(new DataOutputStream(bytes));
+        Assert.assertEquals(Integer.BYTES + 16 * 1000, bytes.size());
+
+        FingerprintSet read =
+                FingerprintSet.readFrom(
+                        new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())), true);
+        Assert.assertEquals(1000, read.size());
+        for (int i = 0; i < 1000; i++) Assert.assertTrue(read.contains("file-" + i));
+        Assert.assertFalse(read.contains("file-1000"));
+    }
+
+    private void verifyAgainstHashSet(FingerprintSet set) {
+        // Small values and a growing table exercise long clusters and removal from them.
+        Random random = new Random(42);
+        Set<String> expected = new HashSet<>();
+        for (int i = 0; i < 200_000; i++) {
+            String value = "file-" + random.nextInt(20_000);
+            if (random.nextInt(3) == 0) {
+                Assert.assertEquals(expected.remove(value), set.remove(value));
+            } else {
+                Assert.assertEquals(expected.add(value), set.add(value));
+            }
+        }
+        Assert.assertEquals(expected.size(), set.size());
+        List<String> missing = new ArrayList<>();
+        for (int i = 0; i < 20_000; i++) {
+            String value = "file-" + i;
+            if (expected.contains(value) != set.contains(value)) missing.add(value);
+        }
+        Assert.assertTrue(missing.toString(), missing.isEmpty());
+    }
+}